@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+import com.linkedin.cytodynamics.classfile.ClassFile;
+import com.linkedin.cytodynamics.exception.InvalidClassFileException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+
+/**
+ * Parsed class files of a classpath of JARs and directories. When several elements have a class, the first one wins,
+ * as it would for a classloader.
+ */
+final class ClasspathClasses {
+  private static final String CLASS_SUFFIX = ".class";
+  private static final String MODULE_INFO = "module-info.class";
+  private static final String META_INF = "META-INF/";
+
+  private final Map<String, ClassFile> classFiles;
+
+  private ClasspathClasses(Map<String, ClassFile> classFiles) {
+    this.classFiles = Collections.unmodifiableMap(classFiles);
+  }
+
+  /**
+   * @param classpath JARs and directories, in classpath order
+   * @throws IOException if an element cannot be read
+   */
+  static ClasspathClasses read(Collection<File> classpath) throws IOException {
+    Map<String, ClassFile> classFiles = new LinkedHashMap<>();
+    for (File element : classpath) {
+      if (element.isDirectory()) {
+        readDirectory(element.toPath(), classFiles);
+      } else {
+        readJar(element, classFiles);
+      }
+    }
+    return new ClasspathClasses(classFiles);
+  }
+
+  private static void readJar(File jar, Map<String, ClassFile> classFiles) throws IOException {
+    try (JarFile jarFile = new JarFile(jar, false)) {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        if (isClassFile(entry.getName())) {
+          try (InputStream inputStream = jarFile.getInputStream(entry)) {
+            addClassFile(jar + "!/" + entry.getName(), readFully(inputStream), classFiles);
+          }
+        }
+      }
+    }
+  }
+
+  private static void readDirectory(Path directory, Map<String, ClassFile> classFiles) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.filter(Files::isRegularFile).sorted().forEach(file -> {
+        String name = directory.relativize(file).toString().replace(File.separatorChar, '/');
+        if (isClassFile(name)) {
+          try {
+            addClassFile(file.toString(), Files.readAllBytes(file), classFiles);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static void addClassFile(String location, byte[] classBytes, Map<String, ClassFile> classFiles)
+      throws IOException {
+    ClassFile classFile;
+    try {
+      classFile = ClassFile.parse(classBytes);
+    } catch (InvalidClassFileException e) {
+      throw new IOException("Invalid class file " + location, e);
+    }
+    classFiles.putIfAbsent(classFile.getClassName(), classFile);
+  }
+
+  private static boolean isClassFile(String name) {
+    return name.endsWith(CLASS_SUFFIX) && !name.startsWith(META_INF) && !name.equals(MODULE_INFO);
+  }
+
+  private static byte[] readFully(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int count;
+    while ((count = inputStream.read(buffer)) != -1) {
+      bytes.write(buffer, 0, count);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return class files by binary class name, in classpath order
+   */
+  Map<String, ClassFile> getClassFiles() {
+    return this.classFiles;
+  }
+
+  boolean contains(String className) {
+    return this.classFiles.containsKey(className);
+  }
+
+  ClassFile get(String className) {
+    return this.classFiles.get(className);
+  }
+}
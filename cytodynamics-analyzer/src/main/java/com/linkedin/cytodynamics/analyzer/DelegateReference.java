@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A class which the classes of a plugin refer to, and which is not on the classpath of the plugin.
+ */
+public final class DelegateReference {
+  private final String className;
+  private final DelegateReferenceKind kind;
+  private final List<String> referencingClassNames;
+
+  DelegateReference(String className, DelegateReferenceKind kind, List<String> referencingClassNames) {
+    this.className = className;
+    this.kind = kind;
+    this.referencingClassNames = Collections.unmodifiableList(referencingClassNames);
+  }
+
+  /**
+   * @return binary name of the referenced class
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * @return how the class behaves under FULL isolation
+   */
+  public DelegateReferenceKind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return classes of the plugin which refer to the class, sorted by name
+   */
+  public List<String> getReferencingClassNames() {
+    return referencingClassNames;
+  }
+
+  @Override
+  public String toString() {
+    return className + " (" + kind + ")";
+  }
+}
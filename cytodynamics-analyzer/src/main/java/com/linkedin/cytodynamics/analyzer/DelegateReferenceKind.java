@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+/**
+ * How a class which a plugin only gets from its delegate classloader behaves under
+ * {@link com.linkedin.cytodynamics.nucleus.IsolationLevel#FULL} isolation.
+ */
+public enum DelegateReferenceKind {
+  /**
+   * The class is annotated with {@link com.linkedin.cytodynamics.nucleus.Api}, so it is visible without being
+   * whitelisted.
+   */
+  API,
+
+  /**
+   * The class comes from the bootstrap classloader, such as the classes of the JDK. It is only visible if it is
+   * whitelisted or delegate-preferred, usually through a pattern such as {@code java.*}.
+   */
+  BOOTSTRAP,
+
+  /**
+   * The class is neither part of the API nor a bootstrap class, so the plugin would fail to load it under FULL
+   * isolation unless it is whitelisted.
+   */
+  WOULD_BREAK
+}
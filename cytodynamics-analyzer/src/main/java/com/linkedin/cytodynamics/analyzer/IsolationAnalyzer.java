@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+import com.linkedin.cytodynamics.classfile.ClassFile;
+import com.linkedin.cytodynamics.matcher.BootstrapClassPredicate;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.Api;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+
+/**
+ * Finds, without running a plugin, the classes which it gets from its delegate classloader, and generates the
+ * whitelist which lets it run under {@link com.linkedin.cytodynamics.nucleus.IsolationLevel#FULL} isolation. This
+ * replaces running the plugin under {@link com.linkedin.cytodynamics.nucleus.IsolationLevel#TRANSITIONAL} isolation
+ * and collecting the warnings that it logs.
+ *
+ * The analysis reads the class files of the plugin and follows the class references of their constant pools, the
+ * types of their fields and method signatures and the types of their annotations, so it does not see classes which
+ * the plugin only loads by name, for example through reflection or a service loader.
+ *
+ * It can be run from the command line, with the analyzer and nucleus JARs on the classpath, and then prints a summary
+ * to the standard error and the whitelist, one pattern per line, to the standard output:
+ * <pre>
+ * java com.linkedin.cytodynamics.analyzer.IsolationAnalyzer &lt;plugin classpath&gt; &lt;delegate classpath&gt;
+ * </pre>
+ * where both classpaths are lists of JARs and directories separated by {@link File#pathSeparator}.
+ */
+public final class IsolationAnalyzer {
+  private static final String API_ANNOTATION_NAME = Api.class.getName();
+  private static final String JAVA_PACKAGE_PREFIX = "java.";
+
+  private IsolationAnalyzer() {
+  }
+
+  /**
+   * @param pluginClasspath JARs and directories of the plugin, which the loader reads itself
+   * @param delegateClasspath JARs and directories visible through the delegate classloader of the plugin, not
+   *                          including the JDK
+   * @return classes which the plugin gets from its delegate, and the whitelist it needs under FULL isolation
+   * @throws IOException if a JAR or directory cannot be read
+   */
+  public static IsolationReport analyze(List<File> pluginClasspath, List<File> delegateClasspath) throws IOException {
+    return analyze(ClasspathClasses.read(pluginClasspath), ClasspathClasses.read(delegateClasspath),
+        new BootstrapClassPredicate());
+  }
+
+  static IsolationReport analyze(ClasspathClasses pluginClasses, ClasspathClasses delegateClasses,
+      Predicate<String> isBootstrapClass) {
+    Map<String, Set<String>> referencingClassNames = new TreeMap<>();
+    for (ClassFile classFile : pluginClasses.getClassFiles().values()) {
+      addReferences(classFile, classFile.getReferencedClassNames(), pluginClasses, referencingClassNames);
+      addReferences(classFile, classFile.getDescriptorReferencedClassNames(), pluginClasses, referencingClassNames);
+    }
+
+    List<DelegateReference> delegateReferences = new ArrayList<>();
+    List<String> unresolvedClassNames = new ArrayList<>();
+    for (Map.Entry<String, Set<String>> entry : referencingClassNames.entrySet()) {
+      String className = entry.getKey();
+      DelegateReferenceKind kind;
+      if (isBootstrapClass.test(className)) {
+        kind = DelegateReferenceKind.BOOTSTRAP;
+      } else if (delegateClasses.contains(className)) {
+        kind = delegateClasses.get(className).getRuntimeVisibleAnnotationNames().contains(API_ANNOTATION_NAME)
+            ? DelegateReferenceKind.API : DelegateReferenceKind.WOULD_BREAK;
+      } else {
+        unresolvedClassNames.add(className);
+        continue;
+      }
+      delegateReferences.add(new DelegateReference(className, kind, new ArrayList<>(entry.getValue())));
+    }
+    return new IsolationReport(delegateReferences, unresolvedClassNames,
+        buildWhitelist(delegateReferences, delegateClasses));
+  }
+
+  private static void addReferences(ClassFile classFile, Set<String> referencedClassNames,
+      ClasspathClasses pluginClasses, Map<String, Set<String>> referencingClassNames) {
+    for (String referencedClassName : referencedClassNames) {
+      if (!pluginClasses.contains(referencedClassName)) {
+        referencingClassNames.computeIfAbsent(referencedClassName, k -> new TreeSet<>())
+            .add(classFile.getClassName());
+      }
+    }
+  }
+
+  /**
+   * Builds the fewest patterns which match the classes that need to be whitelisted but no other class of the delegate
+   * classpath. The classes of a package are whitelisted with a single {@code package.*} pattern when every class of
+   * the delegate classpath which it matches is either whitelisted anyway or part of the API, and one by one otherwise.
+   * Bootstrap classes are matched by package, or by {@code java.*} for the packages which only the JDK can define.
+   */
+  private static List<String> buildWhitelist(List<DelegateReference> delegateReferences,
+      ClasspathClasses delegateClasses) {
+    Set<String> patterns = new TreeSet<>();
+    Map<String, List<String>> wouldBreakClassNamesByPackage = new TreeMap<>();
+    for (DelegateReference delegateReference : delegateReferences) {
+      String className = delegateReference.getClassName();
+      if (delegateReference.getKind() == DelegateReferenceKind.BOOTSTRAP) {
+        patterns.add(className.startsWith(JAVA_PACKAGE_PREFIX) ? JAVA_PACKAGE_PREFIX + "*"
+            : packagePattern(ClassFile.packageName(className)));
+      } else if (delegateReference.getKind() == DelegateReferenceKind.WOULD_BREAK) {
+        wouldBreakClassNamesByPackage.computeIfAbsent(ClassFile.packageName(className), k -> new ArrayList<>())
+            .add(className);
+      }
+    }
+
+    for (Map.Entry<String, List<String>> entry : wouldBreakClassNamesByPackage.entrySet()) {
+      Set<String> wouldBreakClassNames = new TreeSet<>(entry.getValue());
+      String packagePattern = packagePattern(entry.getKey());
+      GlobMatcher packageMatcher = new GlobMatcher(packagePattern);
+      boolean isPackagePatternExact = !entry.getKey().isEmpty() && delegateClasses.getClassFiles().values().stream()
+          .filter(classFile -> packageMatcher.test(classFile.getClassName()))
+          .allMatch(classFile -> wouldBreakClassNames.contains(classFile.getClassName())
+              || classFile.getRuntimeVisibleAnnotationNames().contains(API_ANNOTATION_NAME));
+      if (isPackagePatternExact) {
+        patterns.add(packagePattern);
+      } else {
+        patterns.addAll(wouldBreakClassNames);
+      }
+    }
+
+    // drop the patterns which another pattern already covers, such as com.foo.bar.* when com.foo.* is needed
+    List<String> whitelist = new ArrayList<>();
+    for (String pattern : patterns) {
+      String matched = pattern.endsWith("*") ? pattern.substring(0, pattern.length() - 1) : pattern;
+      boolean isCovered = patterns.stream()
+          .anyMatch(other -> !other.equals(pattern) && other.endsWith("*") && new GlobMatcher(other).test(matched));
+      if (!isCovered) {
+        whitelist.add(pattern);
+      }
+    }
+    return whitelist;
+  }
+
+  private static String packagePattern(String packageName) {
+    return packageName.isEmpty() ? "*" : packageName + ".*";
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: IsolationAnalyzer <plugin classpath> <delegate classpath>");
+      System.exit(2);
+    }
+    IsolationReport report = analyze(toFiles(args[0]), toFiles(args[1]));
+    for (DelegateReferenceKind kind : DelegateReferenceKind.values()) {
+      System.err.println(String.format("%d %s classes", report.getDelegateReferences(kind).size(), kind));
+    }
+    for (DelegateReference delegateReference : report.getDelegateReferences(DelegateReferenceKind.WOULD_BREAK)) {
+      System.err.println(String.format("  %s, referenced by %s", delegateReference.getClassName(),
+          delegateReference.getReferencingClassNames()));
+    }
+    if (!report.getUnresolvedClassNames().isEmpty()) {
+      System.err.println(String.format("%d classes found nowhere: %s", report.getUnresolvedClassNames().size(),
+          report.getUnresolvedClassNames()));
+    }
+    report.getWhitelist().forEach(System.out::println);
+  }
+
+  private static List<File> toFiles(String classpath) {
+    return Arrays.stream(classpath.split(File.pathSeparator))
+        .filter(element -> !element.isEmpty())
+        .map(File::new)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+/**
+ * Result of {@link IsolationAnalyzer#analyze(List, List)}: the classes which a plugin gets from its delegate
+ * classloader, and the whitelist which lets it run under {@link com.linkedin.cytodynamics.nucleus.IsolationLevel#FULL}
+ * isolation.
+ */
+public final class IsolationReport {
+  private final List<DelegateReference> delegateReferences;
+  private final List<String> unresolvedClassNames;
+  private final List<String> whitelist;
+
+  IsolationReport(List<DelegateReference> delegateReferences, List<String> unresolvedClassNames,
+      List<String> whitelist) {
+    this.delegateReferences = Collections.unmodifiableList(delegateReferences);
+    this.unresolvedClassNames = Collections.unmodifiableList(unresolvedClassNames);
+    this.whitelist = Collections.unmodifiableList(whitelist);
+  }
+
+  /**
+   * @return classes referenced by the plugin which only the delegate classpath or the bootstrap classloader has, sorted
+   * by class name
+   */
+  public List<DelegateReference> getDelegateReferences() {
+    return delegateReferences;
+  }
+
+  /**
+   * @return delegate references of the given kind, sorted by class name
+   */
+  public List<DelegateReference> getDelegateReferences(DelegateReferenceKind kind) {
+    return delegateReferences.stream().filter(reference -> reference.getKind() == kind).collect(Collectors.toList());
+  }
+
+  /**
+   * @return classes referenced by the plugin which neither the plugin, the delegate classpath nor the bootstrap
+   * classloader has, sorted by name; these fail to load whatever the isolation level is
+   */
+  public List<String> getUnresolvedClassNames() {
+    return unresolvedClassNames;
+  }
+
+  /**
+   * @return glob patterns, for {@link com.linkedin.cytodynamics.matcher.GlobMatcher}, which whitelist the bootstrap
+   * classes and the classes which would break under FULL isolation, and no other class of the delegate classpath
+   */
+  public List<String> getWhitelist() {
+    return whitelist;
+  }
+}
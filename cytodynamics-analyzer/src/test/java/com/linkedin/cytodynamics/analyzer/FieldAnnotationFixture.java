@@ -0,0 +1,17 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+/**
+ * Plugin class analyzed by {@link IsolationAnalyzerTest}, which only refers to a class of its delegate through an
+ * annotation on a field.
+ */
+public class FieldAnnotationFixture {
+  @HostAnnotation
+  public int value;
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+
+/**
+ * Annotation which {@link IsolationAnalyzerTest} puts on the delegate classpath, and which is not part of the API.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HostAnnotation {
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+import com.linkedin.cytodynamics.test.NonApiTestInterface;
+import com.linkedin.cytodynamics.test.TestInterface;
+
+
+/**
+ * Plugin class analyzed by {@link IsolationAnalyzerTest}, which refers to an API class and to a class which is not part
+ * of the API.
+ */
+public class IsolationAnalyzerFixture implements NonApiTestInterface {
+  public String describe(TestInterface testInterface) {
+    return testInterface.getValue();
+  }
+}
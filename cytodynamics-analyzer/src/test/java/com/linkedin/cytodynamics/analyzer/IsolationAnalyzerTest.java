@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+import com.linkedin.cytodynamics.test.NonApiTestInterface;
+import com.linkedin.cytodynamics.test.TestInterface;
+import com.linkedin.cytodynamics.test.TestInterfaceImpl;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class IsolationAnalyzerTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File pluginDirectory;
+
+  @Before
+  public void setup() throws Exception {
+    // the plugin only has the fixture class
+    this.pluginDirectory = this.temporaryFolder.newFolder("plugin");
+    copyClass(IsolationAnalyzerFixture.class, this.pluginDirectory);
+  }
+
+  @Test
+  public void testReferencesClassified() throws Exception {
+    IsolationReport report = IsolationAnalyzer.analyze(Collections.singletonList(this.pluginDirectory),
+        Collections.singletonList(location(TestInterface.class)));
+
+    assertEquals(Collections.singletonList(TestInterface.class.getName()),
+        classNames(report.getDelegateReferences(DelegateReferenceKind.API)));
+    assertEquals(Collections.singletonList(NonApiTestInterface.class.getName()),
+        classNames(report.getDelegateReferences(DelegateReferenceKind.WOULD_BREAK)));
+    // String is only the return type of a method
+    assertEquals(Arrays.asList(Object.class.getName(), String.class.getName()),
+        classNames(report.getDelegateReferences(DelegateReferenceKind.BOOTSTRAP)));
+    assertEquals(Collections.singletonList(IsolationAnalyzerFixture.class.getName()),
+        report.getDelegateReferences().get(0).getReferencingClassNames());
+    assertEquals(Collections.emptyList(), report.getUnresolvedClassNames());
+
+    // the delegate classpath only has API classes and the class which would break in the test package
+    assertEquals(Arrays.asList("com.linkedin.cytodynamics.test.*", "java.*"), report.getWhitelist());
+  }
+
+  @Test
+  public void testWhitelistOnlyMatchesNeededClasses() throws Exception {
+    // TestInterfaceImpl is in the same package, but the plugin does not need it
+    IsolationReport report = IsolationAnalyzer.analyze(Collections.singletonList(this.pluginDirectory),
+        Arrays.asList(location(TestInterface.class), location(TestInterfaceImpl.class)));
+    assertEquals(Arrays.asList(NonApiTestInterface.class.getName(), "java.*"), report.getWhitelist());
+  }
+
+  @Test
+  public void testUnresolvedClasses() throws Exception {
+    IsolationReport report = IsolationAnalyzer.analyze(Collections.singletonList(this.pluginDirectory),
+        Collections.emptyList());
+    assertEquals(Arrays.asList(NonApiTestInterface.class.getName(), TestInterface.class.getName()),
+        report.getUnresolvedClassNames());
+    assertEquals(Collections.singletonList("java.*"), report.getWhitelist());
+  }
+
+  @Test
+  public void testDescriptorAndAnnotationReferences() throws Exception {
+    // none of these fixtures has a constant pool class reference to the class of its delegate
+    assertWouldBreak(FieldTypeFixture.class, NonApiTestInterface.class);
+    assertWouldBreak(MethodSignatureFixture.class, NonApiTestInterface.class);
+    assertWouldBreak(ClassAnnotationFixture.class, HostAnnotation.class);
+    assertWouldBreak(FieldAnnotationFixture.class, HostAnnotation.class);
+  }
+
+  private void assertWouldBreak(Class<?> fixtureClass, Class<?> delegateClass) throws Exception {
+    File pluginDirectory = this.temporaryFolder.newFolder();
+    copyClass(fixtureClass, pluginDirectory);
+    File hostDirectory = this.temporaryFolder.newFolder();
+    copyClass(HostAnnotation.class, hostDirectory);
+
+    IsolationReport report = IsolationAnalyzer.analyze(Collections.singletonList(pluginDirectory),
+        Arrays.asList(location(TestInterface.class), hostDirectory));
+
+    List<DelegateReference> wouldBreak = report.getDelegateReferences(DelegateReferenceKind.WOULD_BREAK);
+    assertEquals(Collections.singletonList(delegateClass.getName()), classNames(wouldBreak));
+    assertEquals(Collections.singletonList(fixtureClass.getName()), wouldBreak.get(0).getReferencingClassNames());
+  }
+
+  private static void copyClass(Class<?> cl, File directory) throws Exception {
+    String entryName = cl.getName().replace('.', '/') + ".class";
+    Path classFile = directory.toPath().resolve(entryName);
+    Files.createDirectories(classFile.getParent());
+    try (InputStream inputStream = cl.getClassLoader().getResourceAsStream(entryName)) {
+      Files.copy(inputStream, classFile);
+    }
+  }
+
+  private static File location(Class<?> cl) throws Exception {
+    return new File(cl.getProtectionDomain().getCodeSource().getLocation().toURI());
+  }
+
+  private static List<String> classNames(List<DelegateReference> delegateReferences) {
+    return delegateReferences.stream().map(DelegateReference::getClassName).collect(Collectors.toList());
+  }
+}
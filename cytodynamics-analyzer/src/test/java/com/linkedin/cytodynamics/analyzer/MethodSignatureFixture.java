@@ -0,0 +1,19 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.analyzer;
+
+import com.linkedin.cytodynamics.test.NonApiTestInterface;
+
+
+/**
+ * Plugin class analyzed by {@link IsolationAnalyzerTest}, which only refers to a class of its delegate through the
+ * signature of a method.
+ */
+public interface MethodSignatureFixture {
+  NonApiTestInterface create(String name);
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.benchmark;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures building a loader which indexes a plugin with many JARs, for pools of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ClasspathIndexingBenchmark {
+  @Param({"1", "2", "4", "8"})
+  public int parallelism;
+
+  @Param({"200"})
+  public int jarCount;
+
+  @Param({"200"})
+  public int classesPerJar;
+
+  private SyntheticPlugin plugin;
+  private ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    this.plugin = SyntheticPlugin.generate(this.jarCount, this.classesPerJar);
+    this.pool = new ForkJoinPool(this.parallelism);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.pool.shutdown();
+    this.plugin.close();
+  }
+
+  @Benchmark
+  public ClassLoader buildIndexedLoader() {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(this.plugin.getClasspath())
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addWhitelistedClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .withClasspathIndexing(true)
+        .withIndexingPool(this.pool)
+        .build();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.benchmark;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationEngine;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Compares the {@link IsolationEngine}s, for loading a plugin from scratch and for lookups of already loaded plugin
+ * classes and of delegate classes. {@link IsolationEngine#MODULE_LAYER} needs to run on Java 11 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class IsolationEngineBenchmark {
+  private static final String DELEGATE_CLASS_NAME = "java.util.ArrayList";
+
+  @Param({"CLASS_LOADER", "MODULE_LAYER"})
+  public IsolationEngine engine;
+
+  @Param({"10"})
+  public int jarCount;
+
+  @Param({"100"})
+  public int classesPerJar;
+
+  private SyntheticPlugin plugin;
+  private ClassLoader loadedLoader;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    this.plugin = SyntheticPlugin.generate(this.jarCount, this.classesPerJar);
+    this.loadedLoader = buildLoader();
+    for (String className : this.plugin.getClassNames()) {
+      this.loadedLoader.loadClass(className);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.plugin.close();
+  }
+
+  /**
+   * Builds a loader and loads every class of the plugin.
+   */
+  @Benchmark
+  public void buildAndLoadAll(Blackhole blackhole) throws Exception {
+    ClassLoader loader = buildLoader();
+    for (String className : this.plugin.getClassNames()) {
+      blackhole.consume(loader.loadClass(className));
+    }
+  }
+
+  /**
+   * Looks up every class of the plugin through a loader which already loaded them.
+   */
+  @Benchmark
+  public void loadLoadedClasses(Blackhole blackhole) throws Exception {
+    for (String className : this.plugin.getClassNames()) {
+      blackhole.consume(this.loadedLoader.loadClass(className));
+    }
+  }
+
+  /**
+   * Looks up a whitelisted class of the delegate.
+   */
+  @Benchmark
+  public Class<?> loadDelegateClass() throws Exception {
+    return this.loadedLoader.loadClass(DELEGATE_CLASS_NAME);
+  }
+
+  private ClassLoader buildLoader() {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withIsolationEngine(this.engine)
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(this.plugin.getClasspath())
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addWhitelistedClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .build();
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.benchmark;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LinkCheckResult;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures checking the links of a plugin with many classes on a fresh loader, for pools of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class LinkCheckBenchmark {
+  @Param({"1", "4", "8"})
+  public int parallelism;
+
+  @Param({"250"})
+  public int jarCount;
+
+  @Param({"200"})
+  public int classesPerJar;
+
+  private SyntheticPlugin plugin;
+  private ForkJoinPool pool;
+  private CytodynamicsLoader loader;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    this.plugin = SyntheticPlugin.generate(this.jarCount, this.classesPerJar);
+    this.pool = new ForkJoinPool(this.parallelism);
+  }
+
+  /**
+   * Checked classes stay loaded, so every check needs a loader of its own.
+   */
+  @Setup(Level.Invocation)
+  public void buildLoader() {
+    this.loader = (CytodynamicsLoader) LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(this.plugin.getClasspath())
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addWhitelistedClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.pool.shutdown();
+    this.plugin.close();
+  }
+
+  @Benchmark
+  public LinkCheckResult checkLinks() {
+    return this.loader.checkLinks(this.pool);
+  }
+}
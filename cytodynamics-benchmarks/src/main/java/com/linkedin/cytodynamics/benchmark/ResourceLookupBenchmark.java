@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.benchmark;
+
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationship;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Measures resource lookups through a loader with a parent and a fallback delegate, which both see the JARs of the
+ * plugin as well. Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ResourceLookupBenchmark {
+  private static final String MISSING_RESOURCE = "com/linkedin/cytodynamics/synthetic/Missing.class";
+
+  @Param({"10"})
+  public int jarCount;
+
+  @Param({"10"})
+  public int classesPerJar;
+
+  private SyntheticPlugin plugin;
+  private URLClassLoader delegateClassLoader;
+  private ClassLoader loader;
+  private String resourceName;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    this.plugin = SyntheticPlugin.generate(this.jarCount, this.classesPerJar);
+    URL[] delegateClasspath = new URL[this.plugin.getClasspath().size()];
+    for (int i = 0; i < delegateClasspath.length; i++) {
+      URI jarUri = this.plugin.getClasspath().get(i);
+      delegateClasspath[i] = jarUri.toURL();
+    }
+    this.delegateClassLoader = new URLClassLoader(delegateClasspath, null);
+    this.loader = LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(this.plugin.getClasspath())
+        .withParentRelationship(relationship(IsolationLevel.NONE))
+        .addFallbackDelegate(relationship(IsolationLevel.FULL))
+        .build();
+    this.resourceName = this.plugin.getClassNames().get(0).replace('.', '/') + ".class";
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.delegateClassLoader.close();
+    this.plugin.close();
+  }
+
+  @Benchmark
+  public URL getResource() {
+    return this.loader.getResource(this.resourceName);
+  }
+
+  @Benchmark
+  public URL getMissingResource() {
+    return this.loader.getResource(MISSING_RESOURCE);
+  }
+
+  @Benchmark
+  public void getResources(Blackhole blackhole) throws IOException {
+    consume(this.loader.getResources(this.resourceName), blackhole);
+  }
+
+  @Benchmark
+  public void getMissingResources(Blackhole blackhole) throws IOException {
+    consume(this.loader.getResources(MISSING_RESOURCE), blackhole);
+  }
+
+  @Benchmark
+  public int readResourceThroughUrl() throws IOException {
+    return drain(this.loader.getResource(this.resourceName).openStream());
+  }
+
+  @Benchmark
+  public int getResourceAsStream() throws IOException {
+    return drain(this.loader.getResourceAsStream(this.resourceName));
+  }
+
+  @Benchmark
+  public ByteBuffer getResourceAsByteBuffer() throws IOException {
+    return ((CytodynamicsLoader) this.loader).getResourceAsByteBuffer(this.resourceName);
+  }
+
+  private DelegateRelationship relationship(IsolationLevel isolationLevel) {
+    return DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(this.delegateClassLoader)
+        .withIsolationLevel(isolationLevel)
+        .build();
+  }
+
+  /**
+   * @return number of bytes read
+   */
+  private static int drain(InputStream inputStream) throws IOException {
+    try (InputStream in = inputStream) {
+      byte[] buffer = new byte[4096];
+      int total = 0;
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        total += count;
+      }
+      return total;
+    }
+  }
+
+  private static void consume(Enumeration<URL> resources, Blackhole blackhole) {
+    while (resources.hasMoreElements()) {
+      blackhole.consume(resources.nextElement());
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+
+/**
+ * A generated plugin classpath: a number of JARs, each containing empty classes in its own package.
+ */
+public final class SyntheticPlugin implements AutoCloseable {
+  private final File directory;
+  private final List<URI> classpath;
+  private final List<String> classNames;
+
+  private SyntheticPlugin(File directory, List<URI> classpath, List<String> classNames) {
+    this.directory = directory;
+    this.classpath = Collections.unmodifiableList(classpath);
+    this.classNames = Collections.unmodifiableList(classNames);
+  }
+
+  /**
+   * Generates {@code jarCount} JARs with {@code classesPerJar} classes each in a temporary directory.
+   */
+  public static SyntheticPlugin generate(int jarCount, int classesPerJar) throws IOException {
+    File directory = Files.createTempDirectory("cytodynamics-benchmark").toFile();
+    List<URI> classpath = new ArrayList<>();
+    List<String> classNames = new ArrayList<>();
+    for (int jarIndex = 0; jarIndex < jarCount; jarIndex++) {
+      // JAR names must be valid automatic module names for the module layer engine
+      File jarFile = new File(directory, "plugin" + jarIndex + ".jar");
+      try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jarFile))) {
+        for (int classIndex = 0; classIndex < classesPerJar; classIndex++) {
+          String className = "com.linkedin.cytodynamics.synthetic.plugin" + jarIndex + ".Class" + classIndex;
+          jarOutputStream.putNextEntry(new JarEntry(className.replace('.', '/') + ".class"));
+          jarOutputStream.write(generateClass(className));
+          jarOutputStream.closeEntry();
+          classNames.add(className);
+        }
+      }
+      classpath.add(jarFile.toURI());
+    }
+    return new SyntheticPlugin(directory, classpath, classNames);
+  }
+
+  public List<URI> getClasspath() {
+    return classpath;
+  }
+
+  public List<String> getClassNames() {
+    return classNames;
+  }
+
+  @Override
+  public void close() {
+    File[] files = this.directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    this.directory.delete();
+  }
+
+  /**
+   * Generates the bytes of a class file for a public class extending {@link Object} without any members.
+   */
+  static byte[] generateClass(String className) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0xCAFEBABE);
+    out.writeShort(0);
+    // Java 8 class file
+    out.writeShort(52);
+    out.writeShort(5);
+    // #1, #2: this class
+    out.writeByte(1);
+    out.writeUTF(className.replace('.', '/'));
+    out.writeByte(7);
+    out.writeShort(1);
+    // #3, #4: superclass
+    out.writeByte(1);
+    out.writeUTF("java/lang/Object");
+    out.writeByte(7);
+    out.writeShort(3);
+    // ACC_PUBLIC | ACC_SUPER
+    out.writeShort(0x0021);
+    out.writeShort(2);
+    out.writeShort(4);
+    // no interfaces, fields, methods or attributes
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.flush();
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.classfile;
+
+import com.linkedin.cytodynamics.exception.InvalidClassFileException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Structural information read from a class file without loading the class: its name, superclass, interfaces,
+ * class-level annotations and the classes which it references. Only the parts of the class file needed for that are
+ * decoded; method bodies are skipped.
+ */
+public final class ClassFile {
+  private static final int MAGIC = 0xCAFEBABE;
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+  private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+  private static final String RUNTIME_INVISIBLE_ANNOTATIONS = "RuntimeInvisibleAnnotations";
+  private static final String RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS = "RuntimeVisibleParameterAnnotations";
+  private static final String RUNTIME_INVISIBLE_PARAMETER_ANNOTATIONS = "RuntimeInvisibleParameterAnnotations";
+
+  private final int majorVersion;
+  private final int accessFlags;
+  private final String className;
+  private final String superClassName;
+  private final List<String> interfaceNames;
+  private final Set<String> annotationNames;
+  private final Set<String> runtimeVisibleAnnotationNames;
+  private final Set<String> referencedClassNames;
+  private final Set<String> descriptorReferencedClassNames;
+
+  private ClassFile(int majorVersion, int accessFlags, String className, String superClassName,
+      List<String> interfaceNames, Set<String> annotationNames, Set<String> runtimeVisibleAnnotationNames,
+      Set<String> referencedClassNames, Set<String> descriptorReferencedClassNames) {
+    this.majorVersion = majorVersion;
+    this.accessFlags = accessFlags;
+    this.className = className;
+    this.superClassName = superClassName;
+    this.interfaceNames = Collections.unmodifiableList(interfaceNames);
+    this.annotationNames = Collections.unmodifiableSet(annotationNames);
+    this.runtimeVisibleAnnotationNames = Collections.unmodifiableSet(runtimeVisibleAnnotationNames);
+    this.referencedClassNames = Collections.unmodifiableSet(referencedClassNames);
+    this.descriptorReferencedClassNames = Collections.unmodifiableSet(descriptorReferencedClassNames);
+  }
+
+  /**
+   * Parses a class file.
+   *
+   * @param classBytes content of the class file, from its position to its limit; the position is not changed
+   * @throws InvalidClassFileException if the bytes are not a valid class file
+   */
+  public static ClassFile parse(ByteBuffer classBytes) {
+    try {
+      return new Parser(classBytes.duplicate()).parse();
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new InvalidClassFileException("Truncated or malformed class file", e);
+    }
+  }
+
+  /**
+   * @see #parse(ByteBuffer)
+   */
+  public static ClassFile parse(byte[] classBytes) {
+    return parse(ByteBuffer.wrap(classBytes));
+  }
+
+  /**
+   * @return major version of the class file format, e.g. 52 for Java 8
+   */
+  public int getMajorVersion() {
+    return this.majorVersion;
+  }
+
+  /**
+   * @return access flags of the class, as defined by the JVM specification
+   */
+  public int getAccessFlags() {
+    return this.accessFlags;
+  }
+
+  /**
+   * @return binary name of the class, e.g. "com.linkedin.Foo$Bar"
+   */
+  public String getClassName() {
+    return this.className;
+  }
+
+  /**
+   * @return binary name of the superclass; null for java.lang.Object and module descriptors
+   */
+  public String getSuperClassName() {
+    return this.superClassName;
+  }
+
+  /**
+   * @return binary names of the directly implemented interfaces, in declaration order
+   */
+  public List<String> getInterfaceNames() {
+    return this.interfaceNames;
+  }
+
+  /**
+   * @return binary names of the annotation types present on the class, whatever their retention
+   */
+  public Set<String> getAnnotationNames() {
+    return this.annotationNames;
+  }
+
+  /**
+   * @return binary names of the annotation types present on the class with runtime retention, which are the ones that
+   * reflection on the loaded class would see
+   */
+  public Set<String> getRuntimeVisibleAnnotationNames() {
+    return this.runtimeVisibleAnnotationNames;
+  }
+
+  /**
+   * @return binary names of the classes referenced from the constant pool, including the superclass and interfaces but
+   * not including this class itself or array classes (their element classes are included instead)
+   */
+  public Set<String> getReferencedClassNames() {
+    return this.referencedClassNames;
+  }
+
+  /**
+   * Classes which the class only names in type descriptors and annotations, and which
+   * {@link #getReferencedClassNames()} therefore does not include: the types of its fields, the parameter and return
+   * types of its methods, the types in the field and method descriptors of the constant pool, and the annotation types
+   * and class or enum values of the annotations on the class, its fields, its methods and their parameters. The JVM
+   * only loads these classes when they are used, but reflection, for example by serialization or dependency injection
+   * frameworks, loads them anyway.
+   *
+   * @return binary names of the classes, not including this class itself or primitive types, and with the element
+   * classes of arrays instead of the arrays
+   */
+  public Set<String> getDescriptorReferencedClassNames() {
+    return this.descriptorReferencedClassNames;
+  }
+
+  /**
+   * @return package of a binary class name; "" for the default package
+   */
+  public static String packageName(String className) {
+    int lastDot = className.lastIndexOf('.');
+    return lastDot == -1 ? "" : className.substring(0, lastDot);
+  }
+
+  private static final class Parser {
+    private final ByteBuffer buffer;
+    private int[] constantOffsets;
+    private int[] constantTags;
+    private String[] utf8Cache;
+
+    Parser(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    ClassFile parse() {
+      if (this.buffer.getInt() != MAGIC) {
+        throw new InvalidClassFileException("Not a class file");
+      }
+      this.buffer.getShort();
+      int majorVersion = u2();
+      readConstantPool();
+
+      int accessFlags = u2();
+      String className = className(u2());
+      int superClassIndex = u2();
+      String superClassName = superClassIndex == 0 ? null : className(superClassIndex);
+      int interfaceCount = u2();
+      List<String> interfaceNames = new ArrayList<>(interfaceCount);
+      for (int i = 0; i < interfaceCount; i++) {
+        interfaceNames.add(className(u2()));
+      }
+      Set<String> descriptorReferencedClassNames = new LinkedHashSet<>();
+      // fields, then methods
+      readMembers(descriptorReferencedClassNames);
+      readMembers(descriptorReferencedClassNames);
+
+      Set<String> annotationNames = new LinkedHashSet<>();
+      Set<String> runtimeVisibleAnnotationNames = new LinkedHashSet<>();
+      int attributeCount = u2();
+      for (int i = 0; i < attributeCount; i++) {
+        String attributeName = utf8(u2());
+        int length = this.buffer.getInt();
+        int end = this.buffer.position() + length;
+        boolean isRuntimeVisible = RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName);
+        if (isRuntimeVisible || RUNTIME_INVISIBLE_ANNOTATIONS.equals(attributeName)) {
+          int annotationCount = u2();
+          for (int j = 0; j < annotationCount; j++) {
+            String annotationName = descriptorClassName(utf8(u2()));
+            annotationNames.add(annotationName);
+            if (isRuntimeVisible) {
+              runtimeVisibleAnnotationNames.add(annotationName);
+            }
+            descriptorReferencedClassNames.add(annotationName);
+            readAnnotationElements(descriptorReferencedClassNames);
+          }
+        }
+        this.buffer.position(end);
+      }
+
+      Set<String> referencedClassNames = new LinkedHashSet<>();
+      for (int i = 1; i < this.constantTags.length; i++) {
+        if (this.constantTags[i] == CONSTANT_CLASS) {
+          String referencedClassName = className(i);
+          if (referencedClassName != null && !referencedClassName.equals(className)) {
+            referencedClassNames.add(referencedClassName);
+          }
+        } else if (this.constantTags[i] == CONSTANT_NAME_AND_TYPE) {
+          addDescriptorClassNames(utf8(this.buffer.getShort(this.constantOffsets[i] + 2) & 0xFFFF),
+              descriptorReferencedClassNames);
+        } else if (this.constantTags[i] == CONSTANT_METHOD_TYPE) {
+          addDescriptorClassNames(utf8(this.buffer.getShort(this.constantOffsets[i]) & 0xFFFF),
+              descriptorReferencedClassNames);
+        }
+      }
+      descriptorReferencedClassNames.remove(null);
+      descriptorReferencedClassNames.remove(className);
+      descriptorReferencedClassNames.removeAll(referencedClassNames);
+      return new ClassFile(majorVersion, accessFlags, className, superClassName, interfaceNames, annotationNames,
+          runtimeVisibleAnnotationNames, referencedClassNames, descriptorReferencedClassNames);
+    }
+
+    private void readConstantPool() {
+      int count = u2();
+      this.constantOffsets = new int[count];
+      this.constantTags = new int[count];
+      this.utf8Cache = new String[count];
+      for (int i = 1; i < count; i++) {
+        int tag = this.buffer.get() & 0xFF;
+        this.constantTags[i] = tag;
+        this.constantOffsets[i] = this.buffer.position();
+        switch (tag) {
+          case CONSTANT_UTF8:
+            skip(u2());
+            break;
+          case CONSTANT_CLASS:
+          case CONSTANT_STRING:
+          case CONSTANT_METHOD_TYPE:
+          case CONSTANT_MODULE:
+          case CONSTANT_PACKAGE:
+            skip(2);
+            break;
+          case CONSTANT_METHOD_HANDLE:
+            skip(3);
+            break;
+          case CONSTANT_INTEGER:
+          case CONSTANT_FLOAT:
+          case CONSTANT_FIELDREF:
+          case CONSTANT_METHODREF:
+          case CONSTANT_INTERFACE_METHODREF:
+          case CONSTANT_NAME_AND_TYPE:
+          case CONSTANT_DYNAMIC:
+          case CONSTANT_INVOKE_DYNAMIC:
+            skip(4);
+            break;
+          case CONSTANT_LONG:
+          case CONSTANT_DOUBLE:
+            skip(8);
+            // takes two entries
+            i++;
+            break;
+          default:
+            throw new InvalidClassFileException("Unknown constant pool tag " + tag + " at index " + i);
+        }
+      }
+    }
+
+    /**
+     * Reads the fields or the methods of the class, adding the classes of their descriptors and annotations to
+     * {@code classNames}. Method bodies are skipped.
+     */
+    private void readMembers(Set<String> classNames) {
+      int count = u2();
+      for (int i = 0; i < count; i++) {
+        // access flags, name
+        skip(4);
+        addDescriptorClassNames(utf8(u2()), classNames);
+        int attributeCount = u2();
+        for (int j = 0; j < attributeCount; j++) {
+          String attributeName = utf8(u2());
+          int length = this.buffer.getInt();
+          int end = this.buffer.position() + length;
+          if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)
+              || RUNTIME_INVISIBLE_ANNOTATIONS.equals(attributeName)) {
+            readAnnotations(classNames);
+          } else if (RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS.equals(attributeName)
+              || RUNTIME_INVISIBLE_PARAMETER_ANNOTATIONS.equals(attributeName)) {
+            int parameterCount = this.buffer.get() & 0xFF;
+            for (int k = 0; k < parameterCount; k++) {
+              readAnnotations(classNames);
+            }
+          }
+          this.buffer.position(end);
+        }
+      }
+    }
+
+    private void readAnnotations(Set<String> classNames) {
+      int annotationCount = u2();
+      for (int i = 0; i < annotationCount; i++) {
+        classNames.add(descriptorClassName(utf8(u2())));
+        readAnnotationElements(classNames);
+      }
+    }
+
+    /**
+     * Reads the element values of an annotation, adding the classes of its enum, class and annotation values to
+     * {@code classNames}.
+     */
+    private void readAnnotationElements(Set<String> classNames) {
+      int pairCount = u2();
+      for (int i = 0; i < pairCount; i++) {
+        skip(2);
+        readElementValue(classNames);
+      }
+    }
+
+    private void readElementValue(Set<String> classNames) {
+      int tag = this.buffer.get() & 0xFF;
+      switch (tag) {
+        case 'e':
+          // enum type, then constant name
+          classNames.add(descriptorClassName(utf8(u2())));
+          skip(2);
+          break;
+        case 'c':
+          // return descriptor, which can also be V or a primitive or array type
+          addDescriptorClassNames(utf8(u2()), classNames);
+          break;
+        case '@':
+          classNames.add(descriptorClassName(utf8(u2())));
+          readAnnotationElements(classNames);
+          break;
+        case '[':
+          int count = u2();
+          for (int i = 0; i < count; i++) {
+            readElementValue(classNames);
+          }
+          break;
+        default:
+          // constants
+          skip(2);
+          break;
+      }
+    }
+
+    /**
+     * Adds the binary names of the classes in a field or method descriptor, such as
+     * "(ILcom/linkedin/Foo;)[Ljava/lang/String;", to {@code classNames}.
+     */
+    private static void addDescriptorClassNames(String descriptor, Set<String> classNames) {
+      int position = 0;
+      while (position < descriptor.length()) {
+        if (descriptor.charAt(position) == 'L') {
+          int end = descriptor.indexOf(';', position);
+          if (end == -1) {
+            throw new InvalidClassFileException("Malformed descriptor " + descriptor);
+          }
+          classNames.add(descriptor.substring(position + 1, end).replace('/', '.'));
+          position = end + 1;
+        } else {
+          // primitives, array dimensions and the parentheses of method descriptors
+          position++;
+        }
+      }
+    }
+
+    /**
+     * @return binary name of the class at {@code index}, or of the element class for an array class; null for arrays of
+     * primitives
+     */
+    private String className(int index) {
+      if (index <= 0 || index >= this.constantTags.length || this.constantTags[index] != CONSTANT_CLASS) {
+        throw new InvalidClassFileException("Constant pool index " + index + " is not a class");
+      }
+      String internalName = utf8(this.buffer.getShort(this.constantOffsets[index]) & 0xFFFF);
+      if (internalName.startsWith("[")) {
+        return descriptorClassName(internalName.substring(internalName.lastIndexOf('[') + 1));
+      }
+      return internalName.replace('/', '.');
+    }
+
+    /**
+     * @return binary name of the class in a field descriptor such as "Lcom/linkedin/Foo;", or null for primitives
+     */
+    private static String descriptorClassName(String descriptor) {
+      if (descriptor.startsWith("L") && descriptor.endsWith(";")) {
+        return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+      }
+      return null;
+    }
+
+    private String utf8(int index) {
+      if (index <= 0 || index >= this.constantTags.length || this.constantTags[index] != CONSTANT_UTF8) {
+        throw new InvalidClassFileException("Constant pool index " + index + " is not a UTF-8 string");
+      }
+      String value = this.utf8Cache[index];
+      if (value == null) {
+        value = decodeModifiedUtf8(this.constantOffsets[index]);
+        this.utf8Cache[index] = value;
+      }
+      return value;
+    }
+
+    private String decodeModifiedUtf8(int offset) {
+      int length = this.buffer.getShort(offset) & 0xFFFF;
+      char[] chars = new char[length];
+      int charCount = 0;
+      int position = offset + 2;
+      int end = position + length;
+      while (position < end) {
+        int b = this.buffer.get(position++) & 0xFF;
+        if (b < 0x80) {
+          chars[charCount++] = (char) b;
+        } else if ((b & 0xE0) == 0xC0) {
+          chars[charCount++] = (char) (((b & 0x1F) << 6) | (this.buffer.get(position++) & 0x3F));
+        } else if ((b & 0xF0) == 0xE0) {
+          int b2 = this.buffer.get(position++) & 0x3F;
+          int b3 = this.buffer.get(position++) & 0x3F;
+          chars[charCount++] = (char) (((b & 0x0F) << 12) | (b2 << 6) | b3);
+        } else {
+          throw new InvalidClassFileException("Invalid modified UTF-8 string at offset " + offset);
+        }
+      }
+      return new String(chars, 0, charCount);
+    }
+
+    private int u2() {
+      return this.buffer.getShort() & 0xFFFF;
+    }
+
+    private void skip(int count) {
+      this.buffer.position(this.buffer.position() + count);
+    }
+  }
+}
@@ -13,9 +13,16 @@ import java.util.regex.Pattern;
 
 /**
  * Simple wrapper over regexes for glob matching.
+ *
+ * Patterns which are a literal, or a literal with a single {@code *} such as {@code java.*}, are matched by comparing
+ * strings instead of running the regex, since they are by far the most common and matching them should not allocate.
  */
 public class GlobMatcher implements Predicate<String> {
   private final Pattern pattern;
+  // literal before and after the only wildcard of a simple pattern; both null if the pattern is not simple
+  private final String prefix;
+  private final String suffix;
+  private final boolean hasStar;
 
   public GlobMatcher(String globPattern) {
     // Turn the glob expression into a regex
@@ -51,10 +58,46 @@ public class GlobMatcher implements Predicate<String> {
 
     String regexPattern = builder.toString();
     pattern = Pattern.compile(regexPattern);
+
+    int star = globPattern.indexOf('*');
+    if (globPattern.indexOf('?') != -1 || (star != -1 && globPattern.indexOf('*', star + 1) != -1)) {
+      this.prefix = null;
+      this.suffix = null;
+      this.hasStar = false;
+    } else if (star == -1) {
+      this.prefix = globPattern;
+      this.suffix = "";
+      this.hasStar = false;
+    } else {
+      this.prefix = globPattern.substring(0, star);
+      this.suffix = globPattern.substring(star + 1);
+      this.hasStar = true;
+    }
   }
 
   @Override
   public boolean test(String toMatch) {
-    return pattern.matcher(toMatch).matches();
+    if (this.prefix == null) {
+      return pattern.matcher(toMatch).matches();
+    }
+    if (!this.hasStar) {
+      return this.prefix.equals(toMatch);
+    }
+    int wildcardEnd = toMatch.length() - this.suffix.length();
+    return wildcardEnd >= this.prefix.length() && toMatch.startsWith(this.prefix) && toMatch.endsWith(this.suffix)
+        && !hasLineTerminator(toMatch, this.prefix.length(), wildcardEnd);
+  }
+
+  /**
+   * The {@code .} of the regex does not match line terminators, so neither does the string comparison.
+   */
+  private static boolean hasLineTerminator(String value, int from, int to) {
+    for (int i = from; i < to; i++) {
+      char c = value.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * Result of a {@link CytodynamicsLoader#loadClasses(java.util.Collection)} call.
+ */
+public final class BatchLoadResult {
+  private final Map<String, Class<?>> loadedClasses;
+  private final Map<String, Throwable> failures;
+
+  BatchLoadResult(Map<String, Class<?>> loadedClasses, Map<String, Throwable> failures) {
+    this.loadedClasses = Collections.unmodifiableMap(loadedClasses);
+    this.failures = Collections.unmodifiableMap(failures);
+  }
+
+  /**
+   * @return classes which were successfully loaded, keyed by class name
+   */
+  public Map<String, Class<?>> getLoadedClasses() {
+    return loadedClasses;
+  }
+
+  /**
+   * @return cause of the failure for each class which could not be loaded, keyed by class name
+   */
+  public Map<String, Throwable> getFailures() {
+    return failures;
+  }
+
+  /**
+   * @return true if every class in the batch was loaded
+   */
+  public boolean isSuccessful() {
+    return failures.isEmpty();
+  }
+}
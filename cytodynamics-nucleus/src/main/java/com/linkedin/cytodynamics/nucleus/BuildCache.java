@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+
+/**
+ * Work shared between the loaders built together by {@link LoaderBuilder#buildAll(Map, java.util.concurrent.Executor)},
+ * so that JARs referenced by several plugins are only opened and indexed once. A single {@link LoaderBuilder#build()}
+ * uses a cache of its own. Thread-safe.
+ */
+final class BuildCache {
+  private final NestedJarOpener nestedJarOpener = new NestedJarOpener();
+  private final Map<URI, CompletableFuture<PluginArchive>> pluginArchives = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<ClasspathIndex.Element>> indexedElements = new ConcurrentHashMap<>();
+
+  ClasspathElement openNested(URI uri) {
+    synchronized (this.nestedJarOpener) {
+      return this.nestedJarOpener.open(uri);
+    }
+  }
+
+  ClasspathElement openPluginArchive(URI uri, URL url) {
+    PluginArchive archive = computeOnce(this.pluginArchives, uri, () -> {
+      try {
+        return PluginArchive.map(Paths.get(uri));
+      } catch (IOException e) {
+        throw new InvalidBuilderParametersException("Unable to open plugin archive " + uri, e);
+      }
+    });
+    if (!archive.retain()) {
+      throw new IllegalStateException("Plugin archive " + uri + " was already closed");
+    }
+    return new PluginArchiveClasspathElement(archive, url);
+  }
+
+  /**
+   * Releases the references of this cache to the archives which it opened, once the loaders which use it are built.
+   * The classpath elements of the loaders keep their own references, until the loaders are closed.
+   */
+  void close() {
+    synchronized (this.nestedJarOpener) {
+      this.nestedJarOpener.close();
+    }
+    for (CompletableFuture<PluginArchive> pluginArchive : this.pluginArchives.values()) {
+      if (pluginArchive.isDone() && !pluginArchive.isCompletedExceptionally()) {
+        pluginArchive.join().close();
+      }
+    }
+    this.pluginArchives.clear();
+  }
+
+  /**
+   * @return the element indexed by {@code indexer}, or the one indexed for the same URL by another loader
+   */
+  ClasspathIndex.Element indexElement(URL url, Supplier<ClasspathIndex.Element> indexer) {
+    return computeOnce(this.indexedElements, url.toExternalForm(), indexer);
+  }
+
+  /**
+   * Computes the value for a key in the calling thread, unless another thread computes or has computed it, in which
+   * case its result is used. Unlike {@link ConcurrentHashMap#computeIfAbsent}, no lock is held while computing.
+   */
+  private static <K, V> V computeOnce(Map<K, CompletableFuture<V>> values, K key, Supplier<V> supplier) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> existingFuture = values.putIfAbsent(key, future);
+    if (existingFuture != null) {
+      try {
+        return existingFuture.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    try {
+      V value = supplier.get();
+      future.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * Result of a {@link LoaderBuilder#buildAll(Map, java.util.concurrent.Executor)} call. All maps are keyed by plugin
+ * name and follow the iteration order of the builders passed in.
+ */
+public final class BulkBuildResult {
+  private final Map<String, ClassLoader> loaders;
+  private final Map<String, LoaderBuildTiming> timings;
+  private final Map<String, Throwable> failures;
+
+  BulkBuildResult(Map<String, ClassLoader> loaders, Map<String, LoaderBuildTiming> timings,
+      Map<String, Throwable> failures) {
+    this.loaders = Collections.unmodifiableMap(loaders);
+    this.timings = Collections.unmodifiableMap(timings);
+    this.failures = Collections.unmodifiableMap(failures);
+  }
+
+  /**
+   * @return loaders which were successfully built
+   */
+  public Map<String, ClassLoader> getLoaders() {
+    return loaders;
+  }
+
+  /**
+   * @return time spent building each loader which was successfully built
+   */
+  public Map<String, LoaderBuildTiming> getTimings() {
+    return timings;
+  }
+
+  /**
+   * @return cause of the failure for each loader which could not be built
+   */
+  public Map<String, Throwable> getFailures() {
+    return failures;
+  }
+
+  /**
+   * @return true if every loader was built
+   */
+  public boolean isSuccessful() {
+    return failures.isEmpty();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * {@link InputStream} reading the remaining bytes of a {@link ByteBuffer}, without copying them first.
+ */
+final class ByteBufferInputStream extends InputStream {
+  private final ByteBuffer buffer;
+  private final BooleanSupplier isSourceClosed;
+
+  /**
+   * @param buffer buffer to read, which this stream consumes
+   */
+  ByteBufferInputStream(ByteBuffer buffer) {
+    this(buffer, () -> false);
+  }
+
+  /**
+   * @param buffer buffer to read, which this stream consumes
+   * @param isSourceClosed tells if what the buffer was read from is closed, after which reading the stream fails
+   */
+  ByteBufferInputStream(ByteBuffer buffer, BooleanSupplier isSourceClosed) {
+    this.buffer = buffer;
+    this.isSourceClosed = isSourceClosed;
+  }
+
+  @Override
+  public int read() throws IOException {
+    ensureSourceOpen();
+    return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    ensureSourceOpen();
+    if (len == 0) {
+      return 0;
+    }
+    if (!this.buffer.hasRemaining()) {
+      return -1;
+    }
+    int count = Math.min(len, this.buffer.remaining());
+    this.buffer.get(b, off, count);
+    return count;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    ensureSourceOpen();
+    int count = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+    this.buffer.position(this.buffer.position() + count);
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    ensureSourceOpen();
+    return this.buffer.remaining();
+  }
+
+  private void ensureSourceOpen() throws IOException {
+    if (this.isSourceClosed.getAsBoolean()) {
+      throw new IOException("Stream closed: its source is closed");
+    }
+  }
+}
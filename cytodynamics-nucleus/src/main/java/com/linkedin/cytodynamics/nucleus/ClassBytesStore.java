@@ -0,0 +1,259 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Store of inflated class files, shared by the loaders built with it through
+ * {@link LoaderBuilder#withClassBytesStore(ClassBytesStore)}. Class files are keyed by the SHA-256 digest of the JAR
+ * which contains them and by their entry name, so loaders which define the same class from copies of the same JAR, at
+ * the same or at different paths, only inflate it once.
+ *
+ * The digest of a JAR is computed once, in the background when a loader is built, and computed again if the size or the
+ * modification time of the JAR changes. Loaders which define a class of the JAR before its digest is known wait for it
+ * instead of computing it again. When storing a class file would take the store over its byte budget, the least
+ * recently used class files are evicted.
+ *
+ * A single store is meant to be shared by all the loaders of a process, for example by keeping it in a static field.
+ */
+public final class ClassBytesStore {
+  private static final Logger LOGGER = LogApiAdapter.getLogger(ClassBytesStore.class);
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  // bounds the memory used by digests when many distinct JARs are loaded from
+  private static final int MAX_DIGESTED_JARS = 4096;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final long maxBytes;
+  // guarded by this; in access order, so the first entry is the least recently used one
+  private final Map<String, byte[]> classBytes = new LinkedHashMap<>(16, 0.75f, true);
+  // by absolute path of the JAR
+  private final Map<String, JarDigest> jarDigests = new ConcurrentHashMap<>();
+  private long usedBytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  private ClassBytesStore(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @param maxBytes maximum number of bytes of stored class files
+   * @return an empty store
+   */
+  public static ClassBytesStore withMaxBytes(long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("The byte budget of a class bytes store must be positive: " + maxBytes);
+    }
+    return new ClassBytesStore(maxBytes);
+  }
+
+  /**
+   * @param jar local JAR which contains the class file
+   * @param entryName name of the class file in the JAR
+   * @param reader reads the class file from the JAR if it is not stored
+   * @return bytes of the class file, which must not be modified; null if {@code reader} does not find it
+   */
+  byte[] getClassBytes(File jar, String entryName, EntryReader reader) throws IOException {
+    String digest = getDigest(jar);
+    if (digest == null) {
+      return toArray(reader.read());
+    }
+    String key = digest + "!/" + entryName;
+    synchronized (this) {
+      byte[] bytes = this.classBytes.get(key);
+      if (bytes != null) {
+        this.hits++;
+        return bytes;
+      }
+      this.misses++;
+    }
+    byte[] bytes = toArray(reader.read());
+    if (bytes != null && bytes.length <= this.maxBytes) {
+      put(key, bytes);
+    }
+    return bytes;
+  }
+
+  private synchronized void put(String key, byte[] bytes) {
+    byte[] previous = this.classBytes.remove(key);
+    if (previous != null) {
+      this.usedBytes -= previous.length;
+    }
+    Iterator<byte[]> leastRecentlyUsed = this.classBytes.values().iterator();
+    while (this.usedBytes + bytes.length > this.maxBytes && leastRecentlyUsed.hasNext()) {
+      this.usedBytes -= leastRecentlyUsed.next().length;
+      leastRecentlyUsed.remove();
+      this.evictions++;
+    }
+    this.classBytes.put(key, bytes);
+    this.usedBytes += bytes.length;
+  }
+
+  /**
+   * Starts computing the digests of the local JARs of {@code classpath} on {@code executor}, so that defining their
+   * classes does not compute them while holding a class loading lock. Digests which are already known or being
+   * computed are not computed again.
+   */
+  void digestAsync(URL[] classpath, Executor executor) {
+    for (URL url : classpath) {
+      File file = ClasspathIndex.toFile(url);
+      if (file != null && file.isFile()) {
+        getDigestFuture(file, executor);
+      }
+    }
+  }
+
+  /**
+   * @return hex SHA-256 digest of the JAR, or null if it cannot be read
+   */
+  private String getDigest(File jar) {
+    return getDigestFuture(jar, Runnable::run).join();
+  }
+
+  /**
+   * @param executor executor to compute the digest on, if it is neither known nor being computed
+   * @return future digest of the JAR, completed with null if it cannot be read
+   */
+  private CompletableFuture<String> getDigestFuture(File jar, Executor executor) {
+    String path = jar.getAbsolutePath();
+    long size = jar.length();
+    long lastModified = jar.lastModified();
+    while (true) {
+      JarDigest jarDigest = this.jarDigests.get(path);
+      if (jarDigest != null && jarDigest.size == size && jarDigest.lastModified == lastModified) {
+        return jarDigest.digest;
+      }
+      JarDigest newJarDigest = new JarDigest(size, lastModified, new CompletableFuture<>());
+      boolean isOwner;
+      if (jarDigest != null) {
+        isOwner = this.jarDigests.replace(path, jarDigest, newJarDigest);
+      } else if (this.jarDigests.size() < MAX_DIGESTED_JARS) {
+        isOwner = this.jarDigests.putIfAbsent(path, newJarDigest) == null;
+      } else {
+        // not remembered, so computed again by the next caller
+        isOwner = true;
+      }
+      // otherwise another thread has just started computing it, so this thread uses its future instead
+      if (isOwner) {
+        try {
+          executor.execute(() -> computeDigest(jar, newJarDigest.digest));
+        } catch (RejectedExecutionException e) {
+          computeDigest(jar, newJarDigest.digest);
+        }
+        return newJarDigest.digest;
+      }
+    }
+  }
+
+  private static void computeDigest(File jar, CompletableFuture<String> digest) {
+    try {
+      digest.complete(digest(jar));
+    } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+      LOGGER.warn("Unable to compute the digest of {}, so its classes are not stored: {}", jar, e.toString());
+      digest.complete(null);
+    }
+  }
+
+  private static String digest(File jar) throws IOException, NoSuchAlgorithmException {
+    MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    byte[] buffer = new byte[65536];
+    try (InputStream inputStream = Files.newInputStream(jar.toPath())) {
+      int count;
+      while ((count = inputStream.read(buffer)) != -1) {
+        messageDigest.update(buffer, 0, count);
+      }
+    }
+    byte[] digest = messageDigest.digest();
+    char[] hex = new char[digest.length * 2];
+    for (int i = 0; i < digest.length; i++) {
+      hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+      hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+    }
+    return new String(hex);
+  }
+
+  private static byte[] toArray(ByteBuffer content) {
+    if (content == null) {
+      return null;
+    }
+    byte[] bytes = new byte[content.remaining()];
+    content.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * @return number of class files which were found in the store
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * @return number of class files which were not in the store, and were read from their JAR
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * @return number of class files evicted to stay within the byte budget
+   */
+  public synchronized long getEvictions() {
+    return this.evictions;
+  }
+
+  /**
+   * @return number of class files currently stored
+   */
+  public synchronized int getEntries() {
+    return this.classBytes.size();
+  }
+
+  /**
+   * @return bytes currently used by the stored class files
+   */
+  public synchronized long getUsedBytes() {
+    return this.usedBytes;
+  }
+
+  /**
+   * @return byte budget of the store
+   */
+  public long getMaxBytes() {
+    return this.maxBytes;
+  }
+
+  private static final class JarDigest {
+    private final long size;
+    private final long lastModified;
+    private final CompletableFuture<String> digest;
+
+    JarDigest(long size, long lastModified, CompletableFuture<String> digest) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.digest = digest;
+    }
+  }
+}
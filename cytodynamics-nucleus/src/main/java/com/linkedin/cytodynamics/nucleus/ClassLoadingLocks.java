@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.function.Function;
+
+
+/**
+ * Per-class-name locks used by {@link IsolatingClassLoader} while loading a class.
+ *
+ * This implementation synchronizes on the monitor returned by {@link ClassLoader#getClassLoadingLock(String)}. The
+ * multi-release JAR also contains a Java 21 implementation (under src/main/java21) which uses
+ * {@link java.util.concurrent.locks.ReentrantLock}s instead, since blocking while holding a monitor pins a virtual
+ * thread to its carrier thread.
+ */
+final class ClassLoadingLocks {
+  /**
+   * Action to run while holding a class loading lock.
+   */
+  interface LockedAction<T> {
+    T run() throws ClassNotFoundException;
+  }
+
+  private final Function<String, Object> classLoadingLockProvider;
+
+  /**
+   * @param classLoadingLockProvider provides the monitor to use for a class name, usually
+   *                                 {@link ClassLoader#getClassLoadingLock(String)}
+   */
+  ClassLoadingLocks(Function<String, Object> classLoadingLockProvider) {
+    this.classLoadingLockProvider = classLoadingLockProvider;
+  }
+
+  /**
+   * Runs {@code action} while holding the class loading lock for {@code className}.
+   */
+  <T> T callWithLock(String className, LockedAction<T> action) throws ClassNotFoundException {
+    synchronized (this.classLoadingLockProvider.apply(className)) {
+      return action.run();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.classfile.ClassFile;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Loads the classes which the classes defined by a loader refer to, on a background executor, so that they are already
+ * loaded when the code first needs them.
+ *
+ * When a class is defined from the child classpath, the prefetcher parses its constant pool and hands every class it
+ * references, which the loader has not loaded yet, to the {@link Target} of the loader. Referenced classes which the
+ * loader then defines from the child classpath are prefetched in turn, up to {@code maxDepth} references away from a
+ * class which was loaded on demand. At most {@code maxClasses} classes are prefetched over the lifetime of the loader,
+ * and each class at most once.
+ *
+ * Prefetching never initializes classes, and failures are only counted: a class which cannot be loaded in the
+ * background fails again, with the usual exception, when the code loads it.
+ */
+final class ClassPrefetcher {
+  /**
+   * Loader side of the prefetching.
+   */
+  interface Target {
+    /**
+     * @return true if the loader has already loaded {@code className}
+     */
+    boolean isLoaded(String className);
+
+    /**
+     * Loads {@code className} in the background, so that it is ready when the code loads it.
+     *
+     * @return false if the loader had already loaded the class, so that nothing was prefetched
+     */
+    boolean prefetch(String className) throws ClassNotFoundException;
+  }
+
+  private final Executor executor;
+  private final int maxDepth;
+  private final int maxClasses;
+  // depth of each class scheduled for prefetching, where classes loaded on demand have depth 0
+  private final Map<String, Integer> depths = new ConcurrentHashMap<>();
+  private final AtomicInteger scheduledClasses = new AtomicInteger();
+  private final AtomicLong prefetchedClasses = new AtomicLong();
+  private final AtomicLong failedClasses = new AtomicLong();
+
+  /**
+   * @param executor executor which the constant pools are parsed and the referenced classes are loaded on
+   * @param maxDepth maximum number of references between a class loaded on demand and a prefetched class
+   * @param maxClasses maximum number of classes prefetched
+   */
+  ClassPrefetcher(Executor executor, int maxDepth, int maxClasses) {
+    this.executor = executor;
+    this.maxDepth = maxDepth;
+    this.maxClasses = maxClasses;
+  }
+
+  /**
+   * Called when the loader of {@code target} defines a class from its child classpath.
+   *
+   * @param classFile reads the class file of the class; only called on the executor
+   */
+  void classDefined(String className, EntryReader classFile, Target target) {
+    int depth = this.depths.getOrDefault(className, 0);
+    if (depth >= this.maxDepth || this.scheduledClasses.get() >= this.maxClasses) {
+      return;
+    }
+    execute(() -> prefetchReferencedClasses(className, depth, classFile, target));
+  }
+
+  private void prefetchReferencedClasses(String className, int depth, EntryReader classFile, Target target) {
+    ClassFile parsedClassFile;
+    try {
+      ByteBuffer classBytes = classFile.read();
+      if (classBytes == null) {
+        return;
+      }
+      parsedClassFile = ClassFile.parse(classBytes);
+    } catch (IOException | RuntimeException e) {
+      return;
+    }
+    for (String referencedClassName : parsedClassFile.getReferencedClassNames()) {
+      // the JDK classes are loaded by the bootstrap loader whatever the relationships are
+      if (referencedClassName.startsWith("java.") || referencedClassName.equals(className)
+          || target.isLoaded(referencedClassName)) {
+        continue;
+      }
+      if (this.scheduledClasses.get() >= this.maxClasses) {
+        return;
+      }
+      if (this.depths.putIfAbsent(referencedClassName, depth + 1) == null) {
+        if (this.scheduledClasses.incrementAndGet() > this.maxClasses) {
+          return;
+        }
+        execute(() -> prefetch(referencedClassName, target));
+      }
+    }
+  }
+
+  private void prefetch(String className, Target target) {
+    try {
+      if (target.prefetch(className)) {
+        this.prefetchedClasses.incrementAndGet();
+      }
+    } catch (ClassNotFoundException | RuntimeException | LinkageError e) {
+      this.failedClasses.incrementAndGet();
+    }
+  }
+
+  private void execute(Runnable task) {
+    try {
+      this.executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      // prefetching is only an optimization, so the classes are loaded on demand instead
+    }
+  }
+
+  LoaderMetrics.ClassPrefetchMetrics getMetrics() {
+    return new LoaderMetrics.ClassPrefetchMetrics(Math.min(this.scheduledClasses.get(), this.maxClasses),
+        this.prefetchedClasses.get(), this.failedClasses.get());
+  }
+}
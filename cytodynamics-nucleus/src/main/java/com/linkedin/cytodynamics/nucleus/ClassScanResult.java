@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+
+/**
+ * Result of a {@link CytodynamicsLoader#scanClasses(java.util.concurrent.Executor)} call: the headers of the classes
+ * on the child classpath of a loader. Classes can then be selected by name, annotation or supertype, so that only the
+ * selected ones need to be loaded.
+ */
+public final class ClassScanResult {
+  // first class with each name in classpath order, which is the one the loader would define
+  private final Map<String, ScannedClass> classes;
+
+  ClassScanResult(List<ScannedClass> classes) {
+    Map<String, ScannedClass> classesByName = new LinkedHashMap<>();
+    for (ScannedClass scannedClass : classes) {
+      classesByName.putIfAbsent(scannedClass.getClassName(), scannedClass);
+    }
+    this.classes = Collections.unmodifiableMap(classesByName);
+  }
+
+  /**
+   * @return scanned classes, in classpath order
+   */
+  public Collection<ScannedClass> getClasses() {
+    return this.classes.values();
+  }
+
+  /**
+   * @return the scanned class called {@code className}, or null if it is not on the child classpath
+   */
+  public ScannedClass getScannedClass(String className) {
+    return this.classes.get(className);
+  }
+
+  /**
+   * @return names of the scanned classes which match {@code predicate}, in classpath order
+   */
+  public List<String> findClassNames(Predicate<ScannedClass> predicate) {
+    List<String> classNames = new ArrayList<>();
+    for (ScannedClass scannedClass : this.classes.values()) {
+      if (predicate.test(scannedClass)) {
+        classNames.add(scannedClass.getClassName());
+      }
+    }
+    return classNames;
+  }
+
+  /**
+   * @param annotationName binary name of a runtime-visible annotation type
+   * @return names of the scanned classes which are directly annotated with it, in classpath order
+   */
+  public List<String> getClassNamesAnnotatedWith(String annotationName) {
+    return findClassNames(scannedClass -> scannedClass.getAnnotationNames().contains(annotationName));
+  }
+
+  /**
+   * Finds the scanned classes which extend or implement a type, directly or through other scanned classes. Hierarchies
+   * which go through classes that are not on the child classpath, other than the type itself, are not followed.
+   *
+   * @param typeName binary name of a class or interface
+   * @return names of the scanned subtypes of {@code typeName}, in classpath order
+   */
+  public List<String> getSubtypeNames(String typeName) {
+    Map<String, Boolean> isSubtypeByName = new HashMap<>();
+    return findClassNames(scannedClass -> !scannedClass.getClassName().equals(typeName)
+        && isSubtype(scannedClass.getClassName(), typeName, isSubtypeByName));
+  }
+
+  private boolean isSubtype(String className, String typeName, Map<String, Boolean> isSubtypeByName) {
+    if (className.equals(typeName)) {
+      return true;
+    }
+    Boolean isSubtype = isSubtypeByName.get(className);
+    if (isSubtype != null) {
+      return isSubtype;
+    }
+    // guards against cycles, which only malformed classpaths have
+    isSubtypeByName.put(className, false);
+    ScannedClass scannedClass = this.classes.get(className);
+    isSubtype = false;
+    if (scannedClass != null) {
+      isSubtype = scannedClass.getSuperClassName() != null
+          && isSubtype(scannedClass.getSuperClassName(), typeName, isSubtypeByName);
+      for (int i = 0; !isSubtype && i < scannedClass.getInterfaceNames().size(); i++) {
+        isSubtype = isSubtype(scannedClass.getInterfaceNames().get(i), typeName, isSubtypeByName);
+      }
+    }
+    isSubtypeByName.put(className, isSubtype);
+    return isSubtype;
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.classfile.ClassFile;
+import com.linkedin.cytodynamics.exception.InvalidClassFileException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Reads the headers of the classes on the child classpath of a loader, without loading them. Each element of the
+ * classpath is scanned by its own task.
+ *
+ * The classes of local JARs can be saved to a cache file, and are then reused by later scans as long as the size and
+ * modification time of the JAR have not changed. Directories and the {@link ClasspathElement}s are always scanned.
+ */
+final class ClassScanner {
+  private static final Logger LOGGER = LogApiAdapter.getLogger(ClassScanner.class);
+  private static final int MAGIC = 0x43445343;
+  private static final int VERSION = 2;
+  private static final String DESCRIPTION = "class scan cache";
+  private static final String CLASS_SUFFIX = ".class";
+  private static final String MODULE_INFO = "module-info.class";
+  private static final String META_INF = "META-INF/";
+
+  private ClassScanner() {
+  }
+
+  /**
+   * @param classpath URL classpath of the loader
+   * @param classpathElements elements searched after {@code classpath}
+   * @param cacheFile file to reuse and save the classes of local JARs in; null to not cache them
+   * @param executor executor to run the scanning tasks on
+   */
+  static ClassScanResult scan(URL[] classpath, List<ClasspathElement> classpathElements, Path cacheFile,
+      Executor executor) {
+    Map<String, ScannedJar> cachedJars = cacheFile == null ? Collections.emptyMap() : readCache(cacheFile);
+    List<CompletableFuture<ScannedJar>> jarFutures = new ArrayList<>();
+    List<CompletableFuture<List<ScannedClass>>> futures = new ArrayList<>();
+    for (URL url : classpath) {
+      CompletableFuture<ScannedJar> jarFuture = null;
+      CompletableFuture<List<ScannedClass>> future;
+      File file = ClasspathIndex.toFile(url);
+      if (file != null && file.isFile()) {
+        ScannedJar cachedJar = cachedJars.get(url.toExternalForm());
+        jarFuture = supply(() -> scanJar(url.toExternalForm(), file, cachedJar), executor);
+        future = jarFuture.thenApply(scannedJar -> scannedJar.classes);
+      } else if (file != null && file.isDirectory()) {
+        future = supply(() -> scanDirectory(file.toPath()), executor);
+      } else {
+        LOGGER.warn("Not scanning classpath element {}, which is not a local JAR or directory", url);
+        future = CompletableFuture.completedFuture(Collections.emptyList());
+      }
+      futures.add(future);
+      if (jarFuture != null) {
+        jarFutures.add(jarFuture);
+      }
+    }
+    for (ClasspathElement classpathElement : classpathElements) {
+      futures.add(supply(() -> scanClasspathElement(classpathElement), executor));
+    }
+
+    List<ScannedClass> classes = new ArrayList<>();
+    for (CompletableFuture<List<ScannedClass>> future : futures) {
+      classes.addAll(future.join());
+    }
+    if (cacheFile != null) {
+      List<ScannedJar> scannedJars = jarFutures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+      boolean isCacheValid = scannedJars.size() == cachedJars.size()
+          && scannedJars.stream().allMatch(scannedJar -> scannedJar.isCached);
+      if (!isCacheValid) {
+        // the classes of JARs which could not be read completely are not saved, so that they are scanned again
+        writeCache(cacheFile,
+            scannedJars.stream().filter(scannedJar -> !scannedJar.isFailed).collect(Collectors.toList()));
+      }
+    }
+    return new ClassScanResult(classes);
+  }
+
+  private static <T> CompletableFuture<T> supply(Supplier<T> supplier, Executor executor) {
+    try {
+      return CompletableFuture.supplyAsync(supplier, executor);
+    } catch (RejectedExecutionException e) {
+      // scan in the calling thread instead
+      return CompletableFuture.completedFuture(supplier.get());
+    }
+  }
+
+  private static ScannedJar scanJar(String url, File file, ScannedJar cachedJar) {
+    long size = file.length();
+    long lastModified = file.lastModified();
+    if (cachedJar != null && cachedJar.size == size && cachedJar.lastModified == lastModified) {
+      return cachedJar;
+    }
+    List<ScannedClass> classes = new ArrayList<>();
+    try (JarFile jarFile = new JarFile(file, false)) {
+      for (JarEntry entry : Collections.list(jarFile.entries())) {
+        if (isScanned(entry.getName())) {
+          try (InputStream inputStream = jarFile.getInputStream(entry)) {
+            addClass(url, entry.getName(), ByteBuffer.wrap(readFully(inputStream, entry.getSize())), classes);
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to scan classpath element {}: {}", url, e.toString());
+      return new ScannedJar(url, size, lastModified, classes, false, true);
+    }
+    return new ScannedJar(url, size, lastModified, classes, false, false);
+  }
+
+  private static List<ScannedClass> scanDirectory(Path directory) {
+    List<ScannedClass> classes = new ArrayList<>();
+    try (Stream<Path> files = Files.walk(directory, FileVisitOption.FOLLOW_LINKS)) {
+      for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+        String name = directory.relativize(file).toString().replace(File.separatorChar, '/');
+        if (isScanned(name)) {
+          addClass(directory.toString(), name, ByteBuffer.wrap(Files.readAllBytes(file)), classes);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to scan classpath element {}: {}", directory, e.toString());
+    }
+    return classes;
+  }
+
+  private static List<ScannedClass> scanClasspathElement(ClasspathElement classpathElement) {
+    List<ScannedClass> classes = new ArrayList<>();
+    try {
+      for (String name : classpathElement.getEntryNames()) {
+        if (isScanned(name)) {
+          ByteBuffer classBytes = classpathElement.getEntry(name);
+          if (classBytes != null) {
+            addClass(classpathElement.getBaseURL().toString(), name, classBytes, classes);
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to scan classpath element {}: {}", classpathElement.getBaseURL(), e.toString());
+    }
+    return classes;
+  }
+
+  /**
+   * @return true for the entries which the loader could define a class from
+   */
+  private static boolean isScanned(String name) {
+    return name.endsWith(CLASS_SUFFIX) && !name.startsWith(META_INF) && !name.equals(MODULE_INFO);
+  }
+
+  private static void addClass(String location, String name, ByteBuffer classBytes, List<ScannedClass> classes) {
+    try {
+      ClassFile classFile = ClassFile.parse(classBytes);
+      classes.add(new ScannedClass(classFile.getClassName(), classFile.getSuperClassName(),
+          classFile.getInterfaceNames(), classFile.getRuntimeVisibleAnnotationNames(),
+          classFile.getReferencedClassNames()));
+    } catch (InvalidClassFileException e) {
+      LOGGER.warn("Skipping class file {} in {}: {}", name, location, e.getMessage());
+    }
+  }
+
+  private static byte[] readFully(InputStream inputStream, long size) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(size > 0 ? (int) size : 4096);
+    byte[] buffer = new byte[4096];
+    int count;
+    while ((count = inputStream.read(buffer)) != -1) {
+      bytes.write(buffer, 0, count);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Map<String, ScannedJar> readCache(Path cacheFile) {
+    Map<String, ScannedJar> cachedJars = SnapshotFiles.read(cacheFile, MAGIC, VERSION, DESCRIPTION, in -> {
+      int jarCount = in.readInt();
+      Map<String, ScannedJar> jars = new HashMap<>();
+      for (int i = 0; i < jarCount; i++) {
+        String url = in.readUTF();
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        int classCount = in.readInt();
+        List<ScannedClass> classes = new ArrayList<>(classCount);
+        for (int j = 0; j < classCount; j++) {
+          String className = in.readUTF();
+          String superClassName = in.readBoolean() ? in.readUTF() : null;
+          int interfaceCount = in.readInt();
+          List<String> interfaceNames = new ArrayList<>(interfaceCount);
+          for (int k = 0; k < interfaceCount; k++) {
+            interfaceNames.add(in.readUTF());
+          }
+          int annotationCount = in.readInt();
+          Set<String> annotationNames = new LinkedHashSet<>();
+          for (int k = 0; k < annotationCount; k++) {
+            annotationNames.add(in.readUTF());
+          }
+          int referencedClassCount = in.readInt();
+          Set<String> referencedClassNames = new LinkedHashSet<>();
+          for (int k = 0; k < referencedClassCount; k++) {
+            referencedClassNames.add(in.readUTF());
+          }
+          classes.add(
+              new ScannedClass(className, superClassName, interfaceNames, annotationNames, referencedClassNames));
+        }
+        jars.put(url, new ScannedJar(url, size, lastModified, classes, true, false));
+      }
+      return jars;
+    });
+    return cachedJars == null ? Collections.emptyMap() : cachedJars;
+  }
+
+  private static void writeCache(Path cacheFile, List<ScannedJar> scannedJars) {
+    SnapshotFiles.write(cacheFile, MAGIC, VERSION, DESCRIPTION, out -> {
+      out.writeInt(scannedJars.size());
+      for (ScannedJar scannedJar : scannedJars) {
+        out.writeUTF(scannedJar.url);
+        out.writeLong(scannedJar.size);
+        out.writeLong(scannedJar.lastModified);
+        out.writeInt(scannedJar.classes.size());
+        for (ScannedClass scannedClass : scannedJar.classes) {
+          out.writeUTF(scannedClass.getClassName());
+          out.writeBoolean(scannedClass.getSuperClassName() != null);
+          if (scannedClass.getSuperClassName() != null) {
+            out.writeUTF(scannedClass.getSuperClassName());
+          }
+          out.writeInt(scannedClass.getInterfaceNames().size());
+          for (String interfaceName : scannedClass.getInterfaceNames()) {
+            out.writeUTF(interfaceName);
+          }
+          out.writeInt(scannedClass.getAnnotationNames().size());
+          for (String annotationName : scannedClass.getAnnotationNames()) {
+            out.writeUTF(annotationName);
+          }
+          out.writeInt(scannedClass.getReferencedClassNames().size());
+          for (String referencedClassName : scannedClass.getReferencedClassNames()) {
+            out.writeUTF(referencedClassName);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Classes of a local JAR, with the size and modification time which tell whether they are still valid.
+   */
+  private static final class ScannedJar {
+    private final String url;
+    private final long size;
+    private final long lastModified;
+    private final List<ScannedClass> classes;
+    // true if the classes come from the cache file
+    private final boolean isCached;
+    // true if the JAR could not be read completely, so that the classes are only part of it
+    private final boolean isFailed;
+
+    ScannedJar(String url, long size, long lastModified, List<ScannedClass> classes, boolean isCached,
+        boolean isFailed) {
+      this.url = url;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.classes = classes;
+      this.isCached = isCached;
+      this.isFailed = isFailed;
+    }
+  }
+}
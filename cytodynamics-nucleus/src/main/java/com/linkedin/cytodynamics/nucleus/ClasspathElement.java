@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.Manifest;
+
+
+/**
+ * An element of the child classpath which {@link IsolatingClassLoader} reads itself, as opposed to the URLs which it
+ * hands to {@link java.net.URLClassLoader}.
+ *
+ * Each element has a base URL of the form {@code cytodynamics:<label>-<id>!/}, and the URL of an entry is the base URL
+ * followed by the entry name. These URLs can be opened directly, but since the handler is not registered globally, they
+ * cannot be recreated from their string form.
+ */
+abstract class ClasspathElement implements Closeable {
+  static final String PROTOCOL = "cytodynamics";
+  private static final String ENTRY_SEPARATOR = "!/";
+  private static final AtomicLong NEXT_ID = new AtomicLong();
+
+  private final URL baseURL;
+
+  /**
+   * @param label describes the kind of element in its URLs
+   */
+  ClasspathElement(String label) {
+    try {
+      this.baseURL = newURL(null, PROTOCOL + ":" + label + "-" + NEXT_ID.getAndIncrement() + ENTRY_SEPARATOR,
+          new EntryURLStreamHandler());
+    } catch (MalformedURLException e) {
+      throw new IllegalStateException("Unable to create the base URL of a classpath element", e);
+    }
+  }
+
+  /**
+   * @param name name of an entry, e.g. "com/linkedin/Foo.class"
+   * @return the content of the entry, positioned at its start, which the caller may consume; null if there is no such
+   * entry
+   */
+  abstract ByteBuffer getEntry(String name) throws IOException;
+
+  /**
+   * @param name name of an entry, e.g. "com/linkedin/Foo.class"
+   * @return true if the element has an entry with that name
+   */
+  abstract boolean containsEntry(String name);
+
+  /**
+   * @return names of all the entries in this element
+   */
+  abstract Collection<String> getEntryNames();
+
+  /**
+   * @return URL identifying this element as a whole, which entry URLs are relative to
+   */
+  URL getBaseURL() {
+    return this.baseURL;
+  }
+
+  /**
+   * @return URL used as the code source of classes defined from this element
+   */
+  URL getCodeSourceURL() {
+    return this.baseURL;
+  }
+
+  /**
+   * @return manifest of this element, used when defining packages; null if there is none
+   */
+  Manifest getManifest() throws IOException {
+    return null;
+  }
+
+  /**
+   * @return URL of the entry, or null if there is no such entry
+   */
+  URL getEntryURL(String name) {
+    if (!containsEntry(name)) {
+      return null;
+    }
+    try {
+      return newURL(this.baseURL, name, null);
+    } catch (MalformedURLException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Releases what this element holds, such as the mapping of its archive. Entries can no longer be read afterwards.
+   * Does nothing by default.
+   */
+  @Override
+  public void close() throws IOException {
+  }
+
+  /**
+   * @param context URL which {@code spec} is relative to; null if it is absolute
+   * @param handler handler of the URL; null to use the one of {@code context}
+   */
+  // the URL constructors taking a handler are deprecated since JDK 20, but have no replacement on Java 8
+  @SuppressWarnings("deprecation")
+  private static URL newURL(URL context, String spec, URLStreamHandler handler) throws MalformedURLException {
+    return new URL(context, spec, handler);
+  }
+
+  /**
+   * Opens entry URLs of this element.
+   */
+  private final class EntryURLStreamHandler extends URLStreamHandler {
+    @Override
+    protected URLConnection openConnection(URL url) throws IOException {
+      String path = url.getPath();
+      int separator = path.indexOf(ENTRY_SEPARATOR);
+      if (separator == -1) {
+        throw new IOException("Not an entry URL: " + url);
+      }
+      String name = path.substring(separator + ENTRY_SEPARATOR.length());
+      return new URLConnection(url) {
+        private ByteBuffer entry;
+
+        @Override
+        public void connect() throws IOException {
+          if (this.entry == null) {
+            this.entry = getEntry(name);
+            if (this.entry == null) {
+              throw new IOException("No entry " + name + " in " + ClasspathElement.this.baseURL);
+            }
+            this.connected = true;
+          }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+          connect();
+          return new ByteBufferInputStream(this.entry);
+        }
+
+        @Override
+        public int getContentLength() {
+          try {
+            connect();
+            return this.entry.remaining();
+          } catch (IOException e) {
+            return -1;
+          }
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Index of the entries of the URL classpath of a loader, built when the loader is built. It lets lookups for names
+ * which are in none of the classpath elements skip searching the classpath, which otherwise checks every element in
+ * turn.
+ *
+ * Only local JARs and directories can be indexed. When the classpath has any other element, or a JAR which extends the
+ * classpath through the Class-Path attribute of its manifest, the index is incomplete and cannot rule out any name.
+ */
+final class ClasspathIndex {
+  private static final Logger LOGGER = LogApiAdapter.getLogger(ClasspathIndex.class);
+  private static final String VERSIONS_DIRECTORY = "META-INF/versions/";
+
+  private final List<Element> elements;
+  // position in the classpath of the first element which has each entry
+  private final Map<String, Integer> firstPositions;
+  private final boolean isComplete;
+  private final boolean isReusedFromSnapshot;
+
+  private ClasspathIndex(List<Element> elements, boolean isReusedFromSnapshot) {
+    this.elements = Collections.unmodifiableList(elements);
+    int entryCount = 0;
+    for (Element element : elements) {
+      entryCount += element.entryNames.size();
+    }
+    this.firstPositions = new HashMap<>(Math.max(16, (int) (entryCount / 0.75f) + 1));
+    boolean isComplete = true;
+    for (int i = 0; i < elements.size(); i++) {
+      Element element = elements.get(i);
+      isComplete &= element.isComplete;
+      for (String entryName : element.entryNames) {
+        this.firstPositions.putIfAbsent(entryName, i);
+      }
+    }
+    this.isComplete = isComplete;
+    this.isReusedFromSnapshot = isReusedFromSnapshot;
+  }
+
+  /**
+   * Indexes a classpath, reusing the indexed JARs of a snapshot when their size and modification time have not changed.
+   * Directories are always indexed again, since their modification time does not cover the files below them.
+   *
+   * Elements are indexed in parallel on {@code pool}, one task per element. The results are merged in classpath order,
+   * so the index is the same whatever order the tasks complete in.
+   *
+   * @param classpath URL classpath of the loader
+   * @param snapshotElements elements of a previously saved index; may be empty
+   * @param pool pool to index the elements on
+   * @param buildCache elements already indexed for other loaders
+   */
+  static ClasspathIndex build(URL[] classpath, List<Element> snapshotElements, ForkJoinPool pool,
+      BuildCache buildCache) {
+    Map<String, Element> snapshotElementsByUrl = new HashMap<>();
+    for (Element snapshotElement : snapshotElements) {
+      snapshotElementsByUrl.put(snapshotElement.url, snapshotElement);
+    }
+    Element[] elements = new Element[classpath.length];
+    if (classpath.length > 0) {
+      pool.invoke(new IndexTask(classpath, snapshotElementsByUrl, buildCache, elements, 0, classpath.length));
+    }
+    boolean isReusedFromSnapshot = classpath.length == snapshotElements.size();
+    for (Element element : elements) {
+      Element snapshotElement = snapshotElementsByUrl.get(element.url);
+      isReusedFromSnapshot &= snapshotElement != null && (!element.isJar || element.isSameJarAs(snapshotElement));
+    }
+    return new ClasspathIndex(Arrays.asList(elements), isReusedFromSnapshot);
+  }
+
+  /**
+   * @return false if no element of the classpath has an entry called {@code name}; true if one does or if the index is
+   * incomplete
+   */
+  boolean mayContain(String name) {
+    return !this.isComplete || this.firstPositions.containsKey(name);
+  }
+
+  /**
+   * @return indexed elements, in classpath order
+   */
+  List<Element> getElements() {
+    return this.elements;
+  }
+
+  /**
+   * @return true if every JAR was reused from the snapshot that this index was built with
+   */
+  boolean isReusedFromSnapshot() {
+    return this.isReusedFromSnapshot;
+  }
+
+  private static Element indexElement(URL url, Element snapshotElement) {
+    File file = toFile(url);
+    if (file == null) {
+      return Element.incomplete(url.toExternalForm());
+    }
+    try {
+      if (file.isDirectory()) {
+        return new Element(url.toExternalForm(), false, 0, 0, true, indexDirectory(file.toPath()));
+      }
+      if (!file.isFile()) {
+        return Element.incomplete(url.toExternalForm());
+      }
+      long size = file.length();
+      long lastModified = file.lastModified();
+      if (snapshotElement != null && snapshotElement.isJar && snapshotElement.size == size
+          && snapshotElement.lastModified == lastModified) {
+        return snapshotElement;
+      }
+      return indexJar(url.toExternalForm(), file, size, lastModified);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to index classpath element {}: {}", url, e.toString());
+      return Element.incomplete(url.toExternalForm());
+    }
+  }
+
+  private static Element indexJar(String url, File file, long size, long lastModified) throws IOException {
+    try (JarFile jarFile = new JarFile(file, false)) {
+      Manifest manifest = jarFile.getManifest();
+      // the URL classpath also loads from the JARs listed in the manifest, which are not indexed
+      boolean isComplete =
+          manifest == null || manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) == null;
+      List<String> entryNames = new ArrayList<>(jarFile.size());
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        entryNames.add(name);
+        // multi-release JARs can have classes which only exist in a versioned directory
+        if (name.startsWith(VERSIONS_DIRECTORY)) {
+          int versionEnd = name.indexOf('/', VERSIONS_DIRECTORY.length());
+          if (versionEnd != -1 && versionEnd + 1 < name.length()) {
+            entryNames.add(name.substring(versionEnd + 1));
+          }
+        }
+      }
+      return new Element(url, true, size, lastModified, isComplete, entryNames);
+    }
+  }
+
+  private static List<String> indexDirectory(Path directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory, FileVisitOption.FOLLOW_LINKS)) {
+      return files.filter(Files::isRegularFile)
+          .map(file -> directory.relativize(file).toString().replace(File.separatorChar, '/'))
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * @return the local file of a classpath URL, or null if it is not local
+   */
+  static File toFile(URL url) {
+    if (!"file".equals(url.getProtocol())) {
+      return null;
+    }
+    try {
+      return Paths.get(url.toURI()).toFile();
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Indexes the elements in a range of the classpath, splitting the range until each task has a single element.
+   */
+  private static final class IndexTask extends RecursiveAction {
+    private final URL[] classpath;
+    private final Map<String, Element> snapshotElementsByUrl;
+    private final BuildCache buildCache;
+    private final Element[] elements;
+    private final int from;
+    private final int to;
+
+    IndexTask(URL[] classpath, Map<String, Element> snapshotElementsByUrl, BuildCache buildCache, Element[] elements,
+        int from, int to) {
+      this.classpath = classpath;
+      this.snapshotElementsByUrl = snapshotElementsByUrl;
+      this.buildCache = buildCache;
+      this.elements = elements;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from == 1) {
+        URL url = this.classpath[this.from];
+        Element snapshotElement = this.snapshotElementsByUrl.get(url.toExternalForm());
+        this.elements[this.from] = this.buildCache.indexElement(url, () -> indexElement(url, snapshotElement));
+      } else {
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(split(this.from, middle), split(middle, this.to));
+      }
+    }
+
+    private IndexTask split(int from, int to) {
+      return new IndexTask(this.classpath, this.snapshotElementsByUrl, this.buildCache, this.elements, from, to);
+    }
+  }
+
+  /**
+   * Entries of one element of the classpath.
+   */
+  static final class Element {
+    private final String url;
+    private final boolean isJar;
+    // size and modification time of JARs, which tell whether a snapshot of their entries is still valid
+    private final long size;
+    private final long lastModified;
+    private final boolean isComplete;
+    private final List<String> entryNames;
+
+    Element(String url, boolean isJar, long size, long lastModified, boolean isComplete, List<String> entryNames) {
+      this.url = url;
+      this.isJar = isJar;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.isComplete = isComplete;
+      this.entryNames = Collections.unmodifiableList(entryNames);
+    }
+
+    /**
+     * @return true if both elements are the same version of a JAR, according to its size and modification time
+     */
+    boolean isSameJarAs(Element other) {
+      return this.isJar && other.isJar && this.size == other.size && this.lastModified == other.lastModified;
+    }
+
+    static Element incomplete(String url) {
+      return new Element(url, false, 0, 0, false, Collections.emptyList());
+    }
+
+    String getUrl() {
+      return this.url;
+    }
+
+    boolean isJar() {
+      return this.isJar;
+    }
+
+    long getSize() {
+      return this.size;
+    }
+
+    long getLastModified() {
+      return this.lastModified;
+    }
+
+    boolean isComplete() {
+      return this.isComplete;
+    }
+
+    List<String> getEntryNames() {
+      return this.entryNames;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+
+/**
+ * A source of classpath entries which is not a URL, such as generated classes held in memory. Sources are added to a
+ * loader with {@link LoaderBuilder#withClasspathSources(java.util.List)}, are searched after the URL classpath, and are
+ * subject to the same {@link DelegateRelationship} rules as the URL classpath.
+ *
+ * Entries are keyed by their resource name, e.g. "com/linkedin/Foo.class" for the class com.linkedin.Foo. The URLs of
+ * resources from a source use the "cytodynamics" protocol, and can be opened but not recreated from their string form.
+ */
+public final class ClasspathSource {
+  private final ClasspathElement classpathElement;
+
+  private ClasspathSource(ClasspathElement classpathElement) {
+    this.classpathElement = classpathElement;
+  }
+
+  /**
+   * Creates a source from byte arrays. The arrays must not be modified afterwards.
+   *
+   * @param entries content of each entry, keyed by resource name
+   */
+  public static ClasspathSource fromBytes(Map<String, byte[]> entries) {
+    Map<String, ByteBuffer> buffers = new HashMap<>();
+    for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+      buffers.put(entry.getKey(), ByteBuffer.wrap(entry.getValue()));
+    }
+    return new ClasspathSource(new MemoryClasspathElement(() -> buffers));
+  }
+
+  /**
+   * Creates a source from {@link ByteBuffer}s, which may be direct. The bytes between the position and the limit of each
+   * buffer at the time of this call make up the entry, and must not be modified afterwards.
+   *
+   * @param entries content of each entry, keyed by resource name
+   */
+  public static ClasspathSource fromByteBuffers(Map<String, ByteBuffer> entries) {
+    Map<String, ByteBuffer> buffers = new HashMap<>();
+    for (Map.Entry<String, ByteBuffer> entry : entries.entrySet()) {
+      buffers.put(entry.getKey(), entry.getValue().slice());
+    }
+    return new ClasspathSource(new MemoryClasspathElement(() -> buffers));
+  }
+
+  /**
+   * Creates a source whose entries are only produced when the loader first looks up an entry in it. The supplier is
+   * called at most once; exceptions which it throws are propagated to the lookup which triggered it.
+   *
+   * @param entriesSupplier supplies the content of each entry, keyed by resource name
+   */
+  public static ClasspathSource lazy(Supplier<? extends Map<String, ByteBuffer>> entriesSupplier) {
+    return new ClasspathSource(new MemoryClasspathElement(entriesSupplier));
+  }
+
+  ClasspathElement getClasspathElement() {
+    return this.classpathElement;
+  }
+}
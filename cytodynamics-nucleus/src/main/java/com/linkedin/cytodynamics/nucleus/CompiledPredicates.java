@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+
+/**
+ * Predicates of one category of a {@link DelegateRelationship}, flattened into an array when the relationship is built
+ * so that testing a name neither allocates nor goes through a collection.
+ */
+final class CompiledPredicates {
+  private static final CompiledPredicates EMPTY = new CompiledPredicates(newArray(0));
+
+  private final Predicate<String>[] predicates;
+
+  private CompiledPredicates(Predicate<String>[] predicates) {
+    this.predicates = predicates;
+  }
+
+  static CompiledPredicates compile(Set<Predicate<String>> predicates) {
+    if (predicates.isEmpty()) {
+      return EMPTY;
+    }
+    return new CompiledPredicates(predicates.toArray(newArray(predicates.size())));
+  }
+
+  /**
+   * Generic arrays cannot be created directly; this one is safe since it only ever holds string predicates.
+   */
+  @SuppressWarnings("unchecked")
+  private static Predicate<String>[] newArray(int length) {
+    return (Predicate<String>[]) new Predicate<?>[length];
+  }
+
+  /**
+   * @return true if any of the predicates matches {@code name}
+   */
+  boolean matches(String name) {
+    for (Predicate<String> predicate : this.predicates) {
+      if (predicate.test(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Operations offered by Cytodynamics loaders in addition to the standard {@link ClassLoader} API.
+ *
+ * The {@link ClassLoader} returned by {@link LoaderBuilder#build()} implements this interface when it uses
+ * {@link IsolationEngine#CLASS_LOADER}, so it can then be cast to {@link CytodynamicsLoader} to access these
+ * operations. Loaders using {@link IsolationEngine#MODULE_LAYER} do not implement it, and casting them throws a
+ * {@link ClassCastException}.
+ */
+public interface CytodynamicsLoader {
+  /**
+   * Loads a batch of classes, applying the same isolation rules as {@link ClassLoader#loadClass(String)}.
+   * Classes are loaded grouped by the classpath element which contains them, so that reads from each JAR are done
+   * sequentially. Failing to load a class does not stop the rest of the batch from being loaded.
+   *
+   * @param classNames binary names of the classes to load
+   * @return loaded classes and per-class failures
+   */
+  BatchLoadResult loadClasses(Collection<String> classNames);
+
+  /**
+   * Asynchronous version of {@link #loadClasses(Collection)}. Each group of classes coming from the same classpath
+   * element is loaded by a single task running on {@code executor}.
+   *
+   * @param classNames binary names of the classes to load
+   * @param executor executor to run the loading tasks on
+   * @return a future for each distinct class name, in the iteration order of {@code classNames}; a future completes
+   * exceptionally if its class could not be loaded
+   */
+  Map<String, CompletableFuture<Class<?>>> loadClassesAsync(Collection<String> classNames, Executor executor);
+
+  /**
+   * Clears the results of resource lookups cached through {@link LoaderBuilder#withResourceCache(int)}, the resource
+   * contents cached through {@link LoaderBuilder#withResourceContentCache(long, long)} and the provider names cached by
+   * {@link #loadServices(Class)}, so that later lookups search the classpath and the delegates again.
+   */
+  void invalidateResourceCache();
+
+  /**
+   * Finds the providers of a service, as {@link java.util.ServiceLoader#load(Class, ClassLoader)} with this loader
+   * would. The provider-configuration files are found with the same isolation rules as
+   * {@link ClassLoader#getResources(String)}, and their parsed contents are cached by the loader, so that repeated
+   * discovery of a service does not search and read them again. Providers are only instantiated when the result is
+   * iterated over.
+   *
+   * @param service class of the service
+   * @param <S> type of the service
+   * @return providers of the service
+   * @throws java.util.ServiceConfigurationError if a provider-configuration file cannot be read
+   */
+  <S> ServiceProviders<S> loadServices(Class<S> service);
+
+  /**
+   * Reads the headers of the classes on the child classpath of this loader, without loading or initializing them. Each
+   * JAR, directory and added classpath element is scanned by its own task running on {@code executor}.
+   *
+   * @param executor executor to run the scanning tasks on
+   * @return names, supertypes and runtime-visible annotations of the scanned classes
+   */
+  ClassScanResult scanClasses(Executor executor);
+
+  /**
+   * Same as {@link #scanClasses(Executor)}, saving the classes of local JARs to {@code cacheFile} so that later scans,
+   * including by other processes, reuse them as long as the JARs have not changed. The cache file is only a cache: if
+   * it cannot be read or written, the classes are scanned again.
+   *
+   * @param executor executor to run the scanning tasks on
+   * @param cacheFile file to reuse and save scanned classes in
+   * @return names, supertypes and runtime-visible annotations of the scanned classes
+   */
+  ClassScanResult scanClasses(Executor executor, Path cacheFile);
+
+  /**
+   * Loads every class of the child classpath of this loader and every class which they reference, applying the same
+   * isolation rules as {@link ClassLoader#loadClass(String)} but without initializing any class, and reports the
+   * classes which cannot be loaded. This finds missing dependencies when a plugin is deployed, instead of when a code
+   * path first needs them. The child classpath is scanned as by {@link #scanClasses(Executor)}, and the classes are
+   * loaded in parallel batches running on {@code executor}.
+   *
+   * The checked classes stay loaded, so checking the loader which then runs the plugin also preloads its classes.
+   *
+   * @param executor executor to run the scanning and loading tasks on
+   * @return the classes which could not be loaded, with the classes which refer to them
+   */
+  LinkCheckResult checkLinks(Executor executor);
+
+  /**
+   * Reads a resource into a buffer. The resource is found with the same isolation rules as
+   * {@link ClassLoader#getResource(String)}, but resources of the child classpath are read straight from their JAR,
+   * directory or classpath element instead of through their URL.
+   *
+   * @param name name of the resource, e.g. "com/linkedin/foo.properties"
+   * @return the content of the resource, positioned at its start, which the caller may consume; null if the resource
+   * cannot be found. The buffer may be read-only, may share its memory with other buffers returned for the same
+   * resource, and may be a view of a memory-mapped JAR, which stays readable after the loader is closed.
+   * @throws IOException if the resource was found but could not be read
+   */
+  ByteBuffer getResourceAsByteBuffer(String name) throws IOException;
+
+  /**
+   * Returns the most recent decisions of this loader about where classes come from. Each attempt to load a class
+   * through a delegate relationship is a decision, so a class which is loaded through a fallback delegate has a
+   * decision for each relationship which was consulted.
+   *
+   * @return the recorded decisions, oldest first; empty if the trace is not enabled with
+   * {@link LoaderBuilder#withLoadDecisionTrace(int)}
+   */
+  List<LoadDecision> getLoadDecisions();
+
+  /**
+   * @return a snapshot of the counters of this loader
+   */
+  LoaderMetrics getMetrics();
+}
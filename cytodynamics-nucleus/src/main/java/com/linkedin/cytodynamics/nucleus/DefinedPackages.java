@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.function.Function;
+
+
+/**
+ * Looks up the packages which {@link IsolatingClassLoader} checks before defining a class.
+ *
+ * This implementation uses {@link ClassLoader#getPackage(String)}, which also finds the packages of the ancestors of
+ * the loader, as {@link java.net.URLClassLoader} does on Java 8. The multi-release JAR also contains a Java 11
+ * implementation (under src/main/java11) which only finds the packages defined by the loader itself, as
+ * {@link java.net.URLClassLoader} does from Java 9 on.
+ */
+final class DefinedPackages {
+  private final Function<String, Package> packageProvider;
+
+  /**
+   * @param loader unused in this implementation
+   * @param packageProvider provides the package of a name, usually {@link ClassLoader#getPackage(String)}
+   */
+  DefinedPackages(ClassLoader loader, Function<String, Package> packageProvider) {
+    this.packageProvider = packageProvider;
+  }
+
+  /**
+   * @return the package called {@code packageName}, or null if there is none
+   */
+  Package get(String packageName) {
+    return this.packageProvider.apply(packageName);
+  }
+}
@@ -7,12 +7,17 @@
  */
 package com.linkedin.cytodynamics.nucleus;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.function.Predicate;
 
 
 /**
  * Contains objects and configuration for an individual parent classloading step for {@link IsolatingClassLoader}.
+ *
+ * Instances are immutable: the predicates are copied when the relationship is built, and also compiled into the form
+ * which {@link IsolatingClassLoader} tests on every lookup.
  */
 public class DelegateRelationship {
   private final ClassLoader delegateClassLoader;
@@ -23,6 +28,12 @@ public class DelegateRelationship {
   private final Set<Predicate<String>> delegatePreferredResourcePredicates;
   private final Set<Predicate<String>> blacklistedResourcePredicates;
   private final Set<Predicate<String>> whitelistedResourcePredicates;
+  private final CompiledPredicates compiledDelegatePreferredClassPredicates;
+  private final CompiledPredicates compiledBlacklistedClassPredicates;
+  private final CompiledPredicates compiledWhitelistedClassPredicates;
+  private final CompiledPredicates compiledDelegatePreferredResourcePredicates;
+  private final CompiledPredicates compiledBlacklistedResourcePredicates;
+  private final CompiledPredicates compiledWhitelistedResourcePredicates;
 
   DelegateRelationship(ClassLoader delegateClassLoader, IsolationLevel isolationLevel,
       Set<Predicate<String>> delegatePreferredClassPredicates,
@@ -33,12 +44,23 @@ public class DelegateRelationship {
       Set<Predicate<String>> whitelistedResourcePredicates) {
     this.delegateClassLoader = delegateClassLoader;
     this.isolationLevel = isolationLevel;
-    this.delegatePreferredClassPredicates = delegatePreferredClassPredicates;
-    this.blacklistedClassPredicates = blacklistedClassPredicates;
-    this.whitelistedClassPredicates = whitelistedClassPredicates;
-    this.delegatePreferredResourcePredicates = delegatePreferredResourcePredicates;
-    this.blacklistedResourcePredicates = blacklistedResourcePredicates;
-    this.whitelistedResourcePredicates = whitelistedResourcePredicates;
+    this.delegatePreferredClassPredicates = copy(delegatePreferredClassPredicates);
+    this.blacklistedClassPredicates = copy(blacklistedClassPredicates);
+    this.whitelistedClassPredicates = copy(whitelistedClassPredicates);
+    this.delegatePreferredResourcePredicates = copy(delegatePreferredResourcePredicates);
+    this.blacklistedResourcePredicates = copy(blacklistedResourcePredicates);
+    this.whitelistedResourcePredicates = copy(whitelistedResourcePredicates);
+    this.compiledDelegatePreferredClassPredicates = CompiledPredicates.compile(this.delegatePreferredClassPredicates);
+    this.compiledBlacklistedClassPredicates = CompiledPredicates.compile(this.blacklistedClassPredicates);
+    this.compiledWhitelistedClassPredicates = CompiledPredicates.compile(this.whitelistedClassPredicates);
+    this.compiledDelegatePreferredResourcePredicates =
+        CompiledPredicates.compile(this.delegatePreferredResourcePredicates);
+    this.compiledBlacklistedResourcePredicates = CompiledPredicates.compile(this.blacklistedResourcePredicates);
+    this.compiledWhitelistedResourcePredicates = CompiledPredicates.compile(this.whitelistedResourcePredicates);
+  }
+
+  private static Set<Predicate<String>> copy(Set<Predicate<String>> predicates) {
+    return predicates.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(predicates));
   }
 
   public ClassLoader getDelegateClassLoader() {
@@ -72,4 +94,28 @@ public class DelegateRelationship {
   public Set<Predicate<String>> getWhitelistedResourcePredicates() {
     return whitelistedResourcePredicates;
   }
+
+  CompiledPredicates getCompiledDelegatePreferredClassPredicates() {
+    return compiledDelegatePreferredClassPredicates;
+  }
+
+  CompiledPredicates getCompiledBlacklistedClassPredicates() {
+    return compiledBlacklistedClassPredicates;
+  }
+
+  CompiledPredicates getCompiledWhitelistedClassPredicates() {
+    return compiledWhitelistedClassPredicates;
+  }
+
+  CompiledPredicates getCompiledDelegatePreferredResourcePredicates() {
+    return compiledDelegatePreferredResourcePredicates;
+  }
+
+  CompiledPredicates getCompiledBlacklistedResourcePredicates() {
+    return compiledBlacklistedResourcePredicates;
+  }
+
+  CompiledPredicates getCompiledWhitelistedResourcePredicates() {
+    return compiledWhitelistedResourcePredicates;
+  }
 }
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Deferred read of an entry of the child classpath, so that entries are only read once they are known to be needed.
+ */
+@FunctionalInterface
+interface EntryReader {
+  /**
+   * @return content of the entry, positioned at its start, which the caller may consume; null if there is no such
+   * entry
+   */
+  ByteBuffer read() throws IOException;
+}
@@ -15,39 +15,43 @@ import java.net.URL;
  * Origin restriction filter that uses a local filesystem path.
  */
 public class FileOriginRestrictionFilter extends BaseOriginRestrictionFilter {
-  private File directory;
+  // File.equals ignores case on Windows, so path prefixes are compared the same way
+  private static final boolean IGNORE_CASE = File.separatorChar == '\\';
+
   private final boolean recursive;
+  // path of the directory ending with a separator, which paths of files in the directory start with; null if the
+  // directory path is empty, since no file is in it
+  private final String directoryPrefix;
 
   protected FileOriginRestrictionFilter(File directory, boolean recursive, OriginMatchResults originMatchResults) {
     super(originMatchResults);
-    this.directory = directory;
     this.recursive = recursive;
+    String directoryPath = directory.getPath();
+    if (directoryPath.isEmpty()) {
+      this.directoryPrefix = null;
+    } else {
+      this.directoryPrefix = directoryPath.endsWith(File.separator) ? directoryPath : directoryPath + File.separator;
+    }
   }
 
   @Override
   public boolean matches(URL url) {
-    if (!url.getProtocol().equals("file")) {
+    if (!url.getProtocol().equals("file") || this.directoryPrefix == null) {
       return false;
     }
 
+    String path;
     try {
-      File theFile = new File(url.toURI());
-      if (!recursive) {
-        return theFile.getParentFile().equals(directory);
-      } else {
-        File currentFile = theFile;
-        while(currentFile.getParentFile() != null) {
-          if (currentFile.getParentFile().equals(directory)) {
-            return true;
-          }
-
-          currentFile = currentFile.getParentFile();
-        }
-
-        return false;
-      }
+      path = new File(url.toURI()).getPath();
     } catch (Exception e) {
       return false;
     }
+
+    // compares paths once instead of walking the parent directories of the file
+    if (path.length() <= this.directoryPrefix.length()
+        || !path.regionMatches(IGNORE_CASE, 0, this.directoryPrefix, 0, this.directoryPrefix.length())) {
+      return false;
+    }
+    return this.recursive || path.indexOf(File.separatorChar, this.directoryPrefix.length()) == -1;
   }
 }
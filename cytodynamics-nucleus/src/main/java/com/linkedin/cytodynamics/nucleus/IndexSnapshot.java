@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * State of a loader saved to a file, so that a later process building a loader with the same classpath does not need to
+ * index it again: the {@link ClasspathIndex} and the package routes which the loader learned.
+ *
+ * Snapshots are only a cache, read and written through {@link SnapshotFiles}.
+ */
+final class IndexSnapshot {
+  private static final int MAGIC = 0x43444958;
+  private static final int VERSION = 2;
+  private static final String DESCRIPTION = "index snapshot";
+
+  private final List<ClasspathIndex.Element> elements;
+  private final List<String> relationshipsFingerprint;
+  private final Map<String, Integer> learnedRoutes;
+
+  /**
+   * @param elements indexed classpath elements
+   * @param relationshipsFingerprint {@link #fingerprint} of the delegate relationships of the loader, which the learned
+   *     routes are indices of
+   * @param learnedRoutes learned relationship index for each package name
+   */
+  IndexSnapshot(List<ClasspathIndex.Element> elements, List<String> relationshipsFingerprint,
+      Map<String, Integer> learnedRoutes) {
+    this.elements = elements;
+    this.relationshipsFingerprint = relationshipsFingerprint;
+    this.learnedRoutes = learnedRoutes;
+  }
+
+  /**
+   * Describes each relationship by what stays the same across processes: the class of its delegate class loader, its
+   * isolation level and the number of its predicates, since predicates themselves cannot be compared.
+   *
+   * @param relationships the parent relationship followed by the fallback delegates, in route index order
+   * @return one description per relationship
+   */
+  static List<String> fingerprint(List<DelegateRelationship> relationships) {
+    List<String> fingerprint = new ArrayList<>();
+    for (DelegateRelationship relationship : relationships) {
+      fingerprint.add(relationship.getDelegateClassLoader().getClass().getName() + ' '
+          + relationship.getIsolationLevel() + ' '
+          + relationship.getDelegatePreferredClassPredicates().size() + ' '
+          + relationship.getBlacklistedClassPredicates().size() + ' '
+          + relationship.getWhitelistedClassPredicates().size() + ' '
+          + relationship.getDelegatePreferredResourcePredicates().size() + ' '
+          + relationship.getBlacklistedResourcePredicates().size() + ' '
+          + relationship.getWhitelistedResourcePredicates().size());
+    }
+    return fingerprint;
+  }
+
+  /**
+   * @return the snapshot saved in {@code file}, or null if there is none or it cannot be read
+   */
+  static IndexSnapshot read(Path file) {
+    return SnapshotFiles.read(file, MAGIC, VERSION, DESCRIPTION, in -> {
+      int elementCount = in.readInt();
+      List<ClasspathIndex.Element> elements = new ArrayList<>();
+      for (int i = 0; i < elementCount; i++) {
+        String url = in.readUTF();
+        boolean isJar = in.readBoolean();
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        boolean isComplete = in.readBoolean();
+        int entryCount = in.readInt();
+        List<String> entryNames = new ArrayList<>();
+        for (int j = 0; j < entryCount; j++) {
+          entryNames.add(in.readUTF());
+        }
+        elements.add(new ClasspathIndex.Element(url, isJar, size, lastModified, isComplete, entryNames));
+      }
+      int relationshipCount = in.readInt();
+      List<String> relationshipsFingerprint = new ArrayList<>();
+      for (int i = 0; i < relationshipCount; i++) {
+        relationshipsFingerprint.add(in.readUTF());
+      }
+      int routeCount = in.readInt();
+      Map<String, Integer> learnedRoutes = new HashMap<>();
+      for (int i = 0; i < routeCount; i++) {
+        learnedRoutes.put(in.readUTF(), in.readInt());
+      }
+      return new IndexSnapshot(elements, relationshipsFingerprint, learnedRoutes);
+    });
+  }
+
+  /**
+   * Saves this snapshot to {@code file}, replacing it atomically so that concurrent readers never see a partial
+   * snapshot.
+   */
+  void write(Path file) {
+    SnapshotFiles.write(file, MAGIC, VERSION, DESCRIPTION, out -> {
+      out.writeInt(this.elements.size());
+      for (ClasspathIndex.Element element : this.elements) {
+        out.writeUTF(element.getUrl());
+        out.writeBoolean(element.isJar());
+        out.writeLong(element.getSize());
+        out.writeLong(element.getLastModified());
+        out.writeBoolean(element.isComplete());
+        out.writeInt(element.getEntryNames().size());
+        for (String entryName : element.getEntryNames()) {
+          out.writeUTF(entryName);
+        }
+      }
+      out.writeInt(this.relationshipsFingerprint.size());
+      for (String relationship : this.relationshipsFingerprint) {
+        out.writeUTF(relationship);
+      }
+      out.writeInt(this.learnedRoutes.size());
+      for (Map.Entry<String, Integer> learnedRoute : this.learnedRoutes.entrySet()) {
+        out.writeUTF(learnedRoute.getKey());
+        out.writeInt(learnedRoute.getValue());
+      }
+    });
+  }
+
+  List<ClasspathIndex.Element> getElements() {
+    return this.elements;
+  }
+
+  /**
+   * @param relationshipsFingerprint {@link #fingerprint} of the delegate relationships of the loader being built
+   * @return learned routes, or an empty map if they were learned for a loader with different relationships
+   */
+  Map<String, Integer> getLearnedRoutes(List<String> relationshipsFingerprint) {
+    if (!relationshipsFingerprint.equals(this.relationshipsFingerprint)) {
+      return Collections.emptyMap();
+    }
+    int relationshipCount = relationshipsFingerprint.size();
+    Map<String, Integer> learnedRoutes = new HashMap<>();
+    for (Map.Entry<String, Integer> learnedRoute : this.learnedRoutes.entrySet()) {
+      if (learnedRoute.getValue() >= 0 && learnedRoute.getValue() < relationshipCount) {
+        learnedRoutes.put(learnedRoute.getKey(), learnedRoute.getValue());
+      }
+    }
+    return learnedRoutes;
+  }
+}
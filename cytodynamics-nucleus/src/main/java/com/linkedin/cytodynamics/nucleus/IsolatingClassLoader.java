@@ -7,18 +7,41 @@
  */
 package com.linkedin.cytodynamics.nucleus;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceConfigurationError;
 import java.util.Set;
-import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
 import java.util.stream.Collectors;
 import com.linkedin.cytodynamics.exception.CytodynamicsClassNotFoundException;
 import com.linkedin.cytodynamics.isolation.Chooser;
@@ -28,26 +51,65 @@ import com.linkedin.cytodynamics.isolation.ChooserMappingFactory;
 /**
  * Isolating classloader, used to separate classes.
  */
-class IsolatingClassLoader extends URLClassLoader {
+class IsolatingClassLoader extends URLClassLoader implements CytodynamicsLoader {
   private static final Logger LOGGER = LogApiAdapter.getLogger(IsolatingClassLoader.class);
   private static final Map<IsolationLevel, Chooser<Class<?>>> CLASS_CHOOSER_MAPPING =
-      ChooserMappingFactory.buildChooserMapping(delegate -> LOGGER.warn(String.format(
-          "Class %s used from the delegate classloader would not be visible if running under FULL isolation, unless "
-              + "whitelisting is used.",
-          delegate.getName())));
-  private static final Map<IsolationLevel, Chooser<URL>> RESOURCE_CHOOSER_MAPPING =
-      ChooserMappingFactory.buildChooserMapping(delegate -> LOGGER.warn(String.format(
-          "Resource %s used from the delegate classloader would not be visible if running under FULL isolation, unless "
-              + "whitelisting is used.",
-          delegate.toString())));
+      ChooserMappingFactory.buildChooserMapping(delegate -> {
+        LOGGER.warn("Class {} used from the delegate classloader would not be visible if running under FULL isolation, "
+            + "unless whitelisting is used.", delegate.getName());
+        LoaderEvents.commitTransitionalClassViolation(delegate.getName(), delegate.getClassLoader());
+      });
+  // chooses between URLs, or between a delegate URL and a child entry
+  private static final Map<IsolationLevel, Chooser<Object>> RESOURCE_CHOOSER_MAPPING =
+      ChooserMappingFactory.buildChooserMapping(delegate -> {
+        LOGGER.warn("Resource {} used from the delegate classloader would not be visible if running under FULL "
+            + "isolation, unless whitelisting is used.", delegate);
+        // delegate resources are always URLs
+        LoaderEvents.commitTransitionalResourceViolation((URL) delegate);
+      });
   private static final Map<IsolationLevel, Chooser<List<URL>>> RESOURCES_CHOOSER_MAPPING =
-      ChooserMappingFactory.buildChooserMappingForList(delegate -> LOGGER.warn(String.format(
-          "Resources [%s] used from the delegate classloader would not be visible if running under FULL isolation, "
-              + "unless whitelisting is used.",
-          delegate.stream().map(URL::toString).collect(Collectors.joining(",")))));
+      ChooserMappingFactory.buildChooserMappingForList(delegate -> {
+        LOGGER.warn(() -> String.format(
+            "Resources [%s] used from the delegate classloader would not be visible if running under FULL isolation, "
+                + "unless whitelisting is used.",
+            delegate.stream().map(URL::toString).collect(Collectors.joining(","))));
+        delegate.forEach(LoaderEvents::commitTransitionalResourceViolation);
+      });
+  private static final int MAX_CACHED_SERVICES = 1024;
+  // choosers of each isolation level, indexed by ordinal so that a lookup does not hash the level
+  private static final LevelChoosers[] CHOOSERS = LevelChoosers.forAllLevels();
 
-  private final DelegateRelationship parentRelationship;
-  private final List<DelegateRelationship> fallbackDelegates;
+  static {
+    // lets the JVM load classes through this loader concurrently instead of locking on the loader itself
+    ClassLoader.registerAsParallelCapable();
+  }
+
+  private final List<ClasspathElement> classpathElements;
+  // parent relationship followed by the fallback delegates, indexed the same way as the routing table
+  private final DelegateRelationship[] relationships;
+  private final PackageRoutingTable packageRoutingTable;
+  // null if the URL classpath is not indexed
+  private final ClasspathIndex classpathIndex;
+  private final UrlClasspathReader urlClasspathReader;
+  // null if no snapshot is saved
+  private final Path indexSnapshotFile;
+  private final Map<String, Integer> savedLearnedRoutes;
+  // null if resource lookups are not cached
+  private final ResourceCache resourceCache;
+  // null if resource contents are not cached
+  private final ResourceContentCache resourceContentCache;
+  // null if class files are not shared with other loaders
+  private final ClassBytesStore classBytesStore;
+  // null if referenced classes are not prefetched
+  private final ClassPrefetcher classPrefetcher;
+  // null if load decisions are not traced
+  private final LoadDecisionTrace loadDecisionTrace;
+  // parsed provider-configuration files, by service name
+  private final Map<String, List<String>> serviceProviderNames = new ConcurrentHashMap<>();
+  private final ClassLoadingLocks classLoadingLocks;
+  private final DefinedPackages definedPackages;
+  private final ClassPrefetcher.Target prefetchTarget = new PrefetchTarget();
+  private volatile boolean closed = false;
 
   /**
    * @param classpath classpath for this classloader
@@ -56,101 +118,798 @@ class IsolatingClassLoader extends URLClassLoader {
    */
   IsolatingClassLoader(URL[] classpath, DelegateRelationship parentRelationship,
       List<DelegateRelationship> fallbackDelegates) {
+    this(classpath, Collections.emptyList(), parentRelationship, fallbackDelegates, PackageRoutingTable.empty());
+  }
+
+  /**
+   * @param classpath classpath for this classloader
+   * @param classpathElements elements searched after {@code classpath}, in order
+   * @param parentRelationship non-null primary {@link DelegateRelationship}
+   * @param fallbackDelegates list of fallback {@link ClassLoader}s; may be empty, but must be non-null
+   * @param packageRoutingTable routes from packages to indices of relationships, where 0 is the parent relationship and
+   *                            the fallback delegates follow in order
+   */
+  IsolatingClassLoader(URL[] classpath, List<ClasspathElement> classpathElements,
+      DelegateRelationship parentRelationship, List<DelegateRelationship> fallbackDelegates,
+      PackageRoutingTable packageRoutingTable) {
+    this(classpath, classpathElements, parentRelationship, fallbackDelegates, packageRoutingTable, null, null, null,
+        null, null, null, null);
+  }
+
+  /**
+   * @param classpath classpath for this classloader
+   * @param classpathElements elements searched after {@code classpath}, in order
+   * @param parentRelationship non-null primary {@link DelegateRelationship}
+   * @param fallbackDelegates list of fallback {@link ClassLoader}s; may be empty, but must be non-null
+   * @param packageRoutingTable routes from packages to indices of relationships, where 0 is the parent relationship and
+   *                            the fallback delegates follow in order
+   * @param classpathIndex index of {@code classpath}; null to always search it
+   * @param indexSnapshotFile file which an {@link IndexSnapshot} is saved to when this classloader is closed and has
+   *                          learned new package routes; may be null
+   * @param resourceCache cache for the results of getResource and getResources; null to not cache them
+   * @param resourceContentCache cache for the contents read through getResourceAsStream; null to not cache them
+   * @param classBytesStore store of the class files of local JARs shared with other loaders; null to not share them
+   * @param classPrefetcher prefetcher of the classes referenced by the classes of this loader; null to not prefetch
+   * @param loadDecisionTrace trace to record the decisions of this loader in; null to not record them
+   */
+  @SuppressWarnings("deprecation")
+  IsolatingClassLoader(URL[] classpath, List<ClasspathElement> classpathElements,
+      DelegateRelationship parentRelationship, List<DelegateRelationship> fallbackDelegates,
+      PackageRoutingTable packageRoutingTable, ClasspathIndex classpathIndex, Path indexSnapshotFile,
+      ResourceCache resourceCache, ResourceContentCache resourceContentCache, ClassBytesStore classBytesStore,
+      ClassPrefetcher classPrefetcher, LoadDecisionTrace loadDecisionTrace) {
     /*
      * Use the classloader from the parent relationship as the parent classloader, since that will be checked first when
      * loading a class.
      */
     super(classpath, parentRelationship.getDelegateClassLoader());
-    this.parentRelationship = parentRelationship;
-    this.fallbackDelegates = fallbackDelegates;
+    this.classpathElements = classpathElements;
+    this.relationships = new DelegateRelationship[fallbackDelegates.size() + 1];
+    this.relationships[0] = parentRelationship;
+    for (int i = 0; i < fallbackDelegates.size(); i++) {
+      this.relationships[i + 1] = fallbackDelegates.get(i);
+    }
+    this.packageRoutingTable = packageRoutingTable;
+    this.classpathIndex = classpathIndex;
+    this.urlClasspathReader = new UrlClasspathReader(classpath);
+    this.indexSnapshotFile = indexSnapshotFile;
+    this.savedLearnedRoutes = packageRoutingTable.getLearnedRoutes();
+    this.resourceCache = resourceCache;
+    this.resourceContentCache = resourceContentCache;
+    this.classBytesStore = classBytesStore;
+    this.classPrefetcher = classPrefetcher;
+    this.loadDecisionTrace = loadDecisionTrace;
+    this.classLoadingLocks = new ClassLoadingLocks(this::getClassLoadingLock);
+    this.definedPackages = new DefinedPackages(this, this::getPackage);
   }
 
   @Override
   protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-    synchronized (getClassLoadingLock(name)) {
-      // check if the class has already been loaded
-      Class<?> cl = findLoadedClass(name);
+    return this.classLoadingLocks.callWithLock(name, () -> loadClassWithLockHeld(name, resolve, null));
+  }
+
+  @Override
+  public BatchLoadResult loadClasses(Collection<String> classNames) {
+    Map<String, Class<?>> loadedClasses = new LinkedHashMap<>();
+    Map<String, Throwable> failures = new LinkedHashMap<>();
+    // one cache for the whole batch, so the Api annotation class is only resolved once per delegate
+    ApiAnnotationCache apiAnnotationCache = new ApiAnnotationCache();
+    for (List<String> group : groupBySource(classNames)) {
+      loadGroup(group, apiAnnotationCache, loadedClasses::put, failures::put);
+    }
+    return new BatchLoadResult(loadedClasses, failures);
+  }
 
-      if (cl == null) {
-        // try to load the class using the parent
-        cl = tryLoadClassWithDelegate(name, this.parentRelationship);
+  @Override
+  public Map<String, CompletableFuture<Class<?>>> loadClassesAsync(Collection<String> classNames,
+      Executor executor) {
+    Map<String, CompletableFuture<Class<?>>> futures = new LinkedHashMap<>();
+    for (String className : classNames) {
+      futures.putIfAbsent(className, new CompletableFuture<>());
+    }
+    BiConsumer<String, Class<?>> onLoaded = (className, cl) -> futures.get(className).complete(cl);
+    BiConsumer<String, Throwable> onFailure = (className, t) -> futures.get(className).completeExceptionally(t);
+    for (List<String> group : groupBySource(futures.keySet())) {
+      try {
+        // each task runs on its own thread, so it gets its own cache
+        executor.execute(() -> loadGroup(group, new ApiAnnotationCache(), onLoaded, onFailure));
+      } catch (RejectedExecutionException e) {
+        group.forEach(className -> onFailure.accept(className, e));
       }
+    }
+    return Collections.unmodifiableMap(futures);
+  }
 
-      if (cl == null) {
-        // try to load the class using a fallback
-        for (DelegateRelationship fallbackDelegate : this.fallbackDelegates) {
-          cl = tryLoadClassWithDelegate(name, fallbackDelegate);
-          if (cl != null) {
-            break;
-          }
-        }
+  /**
+   * Loads a class, assuming that the class loading lock for {@code name} is already held.
+   *
+   * @param apiAnnotationCache cache to use for looking up the {@link Api} annotation class; null to always look it up
+   */
+  private Class<?> loadClassWithLockHeld(String name, boolean resolve, ApiAnnotationCache apiAnnotationCache)
+      throws ClassNotFoundException {
+    // check if the class has already been loaded
+    Class<?> cl = findLoadedClass(name);
+
+    if (cl == null) {
+      cl = loadClassFromRelationships(name, apiAnnotationCache);
+    }
+
+    if (cl != null) {
+      if (resolve) {
+        doResolveClass(cl);
+      }
+      return cl;
+    } else {
+      // got through parent and fallback delegates but could not find the class
+      String message = String.format(
+          "Could not fully load class for name %s. It is possible that the immediate class is found, but a class that "
+              + "it depends on cannot be found", name);
+      if (this.loadDecisionTrace != null) {
+        message += ". Recent load decisions for the class: " + this.loadDecisionTrace.getDecisions(name);
       }
+      throw new CytodynamicsClassNotFoundException(message);
+    }
+  }
 
+  /**
+   * Tries the relationship which the routing table has for the package of {@code name} first. If there is no route or
+   * the routed relationship does not provide the class, tries the parent and then each fallback in order, skipping the
+   * relationship which was already tried.
+   *
+   * @return the class, or null if no relationship could provide it
+   */
+  private Class<?> loadClassFromRelationships(String name, ApiAnnotationCache apiAnnotationCache) {
+    int route = this.packageRoutingTable.route(name);
+    if (route != PackageRoutingTable.NO_ROUTE) {
+      Class<?> cl = tryLoadClassWithDelegate(name, route, apiAnnotationCache);
       if (cl != null) {
-        if (resolve) {
-          doResolveClass(cl);
-        }
         return cl;
+      }
+    }
+    for (int i = 0; i < this.relationships.length; i++) {
+      if (i != route) {
+        Class<?> cl = tryLoadClassWithDelegate(name, i, apiAnnotationCache);
+        if (cl != null) {
+          this.packageRoutingTable.learn(name, i);
+          return cl;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Loads a group of classes which come from the same classpath element, reporting each result through the given
+   * callbacks instead of throwing. The class loading lock is taken for each class, as {@link #loadClass(String)}
+   * does.
+   */
+  private void loadGroup(List<String> group, ApiAnnotationCache apiAnnotationCache,
+      BiConsumer<String, Class<?>> onLoaded, BiConsumer<String, Throwable> onFailure) {
+    for (String name : group) {
+      try {
+        onLoaded.accept(name,
+            this.classLoadingLocks.callWithLock(name, () -> loadClassWithLockHeld(name, false, apiAnnotationCache)));
+      } catch (ClassNotFoundException | RuntimeException | LinkageError e) {
+        onFailure.accept(name, e);
+      }
+    }
+  }
+
+  /**
+   * Groups class names by the element of the child classpath which contains them. Groups are returned in classpath
+   * order, with the names inside each group sorted, and the names which are not in the child classpath at all last.
+   * The names whose element cannot be told without going through the URL classpath are also put last.
+   */
+  private Collection<List<String>> groupBySource(Collection<String> classNames) {
+    int urlClasspathLength = getURLs().length;
+    Map<Integer, List<String>> groups = new HashMap<>();
+    List<String> ungrouped = new ArrayList<>();
+    for (String name : new LinkedHashSet<>(classNames)) {
+      int position = findEntryPosition(name.replace('.', '/') + ".class", urlClasspathLength);
+      if (position < 0) {
+        ungrouped.add(name);
       } else {
-        // got through parent and fallback delegates but could not find the class
-        throw new CytodynamicsClassNotFoundException(String.format(
-            "Could not fully load class for name %s. It is possible that the immediate class is found, but a class that "
-                + "it depends on cannot be found", name));
+        groups.computeIfAbsent(position, k -> new ArrayList<>()).add(name);
+      }
+    }
+
+    List<List<String>> orderedGroups = new ArrayList<>();
+    groups.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+      Collections.sort(entry.getValue());
+      orderedGroups.add(entry.getValue());
+    });
+    if (!ungrouped.isEmpty()) {
+      orderedGroups.add(ungrouped);
+    }
+    return orderedGroups;
+  }
+
+  /**
+   * Same lookup as {@link #findEntry(String)}, without creating a URL or reading the entry.
+   *
+   * @return position of the element which has the entry, counting the URL classpath first and then the other
+   * classpath elements; {@link UrlClasspathReader#NOT_FOUND} if there is none, or
+   * {@link UrlClasspathReader#UNSUPPORTED} if the element can only be found through the URL classpath
+   */
+  private int findEntryPosition(String name, int urlClasspathLength) {
+    if (isInUrlClasspath(name)) {
+      int position = this.urlClasspathReader.find(name);
+      if (position != UrlClasspathReader.NOT_FOUND) {
+        return position;
       }
     }
+    for (int i = 0; i < this.classpathElements.size(); i++) {
+      if (this.classpathElements.get(i).containsEntry(name)) {
+        return urlClasspathLength + i;
+      }
+    }
+    return UrlClasspathReader.NOT_FOUND;
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    Class<?> cl = findClassInChild(name);
+    if (this.classPrefetcher != null) {
+      String entryName = name.replace('.', '/') + ".class";
+      this.classPrefetcher.classDefined(name, () -> {
+        EntryReader classFile = findEntry(entryName);
+        return classFile == null ? null : classFile.read();
+      }, this.prefetchTarget);
+    }
+    return cl;
+  }
+
+  private Class<?> findClassInChild(String name) throws ClassNotFoundException {
+    if (this.classpathIndex != null && !this.classpathIndex.mayContain(name.replace('.', '/') + ".class")) {
+      return findClassInElements(name, new ClassNotFoundException(name));
+    }
+    if (this.classBytesStore != null) {
+      Class<?> cl = findClassInStore(name);
+      if (cl != null) {
+        return cl;
+      }
+    }
+    try {
+      return super.findClass(name);
+    } catch (ClassNotFoundException e) {
+      if (this.classpathElements.isEmpty()) {
+        throw e;
+      }
+      return findClassInElements(name, e);
+    }
+  }
+
+  /**
+   * Defines a class of a local JAR of the URL classpath from the bytes in the {@link ClassBytesStore}, reading them
+   * from the JAR only if no loader has stored them yet.
+   *
+   * @return the class, or null if it has to be defined by {@link URLClassLoader#findClass(String)}
+   */
+  private Class<?> findClassInStore(String name) throws ClassNotFoundException {
+    String entryName = name.replace('.', '/') + ".class";
+    int position = this.urlClasspathReader.find(entryName);
+    if (position == UrlClasspathReader.NOT_FOUND) {
+      return findClassInElements(name, new ClassNotFoundException(name));
+    }
+    File jar = position == UrlClasspathReader.UNSUPPORTED ? null : this.urlClasspathReader.getJarFile(position);
+    if (jar == null) {
+      return null;
+    }
+    byte[] classBytes;
+    try {
+      classBytes =
+          this.classBytesStore.getClassBytes(jar, entryName, () -> this.urlClasspathReader.read(position, entryName));
+    } catch (IOException e) {
+      throw new ClassNotFoundException(name, e);
+    }
+    if (classBytes == null) {
+      return null;
+    }
+    URL jarUrl = this.urlClasspathReader.getUrl(position);
+    defineOrVerifyPackage(name, () -> this.urlClasspathReader.getManifest(position), jarUrl);
+    return defineClass(name, classBytes, 0, classBytes.length, new CodeSource(jarUrl, (Certificate[]) null));
+  }
+
+  /**
+   * Defines a class from the first of the {@link ClasspathElement}s which has it.
+   *
+   * @param notInClasspath exception thrown when looking for the class in the URL classpath, rethrown if no element has
+   *                       the class either
+   */
+  private Class<?> findClassInElements(String name, ClassNotFoundException notInClasspath)
+      throws ClassNotFoundException {
+    String entryName = name.replace('.', '/') + ".class";
+    for (ClasspathElement classpathElement : this.classpathElements) {
+      ByteBuffer classBytes;
+      try {
+        classBytes = classpathElement.getEntry(entryName);
+      } catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
+      if (classBytes != null) {
+        defineOrVerifyPackage(name, classpathElement::getManifest, classpathElement.getCodeSourceURL());
+        CodeSource codeSource = new CodeSource(classpathElement.getCodeSourceURL(), (Certificate[]) null);
+        return defineClass(name, classBytes, codeSource);
+      }
+    }
+    throw notInClasspath;
+  }
+
+  /**
+   * Defines the package of a class, or checks that the class may join the package if it is already defined, as
+   * {@link URLClassLoader} does before defining a class.
+   *
+   * @throws SecurityException if the class would join a sealed package from another code source, or would seal an
+   *                           already defined package
+   */
+  private void defineOrVerifyPackage(String className, ManifestReader manifestReader, URL codeSourceUrl)
+      throws ClassNotFoundException {
+    int lastDot = className.lastIndexOf('.');
+    if (lastDot == -1) {
+      return;
+    }
+    String packageName = className.substring(0, lastDot);
+    try {
+      Package definedPackage = this.definedPackages.get(packageName);
+      if (definedPackage == null) {
+        Manifest manifest = manifestReader.read();
+        try {
+          if (manifest != null) {
+            definePackage(packageName, manifest, codeSourceUrl);
+          } else {
+            definePackage(packageName, null, null, null, null, null, null, null);
+          }
+          return;
+        } catch (IllegalArgumentException e) {
+          // defined concurrently by another thread
+          definedPackage = this.definedPackages.get(packageName);
+        }
+      }
+      if (definedPackage.isSealed()) {
+        if (!definedPackage.isSealed(codeSourceUrl)) {
+          throw new SecurityException("sealing violation: package " + packageName + " is sealed");
+        }
+      } else if (isSealed(packageName, manifestReader.read())) {
+        throw new SecurityException("sealing violation: can't seal package " + packageName + ": already loaded");
+      }
+    } catch (IOException e) {
+      throw new ClassNotFoundException(className, e);
+    }
+  }
+
+  /**
+   * @return true if {@code manifest} seals the package, either through the attributes of the package or through its
+   * main attributes
+   */
+  private static boolean isSealed(String packageName, Manifest manifest) {
+    if (manifest == null) {
+      return false;
+    }
+    Attributes packageAttributes = manifest.getAttributes(packageName.replace('.', '/') + "/");
+    String sealed = packageAttributes == null ? null : packageAttributes.getValue(Attributes.Name.SEALED);
+    if (sealed == null) {
+      sealed = manifest.getMainAttributes().getValue(Attributes.Name.SEALED);
+    }
+    return "true".equalsIgnoreCase(sealed);
+  }
+
+  @Override
+  public URL findResource(String name) {
+    URL resource = isInUrlClasspath(name) ? super.findResource(name) : null;
+    for (int i = 0; resource == null && i < this.classpathElements.size(); i++) {
+      resource = this.classpathElements.get(i).getEntryURL(name);
+    }
+    return resource;
+  }
+
+  @Override
+  public Enumeration<URL> findResources(String name) throws IOException {
+    Enumeration<URL> resources =
+        isInUrlClasspath(name) ? super.findResources(name) : Collections.<URL>emptyEnumeration();
+    if (this.classpathElements.isEmpty()) {
+      return resources;
+    }
+    List<URL> allResources = Collections.list(resources);
+    for (ClasspathElement classpathElement : this.classpathElements) {
+      URL resource = classpathElement.getEntryURL(name);
+      if (resource != null) {
+        allResources.add(resource);
+      }
+    }
+    return Collections.enumeration(allResources);
+  }
+
+  /**
+   * Same as {@link #findResources(String)}, as a list which is only allocated if there are resources.
+   */
+  private List<URL> findResourcesAsList(String name) throws IOException {
+    List<URL> resources = isInUrlClasspath(name) ? toList(super.findResources(name)) : Collections.emptyList();
+    for (ClasspathElement classpathElement : this.classpathElements) {
+      URL resource = classpathElement.getEntryURL(name);
+      if (resource != null) {
+        if (resources.isEmpty()) {
+          resources = new ArrayList<>(2);
+        }
+        resources.add(resource);
+      }
+    }
+    return resources;
+  }
+
+  /**
+   * @return false if the index rules out that the URL classpath has a resource called {@code name}
+   */
+  private boolean isInUrlClasspath(String name) {
+    // names which the URL classpath would resolve to a directory or normalize are not in the index
+    if (this.classpathIndex == null || name.isEmpty() || name.startsWith("/") || name.endsWith("/")
+        || name.contains("./") || name.contains("//")) {
+      return true;
+    }
+    return this.classpathIndex.mayContain(name);
+  }
+
+  /**
+   * Closes the URL classpath and the {@link ClasspathElement}s, releasing the JARs which were memory-mapped to read
+   * them, and saves the index snapshot if new package routes were learned. Streams returned by
+   * {@link #getResourceAsStream(String)} fail afterwards, as streams of the JARs of a closed {@link URLClassLoader} do.
+   */
+  @Override
+  public void close() throws IOException {
+    this.closed = true;
+    invalidateResourceCache();
+    if (this.indexSnapshotFile != null) {
+      Map<String, Integer> learnedRoutes = this.packageRoutingTable.getLearnedRoutes();
+      if (!learnedRoutes.equals(this.savedLearnedRoutes)) {
+        new IndexSnapshot(this.classpathIndex.getElements(),
+            IndexSnapshot.fingerprint(Arrays.asList(this.relationships)), learnedRoutes).write(this.indexSnapshotFile);
+      }
+    }
+    this.urlClasspathReader.close();
+    IOException failure = null;
+    for (ClasspathElement classpathElement : this.classpathElements) {
+      try {
+        classpathElement.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    super.close();
+    if (failure != null) {
+      throw failure;
+    }
   }
 
   @Override
   public URL getResource(String name) {
-    URL resource = tryLoadResourceWithDelegate(name, this.parentRelationship);
-    if (resource != null) {
-      return resource;
+    if (this.resourceCache == null) {
+      return resolveResource(name);
+    }
+    Optional<URL> cachedResource = this.resourceCache.getResource(name);
+    if (cachedResource != null) {
+      return cachedResource.orElse(null);
     }
-    for (DelegateRelationship fallbackDelegate : this.fallbackDelegates) {
-      resource = tryLoadResourceWithDelegate(name, fallbackDelegate);
+    URL resource = resolveResource(name);
+    this.resourceCache.putResource(name, resource);
+    return resource;
+  }
+
+  private URL resolveResource(String name) {
+    // both the delegate and the child resources are URLs
+    return (URL) resolveResource(name, this::findResource);
+  }
+
+  /**
+   * Applies the isolation rules of {@link #getResource(String)} to the resources of the delegates and of the child.
+   *
+   * @param childLookup finds the resource in the child, returning null if it has none; called at most once, since the
+   *                    child gives the same answer for every relationship
+   * @return the URL of the chosen delegate resource, the result of {@code childLookup} if the child resource is chosen,
+   * or null if the resource cannot be found
+   */
+  private Object resolveResource(String name, Function<String, ?> childLookup) {
+    Object event = LoaderEvents.beginResourceLookup();
+    boolean isChildSearched = false;
+    Object childResource = null;
+    for (int i = 0; i < this.relationships.length; i++) {
+      DelegateRelationship delegateRelationship = this.relationships[i];
+      URL delegateResource = null;
+      // resource might be blacklisted from being loaded from the delegate
+      if (!delegateRelationship.getCompiledBlacklistedResourcePredicates().matches(name)) {
+        delegateResource = delegateRelationship.getDelegateClassLoader().getResource(name);
+        if (delegateResource != null
+            && delegateRelationship.getCompiledDelegatePreferredResourcePredicates().matches(name)) {
+          // resource is delegate-preferred
+          return resourceResolved(event, name, i, delegateResource, childResource);
+        }
+      }
+
+      if (!isChildSearched) {
+        childResource = childLookup.apply(name);
+        isChildSearched = true;
+      }
+      Object resource = CHOOSERS[delegateRelationship.getIsolationLevel().ordinal()].resourceChooser
+          .choose(delegateResource, childResource);
       if (resource != null) {
-        return resource;
+        return resourceResolved(event, name, i, resource, childResource);
+      }
+
+      // Is it whitelisted and present in the delegate class loader but hidden due to the isolation behavior?
+      if (delegateResource != null
+          && delegateRelationship.getCompiledWhitelistedResourcePredicates().matches(name)) {
+        return resourceResolved(event, name, i, delegateResource, childResource);
       }
     }
     // could not find resource anywhere
-    return null;
+    return resourceResolved(event, name, -1, null, childResource);
+  }
+
+  /**
+   * Ends the resource lookup event of {@link #resolveResource(String, Function)}.
+   *
+   * @param event resource lookup event in progress, or null if the event is not enabled
+   * @return {@code resource}
+   */
+  private Object resourceResolved(Object event, String name, int relationshipIndex, Object resource,
+      Object childResource) {
+    if (event != null) {
+      LoaderEvents.commitResourceLookup(event, this, name, relationshipIndex, toSource(resource, childResource),
+          resource == null ? 0 : 1);
+    }
+    return resource;
   }
 
   @Override
   public Enumeration<URL> getResources(String name) throws IOException {
-    /*
-     * Using a LinkedHashSet for ordering (search for resources in a certain order) and uniqueness (might return
-     * same resource from multiple search paths).
-     * Search through both the parent and the fallbacks for resources.
-     */
-    LinkedHashSet<URL> resources = new LinkedHashSet<>(loadResourcesWithDelegate(name, this.parentRelationship));
-    for (DelegateRelationship fallbackDelegate : this.fallbackDelegates) {
-      resources.addAll(loadResourcesWithDelegate(name, fallbackDelegate));
+    List<URL> resources = this.resourceCache == null ? null : this.resourceCache.getResources(name);
+    if (resources == null) {
+      resources = resolveResources(name);
+      if (this.resourceCache != null) {
+        this.resourceCache.putResources(name, resources);
+      }
+    }
+    return resources.isEmpty() ? Collections.emptyEnumeration() : Collections.enumeration(resources);
+  }
+
+  @Override
+  public void invalidateResourceCache() {
+    if (this.resourceCache != null) {
+      this.resourceCache.invalidate();
+    }
+    if (this.resourceContentCache != null) {
+      this.resourceContentCache.invalidate();
+    }
+    this.serviceProviderNames.clear();
+  }
+
+  @Override
+  public <S> ServiceProviders<S> loadServices(Class<S> service) {
+    String serviceName = service.getName();
+    List<String> providerNames = this.serviceProviderNames.get(serviceName);
+    if (providerNames == null) {
+      List<URL> providerFiles;
+      try {
+        // same isolation rules as getResources, so the providers are those which ServiceLoader would find
+        providerFiles = resolveResources(ServiceProviders.SERVICES_DIRECTORY + serviceName);
+      } catch (IOException e) {
+        throw new ServiceConfigurationError(serviceName + ": Error locating configuration files", e);
+      }
+      providerNames = ServiceProviders.parseProviderNames(serviceName, providerFiles);
+      if (this.serviceProviderNames.size() < MAX_CACHED_SERVICES) {
+        this.serviceProviderNames.put(serviceName, providerNames);
+      }
     }
-    return Collections.enumeration(resources);
+    return new ServiceProviders<>(service, this, providerNames);
+  }
+
+  @Override
+  public ClassScanResult scanClasses(Executor executor) {
+    return ClassScanner.scan(getURLs(), this.classpathElements, null, executor);
+  }
+
+  @Override
+  public ClassScanResult scanClasses(Executor executor, Path cacheFile) {
+    return ClassScanner.scan(getURLs(), this.classpathElements, cacheFile, executor);
+  }
+
+  @Override
+  public LinkCheckResult checkLinks(Executor executor) {
+    return LinkChecker.check(scanClasses(executor), this, this::getConsultedRelationships, executor);
+  }
+
+  /**
+   * @return relationships which loading {@code name} consults, in the order of
+   * {@link #loadClassFromRelationships(String, ApiAnnotationCache)}
+   */
+  private List<DelegateRelationship> getConsultedRelationships(String name) {
+    int route = this.packageRoutingTable.route(name);
+    List<DelegateRelationship> consultedRelationships = new ArrayList<>(this.relationships.length);
+    if (route != PackageRoutingTable.NO_ROUTE) {
+      consultedRelationships.add(this.relationships[route]);
+    }
+    for (int i = 0; i < this.relationships.length; i++) {
+      if (i != route) {
+        consultedRelationships.add(this.relationships[i]);
+      }
+    }
+    return consultedRelationships;
+  }
+
+  private List<URL> resolveResources(String name) throws IOException {
+    Object event = LoaderEvents.beginResourceLookup();
+    // search through both the parent and the fallbacks for resources, sharing a single search of the child
+    List<URL> childResources = findResourcesAsList(name);
+    ResourceCollector resources = new ResourceCollector();
+    for (DelegateRelationship delegateRelationship : this.relationships) {
+      collectResourcesWithDelegate(name, delegateRelationship, childResources, resources);
+    }
+    List<URL> resolvedResources = resources.toList();
+    if (event != null) {
+      // resources may come from several relationships, so no single relationship is attributed
+      Set<URL> childResourceSet = Collections.newSetFromMap(new IdentityHashMap<>());
+      childResourceSet.addAll(childResources);
+      LoadDecision.Source source = resolvedResources.isEmpty() ? LoadDecision.Source.NOT_LOADED
+          : childResourceSet.containsAll(resolvedResources) ? LoadDecision.Source.CHILD : LoadDecision.Source.DELEGATE;
+      LoaderEvents.commitResourceLookup(event, this, name, -1, source, resolvedResources.size());
+    }
+    return resolvedResources;
+  }
+
+  /**
+   * Reads the resource straight from the classpath element or the delegate chosen by the isolation rules of
+   * {@link #getResource(String)}, without going through a URL for resources of the child.
+   */
+  @Override
+  public InputStream getResourceAsStream(String name) {
+    try {
+      Object resource = readResource(name);
+      if (resource instanceof ByteBuffer) {
+        return new ByteBufferInputStream((ByteBuffer) resource, () -> this.closed);
+      }
+      return resource == null ? null : ((URLConnection) resource).getInputStream();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public ByteBuffer getResourceAsByteBuffer(String name) throws IOException {
+    Object resource = readResource(name);
+    if (resource == null || resource instanceof ByteBuffer) {
+      return (ByteBuffer) resource;
+    }
+    URLConnection connection = (URLConnection) resource;
+    try (InputStream inputStream = connection.getInputStream()) {
+      return ByteBuffer.wrap(readFully(inputStream, connection.getContentLengthLong()));
+    }
+  }
+
+  /**
+   * @return the content of the resource, a connection to the resource if it comes from a delegate or through a URL of
+   * the child classpath, or null if it cannot be found
+   */
+  private Object readResource(String name) throws IOException {
+    boolean isContentCached = this.resourceContentCache != null && this.resourceContentCache.mayCache(name);
+    if (isContentCached) {
+      ByteBuffer cachedContent = this.resourceContentCache.get(name);
+      if (cachedContent != null) {
+        return cachedContent;
+      }
+    }
+    Optional<URL> cachedResource = this.resourceCache == null ? null : this.resourceCache.getResource(name);
+    Object resource = cachedResource != null ? cachedResource.orElse(null) : resolveResource(name, this::findEntry);
+    if (resource == null) {
+      return null;
+    }
+    if (resource instanceof EntryReader) {
+      ByteBuffer content = ((EntryReader) resource).read();
+      if (isContentCached && content != null) {
+        this.resourceContentCache.put(name, content.duplicate());
+      }
+      return content;
+    }
+    URLConnection connection = ((URL) resource).openConnection();
+    if (isContentCached) {
+      // for JAR entries, this is the size of the inflated entry
+      long size = connection.getContentLengthLong();
+      if (this.resourceContentCache.isCacheable(name, size)) {
+        ByteBuffer content;
+        try (InputStream inputStream = connection.getInputStream()) {
+          content = ByteBuffer.wrap(readFully(inputStream, size));
+        }
+        this.resourceContentCache.put(name, content.duplicate());
+        return content;
+      }
+    }
+    return connection;
+  }
+
+  /**
+   * Same as {@link #findResource(String)}, returning the entry instead of its URL.
+   *
+   * @return the first entry of the child classpath called {@code name}, or null if there is none
+   */
+  private EntryReader findEntry(String name) {
+    if (isInUrlClasspath(name)) {
+      int position = this.urlClasspathReader.find(name);
+      if (position == UrlClasspathReader.UNSUPPORTED) {
+        URL resource = super.findResource(name);
+        if (resource != null) {
+          return () -> {
+            URLConnection connection = resource.openConnection();
+            try (InputStream inputStream = connection.getInputStream()) {
+              return ByteBuffer.wrap(readFully(inputStream, connection.getContentLengthLong()));
+            }
+          };
+        }
+      } else if (position != UrlClasspathReader.NOT_FOUND) {
+        return () -> this.urlClasspathReader.read(position, name);
+      }
+    }
+    for (ClasspathElement classpathElement : this.classpathElements) {
+      if (classpathElement.containsEntry(name)) {
+        return () -> classpathElement.getEntry(name);
+      }
+    }
+    return null;
   }
 
-  /*
-   * It is currently unnecessary to override getResourceAsStream, since it uses getResource to get a resource, and
-   * getResource is overridden by this class.
+  /**
+   * @param size expected size, or a negative value if it is unknown
    */
+  private static byte[] readFully(InputStream inputStream, long size) throws IOException {
+    ByteArrayOutputStream content = new ByteArrayOutputStream(size > 0 && size < Integer.MAX_VALUE ? (int) size : 8192);
+    byte[] buffer = new byte[8192];
+    int count;
+    while ((count = inputStream.read(buffer)) != -1) {
+      content.write(buffer, 0, count);
+    }
+    return content.toByteArray();
+  }
+
+  @Override
+  public List<LoadDecision> getLoadDecisions() {
+    return this.loadDecisionTrace == null ? Collections.emptyList() : this.loadDecisionTrace.getDecisions();
+  }
+
+  @Override
+  public LoaderMetrics getMetrics() {
+    return new LoaderMetrics(this.resourceContentCache == null ? LoaderMetrics.ResourceContentCacheMetrics.DISABLED
+        : this.resourceContentCache.getMetrics(),
+        this.classPrefetcher == null ? LoaderMetrics.ClassPrefetchMetrics.DISABLED : this.classPrefetcher.getMetrics());
+  }
 
   /**
    * Try to load a class corresponding to an individual {@link DelegateRelationship}.
    *
    * @param name name of the class to load
-   * @param delegateRelationship {@link DelegateRelationship} to use for loading
+   * @param relationshipIndex index of the {@link DelegateRelationship} to use for loading, where 0 is the parent
+   *                          relationship
+   * @param apiAnnotationCache cache to use for looking up the {@link Api} annotation class; null to always look it up
    * @return {@link Class} corresponding to {@code name} if a class could be resolved corresponding to the
-   * {@code delegateRelationship}; null otherwise
+   * relationship; null otherwise
    */
-  private Class<?> tryLoadClassWithDelegate(String name, DelegateRelationship delegateRelationship) {
+  private Class<?> tryLoadClassWithDelegate(String name, int relationshipIndex,
+      ApiAnnotationCache apiAnnotationCache) {
+    DelegateRelationship delegateRelationship = this.relationships[relationshipIndex];
+    Object event = LoaderEvents.beginClassLoad();
+    long startTime = this.loadDecisionTrace == null ? 0 : System.nanoTime();
     Class<?> delegateClass = null;
     // class might be blacklisted from being loaded from the delegate
-    boolean isBlacklisted = matchesPredicate(delegateRelationship.getBlacklistedClassPredicates(), name);
+    boolean isBlacklisted = delegateRelationship.getCompiledBlacklistedClassPredicates().matches(name);
     if (!isBlacklisted) {
       delegateClass = tryLoadClass(delegateRelationship.getDelegateClassLoader(), name);
       // delegateClass might still be null; just move to next section if it is still null
       if (delegateClass != null) {
+        // checked first since it is cheaper than looking for the annotation
+        if (delegateRelationship.getCompiledDelegatePreferredClassPredicates().matches(name)) {
+          // class is delegate-preferred
+          return recordDecision(name, relationshipIndex, LoadDecision.PredicateMatch.DELEGATE_PREFERRED,
+              delegateClass, false, null, delegateClass, startTime, event);
+        }
         /*
          * Is the class part of the exported API?
          *
@@ -160,16 +919,13 @@ class IsolatingClassLoader extends URLClassLoader {
          * the Api class, and they would not be considered the same class for the purposes of the isAnnotationPresent
          * method.
          */
-        // noinspection unchecked: safe to cast since Api is an annotation class
-        Class<? extends Annotation> apiAnnotationClass =
-            (Class<? extends Annotation>) tryLoadClass(delegateRelationship.getDelegateClassLoader(),
-                Api.class.getName());
+        ClassLoader delegateClassLoader = delegateRelationship.getDelegateClassLoader();
+        Class<? extends Annotation> apiAnnotationClass = apiAnnotationCache == null
+            ? loadApiAnnotationClass(delegateClassLoader) : apiAnnotationCache.get(delegateClassLoader);
         if (apiAnnotationClass != null && delegateClass.isAnnotationPresent(apiAnnotationClass)) {
           // class is part of exported API
-          return delegateClass;
-        } else if (matchesPredicate(delegateRelationship.getDelegatePreferredClassPredicates(), name)) {
-          // class is delegate-preferred
-          return delegateClass;
+          return recordDecision(name, relationshipIndex, LoadDecision.PredicateMatch.API, delegateClass, false, null,
+              delegateClass, startTime, event);
         }
       }
     }
@@ -182,86 +938,71 @@ class IsolatingClassLoader extends URLClassLoader {
     }
 
     Class<?> returnValue =
-        CLASS_CHOOSER_MAPPING.get(delegateRelationship.getIsolationLevel()).choose(delegateClass, childClass);
+        CHOOSERS[delegateRelationship.getIsolationLevel().ordinal()].classChooser.choose(delegateClass, childClass);
+    LoadDecision.PredicateMatch predicateMatch =
+        isBlacklisted ? LoadDecision.PredicateMatch.BLACKLISTED : LoadDecision.PredicateMatch.NONE;
 
     // Is it whitelisted and present in the delegate class loader but hidden due to the isolation behavior?
     if (returnValue == null && delegateClass != null) {
-      if (matchesPredicate(delegateRelationship.getWhitelistedClassPredicates(), name)) {
-        return delegateClass;
+      if (delegateRelationship.getCompiledWhitelistedClassPredicates().matches(name)) {
+        returnValue = delegateClass;
+        predicateMatch = LoadDecision.PredicateMatch.WHITELISTED;
       }
     }
 
-    return returnValue;
+    return recordDecision(name, relationshipIndex, predicateMatch, delegateClass, true, childClass, returnValue,
+        startTime, event);
   }
 
   /**
-   * Try to load a resource corresponding to an individual {@link DelegateRelationship}.
+   * Records a decision of {@link #tryLoadClassWithDelegate(String, int, ApiAnnotationCache)} in the trace if decisions
+   * are traced, and as a Flight Recorder event if the event is enabled.
    *
-   * @param name name of the resource to load
-   * @param delegateRelationship {@link DelegateRelationship} to use for loading
-   * @return {@link URL} for resource corresponding to {@code name} if a resource could be resolved corresponding to the
-   * {@code delegateRelationship}; null otherwise
+   * @param event class load event in progress, or null if the event is not enabled
+   * @return {@code result}
    */
-  private URL tryLoadResourceWithDelegate(String name, DelegateRelationship delegateRelationship) {
-    URL delegateResource = null;
-    // resource might be blacklisted from being loaded from the delegate
-    boolean isBlacklisted = matchesPredicate(delegateRelationship.getBlacklistedResourcePredicates(), name);
-    if (!isBlacklisted) {
-      delegateResource = delegateRelationship.getDelegateClassLoader().getResource(name);
-      // delegateResource might still be null; just move to next section if it is still null
-      if (delegateResource != null) {
-        if (matchesPredicate(delegateRelationship.getDelegatePreferredResourcePredicates(), name)) {
-          // resource is delegate-preferred
-          return delegateResource;
-        }
-      }
-    }
-
-    URL childResource = findResource(name);
-
-    URL returnValue =
-        RESOURCE_CHOOSER_MAPPING.get(delegateRelationship.getIsolationLevel()).choose(delegateResource, childResource);
-
-    // Is it whitelisted and present in the delegate class loader but hidden due to the isolation behavior?
-    if (returnValue == null && delegateResource != null) {
-      if (matchesPredicate(delegateRelationship.getWhitelistedResourcePredicates(), name)) {
-        return delegateResource;
+  private Class<?> recordDecision(String name, int relationshipIndex, LoadDecision.PredicateMatch predicateMatch,
+      Class<?> delegateClass, boolean isChildSearched, Class<?> childClass, Class<?> result, long startTime,
+      Object event) {
+    if (this.loadDecisionTrace != null || event != null) {
+      LoadDecision.Source source = toSource(result, childClass);
+      if (this.loadDecisionTrace != null) {
+        this.loadDecisionTrace.record(name, relationshipIndex, this.relationships[relationshipIndex], predicateMatch,
+            delegateClass != null, isChildSearched, childClass != null, source, System.nanoTime() - startTime);
       }
+      LoaderEvents.commitClassLoad(event, this, name, relationshipIndex, predicateMatch, source, result);
     }
+    return result;
+  }
 
-    return returnValue;
+  /**
+   * @return where {@code result} came from, given what the child provided
+   */
+  private static LoadDecision.Source toSource(Object result, Object childResult) {
+    return result == null ? LoadDecision.Source.NOT_LOADED
+        : result == childResult ? LoadDecision.Source.CHILD : LoadDecision.Source.DELEGATE;
   }
 
   /**
-   * Load resources using a certain {@code delegateRelationship}. This will merge resources from the delegate and/or
+   * Collects resources using a certain {@code delegateRelationship}. This will merge resources from the delegate and/or
    * child based on isolation level and whitelists.
    */
-  private List<URL> loadResourcesWithDelegate(String name, DelegateRelationship delegateRelationship)
-      throws IOException {
-    /*
-     * Using a LinkedHashSet for ordering (search for resources in a certain order) and uniqueness (might return
-     * same resource from multiple search paths).
-     */
-    LinkedHashSet<URL> resources = new LinkedHashSet<>();
+  private static void collectResourcesWithDelegate(String name, DelegateRelationship delegateRelationship,
+      List<URL> childResources, ResourceCollector resources) throws IOException {
     List<URL> delegateResources = Collections.emptyList();
     // resource might be blacklisted from being loaded from the delegate
-    boolean isBlacklisted = matchesPredicate(delegateRelationship.getBlacklistedResourcePredicates(), name);
-    if (!isBlacklisted) {
-      delegateResources = Collections.list(delegateRelationship.getDelegateClassLoader().getResources(name));
-      if (matchesPredicate(delegateRelationship.getDelegatePreferredResourcePredicates(), name)) {
+    if (!delegateRelationship.getCompiledBlacklistedResourcePredicates().matches(name)) {
+      delegateResources = toList(delegateRelationship.getDelegateClassLoader().getResources(name));
+      if (delegateRelationship.getCompiledDelegatePreferredResourcePredicates().matches(name)) {
         // resources are delegate-preferred, so add delegate resources first
         resources.addAll(delegateResources);
       }
     }
 
-    List<URL> childResources = Collections.list(findResources(name));
-    List<URL> chosenResources = chooseResources(delegateRelationship, delegateResources, childResources);
-    resources.addAll(chosenResources);
-    if (matchesPredicate(delegateRelationship.getWhitelistedResourcePredicates(), name)) {
+    resources.addAll(chooseResources(delegateRelationship, delegateResources, childResources));
+    if (delegateRelationship.getCompiledWhitelistedResourcePredicates().matches(name)) {
       resources.addAll(delegateResources);
     }
-
-    return new ArrayList<>(resources);
   }
 
   /**
@@ -272,13 +1013,29 @@ class IsolatingClassLoader extends URLClassLoader {
     // an empty list means no resources are found, and need to use null for chooser to denote "not found"
     List<URL> delegateResourcesOrNull = delegateResources.isEmpty() ? null : delegateResources;
     List<URL> childResourcesOrNull = childResources.isEmpty() ? null : childResources;
-    List<URL> chosenResourcesOrNull = RESOURCES_CHOOSER_MAPPING.get(delegateRelationship.getIsolationLevel())
-        .choose(delegateResourcesOrNull, childResourcesOrNull);
+    List<URL> chosenResourcesOrNull = CHOOSERS[delegateRelationship.getIsolationLevel().ordinal()]
+        .resourcesChooser.choose(delegateResourcesOrNull, childResourcesOrNull);
     return chosenResourcesOrNull == null ? Collections.emptyList() : chosenResourcesOrNull;
   }
 
-  private static boolean matchesPredicate(Set<Predicate<String>> predicates, String value) {
-    return predicates.stream().anyMatch(predicate -> predicate.test(value));
+  /**
+   * @return the elements of {@code enumeration}; an immutable empty list if there are none
+   */
+  private static List<URL> toList(Enumeration<URL> enumeration) {
+    if (!enumeration.hasMoreElements()) {
+      return Collections.emptyList();
+    }
+    List<URL> list = new ArrayList<>(2);
+    while (enumeration.hasMoreElements()) {
+      list.add(enumeration.nextElement());
+    }
+    return list;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Class<? extends Annotation> loadApiAnnotationClass(ClassLoader classLoader) {
+    // safe to cast since Api is an annotation class
+    return (Class<? extends Annotation>) tryLoadClass(classLoader, Api.class.getName());
   }
 
   private static Class<?> tryLoadClass(ClassLoader classLoader, String name) {
@@ -295,4 +1052,123 @@ class IsolatingClassLoader extends URLClassLoader {
   void doResolveClass(Class<?> cl) {
     resolveClass(cl);
   }
+
+  /**
+   * Memoizes the {@link Api} annotation class of each delegate classloader, so that a batch of loads only resolves it
+   * once per delegate. Not thread-safe.
+   */
+  private static final class ApiAnnotationCache {
+    private final Map<ClassLoader, Class<? extends Annotation>> apiAnnotationClasses = new IdentityHashMap<>();
+
+    Class<? extends Annotation> get(ClassLoader delegateClassLoader) {
+      if (!this.apiAnnotationClasses.containsKey(delegateClassLoader)) {
+        this.apiAnnotationClasses.put(delegateClassLoader, loadApiAnnotationClass(delegateClassLoader));
+      }
+      return this.apiAnnotationClasses.get(delegateClassLoader);
+    }
+  }
+
+  /**
+   * Loads the classes handed by the {@link ClassPrefetcher}. The code which needs them has not asked for them yet, so
+   * these loads are not traced, reported as Flight Recorder events, or warned about under
+   * {@link IsolationLevel#TRANSITIONAL}, and they do not go through the choosers. A class is only defined from the
+   * child classpath if no delegate provides it, since it then comes from the child at any isolation level. Otherwise
+   * it is only loaded by the delegates, and the choice is made when the code loads it.
+   */
+  private final class PrefetchTarget implements ClassPrefetcher.Target {
+    @Override
+    public boolean isLoaded(String className) {
+      return findLoadedClass(className) != null;
+    }
+
+    @Override
+    public boolean prefetch(String className) throws ClassNotFoundException {
+      return IsolatingClassLoader.this.classLoadingLocks.callWithLock(className, () -> {
+        if (isLoaded(className)) {
+          return false;
+        }
+        if (!isProvidedByDelegate(className)) {
+          findClass(className);
+        }
+        return true;
+      });
+    }
+
+    private boolean isProvidedByDelegate(String className) {
+      for (DelegateRelationship delegateRelationship : IsolatingClassLoader.this.relationships) {
+        if (!delegateRelationship.getCompiledBlacklistedClassPredicates().matches(className)
+            && tryLoadClass(delegateRelationship.getDelegateClassLoader(), className) != null) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Choosers for one {@link IsolationLevel}.
+   */
+  private static final class LevelChoosers {
+    private final Chooser<Class<?>> classChooser;
+    private final Chooser<Object> resourceChooser;
+    private final Chooser<List<URL>> resourcesChooser;
+
+    private LevelChoosers(IsolationLevel isolationLevel) {
+      this.classChooser = CLASS_CHOOSER_MAPPING.get(isolationLevel);
+      this.resourceChooser = RESOURCE_CHOOSER_MAPPING.get(isolationLevel);
+      this.resourcesChooser = RESOURCES_CHOOSER_MAPPING.get(isolationLevel);
+    }
+
+    static LevelChoosers[] forAllLevels() {
+      IsolationLevel[] isolationLevels = IsolationLevel.values();
+      LevelChoosers[] choosers = new LevelChoosers[isolationLevels.length];
+      for (IsolationLevel isolationLevel : isolationLevels) {
+        choosers[isolationLevel.ordinal()] = new LevelChoosers(isolationLevel);
+      }
+      return choosers;
+    }
+  }
+
+  /**
+   * Reads the manifest which a package is defined with.
+   */
+  @FunctionalInterface
+  private interface ManifestReader {
+    /**
+     * @return the manifest, or null if there is none
+     */
+    Manifest read() throws IOException;
+  }
+
+  /**
+   * Resources found by a {@link #resolveResources(String)} call, in the order they were found and without duplicates.
+   *
+   * Duplicates are detected by the external form of the URLs, since {@link URL#equals(Object)} and
+   * {@link URL#hashCode()} can resolve host names, and compare nested URLs by parsing them.
+   */
+  private static final class ResourceCollector {
+    // both null until a resource is found
+    private List<URL> resources;
+    private Set<String> externalForms;
+
+    void addAll(List<URL> urls) {
+      for (int i = 0; i < urls.size(); i++) {
+        add(urls.get(i));
+      }
+    }
+
+    void add(URL url) {
+      if (this.resources == null) {
+        this.resources = new ArrayList<>(2);
+        this.externalForms = new HashSet<>();
+      }
+      if (this.externalForms.add(url.toExternalForm())) {
+        this.resources.add(url);
+      }
+    }
+
+    List<URL> toList() {
+      return this.resources == null ? Collections.emptyList() : this.resources;
+    }
+  }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+/**
+ * Mechanisms used to enforce isolation between the child classpath and its delegates.
+ */
+public enum IsolationEngine {
+  /**
+   * Isolation is enforced by a classloader which checks the {@link DelegateRelationship}s each time a class or resource
+   * is loaded. Supports all isolation features.
+   */
+  CLASS_LOADER,
+  /**
+   * Isolation is enforced by defining the child classpath as a {@code ModuleLayer}, with each JAR on the
+   * classpath becoming a module. Classes in packages of the child classpath are always loaded from the child, so
+   * delegate-preferred predicates do not apply to those packages, and classes of the Java runtime modules are always
+   * visible. Classes in other packages are loaded from the {@link DelegateRelationship}s, with the same rules for
+   * {@link Api} annotations, blacklists and whitelists as {@link #CLASS_LOADER}. Requires Java 11 or later.
+   *
+   * Building the loader fails with an {@link com.linkedin.cytodynamics.exception.InvalidBuilderParametersException}
+   * when the classpath cannot be a module layer: a package split across JARs, two JARs with the same automatic module
+   * name, a JAR file name which gives no valid automatic module name, or a directory on the classpath. Unlike
+   * {@link #CLASS_LOADER}, no class load events are emitted, and the loader does not implement
+   * {@link CytodynamicsLoader}.
+   */
+  MODULE_LAYER
+}
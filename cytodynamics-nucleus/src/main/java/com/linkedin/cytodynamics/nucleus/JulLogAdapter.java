@@ -7,6 +7,7 @@
  */
 package com.linkedin.cytodynamics.nucleus;
 
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 
@@ -32,6 +33,36 @@ class JulLogAdapter implements LogAdapter {
       impl.log(Level.SEVERE, message);
     }
 
+    @Override
+    public boolean isInfoEnabled() {
+      return impl.isLoggable(Level.INFO);
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+      return impl.isLoggable(Level.WARNING);
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+      return impl.isLoggable(Level.SEVERE);
+    }
+
+    @Override
+    public void info(Supplier<String> messageSupplier) {
+      impl.log(Level.INFO, messageSupplier);
+    }
+
+    @Override
+    public void warn(Supplier<String> messageSupplier) {
+      impl.log(Level.WARNING, messageSupplier);
+    }
+
+    @Override
+    public void error(Supplier<String> messageSupplier) {
+      impl.log(Level.SEVERE, messageSupplier);
+    }
+
     public JulLogger(java.util.logging.Logger impl) {
       this.impl = impl;
     }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Result of a {@link CytodynamicsLoader#checkLinks(java.util.concurrent.Executor)} call: the classes referenced from
+ * the child classpath of a loader which the loader cannot load.
+ */
+public final class LinkCheckResult {
+  private final int checkedClassCount;
+  private final List<UnresolvedReference> unresolvedReferences;
+
+  LinkCheckResult(int checkedClassCount, List<UnresolvedReference> unresolvedReferences) {
+    this.checkedClassCount = checkedClassCount;
+    this.unresolvedReferences = Collections.unmodifiableList(unresolvedReferences);
+  }
+
+  /**
+   * @return number of distinct classes which were loaded, counting both the classes of the child classpath and the
+   * classes they reference
+   */
+  public int getCheckedClassCount() {
+    return checkedClassCount;
+  }
+
+  /**
+   * @return classes which could not be loaded, sorted by class name
+   */
+  public List<UnresolvedReference> getUnresolvedReferences() {
+    return unresolvedReferences;
+  }
+
+  /**
+   * @return true if every checked class was loaded
+   */
+  public boolean isSuccessful() {
+    return unresolvedReferences.isEmpty();
+  }
+
+  /**
+   * A class which the loader could not load, with the classes of the child classpath which refer to it.
+   */
+  public static final class UnresolvedReference {
+    private final String className;
+    private final List<String> referencingClassNames;
+    private final List<DelegateRelationship> consultedRelationships;
+    private final Throwable cause;
+
+    UnresolvedReference(String className, List<String> referencingClassNames,
+        List<DelegateRelationship> consultedRelationships, Throwable cause) {
+      this.className = className;
+      this.referencingClassNames = Collections.unmodifiableList(referencingClassNames);
+      this.consultedRelationships = Collections.unmodifiableList(consultedRelationships);
+      this.cause = cause;
+    }
+
+    /**
+     * @return binary name of the class which could not be loaded
+     */
+    public String getClassName() {
+      return className;
+    }
+
+    /**
+     * @return classes of the child classpath which refer to the class, sorted by name; empty if the class is itself on
+     * the child classpath and nothing else refers to it
+     */
+    public List<String> getReferencingClassNames() {
+      return referencingClassNames;
+    }
+
+    /**
+     * @return relationships which the loader consulted for the class, in the order it consulted them: the one which
+     * the package of the class is routed to, if any, then the parent relationship and the fallback delegates
+     */
+    public List<DelegateRelationship> getConsultedRelationships() {
+      return consultedRelationships;
+    }
+
+    /**
+     * @return exception thrown when loading the class, which is also thrown when the class is found but one of its
+     * supertypes cannot be loaded
+     */
+    public Throwable getCause() {
+      return cause;
+    }
+  }
+}
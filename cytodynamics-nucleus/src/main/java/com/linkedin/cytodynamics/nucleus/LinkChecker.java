@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+
+/**
+ * Loads every class of the child classpath of a loader and every class which they reference, so that missing
+ * dependencies are found when a plugin is deployed instead of when a code path first needs them.
+ *
+ * Classes are loaded through the loader, so the same isolation rules and package routes apply as at run time, but they
+ * are not initialized. The classes to load are split into batches of {@link #BATCH_SIZE} names, which are loaded in
+ * parallel.
+ */
+final class LinkChecker {
+  // large enough for the per-task overhead not to matter, small enough to keep every thread busy until the end
+  static final int BATCH_SIZE = 256;
+
+  private LinkChecker() {
+  }
+
+  /**
+   * @param scanResult classes of the child classpath of {@code loader}
+   * @param loader loader to load the classes through
+   * @param consultedRelationships relationships which {@code loader} consults for a class name, in order
+   * @param executor executor to load the batches of classes on
+   */
+  static LinkCheckResult check(ClassScanResult scanResult, ClassLoader loader,
+      Function<String, List<DelegateRelationship>> consultedRelationships, Executor executor) {
+    // sorted, so that each batch mostly holds classes of the same packages
+    Map<String, Set<String>> referencingClassNames = new TreeMap<>();
+    for (ScannedClass scannedClass : scanResult.getClasses()) {
+      referencingClassNames.computeIfAbsent(scannedClass.getClassName(), k -> new TreeSet<>());
+      for (String referencedClassName : scannedClass.getReferencedClassNames()) {
+        referencingClassNames.computeIfAbsent(referencedClassName, k -> new TreeSet<>())
+            .add(scannedClass.getClassName());
+      }
+    }
+
+    List<String> classNames = new ArrayList<>(referencingClassNames.keySet());
+    List<CompletableFuture<Map<String, Throwable>>> futures = new ArrayList<>();
+    for (int from = 0; from < classNames.size(); from += BATCH_SIZE) {
+      List<String> batch = classNames.subList(from, Math.min(from + BATCH_SIZE, classNames.size()));
+      futures.add(supply(() -> loadBatch(batch, loader), executor));
+    }
+
+    Map<String, Throwable> failures = new TreeMap<>();
+    for (CompletableFuture<Map<String, Throwable>> future : futures) {
+      failures.putAll(future.join());
+    }
+    List<LinkCheckResult.UnresolvedReference> unresolvedReferences = new ArrayList<>();
+    for (Map.Entry<String, Throwable> failure : failures.entrySet()) {
+      String className = failure.getKey();
+      unresolvedReferences.add(new LinkCheckResult.UnresolvedReference(className,
+          new ArrayList<>(referencingClassNames.get(className)), consultedRelationships.apply(className),
+          failure.getValue()));
+    }
+    return new LinkCheckResult(classNames.size(), unresolvedReferences);
+  }
+
+  /**
+   * @return cause of the failure for each class of the batch which could not be loaded
+   */
+  private static Map<String, Throwable> loadBatch(List<String> batch, ClassLoader loader) {
+    Map<String, Throwable> failures = null;
+    for (String className : batch) {
+      try {
+        loader.loadClass(className);
+      } catch (ClassNotFoundException | LinkageError | RuntimeException e) {
+        if (failures == null) {
+          failures = new HashMap<>();
+        }
+        failures.put(className, e);
+      }
+    }
+    return failures == null ? Collections.emptyMap() : failures;
+  }
+
+  private static <T> CompletableFuture<T> supply(Supplier<T> supplier, Executor executor) {
+    try {
+      return CompletableFuture.supplyAsync(supplier, executor);
+    } catch (RejectedExecutionException e) {
+      // check in the calling thread instead
+      return CompletableFuture.completedFuture(supplier.get());
+    }
+  }
+}
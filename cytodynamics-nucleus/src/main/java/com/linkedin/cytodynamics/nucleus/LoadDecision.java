@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+/**
+ * One decision made by a loader when it tried to load a class through one of its {@link DelegateRelationship}s,
+ * recorded when the loader has a trace enabled through {@link LoaderBuilder#withLoadDecisionTrace(int)}.
+ */
+public final class LoadDecision {
+  /**
+   * Predicate of the relationship which decided where the class came from.
+   */
+  public enum PredicateMatch {
+    /**
+     * No predicate matched, so the isolation level decided.
+     */
+    NONE,
+    /**
+     * The class is blacklisted, so the delegate was not asked for it.
+     */
+    BLACKLISTED,
+    /**
+     * The class is delegate-preferred, so it came from the delegate without searching the child classpath.
+     */
+    DELEGATE_PREFERRED,
+    /**
+     * The class is annotated with {@link Api}, so it came from the delegate without searching the child classpath.
+     */
+    API,
+    /**
+     * The class is whitelisted, so it came from the delegate although the isolation level hides it.
+     */
+    WHITELISTED
+  }
+
+  /**
+   * Where the class came from.
+   */
+  public enum Source {
+    DELEGATE,
+    CHILD,
+    /**
+     * The relationship did not provide the class, so the loader went on to the next relationship, if any.
+     */
+    NOT_LOADED
+  }
+
+  private final long sequence;
+  private final String className;
+  private final int relationshipIndex;
+  private final DelegateRelationship relationship;
+  private final PredicateMatch predicateMatch;
+  private final boolean isFoundInDelegate;
+  private final boolean isChildSearched;
+  private final boolean isFoundInChild;
+  private final Source source;
+  private final long durationNanos;
+
+  LoadDecision(long sequence, String className, int relationshipIndex, DelegateRelationship relationship,
+      PredicateMatch predicateMatch, boolean isFoundInDelegate, boolean isChildSearched, boolean isFoundInChild,
+      Source source, long durationNanos) {
+    this.sequence = sequence;
+    this.className = className;
+    this.relationshipIndex = relationshipIndex;
+    this.relationship = relationship;
+    this.predicateMatch = predicateMatch;
+    this.isFoundInDelegate = isFoundInDelegate;
+    this.isChildSearched = isChildSearched;
+    this.isFoundInChild = isFoundInChild;
+    this.source = source;
+    this.durationNanos = durationNanos;
+  }
+
+  /**
+   * @return position of the decision among all the decisions of the loader, starting from 0
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return binary name of the class
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * @return 0 for the parent relationship, or 1 + the index of the fallback delegate
+   */
+  public int getRelationshipIndex() {
+    return relationshipIndex;
+  }
+
+  /**
+   * @return the relationship which was consulted
+   */
+  public DelegateRelationship getRelationship() {
+    return relationship;
+  }
+
+  public PredicateMatch getPredicateMatch() {
+    return predicateMatch;
+  }
+
+  /**
+   * @return true if the delegate classloader had the class; false if it did not or was not asked for it
+   */
+  public boolean isFoundInDelegate() {
+    return isFoundInDelegate;
+  }
+
+  /**
+   * @return false if the class came from the delegate before the child classpath was searched
+   */
+  public boolean isChildSearched() {
+    return isChildSearched;
+  }
+
+  /**
+   * @return true if the class was defined from the child classpath
+   */
+  public boolean isFoundInChild() {
+    return isFoundInChild;
+  }
+
+  public Source getSource() {
+    return source;
+  }
+
+  /**
+   * @return time taken by the decision, including loading the class and the classes it depends on
+   */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("#%d %s via relationship %d: predicate=%s, delegate=%s, child=%s, source=%s, %d ns", sequence,
+        className, relationshipIndex, predicateMatch, isFoundInDelegate ? "found" : "not found",
+        !isChildSearched ? "not searched" : isFoundInChild ? "found" : "not found", source, durationNanos);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Fixed-size ring buffer of the most recent {@link LoadDecision}s of a loader. Recording a decision takes a slot by
+ * incrementing a counter and publishes the decision into it, without locking, so concurrent loads never wait for each
+ * other. Once the buffer is full, each decision replaces the oldest one.
+ *
+ * Reading the trace while classes are loaded is best effort: a decision recorded during the read may replace one which
+ * would otherwise have been returned.
+ */
+final class LoadDecisionTrace {
+  static final int MAX_CAPACITY = 1 << 20;
+
+  private final AtomicReferenceArray<LoadDecision> decisions;
+  private final int mask;
+  private final AtomicLong nextSequence = new AtomicLong();
+
+  /**
+   * @param capacity minimum number of decisions kept, rounded up to a power of two; at most {@link #MAX_CAPACITY}
+   */
+  LoadDecisionTrace(int capacity) {
+    int size = Integer.highestOneBit(Math.max(1, capacity));
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.decisions = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  void record(String className, int relationshipIndex, DelegateRelationship relationship,
+      LoadDecision.PredicateMatch predicateMatch, boolean isFoundInDelegate, boolean isChildSearched,
+      boolean isFoundInChild, LoadDecision.Source source, long durationNanos) {
+    long sequence = this.nextSequence.getAndIncrement();
+    // readers do not need to see the decision immediately, so avoid the cost of a full volatile write
+    this.decisions.lazySet((int) (sequence & this.mask), new LoadDecision(sequence, className, relationshipIndex,
+        relationship, predicateMatch, isFoundInDelegate, isChildSearched, isFoundInChild, source, durationNanos));
+  }
+
+  /**
+   * @return recorded decisions, oldest first
+   */
+  List<LoadDecision> getDecisions() {
+    return getDecisions(null);
+  }
+
+  /**
+   * @param className class to return the decisions of; null for all classes
+   * @return recorded decisions for {@code className}, oldest first
+   */
+  List<LoadDecision> getDecisions(String className) {
+    List<LoadDecision> decisions = new ArrayList<>();
+    for (int i = 0; i < this.decisions.length(); i++) {
+      LoadDecision decision = this.decisions.get(i);
+      if (decision != null && (className == null || className.equals(decision.getClassName()))) {
+        decisions.add(decision);
+      }
+    }
+    decisions.sort(Comparator.comparingLong(LoadDecision::getSequence));
+    return decisions;
+  }
+}
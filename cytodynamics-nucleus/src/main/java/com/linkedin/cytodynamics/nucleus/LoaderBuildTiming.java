@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.time.Duration;
+
+
+/**
+ * Time spent in each phase of building a loader, as reported by
+ * {@link LoaderBuilder#buildAll(java.util.Map, java.util.concurrent.Executor)}.
+ */
+public final class LoaderBuildTiming {
+  private final Duration originValidationTime;
+  private final Duration openingTime;
+  private final Duration indexingTime;
+  private final Duration totalTime;
+
+  LoaderBuildTiming(long originValidationNanos, long openingNanos, long indexingNanos, long totalNanos) {
+    this.originValidationTime = Duration.ofNanos(originValidationNanos);
+    this.openingTime = Duration.ofNanos(openingNanos);
+    this.indexingTime = Duration.ofNanos(indexingNanos);
+    this.totalTime = Duration.ofNanos(totalNanos);
+  }
+
+  /**
+   * @return time spent checking the classpath against the origin restriction
+   */
+  public Duration getOriginValidationTime() {
+    return originValidationTime;
+  }
+
+  /**
+   * @return time spent opening nested JARs and plugin archives
+   */
+  public Duration getOpeningTime() {
+    return openingTime;
+  }
+
+  /**
+   * @return time spent indexing the classpath, including reading and writing the index snapshot; zero if the classpath
+   * is not indexed
+   */
+  public Duration getIndexingTime() {
+    return indexingTime;
+  }
+
+  /**
+   * @return time spent building the loader, from start to end
+   */
+  public Duration getTotalTime() {
+    return totalTime;
+  }
+
+  @Override
+  public String toString() {
+    return "LoaderBuildTiming{originValidation=" + originValidationTime + ", opening=" + openingTime + ", indexing="
+        + indexingTime + ", total=" + totalTime + "}";
+  }
+}
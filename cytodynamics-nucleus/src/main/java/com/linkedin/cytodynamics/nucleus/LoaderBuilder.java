@@ -8,12 +8,27 @@
 package com.linkedin.cytodynamics.nucleus;
 
 import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
-import com.linkedin.cytodynamics.exception.OriginValidationException;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 
 /**
@@ -21,9 +36,25 @@ import java.util.List;
  */
 public final class LoaderBuilder {
   private final List<URI> classpath = new ArrayList<>();
+  private final List<ClasspathSource> classpathSources = new ArrayList<>();
   private OriginRestriction originRestriction = null;
   private DelegateRelationship parentRelationship = null;
   private final List<DelegateRelationship> fallbackDelegates = new ArrayList<>();
+  private IsolationEngine isolationEngine = IsolationEngine.CLASS_LOADER;
+  private final Map<String, DelegateRelationship> packageRoutes = new LinkedHashMap<>();
+  private boolean packageRouteLearning = false;
+  private boolean classpathIndexing = false;
+  private Path indexSnapshotFile = null;
+  private ForkJoinPool indexingPool = null;
+  private int resourceCacheSize = 0;
+  private long resourceContentCacheMaxBytes = 0;
+  private long resourceContentCacheMaxResourceSize = 0;
+  private final Set<Predicate<String>> resourceContentCachePredicates = new LinkedHashSet<>();
+  private ClassBytesStore classBytesStore = null;
+  private Executor prefetchExecutor = null;
+  private int prefetchMaxDepth = 0;
+  private int prefetchMaxClasses = 0;
+  private int loadDecisionTraceCapacity = 0;
 
   private LoaderBuilder() {
   }
@@ -40,6 +71,17 @@ public final class LoaderBuilder {
   /**
    * Adds elements to the classpath of the loader.
    *
+   * Besides JARs and directories, elements can be nested inside a local JAR, without extracting them: a JAR inside a
+   * JAR as in {@code jar:file:/plugin.jar!/lib/dependency.jar}, or a directory inside a JAR as in
+   * {@code jar:file:/plugin.jar!/classes/}. The origin restriction applies to the outer JAR. Nested JARs which are
+   * stored without compression are read in place, while compressed ones are inflated into memory once.
+   *
+   * Local files ending in ".cdar" are read as plugin archives, see {@link PluginArchiveWriter}.
+   *
+   * Nested elements and plugin archives are searched after the other elements, in the order that they are added, and
+   * are only supported by {@link IsolationEngine#CLASS_LOADER}. This also holds when they are added before the other
+   * elements: a class which is both in a nested JAR and in a JAR of the classpath comes from the latter.
+   *
    * @param classpath The elements to add to the loader's classpath.
    */
   public LoaderBuilder withClasspath(List<URI> classpath) {
@@ -47,6 +89,18 @@ public final class LoaderBuilder {
     return this;
   }
 
+  /**
+   * Adds in-memory sources to the classpath of the loader. Sources are searched after the elements added with
+   * {@link #withClasspath(List)}, in the order that they are added. Since they do not have an origin, the origin
+   * restriction does not apply to them. Only supported by {@link IsolationEngine#CLASS_LOADER}.
+   *
+   * @param classpathSources The sources to add to the loader's classpath.
+   */
+  public LoaderBuilder withClasspathSources(List<ClasspathSource> classpathSources) {
+    this.classpathSources.addAll(classpathSources);
+    return this;
+  }
+
   /**
    * Sets the JAR origin restriction for JARs loaded by this loader. See {@link OriginRestriction} for more details on
    * JAR origin restrictions. For no restrictions, pass <code>OriginRestriction.allowByDefault()</code>.
@@ -81,17 +135,405 @@ public final class LoaderBuilder {
   }
 
   /**
-   * Builds an instance of a loader with the given parameters.
+   * Sets the engine used to enforce isolation. By default, this is {@link IsolationEngine#CLASS_LOADER}. See
+   * {@link IsolationEngine} for the differences between engines.
+   *
+   * @param isolationEngine The isolation engine to use
+   */
+  public LoaderBuilder withIsolationEngine(IsolationEngine isolationEngine) {
+    this.isolationEngine = isolationEngine;
+    return this;
+  }
+
+  /**
+   * Routes classes of a package to a delegate relationship. Classes in {@code packageName} (not including subpackages)
+   * are first looked up through {@code relationship}, and only go through the parent and fallback relationships in
+   * order if {@code relationship} does not provide them. The relationship must also be set as the parent relationship
+   * or added as a fallback delegate on this builder.
+   *
+   * Routes are only used by {@link IsolationEngine#CLASS_LOADER}.
+   *
+   * @param packageName name of the package, e.g. "com.linkedin.foo"; "" for the default package
+   * @param relationship {@link DelegateRelationship} which serves the package
+   */
+  public LoaderBuilder addPackageRoute(String packageName, DelegateRelationship relationship) {
+    this.packageRoutes.put(packageName, relationship);
+    return this;
+  }
+
+  /**
+   * Enables learning package routes. When enabled, the loader remembers which fallback delegate provided the last class
+   * loaded from a package without a declared route, and looks up later classes of that package through it first.
+   * Disabled by default, since a package which is split across delegates could then be served by a later delegate
+   * even though an earlier one also provides the class.
+   *
+   * @param packageRouteLearning true to learn package routes
+   */
+  public LoaderBuilder withPackageRouteLearning(boolean packageRouteLearning) {
+    this.packageRouteLearning = packageRouteLearning;
+    return this;
+  }
+
+  /**
+   * Enables indexing the classpath. When enabled, the entries of the local JARs and directories of the classpath are
+   * listed when the loader is built, so that looking up a class or resource which is not in the classpath does not
+   * search every element. This is most useful with large classpaths and isolation levels which look up delegate classes
+   * in the classpath as well. Disabled by default, since it makes building the loader slower.
+   *
+   * The index is frozen when the loader is built: classes and resources added to an indexed directory afterwards are
+   * never found, whereas a plain {@link java.net.URLClassLoader} finds them.
+   *
+   * The index is only used by {@link IsolationEngine#CLASS_LOADER}.
+   *
+   * @param classpathIndexing true to index the classpath
+   */
+  public LoaderBuilder withClasspathIndexing(boolean classpathIndexing) {
+    this.classpathIndexing = classpathIndexing;
+    return this;
+  }
+
+  /**
+   * Enables classpath indexing and saves the index to a snapshot file, typically next to the plugin, so that later
+   * processes can reuse it. When building the loader, JARs whose size and modification time match the snapshot are not
+   * indexed again; directories are always indexed, but as with {@link #withClasspathIndexing(boolean)}, only the files
+   * which they contain when the loader is built are found. The snapshot also keeps package routes learned through
+   * {@link #withPackageRouteLearning(boolean)}, which are saved when the loader is closed, and are only reused by a
+   * loader whose delegate relationships look the same.
+   *
+   * A missing or unreadable snapshot is not an error; the classpath is then indexed and the snapshot written again.
+   *
+   * @param indexSnapshotFile file to read the snapshot from and to save it to
+   */
+  public LoaderBuilder withIndexSnapshot(Path indexSnapshotFile) {
+    this.indexSnapshotFile = indexSnapshotFile;
+    return this;
+  }
+
+  /**
+   * Sets the pool which the classpath is indexed on, when classpath indexing is enabled. The elements of the classpath
+   * are indexed in parallel, and the results merged in classpath order. The JARs of the classpath are also digested on
+   * this pool when a {@link ClassBytesStore} is used. By default, this is {@link ForkJoinPool#commonPool()}.
+   *
+   * @param indexingPool The pool to index the classpath on
+   */
+  public LoaderBuilder withIndexingPool(ForkJoinPool indexingPool) {
+    this.indexingPool = indexingPool;
+    return this;
+  }
+
+  /**
+   * Caches the results of {@link ClassLoader#getResource(String)} and {@link ClassLoader#getResources(String)} by
+   * resource name, including names which were not found, so that frameworks which look up the same resources over and
+   * over do not search the classpath and the delegates every time. Disabled by default.
+   *
+   * The cache assumes that the resources visible through the delegates do not change. If they can, call
+   * {@link CytodynamicsLoader#invalidateResourceCache()} after they change. Once {@code maxEntries} names are cached,
+   * further results are not cached until the cache is invalidated.
+   *
+   * The cache is only used by {@link IsolationEngine#CLASS_LOADER}.
+   *
+   * @param maxEntries The maximum number of names cached for each of getResource and getResources; 0 to disable caching
+   */
+  public LoaderBuilder withResourceCache(int maxEntries) {
+    this.resourceCacheSize = maxEntries;
+    return this;
+  }
+
+  /**
+   * Keeps the decompressed contents of resources read through {@link ClassLoader#getResourceAsStream(String)} in
+   * off-heap buffers, so that reading the same resource again neither opens the JAR nor inflates the entry. Resources
+   * no larger than {@code maxResourceSize} are cached, as are the resources selected through
+   * {@link #addResourceContentCachePredicate(Predicate)} whatever their size. When the cached contents would take more
+   * than {@code maxBytes}, the least recently read resources are evicted. Disabled by default.
+   *
+   * As with {@link #withResourceCache(int)}, the cache assumes that resources do not change, and is cleared by
+   * {@link CytodynamicsLoader#invalidateResourceCache()}. Its hit rate and memory use are reported by
+   * {@link CytodynamicsLoader#getMetrics()}. The cache is only used by {@link IsolationEngine#CLASS_LOADER}.
+   *
+   * @param maxBytes The maximum number of bytes of cached contents; 0 to disable caching
+   * @param maxResourceSize The size of the largest resources cached without being selected by a predicate; 0 to only
+   *                        cache selected resources
+   */
+  public LoaderBuilder withResourceContentCache(long maxBytes, long maxResourceSize) {
+    this.resourceContentCacheMaxBytes = maxBytes;
+    this.resourceContentCacheMaxResourceSize = maxResourceSize;
+    return this;
+  }
+
+  /**
+   * Selects resources to cache through {@link #withResourceContentCache(long, long)} whatever their size, for example
+   * with a {@link com.linkedin.cytodynamics.matcher.GlobMatcher} on the resource name.
+   *
+   * @param predicate The predicate on resource names
+   */
+  public LoaderBuilder addResourceContentCachePredicate(Predicate<String> predicate) {
+    this.resourceContentCachePredicates.add(predicate);
+    return this;
+  }
+
+  /**
+   * Shares the class files of the local JARs on the classpath with the other loaders built with the same store, so
+   * that a class defined by several loaders from the same JAR, or from copies of it, is only read and inflated once.
+   * Classes of directories, of nested JARs and plugin archives, and of JARs which the loader cannot read directly
+   * (such as signed or multi-release JARs) are not stored. Disabled by default.
+   *
+   * The store is only used by {@link IsolationEngine#CLASS_LOADER}.
+   *
+   * @param classBytesStore The store shared with other loaders; null to not share class files
+   */
+  public LoaderBuilder withClassBytesStore(ClassBytesStore classBytesStore) {
+    this.classBytesStore = classBytesStore;
+    return this;
+  }
+
+  /**
+   * Prefetches the classes which the classes of the loader refer to. When the loader defines a class from its
+   * classpath, the constant pool of the class is parsed on {@code executor}, and the classes which it references are
+   * loaded on {@code executor} through the same parent and fallback relationships as any other class, so that they
+   * are already loaded when the code first needs them. This shortens the first requests served after a deployment,
+   * which would otherwise load the classes they need one at a time. Disabled by default.
+   *
+   * Prefetched classes are loaded but not initialized. How many classes were prefetched is reported by
+   * {@link CytodynamicsLoader#getMetrics()}. Prefetching is only done by {@link IsolationEngine#CLASS_LOADER}.
+   *
+   * @param executor The executor to prefetch classes on; null to disable prefetching
+   * @param maxDepth The maximum number of references between a class loaded by the code and a prefetched class; 1 to
+   *                 only prefetch the classes referenced by the classes loaded by the code
+   * @param maxClasses The maximum number of classes prefetched over the lifetime of the loader
+   */
+  public LoaderBuilder withClassPrefetching(Executor executor, int maxDepth, int maxClasses) {
+    this.prefetchExecutor = executor;
+    this.prefetchMaxDepth = maxDepth;
+    this.prefetchMaxClasses = maxClasses;
+    return this;
+  }
+
+  /**
+   * Keeps the most recent decisions of the loader about where each class comes from: the delegate relationship which
+   * was consulted, the predicate which matched, whether the delegate and the child classpath had the class, and where
+   * the class was loaded from. Recording a decision does not lock, so the trace can stay enabled in production.
+   * The decisions are returned by {@link CytodynamicsLoader#getLoadDecisions()}, and the decisions about a class are
+   * added to the message of the {@link com.linkedin.cytodynamics.exception.CytodynamicsClassNotFoundException} thrown
+   * when it cannot be loaded. Disabled by default.
+   *
+   * The trace is only kept by {@link IsolationEngine#CLASS_LOADER}.
+   *
+   * @param capacity The minimum number of decisions kept, rounded up to a power of two; 0 to disable the trace
+   */
+  public LoaderBuilder withLoadDecisionTrace(int capacity) {
+    this.loadDecisionTraceCapacity = capacity;
+    return this;
+  }
+
+  /**
+   * Builds an instance of a loader with the given parameters. When using {@link IsolationEngine#CLASS_LOADER}, the
+   * returned loader implements {@link CytodynamicsLoader}.
    *
    * @return A loader with the given parameters.
    */
   public ClassLoader build() {
+    BuildCache buildCache = new BuildCache();
+    try {
+      return build(buildCache).loader;
+    } finally {
+      buildCache.close();
+    }
+  }
+
+  /**
+   * Builds many loaders concurrently, one task per loader on {@code executor}, and waits for all of them. Work is
+   * shared between the loaders: nested JARs and plugin archives referenced by several loaders are opened once, and JARs
+   * on the classpath of several indexed loaders are indexed once. Origin decisions are also shared between the loaders
+   * which use the same {@link OriginRestriction} instance.
+   *
+   * Failing to build a loader does not stop the others from being built.
+   *
+   * @param builders builders of the loaders, keyed by plugin name
+   * @param executor executor to run the builds on
+   * @return built loaders, how long each took to build, and per-plugin failures
+   */
+  public static BulkBuildResult buildAll(Map<String, LoaderBuilder> builders, Executor executor) {
+    BuildCache buildCache = new BuildCache();
+    Map<String, CompletableFuture<BuiltLoader>> futures = new LinkedHashMap<>();
+    for (Map.Entry<String, LoaderBuilder> builder : builders.entrySet()) {
+      CompletableFuture<BuiltLoader> future;
+      try {
+        future = CompletableFuture.supplyAsync(() -> builder.getValue().build(buildCache), executor);
+      } catch (RejectedExecutionException e) {
+        future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+      }
+      futures.put(builder.getKey(), future);
+    }
+
+    Map<String, ClassLoader> loaders = new LinkedHashMap<>();
+    Map<String, LoaderBuildTiming> timings = new LinkedHashMap<>();
+    Map<String, Throwable> failures = new LinkedHashMap<>();
+    for (Map.Entry<String, CompletableFuture<BuiltLoader>> future : futures.entrySet()) {
+      try {
+        BuiltLoader builtLoader = future.getValue().join();
+        loaders.put(future.getKey(), builtLoader.loader);
+        timings.put(future.getKey(), builtLoader.timing);
+      } catch (CompletionException e) {
+        failures.put(future.getKey(), e.getCause() == null ? e : e.getCause());
+      } catch (CancellationException e) {
+        failures.put(future.getKey(), e);
+      }
+    }
+    buildCache.close();
+    return new BulkBuildResult(loaders, timings, failures);
+  }
+
+  /**
+   * Package-private for testing purposes, so that tests can share {@code buildCache} with the build.
+   */
+  BuiltLoader build(BuildCache buildCache) {
+    Object event = LoaderEvents.beginLoaderBuild();
+    long startTime = System.nanoTime();
     URL[] classpathUrls = validateAndGetClassPathUrls();
+    long validatedTime = System.nanoTime();
+    List<URI> elementClasspath =
+        this.classpath.stream().filter(LoaderBuilder::isReadByLoader).collect(Collectors.toList());
     if (this.parentRelationship == null) {
       throw new InvalidBuilderParametersException(
           "No parent relationship set; please use withParentRelationship() to set one");
     }
-    return new IsolatingClassLoader(classpathUrls, this.parentRelationship, this.fallbackDelegates);
+    if (this.resourceCacheSize < 0) {
+      throw new InvalidBuilderParametersException(
+          "Resource cache size must not be negative: " + this.resourceCacheSize);
+    }
+    if (this.resourceContentCacheMaxBytes < 0 || this.resourceContentCacheMaxResourceSize < 0) {
+      throw new InvalidBuilderParametersException(String.format(
+          "Resource content cache sizes must not be negative: maxBytes=%d, maxResourceSize=%d",
+          this.resourceContentCacheMaxBytes, this.resourceContentCacheMaxResourceSize));
+    }
+    if (this.prefetchMaxDepth < 0 || this.prefetchMaxClasses < 0) {
+      throw new InvalidBuilderParametersException(String.format(
+          "Class prefetching limits must not be negative: maxDepth=%d, maxClasses=%d", this.prefetchMaxDepth,
+          this.prefetchMaxClasses));
+    }
+    if (this.loadDecisionTraceCapacity < 0 || this.loadDecisionTraceCapacity > LoadDecisionTrace.MAX_CAPACITY) {
+      throw new InvalidBuilderParametersException(String.format(
+          "Load decision trace capacity must be between 0 and %d: %d", LoadDecisionTrace.MAX_CAPACITY,
+          this.loadDecisionTraceCapacity));
+    }
+    if (this.isolationEngine == IsolationEngine.MODULE_LAYER) {
+      if (!this.classpathSources.isEmpty()) {
+        throw new InvalidBuilderParametersException("Classpath sources are not supported by the module layer engine");
+      }
+      if (!elementClasspath.isEmpty()) {
+        throw new InvalidBuilderParametersException(
+            "Nested JARs and plugin archives are not supported by the module layer engine: " + elementClasspath);
+      }
+      ClassLoader loader =
+          ModuleLayerLoaderFactory.build(classpathUrls, this.parentRelationship, this.fallbackDelegates);
+      LoaderEvents.commitLoaderBuild(event, loader, this.isolationEngine, classpathUrls.length, false);
+      return new BuiltLoader(loader,
+          new LoaderBuildTiming(validatedTime - startTime, 0, 0, System.nanoTime() - startTime));
+    }
+    // validated before opening anything, like the other parameters
+    Map<String, Integer> declaredRoutes = getDeclaredPackageRoutes();
+    // each opened element holds a reference to its archive, which the loader releases when it is closed
+    List<ClasspathElement> openedElements = new ArrayList<>();
+    try {
+      for (URI uri : elementClasspath) {
+        openedElements.add(
+            NestedJarOpener.isNested(uri) ? buildCache.openNested(uri) : buildCache.openPluginArchive(uri, toURL(uri)));
+      }
+      return buildIsolatingLoader(buildCache, classpathUrls, openedElements, declaredRoutes, event, startTime,
+          validatedTime);
+    } catch (RuntimeException | Error e) {
+      for (ClasspathElement openedElement : openedElements) {
+        try {
+          openedElement.close();
+        } catch (IOException | RuntimeException closeFailure) {
+          e.addSuppressed(closeFailure);
+        }
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Builds an {@link IsolatingClassLoader} once the elements which it reads itself are open.
+   */
+  private BuiltLoader buildIsolatingLoader(BuildCache buildCache, URL[] classpathUrls,
+      List<ClasspathElement> openedElements, Map<String, Integer> declaredRoutes, Object event, long startTime,
+      long validatedTime) {
+    List<ClasspathElement> classpathElements = new ArrayList<>(openedElements);
+    for (ClasspathSource classpathSource : this.classpathSources) {
+      classpathElements.add(classpathSource.getClasspathElement());
+    }
+    long openedTime = System.nanoTime();
+    List<DelegateRelationship> relationships = new ArrayList<>();
+    relationships.add(this.parentRelationship);
+    relationships.addAll(this.fallbackDelegates);
+    List<String> relationshipsFingerprint = IndexSnapshot.fingerprint(relationships);
+    ForkJoinPool indexingPool = this.indexingPool == null ? ForkJoinPool.commonPool() : this.indexingPool;
+    ClasspathIndex classpathIndex = null;
+    Map<String, Integer> learnedRoutes = Collections.emptyMap();
+    if (this.indexSnapshotFile != null) {
+      IndexSnapshot snapshot = IndexSnapshot.read(this.indexSnapshotFile);
+      classpathIndex = ClasspathIndex.build(classpathUrls,
+          snapshot == null ? Collections.emptyList() : snapshot.getElements(), indexingPool, buildCache);
+      if (snapshot != null) {
+        learnedRoutes = snapshot.getLearnedRoutes(relationshipsFingerprint);
+      }
+      if (snapshot == null || !classpathIndex.isReusedFromSnapshot()) {
+        new IndexSnapshot(classpathIndex.getElements(), relationshipsFingerprint, learnedRoutes)
+            .write(this.indexSnapshotFile);
+      }
+    } else if (this.classpathIndexing) {
+      classpathIndex = ClasspathIndex.build(classpathUrls, Collections.emptyList(), indexingPool, buildCache);
+    }
+    long indexedTime = System.nanoTime();
+    if (this.classBytesStore != null) {
+      this.classBytesStore.digestAsync(classpathUrls, indexingPool);
+    }
+    ClassLoader loader = new IsolatingClassLoader(classpathUrls, classpathElements, this.parentRelationship,
+        this.fallbackDelegates, new PackageRoutingTable(declaredRoutes, this.packageRouteLearning, learnedRoutes),
+        classpathIndex, this.indexSnapshotFile,
+        this.resourceCacheSize == 0 ? null : new ResourceCache(this.resourceCacheSize),
+        this.resourceContentCacheMaxBytes == 0 ? null : new ResourceContentCache(this.resourceContentCacheMaxBytes,
+            this.resourceContentCacheMaxResourceSize, this.resourceContentCachePredicates),
+        this.classBytesStore, this.prefetchExecutor == null ? null
+            : new ClassPrefetcher(this.prefetchExecutor, this.prefetchMaxDepth, this.prefetchMaxClasses),
+        this.loadDecisionTraceCapacity == 0 ? null : new LoadDecisionTrace(this.loadDecisionTraceCapacity));
+    LoaderEvents.commitLoaderBuild(event, loader, this.isolationEngine,
+        classpathUrls.length + classpathElements.size(), classpathIndex != null);
+    return new BuiltLoader(loader, new LoaderBuildTiming(validatedTime - startTime, openedTime - validatedTime,
+        indexedTime - openedTime, System.nanoTime() - startTime));
+  }
+
+  /**
+   * @return index of the relationship of each package route declared with {@link #addPackageRoute}
+   */
+  private Map<String, Integer> getDeclaredPackageRoutes() {
+    Map<String, Integer> declaredRoutes = new HashMap<>();
+    for (Map.Entry<String, DelegateRelationship> packageRoute : this.packageRoutes.entrySet()) {
+      int relationshipIndex = relationshipIndex(packageRoute.getValue());
+      if (relationshipIndex == -1) {
+        throw new InvalidBuilderParametersException("Package route for " + packageRoute.getKey()
+            + " uses a relationship which is neither the parent relationship nor a fallback delegate");
+      }
+      declaredRoutes.put(packageRoute.getKey(), relationshipIndex);
+    }
+    return declaredRoutes;
+  }
+
+  /**
+   * @return 0 for the parent relationship, 1 + the fallback index for a fallback delegate, -1 if it is neither
+   */
+  private int relationshipIndex(DelegateRelationship relationship) {
+    if (relationship == this.parentRelationship) {
+      return 0;
+    }
+    for (int i = 0; i < this.fallbackDelegates.size(); i++) {
+      if (this.fallbackDelegates.get(i) == relationship) {
+        return i + 1;
+      }
+    }
+    return -1;
   }
 
   private URL[] validateAndGetClassPathUrls() {
@@ -100,17 +542,31 @@ public final class LoaderBuilder {
           "No origin restriction set, use OriginRestriction.allowByDefault() if no restriction is desired");
     }
 
-    URL[] classpathUrls = new URL[classpath.size()];
-    for (int i = 0; i < classpathUrls.length; i++) {
-      URL url = toURL(classpath.get(i));
-      if (!originRestriction.isAllowed(url)) {
-        throw new OriginValidationException(
-            "Loading classes from " + url + " is forbidden by the origin restriction. Aborting.");
-      } else {
-        classpathUrls[i] = url;
+    List<URL> originUrls = new ArrayList<>(classpath.size());
+    List<URL> classpathUrls = new ArrayList<>();
+    for (URI uri : classpath) {
+      boolean isNested = NestedJarOpener.isNested(uri);
+      // for nested elements, the outer JAR is what was downloaded
+      URL url = toURL(isNested ? NestedJarOpener.getOuterUri(uri) : uri);
+      originUrls.add(url);
+      if (!isReadByLoader(uri)) {
+        classpathUrls.add(url);
       }
     }
-    return classpathUrls;
+    originRestriction.validate(originUrls);
+    return classpathUrls.toArray(new URL[0]);
+  }
+
+  /**
+   * @return true for classpath elements which the loader reads itself instead of handing them to URLClassLoader
+   */
+  private static boolean isReadByLoader(URI uri) {
+    return NestedJarOpener.isNested(uri) || isPluginArchive(uri);
+  }
+
+  private static boolean isPluginArchive(URI uri) {
+    return "file".equals(uri.getScheme()) && uri.getPath() != null
+        && uri.getPath().endsWith(PluginArchive.FILE_EXTENSION);
   }
 
   private static URL toURL(URI uri) {
@@ -120,4 +576,17 @@ public final class LoaderBuilder {
       throw new InvalidBuilderParametersException("Unable to convert URI " + uri + " to a URL", e);
     }
   }
+
+  /**
+   * A loader, with the time it took to build.
+   */
+  private static final class BuiltLoader {
+    private final ClassLoader loader;
+    private final LoaderBuildTiming timing;
+
+    BuiltLoader(ClassLoader loader, LoaderBuildTiming timing) {
+      this.loader = loader;
+      this.timing = timing;
+    }
+  }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+/**
+ * Snapshot of the counters of a loader, returned by {@link CytodynamicsLoader#getMetrics()}. Counters are cumulative
+ * since the loader was built; later calls return new snapshots.
+ */
+public final class LoaderMetrics {
+  private final ResourceContentCacheMetrics resourceContentCache;
+  private final ClassPrefetchMetrics classPrefetch;
+
+  LoaderMetrics(ResourceContentCacheMetrics resourceContentCache, ClassPrefetchMetrics classPrefetch) {
+    this.resourceContentCache = resourceContentCache;
+    this.classPrefetch = classPrefetch;
+  }
+
+  /**
+   * @return metrics of the cache configured through {@link LoaderBuilder#withResourceContentCache(long, long)}; all
+   * zero if the loader has no such cache
+   */
+  public ResourceContentCacheMetrics getResourceContentCache() {
+    return resourceContentCache;
+  }
+
+  /**
+   * @return metrics of the prefetching configured through
+   * {@link LoaderBuilder#withClassPrefetching(java.util.concurrent.Executor, int, int)}; all zero if the loader does
+   * not prefetch classes
+   */
+  public ClassPrefetchMetrics getClassPrefetch() {
+    return classPrefetch;
+  }
+
+  /**
+   * Metrics of the cache of resource contents of a loader.
+   */
+  public static final class ResourceContentCacheMetrics {
+    static final ResourceContentCacheMetrics DISABLED = new ResourceContentCacheMetrics(0, 0, 0, 0, 0, 0);
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int entries;
+    private final long usedBytes;
+    private final long maxBytes;
+
+    ResourceContentCacheMetrics(long hits, long misses, long evictions, int entries, long usedBytes, long maxBytes) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.entries = entries;
+      this.usedBytes = usedBytes;
+      this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return number of reads of cacheable resources which were served from the cache
+     */
+    public long getHits() {
+      return hits;
+    }
+
+    /**
+     * @return number of reads of cacheable resources which were not in the cache
+     */
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * @return fraction of the reads of cacheable resources which were served from the cache; 0 if there were none
+     */
+    public double getHitRate() {
+      long reads = hits + misses;
+      return reads == 0 ? 0 : (double) hits / reads;
+    }
+
+    /**
+     * @return number of resources evicted to stay within the byte budget
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /**
+     * @return number of resources currently cached
+     */
+    public int getEntries() {
+      return entries;
+    }
+
+    /**
+     * @return off-heap bytes currently used by the cached resources
+     */
+    public long getUsedBytes() {
+      return usedBytes;
+    }
+
+    /**
+     * @return byte budget of the cache
+     */
+    public long getMaxBytes() {
+      return maxBytes;
+    }
+  }
+
+  /**
+   * Metrics of the prefetching of the classes referenced by the classes of a loader.
+   */
+  public static final class ClassPrefetchMetrics {
+    static final ClassPrefetchMetrics DISABLED = new ClassPrefetchMetrics(0, 0, 0);
+
+    private final int scheduledClasses;
+    private final long prefetchedClasses;
+    private final long failedClasses;
+
+    ClassPrefetchMetrics(int scheduledClasses, long prefetchedClasses, long failedClasses) {
+      this.scheduledClasses = scheduledClasses;
+      this.prefetchedClasses = prefetchedClasses;
+      this.failedClasses = failedClasses;
+    }
+
+    /**
+     * @return number of referenced classes which were scheduled to be prefetched, counting against the budget
+     */
+    public int getScheduledClasses() {
+      return scheduledClasses;
+    }
+
+    /**
+     * @return number of classes which were loaded in the background, from the child classpath or a delegate
+     */
+    public long getPrefetchedClasses() {
+      return prefetchedClasses;
+    }
+
+    /**
+     * @return number of classes which could not be loaded in the background
+     */
+    public long getFailedClasses() {
+      return failedClasses;
+    }
+  }
+}
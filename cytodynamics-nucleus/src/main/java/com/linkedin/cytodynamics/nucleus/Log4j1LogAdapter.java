@@ -7,6 +7,7 @@
  */
 package com.linkedin.cytodynamics.nucleus;
 
+import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 
 
@@ -41,6 +42,21 @@ class Log4j1LogAdapter implements LogAdapter {
       impl.error(message);
     }
 
+    @Override
+    public boolean isInfoEnabled() {
+      return impl.isInfoEnabled();
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+      return impl.isEnabledFor(Level.WARN);
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+      return impl.isEnabledFor(Level.ERROR);
+    }
+
     public Log4jLogger(org.apache.log4j.Logger impl) {
       this.impl = impl;
     }
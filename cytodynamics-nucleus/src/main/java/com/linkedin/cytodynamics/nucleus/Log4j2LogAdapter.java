@@ -7,6 +7,7 @@
  */
 package com.linkedin.cytodynamics.nucleus;
 
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 
 
@@ -41,6 +42,81 @@ class Log4j2LogAdapter implements LogAdapter {
       impl.error(message);
     }
 
+    @Override
+    public boolean isInfoEnabled() {
+      return impl.isInfoEnabled();
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+      return impl.isWarnEnabled();
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+      return impl.isErrorEnabled();
+    }
+
+    @Override
+    public void info(Supplier<String> messageSupplier) {
+      impl.info(messageSupplier::get);
+    }
+
+    @Override
+    public void warn(Supplier<String> messageSupplier) {
+      impl.warn(messageSupplier::get);
+    }
+
+    @Override
+    public void error(Supplier<String> messageSupplier) {
+      impl.error(messageSupplier::get);
+    }
+
+    @Override
+    public void info(String pattern, Object argument) {
+      impl.info(pattern, argument);
+    }
+
+    @Override
+    public void info(String pattern, Object firstArgument, Object secondArgument) {
+      impl.info(pattern, firstArgument, secondArgument);
+    }
+
+    @Override
+    public void warn(String pattern, Object argument) {
+      impl.warn(pattern, argument);
+    }
+
+    @Override
+    public void warn(String pattern, Object firstArgument, Object secondArgument) {
+      impl.warn(pattern, firstArgument, secondArgument);
+    }
+
+    @Override
+    public void error(String pattern, Object argument) {
+      impl.error(pattern, argument);
+    }
+
+    @Override
+    public void error(String pattern, Object firstArgument, Object secondArgument) {
+      impl.error(pattern, firstArgument, secondArgument);
+    }
+
+    @Override
+    public void info(String pattern, Object... arguments) {
+      impl.info(pattern, arguments);
+    }
+
+    @Override
+    public void warn(String pattern, Object... arguments) {
+      impl.warn(pattern, arguments);
+    }
+
+    @Override
+    public void error(String pattern, Object... arguments) {
+      impl.error(pattern, arguments);
+    }
+
     public Log4jLogger(org.apache.logging.log4j.Logger impl) {
       this.impl = impl;
     }
@@ -28,4 +28,22 @@ class LogApiAdapter {
   static Logger getLogger(Class<?> clazz) {
     return impl.getLogger(clazz.getName());
   }
+
+  /**
+   * Replaces each "{}" of {@code pattern} with the string value of the next argument, the same way as SLF4J and
+   * Log4j 2. Placeholders left without an argument are kept as they are, and extra arguments are ignored.
+   */
+  static String format(String pattern, Object... arguments) {
+    StringBuilder message = new StringBuilder(pattern.length() + 16 * arguments.length);
+    int start = 0;
+    for (Object argument : arguments) {
+      int placeholder = pattern.indexOf("{}", start);
+      if (placeholder == -1) {
+        break;
+      }
+      message.append(pattern, start, placeholder).append(argument);
+      start = placeholder + 2;
+    }
+    return message.append(pattern, start, pattern.length()).toString();
+  }
 }
@@ -7,11 +7,98 @@
  */
 package com.linkedin.cytodynamics.nucleus;
 
+import java.util.function.Supplier;
+
 /**
  * Interface for loggers.
+ *
+ * Besides prebuilt messages, each level accepts a message supplier, or a pattern with "{}" placeholders which are
+ * replaced by the string values of the arguments in order. Neither is evaluated unless the level is enabled, so call
+ * sites on hot paths should use them instead of building the message themselves. Patterns with one or two arguments
+ * have their own overloads, which do not allocate an array. Adapters override the defaults with the lazy logging of
+ * their backend where it has one.
+ *
+ * Exceptions are passed as their string value: SLF4J and Log4j 2 would log a {@link Throwable} given as the last
+ * argument as the exception of the event, with its stack trace, instead of filling its placeholder with it.
  */
 interface Logger {
   void info(String message);
   void warn(String message);
   void error(String message);
+
+  boolean isInfoEnabled();
+  boolean isWarnEnabled();
+  boolean isErrorEnabled();
+
+  default void info(Supplier<String> messageSupplier) {
+    if (isInfoEnabled()) {
+      info(messageSupplier.get());
+    }
+  }
+
+  default void warn(Supplier<String> messageSupplier) {
+    if (isWarnEnabled()) {
+      warn(messageSupplier.get());
+    }
+  }
+
+  default void error(Supplier<String> messageSupplier) {
+    if (isErrorEnabled()) {
+      error(messageSupplier.get());
+    }
+  }
+
+  default void info(String pattern, Object argument) {
+    if (isInfoEnabled()) {
+      info(LogApiAdapter.format(pattern, argument));
+    }
+  }
+
+  default void info(String pattern, Object firstArgument, Object secondArgument) {
+    if (isInfoEnabled()) {
+      info(LogApiAdapter.format(pattern, firstArgument, secondArgument));
+    }
+  }
+
+  default void warn(String pattern, Object argument) {
+    if (isWarnEnabled()) {
+      warn(LogApiAdapter.format(pattern, argument));
+    }
+  }
+
+  default void warn(String pattern, Object firstArgument, Object secondArgument) {
+    if (isWarnEnabled()) {
+      warn(LogApiAdapter.format(pattern, firstArgument, secondArgument));
+    }
+  }
+
+  default void error(String pattern, Object argument) {
+    if (isErrorEnabled()) {
+      error(LogApiAdapter.format(pattern, argument));
+    }
+  }
+
+  default void error(String pattern, Object firstArgument, Object secondArgument) {
+    if (isErrorEnabled()) {
+      error(LogApiAdapter.format(pattern, firstArgument, secondArgument));
+    }
+  }
+
+  default void info(String pattern, Object... arguments) {
+    if (isInfoEnabled()) {
+      info(LogApiAdapter.format(pattern, arguments));
+    }
+  }
+
+  default void warn(String pattern, Object... arguments) {
+    if (isWarnEnabled()) {
+      warn(LogApiAdapter.format(pattern, arguments));
+    }
+  }
+
+  default void error(String pattern, Object... arguments) {
+    if (isErrorEnabled()) {
+      error(LogApiAdapter.format(pattern, arguments));
+    }
+  }
 }
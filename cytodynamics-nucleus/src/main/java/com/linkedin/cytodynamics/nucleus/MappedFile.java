@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A file memory-mapped for reading, shared through reference counting. Once the last reference is released, the
+ * archives reading the mapping stop handing out entries of it.
+ *
+ * The mapping itself is only unmapped when its buffer is garbage collected: buffers which were handed out earlier may
+ * still be in use, and reading an unmapped region crashes the JVM. On platforms which do not allow deleting a mapped
+ * file, the file can only be deleted after that.
+ */
+final class MappedFile {
+  private final ByteBuffer buffer;
+  private final AtomicInteger references = new AtomicInteger(1);
+
+  private MappedFile(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Memory-maps a whole file.
+   *
+   * @return the mapping, with one reference which the caller has to release
+   */
+  static MappedFile map(String path) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(path, "r"); FileChannel channel = file.getChannel()) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(path + " is too large to be mapped");
+      }
+      // the mapping stays valid after the channel is closed
+      return new MappedFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  ByteBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  /**
+   * Adds a reference, which the caller has to release.
+   *
+   * @return false if the mapping was already released, in which case no reference is added
+   */
+  boolean retain() {
+    while (true) {
+      int count = this.references.get();
+      if (count == 0) {
+        return false;
+      }
+      if (this.references.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases a reference.
+   */
+  void release() {
+    int count = this.references.decrementAndGet();
+    if (count < 0) {
+      this.references.incrementAndGet();
+      throw new IllegalStateException("Mapping released more often than it was retained");
+    }
+  }
+
+  boolean isReleased() {
+    return this.references.get() == 0;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+
+/**
+ * {@link ClasspathElement} holding its entries in memory. The entries are only requested from the supplier on first
+ * use.
+ */
+final class MemoryClasspathElement extends ClasspathElement {
+  private final Supplier<? extends Map<String, ByteBuffer>> entriesSupplier;
+  private volatile Map<String, ByteBuffer> entries;
+
+  MemoryClasspathElement(Supplier<? extends Map<String, ByteBuffer>> entriesSupplier) {
+    super("memory");
+    this.entriesSupplier = entriesSupplier;
+  }
+
+  @Override
+  ByteBuffer getEntry(String name) {
+    ByteBuffer entry = entries().get(name);
+    // each caller gets its own position and limit
+    return entry == null ? null : entry.duplicate();
+  }
+
+  @Override
+  boolean containsEntry(String name) {
+    return entries().containsKey(name);
+  }
+
+  @Override
+  Collection<String> getEntryNames() {
+    return entries().keySet();
+  }
+
+  private Map<String, ByteBuffer> entries() {
+    Map<String, ByteBuffer> entries = this.entries;
+    if (entries == null) {
+      synchronized (this) {
+        entries = this.entries;
+        if (entries == null) {
+          Map<String, ByteBuffer> suppliedEntries = this.entriesSupplier.get();
+          if (suppliedEntries == null) {
+            throw new IllegalStateException("Supplier of classpath entries for " + getBaseURL() + " returned null");
+          }
+          entries = new HashMap<>();
+          for (Map.Entry<String, ByteBuffer> entry : suppliedEntries.entrySet()) {
+            // slice so that later changes to the position of the supplied buffer do not matter
+            entries.put(entry.getKey(), entry.getValue().slice());
+          }
+          entries = Collections.unmodifiableMap(entries);
+          this.entries = entries;
+        }
+      }
+    }
+    return entries;
+  }
+}
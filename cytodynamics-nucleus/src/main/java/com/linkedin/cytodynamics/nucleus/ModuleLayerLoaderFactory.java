@@ -0,0 +1,30 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import java.net.URL;
+import java.util.List;
+
+
+/**
+ * Builds loaders for {@link IsolationEngine#MODULE_LAYER}.
+ *
+ * Module layers are not available before Java 9, so this implementation always fails. The multi-release JAR contains
+ * the Java 11 implementation (under src/main/java11).
+ */
+final class ModuleLayerLoaderFactory {
+  private ModuleLayerLoaderFactory() {
+  }
+
+  static ClassLoader build(URL[] classpath, DelegateRelationship parentRelationship,
+      List<DelegateRelationship> fallbackDelegates) {
+    throw new InvalidBuilderParametersException(
+        "The " + IsolationEngine.MODULE_LAYER + " isolation engine requires Java 11 or later");
+  }
+}
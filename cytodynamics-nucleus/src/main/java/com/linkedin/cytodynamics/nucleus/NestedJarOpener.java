@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Opens classpath entries which are nested inside a JAR, such as {@code jar:file:/plugin.jar!/lib/dependency.jar} for
+ * a JAR inside a JAR, or {@code jar:file:/plugin.jar!/classes/} for a directory inside a JAR. The outer JAR is
+ * memory-mapped, and each archive's central directory is only parsed once, however many entries refer to it.
+ *
+ * Each opened element holds its own reference to the mapping of the outer JAR, and the opener holds one more until it
+ * is closed.
+ */
+final class NestedJarOpener {
+  private static final String JAR_SCHEME = "jar";
+  private static final String SEPARATOR = "!/";
+
+  private final Map<URI, ZipArchive> outerArchives = new HashMap<>();
+  private final Map<URI, ZipArchive> nestedArchives = new HashMap<>();
+
+  /**
+   * @return true if {@code uri} refers to a JAR or a directory inside a JAR, rather than to a whole JAR or directory
+   */
+  static boolean isNested(URI uri) {
+    if (!JAR_SCHEME.equals(uri.getScheme())) {
+      return false;
+    }
+    String specificPart = uri.getRawSchemeSpecificPart();
+    int separator = specificPart.indexOf(SEPARATOR);
+    return separator != -1 && separator + SEPARATOR.length() < specificPart.length();
+  }
+
+  /**
+   * @param uri URI for which {@link #isNested(URI)} is true
+   * @return URI of the outer JAR, which needs to be a file
+   */
+  static URI getOuterUri(URI uri) {
+    String specificPart = uri.getRawSchemeSpecificPart();
+    try {
+      return new URI(specificPart.substring(0, specificPart.indexOf(SEPARATOR)));
+    } catch (URISyntaxException e) {
+      throw new InvalidBuilderParametersException("Unable to get the outer JAR of " + uri, e);
+    }
+  }
+
+  /**
+   * @param uri URI for which {@link #isNested(URI)} is true
+   */
+  ClasspathElement open(URI uri) {
+    String specificPart = uri.getRawSchemeSpecificPart();
+    String rawEntryPath = specificPart.substring(specificPart.indexOf(SEPARATOR) + SEPARATOR.length());
+    if (rawEntryPath.contains(SEPARATOR)) {
+      throw new InvalidBuilderParametersException("Only one level of nesting is supported, but got " + uri);
+    }
+    String entryPath;
+    try {
+      entryPath = new URI(rawEntryPath).getPath();
+    } catch (URISyntaxException e) {
+      throw new InvalidBuilderParametersException("Invalid entry path in " + uri, e);
+    }
+    URI outerUri = getOuterUri(uri);
+    if (!"file".equals(outerUri.getScheme())) {
+      throw new InvalidBuilderParametersException("The outer JAR of " + uri + " needs to be a local file");
+    }
+    try {
+      ZipArchive outerArchive = this.outerArchives.get(outerUri);
+      if (outerArchive == null) {
+        outerArchive = ZipArchive.map(new File(outerUri).getPath());
+        this.outerArchives.put(outerUri, outerArchive);
+      }
+      if (entryPath.endsWith("/")) {
+        return new ZipClasspathElement(retained(outerArchive, uri), entryPath, toURL(uri));
+      }
+      ZipArchive nestedArchive = this.nestedArchives.get(uri);
+      if (nestedArchive == null) {
+        nestedArchive = outerArchive.openNested(entryPath);
+        if (nestedArchive == null) {
+          throw new InvalidBuilderParametersException("No entry " + entryPath + " in " + outerUri);
+        }
+        this.nestedArchives.put(uri, nestedArchive);
+      }
+      return new ZipClasspathElement(retained(nestedArchive, uri), "", toURL(uri));
+    } catch (IOException e) {
+      throw new InvalidBuilderParametersException("Unable to open " + uri, e);
+    }
+  }
+
+  /**
+   * Releases the references of this opener to the outer JARs. The elements which it opened keep theirs.
+   */
+  void close() {
+    for (ZipArchive outerArchive : this.outerArchives.values()) {
+      outerArchive.close();
+    }
+    this.outerArchives.clear();
+    this.nestedArchives.clear();
+  }
+
+  private static ZipArchive retained(ZipArchive archive, URI uri) {
+    if (!archive.retain()) {
+      throw new IllegalStateException("The outer JAR of " + uri + " was already closed");
+    }
+    return archive;
+  }
+
+  private static URL toURL(URI uri) {
+    try {
+      return uri.toURL();
+    } catch (MalformedURLException e) {
+      throw new InvalidBuilderParametersException("Unable to convert URI " + uri + " to a URL", e);
+    }
+  }
+}
@@ -7,12 +7,16 @@
  */
 package com.linkedin.cytodynamics.nucleus;
 
+import com.linkedin.cytodynamics.exception.OriginValidationException;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -26,8 +30,13 @@ import java.util.List;
  * application-controlled location.
  */
 public class OriginRestriction {
+  // bounds the memory used by the decision cache when many distinct URLs are checked
+  private static final int MAX_CACHED_DECISIONS = 4096;
+
   private final boolean allowedByDefault;
-  private List<OriginRestrictionFilter> filters = new ArrayList<>();
+  // replaced as a whole when a filter is added, so that a decision evaluated with the previous filters is never cached
+  // with the new ones
+  private volatile Filters filters = new Filters(new ArrayList<>());
 
   private OriginRestriction(boolean allowedByDefault) {
     this.allowedByDefault = allowedByDefault;
@@ -42,44 +51,75 @@ public class OriginRestriction {
   }
 
   public OriginRestriction allowingProtocols(String... protocols) {
-    filters.add(new ProtocolOriginRestrictionFilter(new HashSet<>(Arrays.asList(protocols)),
+    addFilter(new ProtocolOriginRestrictionFilter(new HashSet<>(Arrays.asList(protocols)),
         OriginMatchResults.ALLOW));
 
     return this;
   }
 
   public OriginRestriction denyingProtocols(String... protocols) {
-    filters.add(new ProtocolOriginRestrictionFilter(new HashSet<>(Arrays.asList(protocols)),
+    addFilter(new ProtocolOriginRestrictionFilter(new HashSet<>(Arrays.asList(protocols)),
         OriginMatchResults.DENY));
 
     return this;
   }
 
   public OriginRestriction allowingGlobPattern(String globPattern) {
-    filters.add(new GlobPatternRestrictionFilter(globPattern, OriginMatchResults.ALLOW));
+    addFilter(new GlobPatternRestrictionFilter(globPattern, OriginMatchResults.ALLOW));
 
     return this;
   }
 
   public OriginRestriction denyingGlobPattern(String globPattern) {
-    filters.add(new GlobPatternRestrictionFilter(globPattern, OriginMatchResults.DENY));
+    addFilter(new GlobPatternRestrictionFilter(globPattern, OriginMatchResults.DENY));
 
     return this;
   }
 
   public OriginRestriction allowingDirectory(File directory, boolean recursive) {
-    filters.add(new FileOriginRestrictionFilter(directory, recursive, OriginMatchResults.ALLOW));
+    addFilter(new FileOriginRestrictionFilter(directory, recursive, OriginMatchResults.ALLOW));
 
     return this;
   }
 
   public OriginRestriction denyingDirectory(File directory, boolean recursive) {
-    filters.add(new FileOriginRestrictionFilter(directory, recursive, OriginMatchResults.DENY));
+    addFilter(new FileOriginRestrictionFilter(directory, recursive, OriginMatchResults.DENY));
 
     return this;
   }
 
+  /**
+   * Checks that all URLs are allowed, evaluating each distinct URL only once.
+   *
+   * @throws OriginValidationException for the first URL which is not allowed
+   */
+  void validate(List<URL> urls) {
+    Set<String> checkedUrls = new HashSet<>();
+    for (URL url : urls) {
+      if (checkedUrls.add(url.toExternalForm()) && !isAllowed(url)) {
+        throw new OriginValidationException(
+            "Loading classes from " + url + " is forbidden by the origin restriction. Aborting.");
+      }
+    }
+  }
+
   boolean isAllowed(URL url) {
+    Object event = LoaderEvents.beginOriginValidation();
+    Filters filters = this.filters;
+    String externalForm = url.toExternalForm();
+    Boolean decision = filters.decisions.get(externalForm);
+    boolean isCached = decision != null;
+    if (decision == null) {
+      decision = evaluate(filters.filters, url);
+      if (filters.decisions.size() < MAX_CACHED_DECISIONS) {
+        filters.decisions.put(externalForm, decision);
+      }
+    }
+    LoaderEvents.commitOriginValidation(event, url, decision, isCached);
+    return decision;
+  }
+
+  private boolean evaluate(List<OriginRestrictionFilter> filters, URL url) {
     OriginMatchResults lastCheckResults = null;
 
     // Find the first filter that matches
@@ -97,4 +137,23 @@ public class OriginRestriction {
       return allowedByDefault;
     }
   }
+
+  private synchronized void addFilter(OriginRestrictionFilter filter) {
+    List<OriginRestrictionFilter> filters = new ArrayList<>(this.filters.filters);
+    filters.add(filter);
+    this.filters = new Filters(filters);
+  }
+
+  /**
+   * Filters in the order they were added, and the decisions made with them.
+   */
+  private static final class Filters {
+    private final List<OriginRestrictionFilter> filters;
+    // decisions by external form of the URL, since URL.equals resolves host names
+    private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+    Filters(List<OriginRestrictionFilter> filters) {
+      this.filters = filters;
+    }
+  }
 }
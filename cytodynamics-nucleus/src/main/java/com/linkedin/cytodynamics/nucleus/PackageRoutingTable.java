@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Maps packages to the index of the {@link DelegateRelationship} which serves them, so that {@link IsolatingClassLoader}
+ * can try that relationship first instead of walking every relationship in order. Index 0 is the parent relationship
+ * and the following indices are the fallback delegates, in order.
+ *
+ * Routes are either declared up front or, if learning is enabled, learned from the relationship which served the last
+ * class loaded from a package.
+ */
+final class PackageRoutingTable {
+  static final int NO_ROUTE = -1;
+
+  private static final PackageRoutingTable EMPTY = new PackageRoutingTable(Collections.emptyMap(), false);
+
+  private final Map<String, Integer> declaredRoutes;
+  private final Map<String, Integer> learnedRoutes;
+
+  /**
+   * @param declaredRoutes relationship index for each package name
+   * @param learnRoutes true if routes should be learned for packages without a declared route
+   */
+  PackageRoutingTable(Map<String, Integer> declaredRoutes, boolean learnRoutes) {
+    this(declaredRoutes, learnRoutes, Collections.emptyMap());
+  }
+
+  /**
+   * @param declaredRoutes relationship index for each package name
+   * @param learnRoutes true if routes should be learned for packages without a declared route
+   * @param learnedRoutes routes learned previously, such as by a loader of an earlier process; ignored if
+   *                      {@code learnRoutes} is false
+   */
+  PackageRoutingTable(Map<String, Integer> declaredRoutes, boolean learnRoutes, Map<String, Integer> learnedRoutes) {
+    this.declaredRoutes = Collections.unmodifiableMap(new HashMap<>(declaredRoutes));
+    this.learnedRoutes = learnRoutes ? new ConcurrentHashMap<>() : null;
+    if (learnRoutes) {
+      for (Map.Entry<String, Integer> learnedRoute : learnedRoutes.entrySet()) {
+        if (!this.declaredRoutes.containsKey(learnedRoute.getKey()) && learnedRoute.getValue() > 0) {
+          this.learnedRoutes.put(learnedRoute.getKey(), learnedRoute.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * @return a table without any routes, which does not learn routes
+   */
+  static PackageRoutingTable empty() {
+    return EMPTY;
+  }
+
+  /**
+   * @param className binary name of a class
+   * @return index of the relationship to try first for {@code className}, or {@link #NO_ROUTE}
+   */
+  int route(String className) {
+    if (this.declaredRoutes.isEmpty() && this.learnedRoutes == null) {
+      return NO_ROUTE;
+    }
+    String packageName = packageName(className);
+    Integer route = this.declaredRoutes.get(packageName);
+    if (route == null && this.learnedRoutes != null) {
+      route = this.learnedRoutes.get(packageName);
+    }
+    return route == null ? NO_ROUTE : route;
+  }
+
+  /**
+   * Records that {@code className} was served by the relationship at {@code relationshipIndex}. Declared routes are
+   * never replaced.
+   */
+  void learn(String className, int relationshipIndex) {
+    if (this.learnedRoutes == null) {
+      return;
+    }
+    String packageName = packageName(className);
+    if (!this.declaredRoutes.containsKey(packageName)) {
+      if (relationshipIndex == 0) {
+        // the parent relationship is tried first anyway
+        this.learnedRoutes.remove(packageName);
+      } else {
+        this.learnedRoutes.put(packageName, relationshipIndex);
+      }
+    }
+  }
+
+  /**
+   * @return a copy of the learned routes; empty if routes are not learned
+   */
+  Map<String, Integer> getLearnedRoutes() {
+    return this.learnedRoutes == null ? Collections.emptyMap() : new HashMap<>(this.learnedRoutes);
+  }
+
+  static String packageName(String className) {
+    int lastDot = className.lastIndexOf('.');
+    return lastDot == -1 ? "" : className.substring(0, lastDot);
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+/**
+ * Read-only view of a memory-mapped plugin archive, written by {@link PluginArchiveWriter}.
+ *
+ * Layout, with all integers big-endian and all offsets absolute:
+ * <pre>
+ * header:        magic (4), version (2), reserved (2), entry count (4), package count (4), API class count (4),
+ *                entry table offset (4), package table offset (4), API index offset (4), name pool offset (4),
+ *                reserved (4)
+ * entry table:   per entry, sorted by the unsigned bytes of the name: name offset in the name pool (4),
+ *                name length (2), encoding (1), flags (1), data offset (4), stored length (4), length (4)
+ * package table: per package, sorted by the unsigned bytes of the name: name offset in the name pool (4),
+ *                name length (4), class count (4)
+ * API index:     per class annotated with {@link Api}, its index in the entry table (4), ascending
+ * name pool:     UTF-8 names of entries ("com/linkedin/Foo.class") and packages ("com.linkedin")
+ * data:          content of each entry, aligned on 8 bytes
+ * </pre>
+ * Looking up an entry is a binary search over the entry table, comparing bytes in place, so opening an archive does not
+ * decode any names.
+ *
+ * The archive returned by {@link #map(Path)}, and each successful {@link #retain()}, has to be matched by a
+ * {@link #close()}. Once the last reference is closed, the mapping is released and the archive no longer has entries.
+ * A read which races with the last close may still succeed, which is safe since {@link MappedFile} never unmaps a
+ * buffer in use.
+ */
+final class PluginArchive implements Closeable {
+  static final int MAGIC = 0x43444152;
+  static final short VERSION = 1;
+  static final String FILE_EXTENSION = ".cdar";
+  static final int HEADER_SIZE = 40;
+  static final int ENTRY_RECORD_SIZE = 20;
+  static final int PACKAGE_RECORD_SIZE = 12;
+  static final int DATA_ALIGNMENT = 8;
+  static final byte ENCODING_STORED = 0;
+  static final byte ENCODING_DEFLATED = 1;
+  static final byte FLAG_API = 1;
+
+  private final ByteBuffer buffer;
+  private final MappedFile mappedFile;
+  private final int entryCount;
+  private final int packageCount;
+  private final int apiClassCount;
+  private final int entryTableOffset;
+  private final int packageTableOffset;
+  private final int apiIndexOffset;
+  private final int namePoolOffset;
+
+  private PluginArchive(MappedFile mappedFile) throws IOException {
+    ByteBuffer buffer = mappedFile.getBuffer();
+    this.buffer = buffer;
+    this.mappedFile = mappedFile;
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a plugin archive");
+    }
+    if (buffer.getShort(4) != VERSION) {
+      throw new IOException("Unsupported plugin archive version " + buffer.getShort(4));
+    }
+    this.entryCount = buffer.getInt(8);
+    this.packageCount = buffer.getInt(12);
+    this.apiClassCount = buffer.getInt(16);
+    this.entryTableOffset = buffer.getInt(20);
+    this.packageTableOffset = buffer.getInt(24);
+    this.apiIndexOffset = buffer.getInt(28);
+    this.namePoolOffset = buffer.getInt(32);
+    checkRange(this.entryTableOffset, (long) this.entryCount * ENTRY_RECORD_SIZE);
+    checkRange(this.packageTableOffset, (long) this.packageCount * PACKAGE_RECORD_SIZE);
+    checkRange(this.apiIndexOffset, (long) this.apiClassCount * 4);
+    checkRange(this.namePoolOffset, 0);
+  }
+
+  /**
+   * Memory-maps a plugin archive.
+   */
+  static PluginArchive map(Path path) throws IOException {
+    MappedFile mappedFile = MappedFile.map(path.toString());
+    try {
+      return new PluginArchive(mappedFile);
+    } catch (IOException | RuntimeException e) {
+      mappedFile.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Adds a reference to the mapping of this archive, which has to be released with {@link #close()}.
+   *
+   * @return false if the mapping was already released
+   */
+  boolean retain() {
+    return this.mappedFile.retain();
+  }
+
+  /**
+   * Releases a reference to the mapping of this archive. Once the last one is released, entries can no longer be read.
+   */
+  @Override
+  public void close() {
+    this.mappedFile.release();
+  }
+
+  /**
+   * @return content of the entry, or null if there is no such entry
+   */
+  ByteBuffer getEntry(String name) throws IOException {
+    if (this.mappedFile.isReleased()) {
+      throw new IOException("Unable to read entry " + name + " of a closed plugin archive");
+    }
+    int index = findEntry(name);
+    if (index < 0) {
+      return null;
+    }
+    int record = this.entryTableOffset + index * ENTRY_RECORD_SIZE;
+    byte encoding = this.buffer.get(record + 6);
+    int dataOffset = this.buffer.getInt(record + 8);
+    int storedLength = this.buffer.getInt(record + 12);
+    int length = this.buffer.getInt(record + 16);
+    checkRange(dataOffset, storedLength);
+    ByteBuffer data = this.buffer.duplicate();
+    data.position(dataOffset).limit(dataOffset + storedLength);
+    data = data.slice();
+    switch (encoding) {
+      case ENCODING_STORED:
+        return data;
+      case ENCODING_DEFLATED:
+        return ByteBuffer.wrap(inflate(name, data, length));
+      default:
+        throw new IOException("Unsupported encoding " + encoding + " for entry " + name);
+    }
+  }
+
+  boolean containsEntry(String name) {
+    return findEntry(name) >= 0;
+  }
+
+  /**
+   * @return names of all entries, in the order of the entry table; decoded on access
+   */
+  List<String> getEntryNames() {
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        if (index < 0 || index >= PluginArchive.this.entryCount) {
+          throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return entryName(index);
+      }
+
+      @Override
+      public int size() {
+        return PluginArchive.this.entryCount;
+      }
+    };
+  }
+
+  /**
+   * @return names of the packages which have classes in this archive
+   */
+  Set<String> getPackageNames() {
+    Set<String> packageNames = new LinkedHashSet<>();
+    for (int i = 0; i < this.packageCount; i++) {
+      int record = this.packageTableOffset + i * PACKAGE_RECORD_SIZE;
+      packageNames.add(readName(this.buffer.getInt(record), this.buffer.getInt(record + 4)));
+    }
+    return Collections.unmodifiableSet(packageNames);
+  }
+
+  /**
+   * @return binary names of the classes of this archive which are annotated with {@link Api}
+   */
+  Set<String> getApiClassNames() {
+    Set<String> apiClassNames = new LinkedHashSet<>();
+    for (int i = 0; i < this.apiClassCount; i++) {
+      String entryName = entryName(this.buffer.getInt(this.apiIndexOffset + i * 4));
+      apiClassNames.add(entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.'));
+    }
+    return Collections.unmodifiableSet(apiClassNames);
+  }
+
+  /**
+   * @return index of the entry in the entry table, or -1
+   */
+  private int findEntry(String name) {
+    if (this.mappedFile.isReleased()) {
+      return -1;
+    }
+    byte[] key = name.getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = this.entryCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int record = this.entryTableOffset + middle * ENTRY_RECORD_SIZE;
+      int comparison = compareName(this.buffer.getInt(record), this.buffer.getShort(record + 4) & 0xFFFF, key);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  private int compareName(int nameOffset, int nameLength, byte[] key) {
+    int start = this.namePoolOffset + nameOffset;
+    int commonLength = Math.min(nameLength, key.length);
+    for (int i = 0; i < commonLength; i++) {
+      int difference = (this.buffer.get(start + i) & 0xFF) - (key[i] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return nameLength - key.length;
+  }
+
+  private String entryName(int index) {
+    int record = this.entryTableOffset + index * ENTRY_RECORD_SIZE;
+    return readName(this.buffer.getInt(record), this.buffer.getShort(record + 4) & 0xFFFF);
+  }
+
+  private String readName(int nameOffset, int nameLength) {
+    if (this.mappedFile.isReleased()) {
+      throw new IllegalStateException("Plugin archive is closed");
+    }
+    byte[] bytes = new byte[nameLength];
+    ByteBuffer name = this.buffer.duplicate();
+    name.position(this.namePoolOffset + nameOffset);
+    name.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private void checkRange(int offset, long length) throws IOException {
+    if (offset < 0 || length < 0 || offset + length > this.buffer.limit()) {
+      throw new IOException("Corrupt plugin archive: range " + offset + "+" + length + " is out of bounds");
+    }
+  }
+
+  private static byte[] inflate(String name, ByteBuffer data, int length) throws IOException {
+    byte[] compressed = new byte[data.remaining()];
+    data.get(compressed);
+    byte[] inflated = new byte[length];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      int count = 0;
+      while (count < length && !inflater.finished()) {
+        int inflatedCount = inflater.inflate(inflated, count, length - count);
+        if (inflatedCount == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        count += inflatedCount;
+      }
+      if (count != length) {
+        throw new IOException("Corrupt plugin archive: invalid deflated data for entry " + name);
+      }
+      return inflated;
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt plugin archive: invalid deflated data for entry " + name, e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
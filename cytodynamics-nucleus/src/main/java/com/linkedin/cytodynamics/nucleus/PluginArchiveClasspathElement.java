@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+
+/**
+ * {@link ClasspathElement} backed by a memory-mapped {@link PluginArchive}.
+ */
+final class PluginArchiveClasspathElement extends ClasspathElement {
+  private final PluginArchive archive;
+  private final URL location;
+  private volatile Manifest manifest;
+  private volatile boolean manifestRead = false;
+
+  /**
+   * @param archive archive containing the entries, whose reference is released when this element is closed
+   * @param location URL of the archive file, used as the code source
+   */
+  PluginArchiveClasspathElement(PluginArchive archive, URL location) {
+    super("archive");
+    this.archive = archive;
+    this.location = location;
+  }
+
+  @Override
+  ByteBuffer getEntry(String name) throws IOException {
+    return this.archive.getEntry(name);
+  }
+
+  @Override
+  boolean containsEntry(String name) {
+    return this.archive.containsEntry(name);
+  }
+
+  @Override
+  Collection<String> getEntryNames() {
+    return this.archive.getEntryNames();
+  }
+
+  @Override
+  Manifest getManifest() throws IOException {
+    if (!this.manifestRead) {
+      ByteBuffer manifestBytes = getEntry(JarFile.MANIFEST_NAME);
+      this.manifest = manifestBytes == null ? null : new Manifest(new ByteBufferInputStream(manifestBytes));
+      this.manifestRead = true;
+    }
+    return this.manifest;
+  }
+
+  @Override
+  URL getCodeSourceURL() {
+    return this.location;
+  }
+
+  PluginArchive getArchive() {
+    return this.archive;
+  }
+
+  @Override
+  public void close() {
+    this.archive.close();
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.classfile.ClassFile;
+import com.linkedin.cytodynamics.exception.InvalidClassFileException;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+
+/**
+ * Converts a set of JARs into a single plugin archive, a file format which {@link IsolatingClassLoader} memory-maps and
+ * reads without inflating or parsing a ZIP central directory. Plugin archives are used by passing their URI, which has
+ * to be a local file ending in ".cdar", to {@link LoaderBuilder#withClasspath(List)}.
+ *
+ * The archive holds a sorted name index, a table of the packages which have classes, and an index of the classes
+ * annotated with {@link Api}. Classes are always stored uncompressed; other resources can optionally be deflated.
+ *
+ * When several JARs have the same entry, the entry from the first JAR wins, as it would on a classpath. Directory
+ * entries and JAR signatures are not carried over.
+ */
+public final class PluginArchiveWriter {
+  private final boolean compressResources;
+
+  private PluginArchiveWriter(boolean compressResources) {
+    this.compressResources = compressResources;
+  }
+
+  /**
+   * Converts JARs into a plugin archive with uncompressed resources.
+   *
+   * @param jarFiles JARs to convert, in classpath order
+   * @param archiveFile file to write the archive to, which should end in ".cdar"; replaced if it exists
+   */
+  public static void convert(List<Path> jarFiles, Path archiveFile) throws IOException {
+    new PluginArchiveWriter(false).write(jarFiles, archiveFile);
+  }
+
+  /**
+   * Converts JARs into a plugin archive.
+   *
+   * @param jarFiles JARs to convert, in classpath order
+   * @param archiveFile file to write the archive to, which should end in ".cdar"; replaced if it exists
+   * @param compressResources true to deflate resources other than classes when that makes them smaller
+   */
+  public static void convert(List<Path> jarFiles, Path archiveFile, boolean compressResources) throws IOException {
+    new PluginArchiveWriter(compressResources).write(jarFiles, archiveFile);
+  }
+
+  /**
+   * Command line entry point: {@code PluginArchiveWriter <archive file> <JAR>...}
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: PluginArchiveWriter <archive file> <JAR>...");
+      System.exit(1);
+    }
+    List<Path> jarFiles = new ArrayList<>();
+    for (int i = 1; i < args.length; i++) {
+      jarFiles.add(Paths.get(args[i]));
+    }
+    convert(jarFiles, Paths.get(args[0]));
+  }
+
+  private void write(List<Path> jarFiles, Path archiveFile) throws IOException {
+    // sorted by the unsigned bytes of the names, which is the order the reader searches in
+    Map<byte[], Entry> entries = new TreeMap<>(PluginArchiveWriter::compareUnsigned);
+    Map<byte[], int[]> packageClassCounts = new TreeMap<>(PluginArchiveWriter::compareUnsigned);
+    for (Path jarFile : jarFiles) {
+      try (JarFile jar = new JarFile(jarFile.toFile(), false)) {
+        Enumeration<JarEntry> jarEntries = jar.entries();
+        while (jarEntries.hasMoreElements()) {
+          JarEntry jarEntry = jarEntries.nextElement();
+          String name = jarEntry.getName();
+          byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+          if (jarEntry.isDirectory() || isSignatureFile(name) || entries.containsKey(nameBytes)) {
+            continue;
+          }
+          if (nameBytes.length > 0xFFFF) {
+            throw new IOException("Entry name is too long: " + name);
+          }
+          byte[] content;
+          try (InputStream inputStream = jar.getInputStream(jarEntry)) {
+            content = readFully(inputStream);
+          }
+          Entry entry = newEntry(name, content);
+          entries.put(nameBytes, entry);
+          if (entry.className != null) {
+            byte[] packageName = ClassFile.packageName(entry.className).getBytes(StandardCharsets.UTF_8);
+            packageClassCounts.computeIfAbsent(packageName, k -> new int[1])[0]++;
+          }
+        }
+      }
+    }
+
+    // lay out the name pool: entry names, then package names
+    ByteArrayOutputStream namePool = new ByteArrayOutputStream();
+    List<Integer> entryNameOffsets = new ArrayList<>();
+    for (byte[] nameBytes : entries.keySet()) {
+      entryNameOffsets.add(namePool.size());
+      namePool.write(nameBytes);
+    }
+    List<Integer> packageNameOffsets = new ArrayList<>();
+    for (byte[] packageName : packageClassCounts.keySet()) {
+      packageNameOffsets.add(namePool.size());
+      namePool.write(packageName);
+    }
+    List<Integer> apiIndices = new ArrayList<>();
+    int index = 0;
+    for (Entry entry : entries.values()) {
+      if (entry.isApi) {
+        apiIndices.add(index);
+      }
+      index++;
+    }
+
+    long entryTableOffset = PluginArchive.HEADER_SIZE;
+    long packageTableOffset = entryTableOffset + (long) entries.size() * PluginArchive.ENTRY_RECORD_SIZE;
+    long apiIndexOffset = packageTableOffset + (long) packageClassCounts.size() * PluginArchive.PACKAGE_RECORD_SIZE;
+    long namePoolOffset = apiIndexOffset + (long) apiIndices.size() * 4;
+    long dataOffset = align(namePoolOffset + namePool.size());
+    long[] entryDataOffsets = new long[entries.size()];
+    long end = dataOffset;
+    index = 0;
+    for (Entry entry : entries.values()) {
+      end = align(end);
+      entryDataOffsets[index++] = end;
+      end += entry.storedContent.length;
+    }
+    if (end > Integer.MAX_VALUE) {
+      throw new IOException("Plugin archive would be larger than 2GB");
+    }
+
+    Path temporaryFile = archiveFile.resolveSibling(archiveFile.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+      out.writeInt(PluginArchive.MAGIC);
+      out.writeShort(PluginArchive.VERSION);
+      out.writeShort(0);
+      out.writeInt(entries.size());
+      out.writeInt(packageClassCounts.size());
+      out.writeInt(apiIndices.size());
+      out.writeInt((int) entryTableOffset);
+      out.writeInt((int) packageTableOffset);
+      out.writeInt((int) apiIndexOffset);
+      out.writeInt((int) namePoolOffset);
+      // reserved
+      out.writeInt(0);
+
+      index = 0;
+      for (Map.Entry<byte[], Entry> entry : entries.entrySet()) {
+        out.writeInt(entryNameOffsets.get(index));
+        out.writeShort(entry.getKey().length);
+        out.writeByte(entry.getValue().encoding);
+        out.writeByte(entry.getValue().isApi ? PluginArchive.FLAG_API : 0);
+        out.writeInt((int) entryDataOffsets[index]);
+        out.writeInt(entry.getValue().storedContent.length);
+        out.writeInt(entry.getValue().length);
+        index++;
+      }
+      index = 0;
+      for (Map.Entry<byte[], int[]> packageClassCount : packageClassCounts.entrySet()) {
+        out.writeInt(packageNameOffsets.get(index++));
+        out.writeInt(packageClassCount.getKey().length);
+        out.writeInt(packageClassCount.getValue()[0]);
+      }
+      for (int apiIndex : apiIndices) {
+        out.writeInt(apiIndex);
+      }
+      namePool.writeTo(out);
+
+      index = 0;
+      for (Entry entry : entries.values()) {
+        pad(out, entryDataOffsets[index++] - out.size());
+        out.write(entry.storedContent);
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temporaryFile);
+      throw e;
+    }
+    Files.move(temporaryFile, archiveFile, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private Entry newEntry(String name, byte[] content) throws IOException {
+    if (name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class")) {
+      try {
+        ClassFile classFile = ClassFile.parse(content);
+        boolean isApi = classFile.getAnnotationNames().contains(Api.class.getName());
+        return new Entry(classFile.getClassName(), isApi, PluginArchive.ENCODING_STORED, content, content.length);
+      } catch (InvalidClassFileException e) {
+        throw new IOException("Invalid class file " + name, e);
+      }
+    }
+    if (this.compressResources) {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (OutputStream deflaterOutputStream = new DeflaterOutputStream(compressed,
+          new Deflater(Deflater.BEST_SPEED))) {
+        deflaterOutputStream.write(content);
+      }
+      if (compressed.size() < content.length) {
+        return new Entry(null, false, PluginArchive.ENCODING_DEFLATED, compressed.toByteArray(), content.length);
+      }
+    }
+    return new Entry(null, false, PluginArchive.ENCODING_STORED, content, content.length);
+  }
+
+  private static boolean isSignatureFile(String name) {
+    if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) != -1) {
+      return false;
+    }
+    return name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC");
+  }
+
+  private static byte[] readFully(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int count;
+    while ((count = inputStream.read(buffer)) != -1) {
+      bytes.write(buffer, 0, count);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static long align(long offset) {
+    return (offset + PluginArchive.DATA_ALIGNMENT - 1) / PluginArchive.DATA_ALIGNMENT * PluginArchive.DATA_ALIGNMENT;
+  }
+
+  private static void pad(DataOutputStream out, long count) throws IOException {
+    for (long i = 0; i < count; i++) {
+      out.writeByte(0);
+    }
+  }
+
+  private static int compareUnsigned(byte[] left, byte[] right) {
+    int commonLength = Math.min(left.length, right.length);
+    for (int i = 0; i < commonLength; i++) {
+      int difference = (left[i] & 0xFF) - (right[i] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return left.length - right.length;
+  }
+
+  private static final class Entry {
+    // null for resources which are not classes
+    private final String className;
+    private final boolean isApi;
+    private final byte encoding;
+    private final byte[] storedContent;
+    private final int length;
+
+    Entry(String className, boolean isApi, byte encoding, byte[] storedContent, int length) {
+      this.className = className;
+      this.isApi = isApi;
+      this.encoding = encoding;
+      this.storedContent = storedContent;
+      this.length = length;
+    }
+  }
+}
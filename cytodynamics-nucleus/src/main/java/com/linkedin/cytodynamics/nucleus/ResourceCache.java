@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Results of {@link ClassLoader#getResource(String)} and {@link ClassLoader#getResources(String)} of a loader, by
+ * resource name. Both the resources which were found and the names which were not found are kept.
+ *
+ * The cache assumes that the classpath and the resources visible through the delegates do not change. When they do,
+ * the cache must be invalidated. Once a cache holds {@code maxEntries} names, further results are not cached until it
+ * is invalidated.
+ */
+final class ResourceCache {
+  private final int maxEntries;
+  // empty for names which were not found
+  private final Map<String, Optional<URL>> resources = new ConcurrentHashMap<>();
+  private final Map<String, List<URL>> resourceLists = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxEntries maximum number of names cached by each of getResource and getResources
+   */
+  ResourceCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * @return the cached result of getResource; null if there is none, and an empty optional if the resource was not
+   * found
+   */
+  Optional<URL> getResource(String name) {
+    return this.resources.get(name);
+  }
+
+  /**
+   * @param resource result of getResource; null if the resource was not found
+   */
+  void putResource(String name, URL resource) {
+    if (this.resources.size() < this.maxEntries) {
+      this.resources.put(name, Optional.ofNullable(resource));
+    }
+  }
+
+  /**
+   * @return the cached result of getResources; null if there is none
+   */
+  List<URL> getResources(String name) {
+    return this.resourceLists.get(name);
+  }
+
+  void putResources(String name, List<URL> resources) {
+    if (this.resourceLists.size() < this.maxEntries) {
+      this.resourceLists.put(name,
+          resources.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(resources)));
+    }
+  }
+
+  void invalidate() {
+    this.resources.clear();
+    this.resourceLists.clear();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+
+/**
+ * Decompressed contents of resources read through {@link ClassLoader#getResourceAsStream(String)} or
+ * {@link CytodynamicsLoader#getResourceAsByteBuffer(String)}, by resource name, kept in direct buffers so that they do
+ * not add to the heap that the garbage collector scans. A resource is cached if its name matches one of the predicates
+ * of the cache, or if it is no larger than the size threshold of the cache.
+ *
+ * When caching a resource would take the cache over its byte budget, the least recently read resources are evicted.
+ * The memory of evicted buffers is released once the buffers are garbage collected.
+ */
+final class ResourceContentCache {
+  private final long maxBytes;
+  private final long maxResourceSize;
+  private final CompiledPredicates predicates;
+  // guarded by this; in access order, so the first entry is the least recently read one
+  private final Map<String, ByteBuffer> contents = new LinkedHashMap<>(16, 0.75f, true);
+  private long usedBytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * @param maxBytes byte budget of the cache
+   * @param maxResourceSize largest size of resources which are cached without matching any of {@code predicates}
+   * @param predicates names of resources which are cached whatever their size, as long as they fit in the budget
+   */
+  ResourceContentCache(long maxBytes, long maxResourceSize, Set<Predicate<String>> predicates) {
+    this.maxBytes = maxBytes;
+    this.maxResourceSize = maxResourceSize;
+    this.predicates = CompiledPredicates.compile(predicates);
+  }
+
+  /**
+   * @return true if the resource called {@code name} is cached whatever its size
+   */
+  boolean isSelected(String name) {
+    return this.predicates.matches(name);
+  }
+
+  /**
+   * @return true if a resource of {@code size} bytes could be cached; false if the size is negative, which is how an
+   * unknown size is reported
+   */
+  boolean isCacheable(String name, long size) {
+    // buffers cannot hold more than Integer.MAX_VALUE bytes
+    return size >= 0 && size <= Math.min(this.maxBytes, Integer.MAX_VALUE)
+        && (size <= this.maxResourceSize || isSelected(name));
+  }
+
+  /**
+   * @return true if resources called {@code name} could be cached, depending on their size
+   */
+  boolean mayCache(String name) {
+    return this.maxResourceSize > 0 || isSelected(name);
+  }
+
+  /**
+   * @return the cached contents of the resource, positioned at their start, or null if they are not cached
+   */
+  synchronized ByteBuffer get(String name) {
+    ByteBuffer content = this.contents.get(name);
+    if (content == null) {
+      this.misses++;
+      return null;
+    }
+    this.hits++;
+    // each reader gets its own position over the shared contents
+    return content.duplicate();
+  }
+
+  /**
+   * Caches the remaining contents of a resource, consuming them, and evicts the least recently read resources if
+   * needed. Contents which are not {@link #isCacheable(String, long)} are not cached.
+   */
+  void put(String name, ByteBuffer content) {
+    int size = content.remaining();
+    if (!isCacheable(name, size)) {
+      return;
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+    buffer.put(content);
+    buffer.flip();
+    ByteBuffer readOnlyBuffer = buffer.asReadOnlyBuffer();
+    synchronized (this) {
+      ByteBuffer previous = this.contents.remove(name);
+      if (previous != null) {
+        this.usedBytes -= previous.capacity();
+      }
+      Iterator<ByteBuffer> leastRecentlyRead = this.contents.values().iterator();
+      while (this.usedBytes + size > this.maxBytes && leastRecentlyRead.hasNext()) {
+        this.usedBytes -= leastRecentlyRead.next().capacity();
+        leastRecentlyRead.remove();
+        this.evictions++;
+      }
+      this.contents.put(name, readOnlyBuffer);
+      this.usedBytes += size;
+    }
+  }
+
+  synchronized void invalidate() {
+    this.contents.clear();
+    this.usedBytes = 0;
+  }
+
+  synchronized LoaderMetrics.ResourceContentCacheMetrics getMetrics() {
+    return new LoaderMetrics.ResourceContentCacheMetrics(this.hits, this.misses, this.evictions, this.contents.size(),
+        this.usedBytes, this.maxBytes);
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Header of a class on the child classpath of a loader, read from its class file without loading the class.
+ */
+public final class ScannedClass {
+  private final String className;
+  private final String superClassName;
+  private final List<String> interfaceNames;
+  private final Set<String> annotationNames;
+  private final Set<String> referencedClassNames;
+
+  ScannedClass(String className, String superClassName, List<String> interfaceNames, Set<String> annotationNames,
+      Set<String> referencedClassNames) {
+    this.className = className;
+    this.superClassName = superClassName;
+    this.interfaceNames = Collections.unmodifiableList(interfaceNames);
+    this.annotationNames = Collections.unmodifiableSet(annotationNames);
+    this.referencedClassNames = Collections.unmodifiableSet(referencedClassNames);
+  }
+
+  /**
+   * @return binary name of the class
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * @return binary name of the superclass; null if there is none
+   */
+  public String getSuperClassName() {
+    return superClassName;
+  }
+
+  /**
+   * @return binary names of the directly implemented interfaces, in declaration order
+   */
+  public List<String> getInterfaceNames() {
+    return interfaceNames;
+  }
+
+  /**
+   * @return binary names of the runtime-visible annotation types present on the class
+   */
+  public Set<String> getAnnotationNames() {
+    return annotationNames;
+  }
+
+  /**
+   * @return binary names of the classes referenced from the constant pool of the class, including its supertypes;
+   * array classes are represented by their element classes
+   */
+  public Set<String> getReferencedClassNames() {
+    return referencedClassNames;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.ServiceConfigurationError;
+import java.util.Set;
+
+
+/**
+ * Providers of a service, returned by {@link CytodynamicsLoader#loadServices(Class)}. Providers are instantiated in
+ * order as they are iterated over, and each provider is only instantiated once per {@link ServiceProviders} instance,
+ * as with {@link java.util.ServiceLoader}.
+ *
+ * Instances are not thread-safe.
+ *
+ * @param <S> type of the service
+ */
+public final class ServiceProviders<S> implements Iterable<S> {
+  static final String SERVICES_DIRECTORY = "META-INF/services/";
+
+  private final Class<S> service;
+  private final ClassLoader loader;
+  private final List<String> providerNames;
+  private final List<S> providers = new ArrayList<>();
+
+  ServiceProviders(Class<S> service, ClassLoader loader, List<String> providerNames) {
+    this.service = service;
+    this.loader = loader;
+    this.providerNames = providerNames;
+  }
+
+  /**
+   * @return binary names of the provider classes, in the order they are instantiated
+   */
+  public List<String> getProviderNames() {
+    return providerNames;
+  }
+
+  @Override
+  public Iterator<S> iterator() {
+    return new Iterator<S>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.index < providerNames.size();
+      }
+
+      @Override
+      public S next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        if (this.index == providers.size()) {
+          providers.add(instantiate(providerNames.get(this.index)));
+        }
+        return providers.get(this.index++);
+      }
+    };
+  }
+
+  private S instantiate(String providerName) {
+    Class<?> providerClass;
+    try {
+      providerClass = Class.forName(providerName, false, this.loader);
+    } catch (ClassNotFoundException | LinkageError e) {
+      throw new ServiceConfigurationError(
+          String.format("%s: Provider %s not found", this.service.getName(), providerName), e);
+    }
+    if (!this.service.isAssignableFrom(providerClass)) {
+      throw new ServiceConfigurationError(
+          String.format("%s: Provider %s not a subtype", this.service.getName(), providerName));
+    }
+    try {
+      return this.service.cast(providerClass.getConstructor().newInstance());
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      throw new ServiceConfigurationError(
+          String.format("%s: Provider %s could not be instantiated", this.service.getName(), providerName), e);
+    }
+  }
+
+  /**
+   * Parses provider-configuration files, in the format of {@link java.util.ServiceLoader}.
+   *
+   * @param providerFiles provider-configuration files of the service, in lookup order
+   * @return distinct provider names, in the order they appear
+   */
+  static List<String> parseProviderNames(String serviceName, List<URL> providerFiles) {
+    Set<String> providerNames = new LinkedHashSet<>();
+    for (URL providerFile : providerFiles) {
+      try (InputStream inputStream = providerFile.openStream();
+          BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          int commentStart = line.indexOf('#');
+          String providerName = (commentStart == -1 ? line : line.substring(0, commentStart)).trim();
+          if (!providerName.isEmpty()) {
+            providerNames.add(providerName);
+          }
+        }
+      } catch (IOException e) {
+        throw new ServiceConfigurationError(
+            String.format("%s: Error reading configuration file %s", serviceName, providerFile), e);
+      }
+    }
+    return providerNames.isEmpty()
+        ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(providerNames));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+
+/**
+ * Reads and writes the files which loaders save state to between processes, such as {@link IndexSnapshot}s.
+ *
+ * These files are only caches. A file which cannot be read is ignored, and one which cannot be written is skipped, with
+ * a warning in both cases. Files start with a magic number and a format version, and are replaced atomically so that
+ * concurrent readers never see a partial file.
+ */
+final class SnapshotFiles {
+  private static final Logger LOGGER = LogApiAdapter.getLogger(SnapshotFiles.class);
+
+  private SnapshotFiles() {
+  }
+
+  /**
+   * Reads the content of a file, after its header.
+   */
+  interface ContentReader<T> {
+    T read(DataInputStream in) throws IOException;
+  }
+
+  /**
+   * Writes the content of a file, after its header.
+   */
+  interface ContentWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  /**
+   * @param description what the file holds, for warnings
+   * @return the content read from {@code file}, or null if there is no such file or it cannot be read
+   */
+  static <T> T read(Path file, int magic, int version, String description, ContentReader<T> contentReader) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != magic || in.readInt() != version) {
+        throw new IOException("Unknown format, or written by another version");
+      }
+      return contentReader.read(in);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      LOGGER.warn("Ignoring unreadable {} {}: {}", description, file, e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Writes {@code file}, replacing it atomically.
+   *
+   * @param description what the file holds, for warnings
+   */
+  static void write(Path file, int magic, int version, String description, ContentWriter contentWriter) {
+    Path temporaryFile = null;
+    try {
+      // unique, since other processes can save to the same file
+      temporaryFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+        out.writeInt(magic);
+        out.writeInt(version);
+        contentWriter.write(out);
+      }
+      Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to save {} {}: {}", description, file, e.toString());
+      try {
+        if (temporaryFile != null) {
+          Files.deleteIfExists(temporaryFile);
+        }
+      } catch (IOException deleteFailure) {
+        // nothing more can be done
+      }
+    }
+  }
+}
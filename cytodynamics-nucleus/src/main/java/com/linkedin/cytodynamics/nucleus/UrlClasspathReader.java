@@ -0,0 +1,281 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+
+/**
+ * Reads entries of the URL classpath of a loader directly, instead of through the URL and
+ * {@link java.net.URLConnection} which {@link java.net.URLClassLoader} would return. Local JARs are memory-mapped
+ * as {@link ZipArchive}s, and local directories are read as files. Each element is only opened when a lookup first
+ * reaches it.
+ *
+ * The URL classpath finds some entries in ways which this reader does not reproduce: elements which are not local,
+ * JARs which extend the classpath through the Class-Path attribute of their manifest, multi-release JARs, signed JARs,
+ * and names which the URL classpath would normalize. Lookups which would reach such an element or use such a name
+ * return {@link #UNSUPPORTED}, and the caller then goes through the URL classpath instead.
+ *
+ * Closing the reader releases the mapped JARs, after which their entries can no longer be read. Buffers read earlier
+ * stay readable, see {@link MappedFile}.
+ */
+final class UrlClasspathReader implements Closeable {
+  static final int NOT_FOUND = -1;
+  static final int UNSUPPORTED = -2;
+
+  private final URL[] classpath;
+  // null until first reached, empty if the element is not supported; only opened while holding the lock of this reader
+  private final AtomicReferenceArray<Optional<Source>> sources;
+  private boolean closed = false;
+
+  UrlClasspathReader(URL[] classpath) {
+    this.classpath = classpath;
+    this.sources = new AtomicReferenceArray<>(classpath.length);
+  }
+
+  /**
+   * @return position in the classpath of the first element which has an entry called {@code name}, {@link #NOT_FOUND}
+   * if none has, or {@link #UNSUPPORTED} if the lookup has to go through the URL classpath
+   */
+  int find(String name) {
+    if (name.isEmpty() || name.startsWith("/") || name.endsWith("/") || name.contains("./")
+        || name.contains("//") || name.contains("\\")) {
+      return UNSUPPORTED;
+    }
+    for (int i = 0; i < this.classpath.length; i++) {
+      Optional<Source> supportedSource = getSource(i);
+      if (!supportedSource.isPresent()) {
+        return UNSUPPORTED;
+      }
+      Source source = supportedSource.get();
+      if (source.containsEntry(name)) {
+        return i;
+      }
+      // the URL classpath also finds directories
+      if (source.containsDirectory(name)) {
+        return UNSUPPORTED;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * @param position position returned by {@link #find(String)}
+   * @return content of the entry, positioned at its start, which the caller may consume; null if it no longer exists
+   */
+  ByteBuffer read(int position, String name) throws IOException {
+    return getSupportedSource(position).getEntry(name);
+  }
+
+  /**
+   * @return URL of the element at {@code position}
+   */
+  URL getUrl(int position) {
+    return this.classpath[position];
+  }
+
+  /**
+   * @param position position returned by {@link #find(String)}
+   * @return the JAR at {@code position}, or null if the element is a directory
+   */
+  File getJarFile(int position) {
+    return getSupportedSource(position).getJarFile();
+  }
+
+  /**
+   * @param position position returned by {@link #find(String)}
+   * @return manifest of the element at {@code position}, or null if it has none
+   */
+  Manifest getManifest(int position) {
+    return getSupportedSource(position).getManifest();
+  }
+
+  /**
+   * Releases the mapped JARs. Elements which have not been reached yet are no longer opened, so that lookups which
+   * reach them return {@link #UNSUPPORTED}.
+   */
+  @Override
+  public synchronized void close() {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    for (int i = 0; i < this.sources.length(); i++) {
+      Optional<Source> source = this.sources.get(i);
+      if (source != null && source.isPresent()) {
+        source.get().close();
+      }
+    }
+  }
+
+  /**
+   * @param position position returned by {@link #find(String)}, whose element is therefore supported
+   */
+  private Source getSupportedSource(int position) {
+    return getSource(position).orElseThrow(
+        () -> new IllegalStateException("Classpath element " + this.classpath[position] + " is not supported"));
+  }
+
+  private Optional<Source> getSource(int position) {
+    Optional<Source> source = this.sources.get(position);
+    if (source == null) {
+      synchronized (this) {
+        source = this.sources.get(position);
+        if (source == null) {
+          if (this.closed) {
+            return Optional.empty();
+          }
+          source = openSource(this.classpath[position]);
+          this.sources.set(position, source);
+        }
+      }
+    }
+    return source;
+  }
+
+  private static Optional<Source> openSource(URL url) {
+    File file = ClasspathIndex.toFile(url);
+    if (file == null) {
+      return Optional.empty();
+    }
+    if (file.isDirectory()) {
+      return Optional.of(new DirectorySource(file.toPath()));
+    }
+    ZipArchive archive = null;
+    try {
+      archive = ZipArchive.map(file.getPath());
+      ByteBuffer manifestBytes = archive.getEntry(JarFile.MANIFEST_NAME);
+      Manifest manifest = manifestBytes == null ? null : new Manifest(new ByteBufferInputStream(manifestBytes));
+      if (isSupported(archive, manifest)) {
+        return Optional.of(new JarSource(file, archive, manifest));
+      }
+    } catch (IOException | RuntimeException e) {
+      // let the URL classpath handle and report it
+    }
+    if (archive != null) {
+      archive.close();
+    }
+    return Optional.empty();
+  }
+
+  private static boolean isSupported(ZipArchive archive, Manifest manifest) {
+    if (manifest != null) {
+      Attributes attributes = manifest.getMainAttributes();
+      if (attributes.getValue(Attributes.Name.CLASS_PATH) != null || "true".equalsIgnoreCase(
+          attributes.getValue("Multi-Release"))) {
+        return false;
+      }
+    }
+    for (String entryName : archive.getEntryNames()) {
+      // the URL classpath verifies the entries of signed JARs
+      if (entryName.startsWith("META-INF/") && entryName.endsWith(".SF")) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * One element of the URL classpath.
+   */
+  private abstract static class Source {
+    abstract boolean containsEntry(String name);
+
+    abstract boolean containsDirectory(String name);
+
+    abstract ByteBuffer getEntry(String name) throws IOException;
+
+    File getJarFile() {
+      return null;
+    }
+
+    Manifest getManifest() {
+      return null;
+    }
+
+    void close() {
+    }
+  }
+
+  private static final class JarSource extends Source {
+    private final File file;
+    private final ZipArchive archive;
+    private final Manifest manifest;
+
+    JarSource(File file, ZipArchive archive, Manifest manifest) {
+      this.file = file;
+      this.archive = archive;
+      this.manifest = manifest;
+    }
+
+    @Override
+    boolean containsEntry(String name) {
+      return this.archive.containsEntry(name);
+    }
+
+    @Override
+    boolean containsDirectory(String name) {
+      return this.archive.containsDirectory(name);
+    }
+
+    @Override
+    ByteBuffer getEntry(String name) throws IOException {
+      return this.archive.getEntry(name);
+    }
+
+    @Override
+    File getJarFile() {
+      return this.file;
+    }
+
+    @Override
+    Manifest getManifest() {
+      return this.manifest;
+    }
+
+    @Override
+    void close() {
+      this.archive.close();
+    }
+  }
+
+  private static final class DirectorySource extends Source {
+    private final Path directory;
+
+    DirectorySource(Path directory) {
+      this.directory = directory;
+    }
+
+    @Override
+    boolean containsEntry(String name) {
+      return Files.isRegularFile(this.directory.resolve(name));
+    }
+
+    @Override
+    boolean containsDirectory(String name) {
+      return Files.isDirectory(this.directory.resolve(name));
+    }
+
+    @Override
+    ByteBuffer getEntry(String name) throws IOException {
+      Path file = this.directory.resolve(name);
+      return Files.isRegularFile(file) ? ByteBuffer.wrap(Files.readAllBytes(file)) : null;
+    }
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+
+/**
+ * Read-only view of a ZIP archive held in a {@link ByteBuffer}, which is either a memory-mapped file or a slice of an
+ * enclosing archive. The central directory is parsed once, when the archive is opened. Stored entries are returned as
+ * slices of the archive buffer, so they are never copied; deflated entries are inflated on each read.
+ *
+ * Archives of a memory-mapped file, and the archives nested in them, share the {@link MappedFile} of the file: the
+ * archive returned by {@link #map(String)}, and each successful {@link #retain()} of it or of its nested archives, has
+ * to be matched by a {@link #close()}. Entries can no longer be read once the mapping is released. A read which races
+ * with the last close may still succeed, which is safe since {@link MappedFile} never unmaps a buffer in use.
+ */
+final class ZipArchive implements Closeable {
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int END_SIZE = 22;
+  private static final int ZIP64_LOCATOR_SIZE = 20;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  // largest array which can safely be allocated
+  private static final long MAX_ENTRY_SIZE = Integer.MAX_VALUE - 8;
+  private static final int METHOD_STORED = 0;
+  private static final int METHOD_DEFLATED = 8;
+
+  private final ByteBuffer buffer;
+  private final Map<String, Entry> entries;
+  // names of the directory entries, without their trailing "/"
+  private final Set<String> directoryNames;
+  // null if the buffer is not part of a mapping which this archive shares
+  private final MappedFile mappedFile;
+
+  private ZipArchive(ByteBuffer buffer, Map<String, Entry> entries, Set<String> directoryNames,
+      MappedFile mappedFile) {
+    this.buffer = buffer;
+    this.entries = entries;
+    this.directoryNames = directoryNames;
+    this.mappedFile = mappedFile;
+  }
+
+  /**
+   * Memory-maps a ZIP file and parses its central directory.
+   *
+   * @return the archive, which the caller has to close
+   */
+  static ZipArchive map(String path) throws IOException {
+    MappedFile mappedFile = MappedFile.map(path);
+    try {
+      return open(mappedFile.getBuffer(), mappedFile);
+    } catch (IOException | RuntimeException e) {
+      mappedFile.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Parses the central directory of a ZIP archive held in {@code buffer}, from its position to its limit.
+   */
+  static ZipArchive open(ByteBuffer buffer) throws ZipException {
+    return open(buffer, null);
+  }
+
+  private static ZipArchive open(ByteBuffer buffer, MappedFile mappedFile) throws ZipException {
+    ByteBuffer archive = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    int end = findEnd(archive);
+    long entryCount = archive.getShort(end + 10) & 0xFFFF;
+    long directoryOffset = archive.getInt(end + 16) & 0xFFFFFFFFL;
+    if ((entryCount == 0xFFFF || directoryOffset == 0xFFFFFFFFL) && end >= ZIP64_LOCATOR_SIZE
+        && archive.getInt(end - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE) {
+      int zip64End = checkedOffset(archive.getLong(end - ZIP64_LOCATOR_SIZE + 8), archive);
+      if (archive.getInt(zip64End) != ZIP64_END_SIGNATURE) {
+        throw new ZipException("Invalid ZIP64 end of central directory record");
+      }
+      entryCount = archive.getLong(zip64End + 32);
+      directoryOffset = archive.getLong(zip64End + 48);
+    }
+
+    Map<String, Entry> entries = new HashMap<>((int) Math.min(entryCount * 2, Integer.MAX_VALUE / 2));
+    Set<String> directoryNames = new HashSet<>();
+    int offset = checkedOffset(directoryOffset, archive);
+    for (long i = 0; i < entryCount; i++) {
+      if (offset + CENTRAL_HEADER_SIZE > archive.limit() || archive.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+        throw new ZipException("Invalid central directory header");
+      }
+      int method = archive.getShort(offset + 10) & 0xFFFF;
+      long compressedSize = archive.getInt(offset + 20) & 0xFFFFFFFFL;
+      long size = archive.getInt(offset + 24) & 0xFFFFFFFFL;
+      int nameLength = archive.getShort(offset + 28) & 0xFFFF;
+      int extraLength = archive.getShort(offset + 30) & 0xFFFF;
+      int commentLength = archive.getShort(offset + 32) & 0xFFFF;
+      long localHeaderOffset = archive.getInt(offset + 42) & 0xFFFFFFFFL;
+      String name = readString(archive, offset + CENTRAL_HEADER_SIZE, nameLength);
+
+      // ZIP64 extra field values are only present for the fields which overflowed, in this order
+      int extraOffset = offset + CENTRAL_HEADER_SIZE + nameLength;
+      int extraEnd = extraOffset + extraLength;
+      while (extraOffset + 4 <= extraEnd) {
+        int id = archive.getShort(extraOffset) & 0xFFFF;
+        int length = archive.getShort(extraOffset + 2) & 0xFFFF;
+        if (id == ZIP64_EXTRA_ID) {
+          int valueOffset = extraOffset + 4;
+          if (size == 0xFFFFFFFFL) {
+            size = archive.getLong(valueOffset);
+            valueOffset += 8;
+          }
+          if (compressedSize == 0xFFFFFFFFL) {
+            compressedSize = archive.getLong(valueOffset);
+            valueOffset += 8;
+          }
+          if (localHeaderOffset == 0xFFFFFFFFL) {
+            localHeaderOffset = archive.getLong(valueOffset);
+          }
+        }
+        extraOffset += 4 + length;
+      }
+
+      if (!name.endsWith("/")) {
+        if (size > MAX_ENTRY_SIZE) {
+          throw new ZipException("Entry " + name + " is too large to be read into memory");
+        }
+        entries.put(name, new Entry(name, method, checkedOffset(compressedSize, archive), (int) size,
+            checkedOffset(localHeaderOffset, archive)));
+      } else {
+        directoryNames.add(name.substring(0, name.length() - 1));
+      }
+      offset += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+    return new ZipArchive(archive, entries, directoryNames, mappedFile);
+  }
+
+  /**
+   * @return content of the entry, or null if there is no such entry
+   */
+  ByteBuffer getEntry(String name) throws IOException {
+    Entry entry = this.entries.get(name);
+    if (entry == null) {
+      return null;
+    }
+    if (this.mappedFile != null && this.mappedFile.isReleased()) {
+      throw new IOException("Unable to read entry " + name + " of a closed archive");
+    }
+    ByteBuffer data = rawData(entry);
+    switch (entry.method) {
+      case METHOD_STORED:
+        return data;
+      case METHOD_DEFLATED:
+        return ByteBuffer.wrap(inflate(entry, data));
+      default:
+        throw new ZipException("Unsupported compression method " + entry.method + " for entry " + name);
+    }
+  }
+
+  /**
+   * Opens an entry which is itself a ZIP archive. Stored entries are read in place. The nested archive shares the
+   * mapping of this archive, but does not retain it.
+   *
+   * @return the nested archive, or null if there is no such entry
+   */
+  ZipArchive openNested(String name) throws IOException {
+    ByteBuffer data = getEntry(name);
+    return data == null ? null : open(data, this.mappedFile);
+  }
+
+  /**
+   * Adds a reference to the mapping of this archive, which has to be released with {@link #close()}.
+   *
+   * @return false if the mapping was already released
+   */
+  boolean retain() {
+    return this.mappedFile == null || this.mappedFile.retain();
+  }
+
+  /**
+   * Releases a reference to the mapping of this archive. Once the last one is released, entries can no longer be read.
+   */
+  @Override
+  public void close() {
+    if (this.mappedFile != null) {
+      this.mappedFile.release();
+    }
+  }
+
+  boolean containsEntry(String name) {
+    return this.entries.containsKey(name);
+  }
+
+  /**
+   * @param name name of a directory, without a trailing "/"
+   * @return true if the archive has an entry for the directory
+   */
+  boolean containsDirectory(String name) {
+    return this.directoryNames.contains(name);
+  }
+
+  /**
+   * @return names of the entries, not including directories
+   */
+  Collection<String> getEntryNames() {
+    return Collections.unmodifiableSet(this.entries.keySet());
+  }
+
+  private ByteBuffer rawData(Entry entry) throws ZipException {
+    int localHeaderOffset = entry.localHeaderOffset;
+    if (localHeaderOffset + LOCAL_HEADER_SIZE > this.buffer.limit()
+        || this.buffer.getInt(localHeaderOffset) != LOCAL_HEADER_SIGNATURE) {
+      throw new ZipException("Invalid local header for entry " + entry.name);
+    }
+    // the local header can have a different extra field than the central directory header
+    int dataOffset = localHeaderOffset + LOCAL_HEADER_SIZE + (this.buffer.getShort(localHeaderOffset + 26) & 0xFFFF)
+        + (this.buffer.getShort(localHeaderOffset + 28) & 0xFFFF);
+    if (dataOffset + (long) entry.compressedSize > this.buffer.limit()) {
+      throw new ZipException("Truncated data for entry " + entry.name);
+    }
+    ByteBuffer data = this.buffer.duplicate();
+    data.position(dataOffset).limit(dataOffset + entry.compressedSize);
+    return data.slice();
+  }
+
+  private static byte[] inflate(Entry entry, ByteBuffer data) throws ZipException {
+    byte[] compressed = new byte[data.remaining()];
+    data.get(compressed);
+    byte[] inflated = new byte[entry.size];
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      int count = 0;
+      while (count < inflated.length && !inflater.finished()) {
+        int inflatedCount = inflater.inflate(inflated, count, inflated.length - count);
+        if (inflatedCount == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        count += inflatedCount;
+      }
+      if (count != inflated.length) {
+        throw new ZipException("Invalid deflated data for entry " + entry.name);
+      }
+      return inflated;
+    } catch (DataFormatException e) {
+      ZipException zipException = new ZipException("Invalid deflated data for entry " + entry.name);
+      zipException.initCause(e);
+      throw zipException;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static int findEnd(ByteBuffer archive) throws ZipException {
+    int lowest = Math.max(0, archive.limit() - END_SIZE - MAX_COMMENT_SIZE);
+    for (int offset = archive.limit() - END_SIZE; offset >= lowest; offset--) {
+      if (archive.getInt(offset) == END_SIGNATURE) {
+        return offset;
+      }
+    }
+    throw new ZipException("No end of central directory record found");
+  }
+
+  private static int checkedOffset(long value, ByteBuffer archive) throws ZipException {
+    if (value < 0 || value > archive.limit()) {
+      throw new ZipException("Invalid offset or size " + value + " in an archive of size " + archive.limit());
+    }
+    return (int) value;
+  }
+
+  private static String readString(ByteBuffer archive, int offset, int length) throws ZipException {
+    if (offset + length > archive.limit()) {
+      throw new ZipException("Truncated central directory");
+    }
+    byte[] bytes = new byte[length];
+    ByteBuffer source = archive.duplicate();
+    source.position(offset);
+    source.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static final class Entry {
+    private final String name;
+    private final int method;
+    private final int compressedSize;
+    private final int size;
+    private final int localHeaderOffset;
+
+    Entry(String name, int method, int compressedSize, int size, int localHeaderOffset) {
+      this.name = name;
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+
+/**
+ * {@link ClasspathElement} backed by a {@link ZipArchive}, or by a directory inside one.
+ */
+final class ZipClasspathElement extends ClasspathElement {
+  private final ZipArchive archive;
+  private final String prefix;
+  private final URL location;
+  private volatile Manifest manifest;
+  private volatile boolean manifestRead = false;
+
+  /**
+   * @param archive archive containing the entries, whose reference is released when this element is closed
+   * @param prefix directory of the archive which contains the entries, ending with "/"; "" for the whole archive
+   * @param location URL from which this element was opened, used as the code source
+   */
+  ZipClasspathElement(ZipArchive archive, String prefix, URL location) {
+    super("nested");
+    this.archive = archive;
+    this.prefix = prefix;
+    this.location = location;
+  }
+
+  @Override
+  ByteBuffer getEntry(String name) throws IOException {
+    return this.archive.getEntry(this.prefix + name);
+  }
+
+  @Override
+  boolean containsEntry(String name) {
+    return this.archive.containsEntry(this.prefix + name);
+  }
+
+  @Override
+  Collection<String> getEntryNames() {
+    if (this.prefix.isEmpty()) {
+      return this.archive.getEntryNames();
+    }
+    return Collections.unmodifiableList(this.archive.getEntryNames()
+        .stream()
+        .filter(name -> name.startsWith(this.prefix))
+        .map(name -> name.substring(this.prefix.length()))
+        .collect(Collectors.toList()));
+  }
+
+  @Override
+  Manifest getManifest() throws IOException {
+    if (!this.manifestRead) {
+      ByteBuffer manifestBytes = getEntry(JarFile.MANIFEST_NAME);
+      this.manifest = manifestBytes == null ? null : new Manifest(new ByteBufferInputStream(manifestBytes));
+      this.manifestRead = true;
+    }
+    return this.manifest;
+  }
+
+  @Override
+  URL getCodeSourceURL() {
+    return this.location;
+  }
+
+  @Override
+  public void close() {
+    this.archive.close();
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.function.Function;
+
+
+/**
+ * Looks up the packages which {@link IsolatingClassLoader} checks before defining a class.
+ *
+ * This is the Java 11 implementation, which only finds the packages defined by the loader itself, as
+ * {@link java.net.URLClassLoader} does from Java 9 on.
+ */
+final class DefinedPackages {
+  private final ClassLoader loader;
+
+  /**
+   * @param packageProvider unused in this implementation
+   */
+  DefinedPackages(ClassLoader loader, Function<String, Package> packageProvider) {
+    this.loader = loader;
+  }
+
+  /**
+   * @return the package called {@code packageName} defined by the loader, or null if there is none
+   */
+  Package get(String packageName) {
+    return this.loader.getDefinedPackage(packageName);
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.net.URL;
+import java.security.CodeSource;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * The Java Flight Recorder events behind {@link LoaderEvents}, which only uses this class once it has checked that the
+ * jdk.jfr module is present, since a runtime image can leave it out.
+ *
+ * Whether an event is enabled is checked on a probe instance shared by all the callers, since it only depends on the
+ * event type, so nothing is allocated and no attribute is computed while the event is disabled.
+ */
+final class FlightRecorderEvents {
+  private static final String CATEGORY = "Cytodynamics";
+  private static final ClassLoadEvent CLASS_LOAD_PROBE = new ClassLoadEvent();
+  private static final ResourceLookupEvent RESOURCE_LOOKUP_PROBE = new ResourceLookupEvent();
+  private static final LoaderBuildEvent LOADER_BUILD_PROBE = new LoaderBuildEvent();
+  private static final OriginValidationEvent ORIGIN_VALIDATION_PROBE = new OriginValidationEvent();
+  private static final TransitionalViolationEvent TRANSITIONAL_VIOLATION_PROBE = new TransitionalViolationEvent();
+
+  private FlightRecorderEvents() {
+  }
+
+  /**
+   * Does nothing, but links this class, and therefore the jdk.jfr module, when first called.
+   *
+   * @throws LinkageError if the jdk.jfr module is not present
+   */
+  static void link() {
+  }
+
+  /**
+   * @return the event in progress, or null if the event is not enabled
+   */
+  static Object beginClassLoad() {
+    if (!CLASS_LOAD_PROBE.isEnabled()) {
+      return null;
+    }
+    ClassLoadEvent event = new ClassLoadEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends a decision of {@code loader} about loading {@code className} through one of its delegate relationships.
+   *
+   * @param loadedClass the class which the decision resolved to; null if the relationship did not provide it
+   */
+  static void commitClassLoad(Object event, ClassLoader loader, String className, int relationshipIndex,
+      LoadDecision.PredicateMatch predicateMatch, LoadDecision.Source source, Class<?> loadedClass) {
+    if (event == null) {
+      return;
+    }
+    ClassLoadEvent classLoadEvent = (ClassLoadEvent) event;
+    classLoadEvent.end();
+    if (classLoadEvent.shouldCommit()) {
+      classLoadEvent.loader = describe(loader);
+      classLoadEvent.className = className;
+      classLoadEvent.relationshipIndex = relationshipIndex;
+      classLoadEvent.predicateMatch = predicateMatch.name();
+      classLoadEvent.source = source.name();
+      classLoadEvent.loadedClass = loadedClass;
+      classLoadEvent.origin = getOrigin(loadedClass);
+      classLoadEvent.commit();
+    }
+  }
+
+  /**
+   * @return the event in progress, or null if the event is not enabled
+   */
+  static Object beginResourceLookup() {
+    if (!RESOURCE_LOOKUP_PROBE.isEnabled()) {
+      return null;
+    }
+    ResourceLookupEvent event = new ResourceLookupEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends a lookup of {@code name} by {@code loader}, which was not answered from a cache.
+   *
+   * @param relationshipIndex index of the delegate relationship which decided where the resource came from, or -1 if
+   *                          no relationship provided it or if all the resources called {@code name} were looked up
+   * @param resourceCount number of resources found; at most 1 unless all the resources called {@code name} were
+   *                      looked up
+   */
+  static void commitResourceLookup(Object event, ClassLoader loader, String name, int relationshipIndex,
+      LoadDecision.Source source, int resourceCount) {
+    if (event == null) {
+      return;
+    }
+    ResourceLookupEvent resourceLookupEvent = (ResourceLookupEvent) event;
+    resourceLookupEvent.end();
+    if (resourceLookupEvent.shouldCommit()) {
+      resourceLookupEvent.loader = describe(loader);
+      resourceLookupEvent.name = name;
+      resourceLookupEvent.relationshipIndex = relationshipIndex;
+      resourceLookupEvent.source = source.name();
+      resourceLookupEvent.resourceCount = resourceCount;
+      resourceLookupEvent.commit();
+    }
+  }
+
+  /**
+   * @return the event in progress, or null if the event is not enabled
+   */
+  static Object beginLoaderBuild() {
+    if (!LOADER_BUILD_PROBE.isEnabled()) {
+      return null;
+    }
+    LoaderBuildEvent event = new LoaderBuildEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends the build of {@code loader} by a {@link LoaderBuilder}.
+   */
+  static void commitLoaderBuild(Object event, ClassLoader loader, IsolationEngine isolationEngine, int classpathSize,
+      boolean isIndexed) {
+    if (event == null) {
+      return;
+    }
+    LoaderBuildEvent loaderBuildEvent = (LoaderBuildEvent) event;
+    loaderBuildEvent.end();
+    if (loaderBuildEvent.shouldCommit()) {
+      loaderBuildEvent.loader = describe(loader);
+      loaderBuildEvent.isolationEngine = isolationEngine.name();
+      loaderBuildEvent.classpathSize = classpathSize;
+      loaderBuildEvent.indexed = isIndexed;
+      loaderBuildEvent.commit();
+    }
+  }
+
+  /**
+   * @return the event in progress, or null if the event is not enabled
+   */
+  static Object beginOriginValidation() {
+    if (!ORIGIN_VALIDATION_PROBE.isEnabled()) {
+      return null;
+    }
+    OriginValidationEvent event = new OriginValidationEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends the check of {@code url} against an {@link OriginRestriction}.
+   *
+   * @param isCached true if the decision was made for an earlier check
+   */
+  static void commitOriginValidation(Object event, URL url, boolean isAllowed, boolean isCached) {
+    if (event == null) {
+      return;
+    }
+    OriginValidationEvent originValidationEvent = (OriginValidationEvent) event;
+    originValidationEvent.end();
+    if (originValidationEvent.shouldCommit()) {
+      originValidationEvent.url = url.toExternalForm();
+      originValidationEvent.allowed = isAllowed;
+      originValidationEvent.cached = isCached;
+      originValidationEvent.commit();
+    }
+  }
+
+  /**
+   * Records a class which came from {@code delegateClassLoader} although it would be hidden under
+   * {@link IsolationLevel#FULL}.
+   */
+  static void commitTransitionalClassViolation(String className, ClassLoader delegateClassLoader) {
+    if (TRANSITIONAL_VIOLATION_PROBE.isEnabled()) {
+      TransitionalViolationEvent event = new TransitionalViolationEvent();
+      event.kind = "class";
+      event.name = className;
+      event.delegateClassLoader = describe(delegateClassLoader);
+      event.commit();
+    }
+  }
+
+  /**
+   * Records a resource which came from a delegate although it would be hidden under {@link IsolationLevel#FULL}.
+   */
+  static void commitTransitionalResourceViolation(URL resource) {
+    if (TRANSITIONAL_VIOLATION_PROBE.isEnabled()) {
+      TransitionalViolationEvent event = new TransitionalViolationEvent();
+      event.kind = "resource";
+      event.name = resource.toExternalForm();
+      event.commit();
+    }
+  }
+
+  /**
+   * @return the identity of {@code loader}, without calling an overridden {@link Object#toString()}
+   */
+  private static String describe(ClassLoader loader) {
+    return loader == null ? "bootstrap"
+        : loader.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(loader));
+  }
+
+  /**
+   * @return the location of the JAR or directory which {@code cl} was defined from, or null if it is unknown
+   */
+  private static String getOrigin(Class<?> cl) {
+    if (cl == null) {
+      return null;
+    }
+    CodeSource codeSource = cl.getProtectionDomain().getCodeSource();
+    return codeSource == null || codeSource.getLocation() == null ? null : codeSource.getLocation().toExternalForm();
+  }
+
+  @Name("com.linkedin.cytodynamics.ClassLoad")
+  @Label("Class Load Decision")
+  @Description("Decision of a loader about loading a class through one of its delegate relationships")
+  @Category(CATEGORY)
+  @Enabled(false)
+  @StackTrace(false)
+  static final class ClassLoadEvent extends Event {
+    @Label("Loader")
+    String loader;
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Relationship Index")
+    @Description("0 for the parent relationship, or 1 + the index of the fallback delegate")
+    int relationshipIndex;
+
+    @Label("Predicate Match")
+    String predicateMatch;
+
+    @Label("Source")
+    @Description("DELEGATE, CHILD, or NOT_LOADED if the relationship did not provide the class")
+    String source;
+
+    @Label("Loaded Class")
+    Class<?> loadedClass;
+
+    @Label("Origin")
+    @Description("Location of the JAR or directory which the class was defined from")
+    String origin;
+  }
+
+  @Name("com.linkedin.cytodynamics.ResourceLookup")
+  @Label("Resource Lookup")
+  @Description("Lookup of a resource by a loader, which was not answered from a cache")
+  @Category(CATEGORY)
+  @Enabled(false)
+  @StackTrace(false)
+  static final class ResourceLookupEvent extends Event {
+    @Label("Loader")
+    String loader;
+
+    @Label("Name")
+    String name;
+
+    @Label("Relationship Index")
+    @Description("Relationship which decided where the resource came from, or -1 if none provided it")
+    int relationshipIndex;
+
+    @Label("Source")
+    String source;
+
+    @Label("Resource Count")
+    int resourceCount;
+  }
+
+  @Name("com.linkedin.cytodynamics.LoaderBuild")
+  @Label("Loader Build")
+  @Category(CATEGORY)
+  @Enabled(false)
+  @StackTrace(false)
+  static final class LoaderBuildEvent extends Event {
+    @Label("Loader")
+    String loader;
+
+    @Label("Isolation Engine")
+    String isolationEngine;
+
+    @Label("Classpath Size")
+    int classpathSize;
+
+    @Label("Indexed")
+    boolean indexed;
+  }
+
+  @Name("com.linkedin.cytodynamics.OriginValidation")
+  @Label("Origin Validation")
+  @Description("Check of a classpath element against an origin restriction")
+  @Category(CATEGORY)
+  @Enabled(false)
+  @StackTrace(false)
+  static final class OriginValidationEvent extends Event {
+    @Label("URL")
+    String url;
+
+    @Label("Allowed")
+    boolean allowed;
+
+    @Label("Cached")
+    boolean cached;
+  }
+
+  @Name("com.linkedin.cytodynamics.TransitionalViolation")
+  @Label("Transitional Isolation Violation")
+  @Description("Class or resource used from a delegate which would not be visible under FULL isolation")
+  @Category(CATEGORY)
+  @Enabled(false)
+  static final class TransitionalViolationEvent extends Event {
+    @Label("Kind")
+    String kind;
+
+    @Label("Name")
+    String name;
+
+    @Label("Delegate Class Loader")
+    String delegateClassLoader;
+  }
+}
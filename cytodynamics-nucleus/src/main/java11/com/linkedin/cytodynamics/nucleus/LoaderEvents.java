@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.net.URL;
+
+
+/**
+ * Emits Java Flight Recorder events for what the loaders do: class load decisions, resource lookups, loader builds,
+ * origin validation and classes or resources which {@link IsolationLevel#TRANSITIONAL} only lets through from the
+ * delegate.
+ *
+ * This is the Java 11 implementation. The events are disabled by default, and are enabled by name in the settings of
+ * a recording, e.g. {@code com.linkedin.cytodynamics.ClassLoad#enabled=true}. This class does not refer to the jdk.jfr
+ * module itself: the events are in {@link FlightRecorderEvents}, which is linked once, the first time an event is
+ * emitted. If the runtime does not have the module, for example because it was built by jlink without it, every
+ * method of this class does nothing instead.
+ *
+ * Events which have a duration are started by a begin method, which returns the event in progress, and ended by the
+ * matching commit method. The event in progress is null when the event is not enabled, and commit methods do nothing
+ * for a null event, so callers never need to check whether events are enabled.
+ */
+final class LoaderEvents {
+  private LoaderEvents() {
+  }
+
+  /**
+   * @return the event in progress, or null if the event is not enabled
+   */
+  static Object beginClassLoad() {
+    return Availability.IS_AVAILABLE ? FlightRecorderEvents.beginClassLoad() : null;
+  }
+
+  /**
+   * Ends a decision of {@code loader} about loading {@code className} through one of its delegate relationships.
+   *
+   * @param loadedClass the class which the decision resolved to; null if the relationship did not provide it
+   */
+  static void commitClassLoad(Object event, ClassLoader loader, String className, int relationshipIndex,
+      LoadDecision.PredicateMatch predicateMatch, LoadDecision.Source source, Class<?> loadedClass) {
+    if (event != null) {
+      FlightRecorderEvents.commitClassLoad(event, loader, className, relationshipIndex, predicateMatch, source,
+          loadedClass);
+    }
+  }
+
+  /**
+   * @return the event in progress, or null if the event is not enabled
+   */
+  static Object beginResourceLookup() {
+    return Availability.IS_AVAILABLE ? FlightRecorderEvents.beginResourceLookup() : null;
+  }
+
+  /**
+   * Ends a lookup of {@code name} by {@code loader}, which was not answered from a cache.
+   *
+   * @param relationshipIndex index of the delegate relationship which decided where the resource came from, or -1 if
+   *                          no relationship provided it or if all the resources called {@code name} were looked up
+   * @param resourceCount number of resources found; at most 1 unless all the resources called {@code name} were
+   *                      looked up
+   */
+  static void commitResourceLookup(Object event, ClassLoader loader, String name, int relationshipIndex,
+      LoadDecision.Source source, int resourceCount) {
+    if (event != null) {
+      FlightRecorderEvents.commitResourceLookup(event, loader, name, relationshipIndex, source, resourceCount);
+    }
+  }
+
+  /**
+   * @return the event in progress, or null if the event is not enabled
+   */
+  static Object beginLoaderBuild() {
+    return Availability.IS_AVAILABLE ? FlightRecorderEvents.beginLoaderBuild() : null;
+  }
+
+  /**
+   * Ends the build of {@code loader} by a {@link LoaderBuilder}.
+   */
+  static void commitLoaderBuild(Object event, ClassLoader loader, IsolationEngine isolationEngine, int classpathSize,
+      boolean isIndexed) {
+    if (event != null) {
+      FlightRecorderEvents.commitLoaderBuild(event, loader, isolationEngine, classpathSize, isIndexed);
+    }
+  }
+
+  /**
+   * @return the event in progress, or null if the event is not enabled
+   */
+  static Object beginOriginValidation() {
+    return Availability.IS_AVAILABLE ? FlightRecorderEvents.beginOriginValidation() : null;
+  }
+
+  /**
+   * Ends the check of {@code url} against an {@link OriginRestriction}.
+   *
+   * @param isCached true if the decision was made for an earlier check
+   */
+  static void commitOriginValidation(Object event, URL url, boolean isAllowed, boolean isCached) {
+    if (event != null) {
+      FlightRecorderEvents.commitOriginValidation(event, url, isAllowed, isCached);
+    }
+  }
+
+  /**
+   * Records a class which came from {@code delegateClassLoader} although it would be hidden under
+   * {@link IsolationLevel#FULL}.
+   */
+  static void commitTransitionalClassViolation(String className, ClassLoader delegateClassLoader) {
+    if (Availability.IS_AVAILABLE) {
+      FlightRecorderEvents.commitTransitionalClassViolation(className, delegateClassLoader);
+    }
+  }
+
+  /**
+   * Records a resource which came from a delegate although it would be hidden under {@link IsolationLevel#FULL}.
+   */
+  static void commitTransitionalResourceViolation(URL resource) {
+    if (Availability.IS_AVAILABLE) {
+      FlightRecorderEvents.commitTransitionalResourceViolation(resource);
+    }
+  }
+
+  /**
+   * Holds whether the events can be emitted, which is only checked when the first event is.
+   */
+  private static final class Availability {
+    private static final boolean IS_AVAILABLE = isAvailable();
+
+    private Availability() {
+    }
+
+    private static boolean isAvailable() {
+      try {
+        FlightRecorderEvents.link();
+        return true;
+      } catch (LinkageError e) {
+        // the jdk.jfr module is not present
+        return false;
+      }
+    }
+  }
+}
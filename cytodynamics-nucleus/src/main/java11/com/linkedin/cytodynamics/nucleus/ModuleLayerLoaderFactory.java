@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.exception.CytodynamicsClassNotFoundException;
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import java.io.IOException;
+import java.lang.LayerInstantiationException;
+import java.lang.annotation.Annotation;
+import java.lang.module.Configuration;
+import java.lang.module.FindException;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.lang.module.ResolutionException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Builds loaders for {@link IsolationEngine#MODULE_LAYER}.
+ *
+ * Each JAR of the child classpath becomes a module (an automatic module, unless it has a module descriptor) of a
+ * {@link ModuleLayer} defined with a single classloader. That classloader maps each package to its module in constant
+ * time, so classes of the child classpath never go through the {@link DelegateRelationship} checks. Automatic modules
+ * read the unnamed modules, so classes from other packages are requested from the parent of the layer's classloader,
+ * which only exposes the delegate classes which the {@link DelegateRelationship}s make visible.
+ *
+ * Building fails with an {@link InvalidBuilderParametersException} when the classpath cannot be a module layer: a
+ * package split across JARs, two JARs with the same automatic module name, a JAR file name which gives no valid
+ * automatic module name, or a directory on the classpath. The layer's classloader is a JDK one, so no
+ * {@link LoaderEvents} class load events are emitted for its classes.
+ */
+final class ModuleLayerLoaderFactory {
+  private static final Logger LOGGER = LogApiAdapter.getLogger(ModuleLayerLoaderFactory.class);
+
+  private ModuleLayerLoaderFactory() {
+  }
+
+  static ClassLoader build(URL[] classpath, DelegateRelationship parentRelationship,
+      List<DelegateRelationship> fallbackDelegates) {
+    List<DelegateRelationship> relationships = new ArrayList<>();
+    relationships.add(parentRelationship);
+    relationships.addAll(fallbackDelegates);
+    ClassLoader delegatesLoader = new DelegateRelationshipsClassLoader(relationships);
+
+    Path[] modulePaths = new Path[classpath.length];
+    for (int i = 0; i < classpath.length; i++) {
+      modulePaths[i] = toJarPath(classpath[i]);
+    }
+
+    ModuleFinder moduleFinder = ModuleFinder.of(modulePaths);
+    Set<String> rootModules = new TreeSet<>();
+    ModuleLayer layer;
+    try {
+      for (ModuleReference moduleReference : moduleFinder.findAll()) {
+        rootModules.add(moduleReference.descriptor().name());
+      }
+      if (rootModules.isEmpty()) {
+        // nothing in the child classpath, so only the delegates can provide classes
+        return delegatesLoader;
+      }
+      Configuration configuration =
+          ModuleLayer.boot().configuration().resolve(moduleFinder, ModuleFinder.of(), rootModules);
+      layer = ModuleLayer.boot().defineModulesWithOneLoader(configuration, delegatesLoader);
+    } catch (FindException | ResolutionException | LayerInstantiationException e) {
+      throw new InvalidBuilderParametersException(
+          "Unable to define a module layer for classpath " + Arrays.toString(classpath), e);
+    }
+    return layer.findLoader(rootModules.iterator().next());
+  }
+
+  private static Path toJarPath(URL url) {
+    if (!"file".equals(url.getProtocol())) {
+      throw new InvalidBuilderParametersException(
+          "The " + IsolationEngine.MODULE_LAYER + " isolation engine only supports local JARs, but got " + url);
+    }
+    Path path;
+    try {
+      path = Paths.get(url.toURI());
+    } catch (URISyntaxException e) {
+      throw new InvalidBuilderParametersException("Unable to convert URL " + url + " to a path", e);
+    }
+    // a directory would be read as a directory of modules rather than as the classes it contains
+    if (Files.isDirectory(path)) {
+      throw new InvalidBuilderParametersException(
+          "The " + IsolationEngine.MODULE_LAYER + " isolation engine only supports JARs, but got directory " + url);
+    }
+    return path;
+  }
+
+  /**
+   * Exposes the classes and resources of the delegates which are visible through the {@link DelegateRelationship}s.
+   * This classloader is only asked for classes which are not in a package of the module layer, so the child never has
+   * the requested class.
+   */
+  private static final class DelegateRelationshipsClassLoader extends ClassLoader {
+    static {
+      ClassLoader.registerAsParallelCapable();
+    }
+
+    private final List<DelegateRelationship> relationships;
+
+    DelegateRelationshipsClassLoader(List<DelegateRelationship> relationships) {
+      super("cytodynamics-delegates", null);
+      this.relationships = relationships;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      for (DelegateRelationship relationship : this.relationships) {
+        Class<?> delegateClass = tryLoadVisibleClass(name, relationship);
+        if (delegateClass != null) {
+          if (resolve) {
+            resolveClass(delegateClass);
+          }
+          return delegateClass;
+        }
+      }
+      throw new CytodynamicsClassNotFoundException(
+          String.format("Class %s is not in the module layer and is not visible from any delegate", name));
+    }
+
+    @Override
+    public URL getResource(String name) {
+      for (DelegateRelationship relationship : this.relationships) {
+        if (!relationship.getCompiledBlacklistedResourcePredicates().matches(name)) {
+          URL resource = relationship.getDelegateClassLoader().getResource(name);
+          if (resource != null && isResourceVisible(name, relationship, resource)) {
+            return resource;
+          }
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Enumeration<URL> getResources(String name) throws IOException {
+      Set<URL> resources = new LinkedHashSet<>();
+      for (DelegateRelationship relationship : this.relationships) {
+        if (!relationship.getCompiledBlacklistedResourcePredicates().matches(name)) {
+          List<URL> delegateResources =
+              Collections.list(relationship.getDelegateClassLoader().getResources(name));
+          if (!delegateResources.isEmpty() && isResourceVisible(name, relationship, delegateResources)) {
+            resources.addAll(delegateResources);
+          }
+        }
+      }
+      return Collections.enumeration(resources);
+    }
+
+    private static Class<?> tryLoadVisibleClass(String name, DelegateRelationship relationship) {
+      if (relationship.getCompiledBlacklistedClassPredicates().matches(name)) {
+        return null;
+      }
+      ClassLoader delegateClassLoader = relationship.getDelegateClassLoader();
+      Class<?> delegateClass = tryLoadClass(delegateClassLoader, name);
+      if (delegateClass == null) {
+        return null;
+      }
+      // same as IsolatingClassLoader, the Api annotation must come from the delegate classloader
+      @SuppressWarnings("unchecked")
+      Class<? extends Annotation> apiAnnotationClass =
+          (Class<? extends Annotation>) tryLoadClass(delegateClassLoader, Api.class.getName());
+      boolean exposed = (apiAnnotationClass != null && delegateClass.isAnnotationPresent(apiAnnotationClass))
+          || relationship.getCompiledDelegatePreferredClassPredicates().matches(name)
+          || relationship.getCompiledWhitelistedClassPredicates().matches(name);
+      if (exposed || relationship.getIsolationLevel() == IsolationLevel.NONE) {
+        return delegateClass;
+      } else if (relationship.getIsolationLevel() == IsolationLevel.TRANSITIONAL) {
+        LOGGER.warn("Class {} used from the delegate classloader would not be visible if running under FULL isolation, "
+            + "unless whitelisting is used.", name);
+        return delegateClass;
+      } else {
+        return null;
+      }
+    }
+
+    private static boolean isResourceVisible(String name, DelegateRelationship relationship, Object resource) {
+      if (relationship.getIsolationLevel() == IsolationLevel.NONE
+          || relationship.getCompiledDelegatePreferredResourcePredicates().matches(name)
+          || relationship.getCompiledWhitelistedResourcePredicates().matches(name)) {
+        return true;
+      } else if (relationship.getIsolationLevel() == IsolationLevel.TRANSITIONAL) {
+        LOGGER.warn("Resource {} used from the delegate classloader would not be visible if running under FULL "
+            + "isolation, unless whitelisting is used.", resource);
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    private static Class<?> tryLoadClass(ClassLoader classLoader, String name) {
+      try {
+        return classLoader.loadClass(name);
+      } catch (ClassNotFoundException | NoClassDefFoundError e) {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+
+/**
+ * Per-class-name locks used by {@link IsolatingClassLoader} while loading a class.
+ *
+ * This is the Java 21 implementation, which uses {@link ReentrantLock}s so that a virtual thread which blocks while
+ * loading a class (for example while waiting on a delegate classloader or on another thread loading the same class)
+ * can unmount from its carrier thread instead of pinning it.
+ */
+final class ClassLoadingLocks {
+  /**
+   * Action to run while holding a class loading lock.
+   */
+  interface LockedAction<T> {
+    T run() throws ClassNotFoundException;
+  }
+
+  /*
+   * Same lifecycle as the lock objects which ClassLoader keeps for parallel capable loaders: one lock per class name,
+   * kept for the lifetime of the loader.
+   */
+  private final ConcurrentMap<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+  /**
+   * @param classLoadingLockProvider unused in this implementation
+   */
+  ClassLoadingLocks(Function<String, Object> classLoadingLockProvider) {
+  }
+
+  /**
+   * Runs {@code action} while holding the class loading lock for {@code className}.
+   */
+  <T> T callWithLock(String className, LockedAction<T> action) throws ClassNotFoundException {
+    ReentrantLock lock = this.locks.computeIfAbsent(className, k -> new ReentrantLock());
+    lock.lock();
+    try {
+      return action.run();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
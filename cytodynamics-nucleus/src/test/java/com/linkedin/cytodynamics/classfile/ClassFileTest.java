@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.classfile;
+
+import com.linkedin.cytodynamics.exception.InvalidClassFileException;
+import com.linkedin.cytodynamics.nucleus.Api;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class ClassFileTest {
+  @Test
+  public void testParse() throws Exception {
+    ClassFile classFile = ClassFile.parse(classBytes(Sample.class));
+
+    assertEquals(Sample.class.getName(), classFile.getClassName());
+    assertEquals(Number.class.getName(), classFile.getSuperClassName());
+    assertEquals(Arrays.asList(Serializable.class.getName(), Callable.class.getName()),
+        classFile.getInterfaceNames());
+    assertTrue(Modifier.isPublic(classFile.getAccessFlags()));
+    assertTrue(classFile.getMajorVersion() >= 52);
+    assertTrue(classFile.getAnnotationNames().contains(Api.class.getName()));
+    assertTrue(classFile.getAnnotationNames().contains(Deprecated.class.getName()));
+    // referenced from a method body and as an array element type
+    assertTrue(classFile.getReferencedClassNames().contains(StringBuilder.class.getName()));
+    assertTrue(classFile.getReferencedClassNames().contains(Thread.class.getName()));
+    assertFalse(classFile.getReferencedClassNames().contains(Sample.class.getName()));
+  }
+
+  @Test
+  public void testRuntimeVisibleAnnotations() throws Exception {
+    ClassFile classFile = ClassFile.parse(classBytes(Sample.class));
+
+    assertTrue(classFile.getAnnotationNames().contains(ClassRetained.class.getName()));
+    assertEquals(Arrays.asList(Api.class.getName(), Deprecated.class.getName()),
+        new ArrayList<>(classFile.getRuntimeVisibleAnnotationNames()));
+  }
+
+  @Test
+  public void testDescriptorReferences() throws Exception {
+    ClassFile classFile = ClassFile.parse(classBytes(Sample.class));
+
+    // field type, method signature and class annotations
+    assertTrue(classFile.getDescriptorReferencedClassNames().contains(URI.class.getName()));
+    assertTrue(classFile.getDescriptorReferencedClassNames().contains(UUID.class.getName()));
+    assertTrue(classFile.getDescriptorReferencedClassNames().contains(Locale.class.getName()));
+    assertTrue(classFile.getDescriptorReferencedClassNames().contains(Api.class.getName()));
+    assertTrue(classFile.getDescriptorReferencedClassNames().contains(Deprecated.class.getName()));
+    assertFalse(classFile.getReferencedClassNames().contains(URI.class.getName()));
+    // not repeated from the constant pool class references, and not including the class itself
+    assertFalse(classFile.getDescriptorReferencedClassNames().contains(StringBuilder.class.getName()));
+    assertFalse(classFile.getDescriptorReferencedClassNames().contains(Sample.class.getName()));
+  }
+
+  @Test
+  public void testObject() throws Exception {
+    ClassFile classFile = ClassFile.parse(classBytes(Object.class));
+    assertNull(classFile.getSuperClassName());
+    assertEquals(Collections.emptyList(), classFile.getInterfaceNames());
+  }
+
+  @Test(expected = InvalidClassFileException.class)
+  public void testNotAClassFile() {
+    ClassFile.parse(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+  }
+
+  @Test(expected = InvalidClassFileException.class)
+  public void testTruncated() throws Exception {
+    byte[] classBytes = classBytes(Sample.class);
+    ClassFile.parse(Arrays.copyOf(classBytes, classBytes.length / 2));
+  }
+
+  @Test
+  public void testPackageName() {
+    assertEquals("com.linkedin", ClassFile.packageName("com.linkedin.Foo"));
+    assertEquals("", ClassFile.packageName("Foo"));
+  }
+
+  private static byte[] classBytes(Class<?> cl) throws Exception {
+    try (InputStream inputStream = cl.getResourceAsStream("/" + cl.getName().replace('.', '/') + ".class")) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int count;
+      while ((count = inputStream.read(buffer)) != -1) {
+        bytes.write(buffer, 0, count);
+      }
+      return bytes.toByteArray();
+    }
+  }
+
+  @Retention(RetentionPolicy.CLASS)
+  public @interface ClassRetained {
+  }
+
+  @Api(name = "sample")
+  @Deprecated
+  @ClassRetained
+  public abstract static class Sample extends Number implements Serializable, Callable<String> {
+    @ClassRetained
+    private transient URI location;
+
+    public abstract UUID identifier(@Deprecated Locale locale);
+
+    @Override
+    public String call() {
+      Thread[][] threads = new Thread[1][1];
+      return new StringBuilder().append(threads.length).toString();
+    }
+  }
+}
@@ -48,4 +48,38 @@ public class GlobMatcherTest {
     assertTrue(dotStarMatcher.test(".abcd"));
     assertFalse(dotStarMatcher.test("abcd"));
   }
+
+  @Test
+  public void testLiteral() {
+    GlobMatcher matcher = new GlobMatcher("java.lang.String");
+    assertTrue(matcher.test("java.lang.String"));
+    assertFalse(matcher.test("java.lang.StringBuilder"));
+    assertFalse(matcher.test("java.lang.Strin"));
+  }
+
+  @Test
+  public void testSingleStar() {
+    GlobMatcher matcher = new GlobMatcher("com.foo.*Impl");
+    assertTrue(matcher.test("com.foo.Impl"));
+    assertTrue(matcher.test("com.foo.bar.BazImpl"));
+    assertFalse(matcher.test("com.foo.Baz"));
+    assertFalse(matcher.test("com.fooImpl"));
+
+    GlobMatcher overlappingMatcher = new GlobMatcher("ab*ba");
+    assertTrue(overlappingMatcher.test("abba"));
+    assertFalse(overlappingMatcher.test("aba"));
+
+    GlobMatcher anyMatcher = new GlobMatcher("*");
+    assertTrue(anyMatcher.test(""));
+    assertTrue(anyMatcher.test("anything"));
+  }
+
+  @Test
+  public void testStarDoesNotMatchLineTerminators() {
+    // same as the regex which other patterns are matched with
+    GlobMatcher matcher = new GlobMatcher("META-INF/*");
+    assertTrue(matcher.test("META-INF/MANIFEST.MF"));
+    assertFalse(matcher.test("META-INF/a\nb"));
+    assertFalse(new GlobMatcher("META-INF/*/?").test("META-INF/a\nb/c"));
+  }
 }
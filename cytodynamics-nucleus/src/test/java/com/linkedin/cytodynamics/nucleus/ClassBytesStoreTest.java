@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class ClassBytesStoreTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testCopiesOfJarShareClassBytes() throws Exception {
+    File jar = writeFile("a.jar", new byte[]{1, 2, 3});
+    File copy = writeFile("copy.jar", new byte[]{1, 2, 3});
+    ClassBytesStore store = ClassBytesStore.withMaxBytes(1024);
+    AtomicInteger reads = new AtomicInteger();
+    EntryReader reader = () -> {
+      reads.incrementAndGet();
+      return ByteBuffer.wrap(new byte[]{4, 5});
+    };
+
+    assertArrayEquals(new byte[]{4, 5}, store.getClassBytes(jar, "com/foo/A.class", reader));
+    assertArrayEquals(new byte[]{4, 5}, store.getClassBytes(copy, "com/foo/A.class", reader));
+    assertEquals(1, reads.get());
+    assertEquals(1, store.getHits());
+    assertEquals(1, store.getMisses());
+    assertEquals(1, store.getEntries());
+    assertEquals(2, store.getUsedBytes());
+
+    // a missing entry is not stored
+    assertNull(store.getClassBytes(jar, "com/foo/Missing.class", () -> null));
+    assertEquals(1, store.getEntries());
+  }
+
+  @Test
+  public void testChangedJarDigestedAgain() throws Exception {
+    File jar = writeFile("a.jar", new byte[]{1, 2, 3});
+    ClassBytesStore store = ClassBytesStore.withMaxBytes(1024);
+    store.getClassBytes(jar, "com/foo/A.class", () -> ByteBuffer.wrap(new byte[]{4}));
+
+    writeFile("a.jar", new byte[]{1, 2, 3, 4});
+    assertArrayEquals(new byte[]{5},
+        store.getClassBytes(jar, "com/foo/A.class", () -> ByteBuffer.wrap(new byte[]{5})));
+    assertEquals(0, store.getHits());
+    assertEquals(2, store.getMisses());
+  }
+
+  @Test
+  public void testDigestComputedOnce() throws Exception {
+    File jar = writeFile("a.jar", new byte[]{1, 2, 3});
+    URL[] classpath = {jar.toURI().toURL(), this.temporaryFolder.getRoot().toURI().toURL()};
+    ClassBytesStore store = ClassBytesStore.withMaxBytes(1024);
+    List<Runnable> tasks = new ArrayList<>();
+
+    store.digestAsync(classpath, tasks::add);
+    store.digestAsync(classpath, tasks::add);
+    // the directory is not digested, and the JAR is only digested once
+    assertEquals(1, tasks.size());
+    tasks.get(0).run();
+    store.getClassBytes(jar, "com/foo/A.class", () -> ByteBuffer.wrap(new byte[]{4}));
+    store.digestAsync(classpath, tasks::add);
+    assertEquals(1, tasks.size());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEvicted() throws Exception {
+    File jar = writeFile("a.jar", new byte[]{1, 2, 3});
+    ClassBytesStore store = ClassBytesStore.withMaxBytes(4);
+    store.getClassBytes(jar, "A.class", () -> ByteBuffer.wrap(new byte[2]));
+    store.getClassBytes(jar, "B.class", () -> ByteBuffer.wrap(new byte[2]));
+    store.getClassBytes(jar, "A.class", () -> ByteBuffer.wrap(new byte[2]));
+    store.getClassBytes(jar, "C.class", () -> ByteBuffer.wrap(new byte[2]));
+    assertEquals(1, store.getEvictions());
+    assertEquals(2, store.getEntries());
+    assertEquals(4, store.getUsedBytes());
+
+    // B was the least recently used class file
+    store.getClassBytes(jar, "A.class", () -> ByteBuffer.wrap(new byte[2]));
+    assertEquals(2, store.getHits());
+    store.getClassBytes(jar, "B.class", () -> ByteBuffer.wrap(new byte[2]));
+    assertEquals(4, store.getMisses());
+
+    // class files larger than the budget are never stored
+    store.getClassBytes(jar, "Large.class", () -> ByteBuffer.wrap(new byte[5]));
+    assertEquals(2, store.getEntries());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBudget() {
+    ClassBytesStore.withMaxBytes(0);
+  }
+
+  private File writeFile(String fileName, byte[] content) throws Exception {
+    File file = new File(this.temporaryFolder.getRoot(), fileName);
+    Files.write(file.toPath(), content);
+    return file;
+  }
+}
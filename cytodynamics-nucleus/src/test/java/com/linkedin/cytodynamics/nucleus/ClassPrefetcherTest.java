@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class ClassPrefetcherTest {
+  private static final String ROOT = PrefetchRoot.class.getName();
+  private static final String MIDDLE = PrefetchMiddle.class.getName();
+  private static final String LEAF = PrefetchLeaf.class.getName();
+
+  @Test
+  public void testReferencedClassesPrefetched() {
+    QueuedExecutor executor = new QueuedExecutor();
+    RecordingTarget target = new RecordingTarget(new ClassPrefetcher(executor, 2, 100));
+    target.define(ROOT);
+    executor.runAll();
+    // Object is a JDK class, so it is not prefetched
+    assertEquals(Arrays.asList(MIDDLE, LEAF), target.loadedClassNames);
+    assertEquals(2, target.prefetcher.getMetrics().getPrefetchedClasses());
+    assertEquals(2, target.prefetcher.getMetrics().getScheduledClasses());
+  }
+
+  @Test
+  public void testDepthLimit() {
+    QueuedExecutor executor = new QueuedExecutor();
+    RecordingTarget target = new RecordingTarget(new ClassPrefetcher(executor, 1, 100));
+    target.define(ROOT);
+    executor.runAll();
+    assertEquals(Collections.singletonList(MIDDLE), target.loadedClassNames);
+  }
+
+  @Test
+  public void testClassLimit() {
+    QueuedExecutor executor = new QueuedExecutor();
+    RecordingTarget target = new RecordingTarget(new ClassPrefetcher(executor, 5, 1));
+    target.define(ROOT);
+    executor.runAll();
+    assertEquals(Collections.singletonList(MIDDLE), target.loadedClassNames);
+    assertEquals(1, target.prefetcher.getMetrics().getScheduledClasses());
+  }
+
+  @Test
+  public void testLoadedClassesSkipped() {
+    QueuedExecutor executor = new QueuedExecutor();
+    RecordingTarget target = new RecordingTarget(new ClassPrefetcher(executor, 2, 1));
+    target.loadedClassNames.add(MIDDLE);
+    target.define(ROOT);
+    executor.runAll();
+    // not counted against the limit either
+    assertEquals(0, target.prefetcher.getMetrics().getScheduledClasses());
+    assertEquals(0, target.prefetcher.getMetrics().getPrefetchedClasses());
+    assertEquals(Collections.singletonList(MIDDLE), target.loadedClassNames);
+  }
+
+  @Test
+  public void testFailuresCounted() {
+    QueuedExecutor executor = new QueuedExecutor();
+    RecordingTarget target = new RecordingTarget(new ClassPrefetcher(executor, 2, 100));
+    target.failing = true;
+    target.define(ROOT);
+    executor.runAll();
+    assertEquals(Collections.singletonList(MIDDLE), target.loadedClassNames);
+    assertEquals(0, target.prefetcher.getMetrics().getPrefetchedClasses());
+    assertEquals(1, target.prefetcher.getMetrics().getFailedClasses());
+  }
+
+  @Test
+  public void testRejectedExecution() {
+    RecordingTarget target = new RecordingTarget(new ClassPrefetcher(command -> {
+      throw new RejectedExecutionException();
+    }, 2, 100));
+    target.define(ROOT);
+    assertTrue(target.loadedClassNames.isEmpty());
+  }
+
+  private static ByteBuffer readClassFile(String className) throws IOException {
+    try (InputStream inputStream = ClassPrefetcherTest.class.getClassLoader()
+        .getResourceAsStream(className.replace('.', '/') + ".class")) {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int count;
+      while ((count = inputStream.read(buffer)) != -1) {
+        content.write(buffer, 0, count);
+      }
+      return ByteBuffer.wrap(content.toByteArray());
+    }
+  }
+
+  /**
+   * Runs tasks when asked to, so that tests control when prefetching happens.
+   */
+  private static class QueuedExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void execute(Runnable command) {
+      this.tasks.add(command);
+    }
+
+    void runAll() {
+      Runnable task;
+      while ((task = this.tasks.poll()) != null) {
+        task.run();
+      }
+    }
+  }
+
+  /**
+   * Records the classes prefetched through it, and reports the fixture classes to the prefetcher as defined by its
+   * loader.
+   */
+  private static class RecordingTarget implements ClassPrefetcher.Target {
+    private final ClassPrefetcher prefetcher;
+    private final List<String> loadedClassNames = new ArrayList<>();
+    private boolean failing = false;
+
+    RecordingTarget(ClassPrefetcher prefetcher) {
+      this.prefetcher = prefetcher;
+    }
+
+    void define(String className) {
+      this.prefetcher.classDefined(className, () -> readClassFile(className), this);
+    }
+
+    @Override
+    public boolean isLoaded(String className) {
+      return this.loadedClassNames.contains(className);
+    }
+
+    @Override
+    public boolean prefetch(String className) throws ClassNotFoundException {
+      this.loadedClassNames.add(className);
+      if (this.failing) {
+        throw new ClassNotFoundException(className);
+      }
+      define(className);
+      return true;
+    }
+  }
+}
+
+/**
+ * Fixture which references {@link PrefetchMiddle}.
+ */
+class PrefetchRoot {
+  Object next() {
+    return new PrefetchMiddle();
+  }
+}
+
+/**
+ * Fixture which references {@link PrefetchLeaf}.
+ */
+class PrefetchMiddle {
+  Object next() {
+    return new PrefetchLeaf();
+  }
+}
+
+/**
+ * Fixture which references no other class.
+ */
+class PrefetchLeaf {
+}
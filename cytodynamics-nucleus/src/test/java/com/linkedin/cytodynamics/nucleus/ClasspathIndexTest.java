@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class ClasspathIndexTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testJarsAndDirectories() throws Exception {
+    File jar = writeJar("a.jar", null, "com/foo/A.class", "META-INF/versions/11/com/foo/Versioned.class");
+    File directory = this.temporaryFolder.newFolder("classes");
+    Files.createDirectories(directory.toPath().resolve("com/bar"));
+    Files.write(directory.toPath().resolve("com/bar/B.class"), new byte[1]);
+
+    ClasspathIndex index = ClasspathIndex.build(new URL[]{jar.toURI().toURL(), directory.toURI().toURL()},
+        Collections.emptyList(), ForkJoinPool.commonPool(), new BuildCache());
+    assertTrue(index.mayContain("com/foo/A.class"));
+    assertTrue(index.mayContain("com/foo/Versioned.class"));
+    assertTrue(index.mayContain("com/bar/B.class"));
+    assertFalse(index.mayContain("com/foo/Missing.class"));
+    assertFalse(index.isReusedFromSnapshot());
+  }
+
+  @Test
+  public void testParallelIndexingKeepsClasspathOrder() throws Exception {
+    URL[] classpath = new URL[20];
+    for (int i = 0; i < classpath.length; i++) {
+      classpath[i] = writeJar(i + ".jar", null, "com/foo/A.class", "com/foo/A" + i + ".class").toURI().toURL();
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      ClasspathIndex index = ClasspathIndex.build(classpath, Collections.emptyList(), pool, new BuildCache());
+      assertEquals(classpath.length, index.getElements().size());
+      for (int i = 0; i < classpath.length; i++) {
+        assertEquals(classpath[i].toExternalForm(), index.getElements().get(i).getUrl());
+        assertTrue(index.mayContain("com/foo/A" + i + ".class"));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testIncomplete() throws Exception {
+    File jar = writeJar("a.jar", null, "com/foo/A.class");
+    File jarWithClassPath = writeJar("b.jar", "other.jar", "com/foo/B.class");
+    ClasspathIndex index = ClasspathIndex.build(new URL[]{jar.toURI().toURL(), jarWithClassPath.toURI().toURL()},
+        Collections.emptyList(), ForkJoinPool.commonPool(), new BuildCache());
+    // other.jar could have any entry
+    assertTrue(index.mayContain("com/foo/Missing.class"));
+
+    index = ClasspathIndex.build(new URL[]{jar.toURI().toURL(), new URL("http://example.com/c.jar")},
+        Collections.emptyList(), ForkJoinPool.commonPool(), new BuildCache());
+    assertTrue(index.mayContain("com/foo/Missing.class"));
+  }
+
+  @Test
+  public void testSnapshot() throws Exception {
+    File jar = writeJar("a.jar", null, "com/foo/A.class");
+    URL[] classpath = new URL[]{jar.toURI().toURL()};
+    Path snapshotFile = this.temporaryFolder.getRoot().toPath().resolve("index.snapshot");
+    assertNull(IndexSnapshot.read(snapshotFile));
+
+    ClasspathIndex index =
+        ClasspathIndex.build(classpath, Collections.emptyList(), ForkJoinPool.commonPool(), new BuildCache());
+    Map<String, Integer> learnedRoutes = new HashMap<>();
+    learnedRoutes.put("com.foo", 1);
+    learnedRoutes.put("com.invalid", 5);
+    List<String> relationshipsFingerprint = IndexSnapshot.fingerprint(
+        Arrays.asList(relationship(IsolationLevel.FULL), relationship(IsolationLevel.FULL)));
+    new IndexSnapshot(index.getElements(), relationshipsFingerprint, learnedRoutes).write(snapshotFile);
+
+    IndexSnapshot snapshot = IndexSnapshot.read(snapshotFile);
+    assertNotNull(snapshot);
+    assertEquals(Collections.singletonMap("com.foo", 1), snapshot.getLearnedRoutes(relationshipsFingerprint));
+    assertEquals(Collections.emptyMap(), snapshot.getLearnedRoutes(IndexSnapshot.fingerprint(Arrays.asList(
+        relationship(IsolationLevel.FULL), relationship(IsolationLevel.FULL), relationship(IsolationLevel.FULL)))));
+    // as many relationships, but different ones
+    assertEquals(Collections.emptyMap(), snapshot.getLearnedRoutes(IndexSnapshot.fingerprint(
+        Arrays.asList(relationship(IsolationLevel.FULL), relationship(IsolationLevel.NONE)))));
+    ClasspathIndex reusedIndex = ClasspathIndex.build(classpath, snapshot.getElements(), ForkJoinPool.commonPool(),
+        new BuildCache());
+    assertTrue(reusedIndex.isReusedFromSnapshot());
+    assertTrue(reusedIndex.mayContain("com/foo/A.class"));
+    assertFalse(reusedIndex.mayContain("com/foo/Missing.class"));
+
+    // a changed JAR is indexed again
+    writeJar("a.jar", null, "com/foo/A.class", "com/foo/Added.class");
+    assertTrue(jar.setLastModified(jar.lastModified() + 2000));
+    ClasspathIndex rebuiltIndex = ClasspathIndex.build(classpath, snapshot.getElements(), ForkJoinPool.commonPool(),
+        new BuildCache());
+    assertFalse(rebuiltIndex.isReusedFromSnapshot());
+    assertTrue(rebuiltIndex.mayContain("com/foo/Added.class"));
+  }
+
+  @Test
+  public void testUnreadableSnapshot() throws Exception {
+    Path snapshotFile = this.temporaryFolder.newFile("index.snapshot").toPath();
+    Files.write(snapshotFile, new byte[]{1, 2, 3});
+    assertNull(IndexSnapshot.read(snapshotFile));
+  }
+
+  private DelegateRelationship relationship(IsolationLevel isolationLevel) {
+    return DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(getClass().getClassLoader())
+        .withIsolationLevel(isolationLevel)
+        .build();
+  }
+
+  private File writeJar(String fileName, String classPath, String... entryNames) throws IOException {
+    File jarFile = new File(this.temporaryFolder.getRoot(), fileName);
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (classPath != null) {
+      manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+    }
+    try (JarOutputStream jarOutputStream = new JarOutputStream(Files.newOutputStream(jarFile.toPath()), manifest)) {
+      for (String entryName : entryNames) {
+        jarOutputStream.putNextEntry(new JarEntry(entryName));
+        jarOutputStream.write(new byte[1]);
+        jarOutputStream.closeEntry();
+      }
+    }
+    return jarFile;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import java.util.Collections;
+import java.util.function.Predicate;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class DelegateRelationshipTest {
+  @Test
+  public void testBuiltRelationshipIsASnapshot() {
+    Predicate<String> javaPredicate = new GlobMatcher("java.*");
+    DelegateRelationshipBuilder builder = DelegateRelationshipBuilder.builder()
+        .addDelegatePreferredClassPredicate(javaPredicate);
+    DelegateRelationship relationship = builder.build();
+
+    // later changes to the builder do not affect relationships it already built
+    builder.addDelegatePreferredClassPredicate(new GlobMatcher("com.*"));
+    assertEquals(Collections.singleton(javaPredicate), relationship.getDelegatePreferredClassPredicates());
+    assertTrue(relationship.getCompiledDelegatePreferredClassPredicates().matches("java.lang.String"));
+    assertFalse(relationship.getCompiledDelegatePreferredClassPredicates().matches("com.foo.Bar"));
+    assertFalse(relationship.getCompiledBlacklistedClassPredicates().matches("java.lang.String"));
+    assertEquals(2, builder.build().getDelegatePreferredClassPredicates().size());
+
+    try {
+      relationship.getDelegatePreferredClassPredicates().add(new GlobMatcher("com.*"));
+      fail("Expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+}
@@ -40,4 +40,26 @@ public class FileOriginRestrictionFilterTest {
     assertEquals(OriginMatchResults.ALLOW, recursiveFilter.isAllowed(fileInSubdirOfTempDir.toURI().toURL()));
     assertEquals(OriginMatchResults.NO_MATCH, recursiveFilter.isAllowed(fileNotInTempDir.toURI().toURL()));
   }
+
+  @Test
+  public void testRootAndEmptyDirectories() throws Exception {
+    File root = new File(System.getProperty("java.io.tmpdir")).getAbsoluteFile();
+    while (root.getParentFile() != null) {
+      root = root.getParentFile();
+    }
+    File fileInRoot = new File(root, "test.jar");
+    File fileInSubdirOfRoot = new File(new File(root, "subdir"), "test.jar");
+
+    FileOriginRestrictionFilter rootFilter = new FileOriginRestrictionFilter(root, false, OriginMatchResults.ALLOW);
+    assertEquals(OriginMatchResults.ALLOW, rootFilter.isAllowed(fileInRoot.toURI().toURL()));
+    assertEquals(OriginMatchResults.NO_MATCH, rootFilter.isAllowed(fileInSubdirOfRoot.toURI().toURL()));
+
+    FileOriginRestrictionFilter recursiveRootFilter =
+        new FileOriginRestrictionFilter(root, true, OriginMatchResults.ALLOW);
+    assertEquals(OriginMatchResults.ALLOW, recursiveRootFilter.isAllowed(fileInSubdirOfRoot.toURI().toURL()));
+
+    FileOriginRestrictionFilter emptyFilter =
+        new FileOriginRestrictionFilter(new File(""), true, OriginMatchResults.ALLOW);
+    assertEquals(OriginMatchResults.NO_MATCH, emptyFilter.isAllowed(fileInRoot.toURI().toURL()));
+  }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class LoadDecisionTraceTest {
+  @Test
+  public void testOldestFirst() {
+    LoadDecisionTrace trace = new LoadDecisionTrace(4);
+    record(trace, "com.foo.A");
+    record(trace, "com.foo.B");
+    record(trace, "com.foo.A");
+
+    List<LoadDecision> decisions = trace.getDecisions();
+    assertEquals(3, decisions.size());
+    assertEquals(0, decisions.get(0).getSequence());
+    assertEquals("com.foo.B", decisions.get(1).getClassName());
+    assertEquals(2, decisions.get(2).getSequence());
+    assertEquals(2, trace.getDecisions("com.foo.A").size());
+    assertTrue(trace.getDecisions("com.foo.C").isEmpty());
+  }
+
+  @Test
+  public void testOldestDecisionsReplaced() {
+    // rounded up to 4
+    LoadDecisionTrace trace = new LoadDecisionTrace(3);
+    for (int i = 0; i < 10; i++) {
+      record(trace, "com.foo.A" + i);
+    }
+
+    List<String> classNames =
+        trace.getDecisions().stream().map(LoadDecision::getClassName).collect(Collectors.toList());
+    assertEquals(Arrays.asList("com.foo.A6", "com.foo.A7", "com.foo.A8", "com.foo.A9"), classNames);
+  }
+
+  private static void record(LoadDecisionTrace trace, String className) {
+    trace.record(className, 0, null, LoadDecision.PredicateMatch.NONE, false, true, true, LoadDecision.Source.CHILD,
+        0);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class LogApiAdapterTest {
+  @Test
+  public void testFormat() {
+    assertEquals("Loading a from b", LogApiAdapter.format("Loading {} from {}", "a", "b"));
+    assertEquals("no placeholders", LogApiAdapter.format("no placeholders", "ignored"));
+    assertEquals("a and {}", LogApiAdapter.format("{} and {}", "a"));
+    assertEquals("null}", LogApiAdapter.format("{}}", (Object) null));
+  }
+
+  @Test
+  public void testDisabledLevelNotEvaluated() {
+    RecordingLogger logger = new RecordingLogger(false);
+    logger.warn(() -> {
+      throw new AssertionError("Supplier should not be called for a disabled level");
+    });
+    logger.warn("Unable to read {}", new Object() {
+      @Override
+      public String toString() {
+        throw new AssertionError("Argument should not be formatted for a disabled level");
+      }
+    });
+    assertTrue(logger.messages.isEmpty());
+
+    RecordingLogger enabledLogger = new RecordingLogger(true);
+    enabledLogger.warn(() -> "supplied");
+    enabledLogger.warn("Unable to read {}", "file");
+    assertEquals("supplied", enabledLogger.messages.get(0));
+    assertEquals("Unable to read file", enabledLogger.messages.get(1));
+  }
+
+  @Test
+  public void testArities() {
+    RecordingLogger logger = new RecordingLogger(true);
+    logger.info("Loaded {}", "a");
+    logger.warn("Loaded {} from {}", "a", "b");
+    logger.error("Loaded {} from {} in {}", "a", "b", "c");
+    assertEquals(Arrays.asList("Loaded a", "Loaded a from b", "Loaded a from b in c"), logger.messages);
+  }
+
+  private static final class RecordingLogger implements Logger {
+    private final boolean isEnabled;
+    private final List<String> messages = new ArrayList<>();
+
+    RecordingLogger(boolean isEnabled) {
+      this.isEnabled = isEnabled;
+    }
+
+    @Override
+    public void info(String message) {
+      this.messages.add(message);
+    }
+
+    @Override
+    public void warn(String message) {
+      this.messages.add(message);
+    }
+
+    @Override
+    public void error(String message) {
+      this.messages.add(message);
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+      return this.isEnabled;
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+      return this.isEnabled;
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+      return this.isEnabled;
+    }
+  }
+}
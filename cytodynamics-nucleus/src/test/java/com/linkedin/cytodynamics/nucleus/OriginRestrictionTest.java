@@ -7,7 +7,9 @@
  */
 package com.linkedin.cytodynamics.nucleus;
 
+import com.linkedin.cytodynamics.exception.OriginValidationException;
 import java.net.URL;
+import java.util.Arrays;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -38,4 +40,26 @@ public class OriginRestrictionTest {
     assertTrue(denyHttpAllowDefault.isAllowed(new URL("https://foo/")));
     assertTrue(denyHttpAllowDefault.isAllowed(new URL("file:///foo")));
   }
+
+  @Test
+  public void testDecisionsUpdatedWhenFiltersAreAdded() throws Exception {
+    OriginRestriction restriction = OriginRestriction.allowByDefault();
+    assertTrue(restriction.isAllowed(new URL("http://foo/")));
+    restriction.denyingProtocols("http");
+    assertFalse(restriction.isAllowed(new URL("http://foo/")));
+  }
+
+  @Test
+  public void testValidate() throws Exception {
+    OriginRestriction restriction = OriginRestriction
+        .denyByDefault()
+        .allowingProtocols("https");
+    restriction.validate(Arrays.asList(new URL("https://foo/a.jar"), new URL("https://foo/a.jar")));
+    try {
+      restriction.validate(Arrays.asList(new URL("https://foo/a.jar"), new URL("http://foo/b.jar")));
+      fail("Expected OriginValidationException");
+    } catch (OriginValidationException e) {
+      assertTrue(e.getMessage().contains("http://foo/b.jar"));
+    }
+  }
 }
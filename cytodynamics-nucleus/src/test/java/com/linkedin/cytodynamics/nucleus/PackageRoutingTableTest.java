@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class PackageRoutingTableTest {
+  @Test
+  public void testEmpty() {
+    PackageRoutingTable table = PackageRoutingTable.empty();
+    table.learn("com.foo.Bar", 2);
+    assertEquals(PackageRoutingTable.NO_ROUTE, table.route("com.foo.Bar"));
+  }
+
+  @Test
+  public void testDeclaredRoutes() {
+    PackageRoutingTable table = new PackageRoutingTable(Collections.singletonMap("com.foo", 2), false);
+    assertEquals(2, table.route("com.foo.Bar"));
+    assertEquals(2, table.route("com.foo.Bar$Inner"));
+    // subpackages are not routed
+    assertEquals(PackageRoutingTable.NO_ROUTE, table.route("com.foo.sub.Bar"));
+    assertEquals(PackageRoutingTable.NO_ROUTE, table.route("Bar"));
+    // learning is disabled
+    table.learn("com.bar.Baz", 1);
+    assertEquals(PackageRoutingTable.NO_ROUTE, table.route("com.bar.Baz"));
+  }
+
+  @Test
+  public void testDefaultPackage() {
+    PackageRoutingTable table = new PackageRoutingTable(Collections.singletonMap("", 1), false);
+    assertEquals(1, table.route("Bar"));
+    assertEquals(PackageRoutingTable.NO_ROUTE, table.route("com.foo.Bar"));
+  }
+
+  @Test
+  public void testLearnedRoutes() {
+    PackageRoutingTable table = new PackageRoutingTable(Collections.singletonMap("com.foo", 2), true);
+    table.learn("com.bar.Baz", 1);
+    assertEquals(1, table.route("com.bar.Other"));
+    table.learn("com.bar.Baz", 3);
+    assertEquals(3, table.route("com.bar.Other"));
+    // the parent relationship is tried first anyway, so it replaces the learned route with no route
+    table.learn("com.bar.Baz", 0);
+    assertEquals(PackageRoutingTable.NO_ROUTE, table.route("com.bar.Other"));
+    // declared routes are never replaced
+    table.learn("com.foo.Bar", 1);
+    assertEquals(2, table.route("com.foo.Bar"));
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class PluginArchiveTest {
+  private static final String API_CLASS_ENTRY = entryName(ApiSample.class);
+  private static final String OTHER_CLASS_ENTRY = entryName(PluginArchiveTest.class);
+  // sorts after the ASCII names, since it is compared as unsigned bytes
+  private static final String UNICODE_ENTRY = "z/\u00e9t\u00e9.txt";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Map<String, byte[]> firstEntries = new LinkedHashMap<>();
+    firstEntries.put(API_CLASS_ENTRY, classBytes(ApiSample.class));
+    firstEntries.put("data.txt", "first".getBytes(StandardCharsets.UTF_8));
+    firstEntries.put("META-INF/FOO.SF", new byte[1]);
+    Map<String, byte[]> secondEntries = new LinkedHashMap<>();
+    secondEntries.put(OTHER_CLASS_ENTRY, classBytes(PluginArchiveTest.class));
+    secondEntries.put("data.txt", "second".getBytes(StandardCharsets.UTF_8));
+    secondEntries.put(UNICODE_ENTRY, "summer".getBytes(StandardCharsets.UTF_8));
+
+    for (boolean compressResources : new boolean[]{false, true}) {
+      Path archiveFile = this.temporaryFolder.getRoot().toPath().resolve("plugin-" + compressResources + ".cdar");
+      PluginArchiveWriter.convert(Arrays.asList(writeJar("first.jar", firstEntries), writeJar("second.jar",
+          secondEntries)), archiveFile, compressResources);
+      PluginArchive archive = PluginArchive.map(archiveFile);
+
+      // the entry from the first JAR wins
+      assertEquals("first", string(archive.getEntry("data.txt")));
+      assertEquals("summer", string(archive.getEntry(UNICODE_ENTRY)));
+      assertArrayEquals(classBytes(ApiSample.class), bytes(archive.getEntry(API_CLASS_ENTRY)));
+      assertTrue(archive.getEntry(OTHER_CLASS_ENTRY).isDirect());
+      assertNull(archive.getEntry("missing.txt"));
+      assertNull(archive.getEntry("META-INF/FOO.SF"));
+      assertFalse(archive.containsEntry("data"));
+      assertTrue(archive.containsEntry("data.txt"));
+
+      assertEquals(new HashSet<>(Arrays.asList(API_CLASS_ENTRY, OTHER_CLASS_ENTRY, "data.txt", UNICODE_ENTRY)),
+          new HashSet<>(archive.getEntryNames()));
+      assertEquals(Collections.singleton(PluginArchiveTest.class.getPackage().getName()), archive.getPackageNames());
+      assertEquals(Collections.singleton(ApiSample.class.getName()), archive.getApiClassNames());
+    }
+  }
+
+  @Test
+  public void testFailedBuildReleasesArchive() throws Exception {
+    Path archiveFile = this.temporaryFolder.getRoot().toPath().resolve("plugin.cdar");
+    PluginArchiveWriter.convert(Collections.singletonList(
+        writeJar("plugin.jar", Collections.singletonMap("data.txt", new byte[]{1}))), archiveFile, false);
+    DelegateRelationship parentRelationship = DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(getClass().getClassLoader())
+        .withIsolationLevel(IsolationLevel.FULL)
+        .build();
+    DelegateRelationship unknownRelationship = DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(getClass().getClassLoader())
+        .withIsolationLevel(IsolationLevel.FULL)
+        .build();
+    LoaderBuilder missingArchiveBuilder = LoaderBuilder.anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Arrays.asList(archiveFile.toUri(),
+            this.temporaryFolder.getRoot().toPath().resolve("missing.cdar").toUri()))
+        .withParentRelationship(parentRelationship);
+    LoaderBuilder unknownRouteBuilder = LoaderBuilder.anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(archiveFile.toUri()))
+        .withParentRelationship(parentRelationship)
+        .addPackageRoute("com.foo", unknownRelationship);
+
+    for (LoaderBuilder builder : Arrays.asList(missingArchiveBuilder, unknownRouteBuilder)) {
+      BuildCache buildCache = new BuildCache();
+      ClasspathElement element = buildCache.openPluginArchive(archiveFile.toUri(), archiveFile.toUri().toURL());
+      try {
+        builder.build(buildCache);
+        fail("Expected InvalidBuilderParametersException");
+      } catch (InvalidBuilderParametersException e) {
+        // expected
+      }
+      buildCache.close();
+      element.close();
+      // the failed build did not keep a reference to the archive
+      try {
+        element.getEntry("data.txt");
+        fail("Read an entry of a released archive");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotAnArchive() throws Exception {
+    Path file = this.temporaryFolder.newFile("not-an-archive.cdar").toPath();
+    Files.write(file, new byte[64]);
+    PluginArchive.map(file);
+  }
+
+  private Path writeJar(String fileName, Map<String, byte[]> entries) throws IOException {
+    Path jarFile = this.temporaryFolder.getRoot().toPath().resolve(fileName);
+    try (JarOutputStream jarOutputStream = new JarOutputStream(Files.newOutputStream(jarFile))) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        jarOutputStream.putNextEntry(new JarEntry(entry.getKey()));
+        jarOutputStream.write(entry.getValue());
+        jarOutputStream.closeEntry();
+      }
+    }
+    return jarFile;
+  }
+
+  private static String entryName(Class<?> cl) {
+    return cl.getName().replace('.', '/') + ".class";
+  }
+
+  private static byte[] classBytes(Class<?> cl) throws IOException {
+    try (InputStream inputStream = cl.getResourceAsStream("/" + entryName(cl))) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int count;
+      while ((count = inputStream.read(buffer)) != -1) {
+        bytes.write(buffer, 0, count);
+      }
+      return bytes.toByteArray();
+    }
+  }
+
+  private static byte[] bytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static String string(ByteBuffer buffer) {
+    return new String(bytes(buffer), StandardCharsets.UTF_8);
+  }
+
+  @Api(name = "sample")
+  public static class ApiSample {
+  }
+}
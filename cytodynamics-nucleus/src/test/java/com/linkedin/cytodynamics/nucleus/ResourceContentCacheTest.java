@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class ResourceContentCacheTest {
+  @Test
+  public void testSelection() {
+    ResourceContentCache cache =
+        new ResourceContentCache(100, 10, Collections.singleton(new GlobMatcher("templates/*")));
+    assertTrue(cache.mayCache("config.properties"));
+    assertTrue(cache.isCacheable("config.properties", 10));
+    assertFalse(cache.isCacheable("config.properties", 11));
+    // selected resources only need to fit in the budget
+    assertTrue(cache.isCacheable("templates/page.html", 100));
+    assertFalse(cache.isCacheable("templates/page.html", 101));
+    // unknown size
+    assertFalse(cache.isCacheable("templates/page.html", -1));
+
+    ResourceContentCache selectedOnly =
+        new ResourceContentCache(100, 0, Collections.singleton(new GlobMatcher("templates/*")));
+    assertFalse(selectedOnly.mayCache("config.properties"));
+    assertTrue(selectedOnly.mayCache("templates/page.html"));
+  }
+
+  @Test
+  public void testLeastRecentlyReadEvicted() {
+    ResourceContentCache cache = new ResourceContentCache(8, 8, Collections.emptySet());
+    cache.put("a", ByteBuffer.wrap(new byte[]{1, 2, 3, 4}));
+    cache.put("b", ByteBuffer.wrap(new byte[]{5, 6, 7, 8}));
+    assertEquals(1, cache.get("a").get());
+    cache.put("c", ByteBuffer.wrap(new byte[]{9, 10, 11, 12}));
+
+    assertNull(cache.get("b"));
+    assertNotNull(cache.get("c"));
+    // each reader starts from the beginning of the contents
+    ByteBuffer content = cache.get("a");
+    assertEquals(1, content.get());
+    assertEquals(3, content.remaining());
+
+    LoaderMetrics.ResourceContentCacheMetrics metrics = cache.getMetrics();
+    assertEquals(3, metrics.getHits());
+    assertEquals(1, metrics.getMisses());
+    assertEquals(1, metrics.getEvictions());
+    assertEquals(2, metrics.getEntries());
+    assertEquals(8, metrics.getUsedBytes());
+    assertEquals(0.75, metrics.getHitRate(), 0);
+  }
+
+  @Test
+  public void testReplacedAndInvalidated() {
+    ResourceContentCache cache = new ResourceContentCache(8, 8, Collections.emptySet());
+    cache.put("a", ByteBuffer.wrap(new byte[]{1, 2, 3, 4}));
+    cache.put("a", ByteBuffer.wrap(new byte[]{1, 2}));
+    assertEquals(2, cache.getMetrics().getUsedBytes());
+    // too large for the budget
+    cache.put("b", ByteBuffer.wrap(new byte[9]));
+    assertEquals(1, cache.getMetrics().getEntries());
+
+    cache.invalidate();
+    assertEquals(0, cache.getMetrics().getEntries());
+    assertEquals(0, cache.getMetrics().getUsedBytes());
+  }
+}
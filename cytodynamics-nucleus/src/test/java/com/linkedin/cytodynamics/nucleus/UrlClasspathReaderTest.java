@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.nucleus;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+public class UrlClasspathReaderTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testJarsAndDirectories() throws Exception {
+    File directory = this.temporaryFolder.newFolder("classes");
+    Files.createDirectories(directory.toPath().resolve("com/foo"));
+    Files.write(directory.toPath().resolve("com/foo/b.txt"), "dir".getBytes(StandardCharsets.UTF_8));
+    URL[] classpath = new URL[]{writeJar("a.jar", null, "com/foo/a.txt", "com/foo/b.txt").toURI().toURL(),
+        directory.toURI().toURL(), writeJar("c.jar", null, "com/foo/c.txt").toURI().toURL()};
+    UrlClasspathReader reader = new UrlClasspathReader(classpath);
+
+    assertEquals(0, reader.find("com/foo/a.txt"));
+    assertEquals("com/foo/a.txt", read(reader, 0, "com/foo/a.txt"));
+    // the first element wins
+    assertEquals(0, reader.find("com/foo/b.txt"));
+    assertEquals(2, reader.find("com/foo/c.txt"));
+    assertEquals(UrlClasspathReader.NOT_FOUND, reader.find("com/foo/missing.txt"));
+
+    UrlClasspathReader directoryFirst = new UrlClasspathReader(new URL[]{classpath[1], classpath[0]});
+    assertEquals(0, directoryFirst.find("com/foo/b.txt"));
+    assertEquals("dir", read(directoryFirst, 0, "com/foo/b.txt"));
+  }
+
+  @Test
+  public void testUnsupported() throws Exception {
+    URL jar = writeJar("a.jar", null, "com/foo/", "com/foo/a.txt").toURI().toURL();
+    UrlClasspathReader reader = new UrlClasspathReader(new URL[]{jar});
+    // the URL classpath would resolve these names differently
+    assertEquals(UrlClasspathReader.UNSUPPORTED, reader.find("com/foo"));
+    assertEquals(UrlClasspathReader.UNSUPPORTED, reader.find("/com/foo/a.txt"));
+    assertEquals(UrlClasspathReader.UNSUPPORTED, reader.find("com/bar/../foo/a.txt"));
+
+    // entries after a JAR which extends the classpath could come from the JARs which it lists
+    URL jarWithClassPath = writeJar("b.jar", "other.jar", "com/foo/b.txt").toURI().toURL();
+    UrlClasspathReader readerWithClassPath = new UrlClasspathReader(new URL[]{jar, jarWithClassPath});
+    assertEquals(0, readerWithClassPath.find("com/foo/a.txt"));
+    assertEquals(UrlClasspathReader.UNSUPPORTED, readerWithClassPath.find("com/foo/b.txt"));
+
+    UrlClasspathReader remoteReader = new UrlClasspathReader(new URL[]{new URL("http://example.com/c.jar")});
+    assertEquals(UrlClasspathReader.UNSUPPORTED, remoteReader.find("com/foo/a.txt"));
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    File jar = writeJar("a.jar", null, "com/foo/a.txt");
+    URL[] classpath = new URL[]{jar.toURI().toURL(), writeJar("b.jar", null, "com/foo/b.txt").toURI().toURL()};
+    UrlClasspathReader reader = new UrlClasspathReader(classpath);
+    assertEquals("com/foo/a.txt", read(reader, 0, "com/foo/a.txt"));
+    reader.close();
+
+    // the mapping is released, so the JAR can be replaced and the old entries are no longer read from it
+    Files.delete(jar.toPath());
+    writeJar("a.jar", null, "com/foo/replaced.txt");
+    try {
+      reader.read(0, "com/foo/a.txt");
+      fail("Read an entry of a closed reader");
+    } catch (IOException e) {
+      // expected
+    }
+    // elements which were not reached before closing are no longer opened
+    assertEquals(UrlClasspathReader.UNSUPPORTED, reader.find("com/foo/b.txt"));
+
+    UrlClasspathReader newReader = new UrlClasspathReader(classpath);
+    assertEquals("com/foo/replaced.txt", read(newReader, 0, "com/foo/replaced.txt"));
+    newReader.close();
+  }
+
+  @Test
+  public void testLoaderClose() throws Exception {
+    File jar = writeJar("a.jar", null, "com/foo/a.txt");
+    ClassLoader loader = LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(jar.toURI()))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(getClass().getClassLoader())
+            .withIsolationLevel(IsolationLevel.FULL)
+            .build())
+        .build();
+    assertNotNull(((CytodynamicsLoader) loader).getResourceAsByteBuffer("com/foo/a.txt"));
+    InputStream inputStream = loader.getResourceAsStream("com/foo/a.txt");
+    ((Closeable) loader).close();
+    try {
+      inputStream.read();
+      fail("Read a stream of a closed loader");
+    } catch (IOException e) {
+      // expected
+    }
+
+    // replaced in place, which would change what a mapping that is still held reads
+    Files.write(jar.toPath(), new byte[]{1, 2, 3});
+    try {
+      ((CytodynamicsLoader) loader).getResourceAsByteBuffer("com/foo/a.txt");
+      fail("Read a resource of a closed loader");
+    } catch (IOException e) {
+      // expected
+    }
+    Files.delete(jar.toPath());
+    assertFalse(jar.exists());
+  }
+
+  private static String read(UrlClasspathReader reader, int position, String name) throws IOException {
+    ByteBuffer content = reader.read(position, name);
+    byte[] bytes = new byte[content.remaining()];
+    content.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a JAR whose entries contain their own names.
+   */
+  private File writeJar(String fileName, String classPath, String... entryNames) throws IOException {
+    File jarFile = new File(this.temporaryFolder.getRoot(), fileName);
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (classPath != null) {
+      manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+    }
+    try (JarOutputStream jarOutputStream = new JarOutputStream(Files.newOutputStream(jarFile.toPath()), manifest)) {
+      for (String entryName : entryNames) {
+        jarOutputStream.putNextEntry(new JarEntry(entryName));
+        if (!entryName.endsWith("/")) {
+          jarOutputStream.write(entryName.getBytes(StandardCharsets.UTF_8));
+        }
+        jarOutputStream.closeEntry();
+      }
+    }
+    return jarFile;
+  }
+}
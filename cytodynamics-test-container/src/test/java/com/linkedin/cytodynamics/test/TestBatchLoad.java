@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.CytodynamicsClassNotFoundException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.BatchLoadResult;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+public class TestBatchLoad {
+  private static final String MISSING_CLASS_NAME = "com.linkedin.cytodynamics.test.DoesNotExist";
+
+  @Test
+  public void testLoadClasses() throws Exception {
+    ClassLoader loader = buildLoader();
+    List<String> classNames = Arrays.asList(TestInterfaceImpl.class.getName(), MISSING_CLASS_NAME,
+        TestInterface.class.getName(), TestInterfaceAOnlyImpl.class.getName());
+
+    BatchLoadResult result = ((CytodynamicsLoader) loader).loadClasses(classNames);
+
+    assertFalse(result.isSuccessful());
+    assertEquals(3, result.getLoadedClasses().size());
+    assertEquals(loader.loadClass(TestInterfaceImpl.class.getName()),
+        result.getLoadedClasses().get(TestInterfaceImpl.class.getName()));
+    assertEquals(loader.loadClass(TestInterfaceAOnlyImpl.class.getName()),
+        result.getLoadedClasses().get(TestInterfaceAOnlyImpl.class.getName()));
+    // API class should still come from the parent
+    assertNotEquals(loader, result.getLoadedClasses().get(TestInterface.class.getName()).getClassLoader());
+    assertEquals(Collections.singleton(MISSING_CLASS_NAME), result.getFailures().keySet());
+    assertTrue(result.getFailures().get(MISSING_CLASS_NAME) instanceof CytodynamicsClassNotFoundException);
+  }
+
+  @Test
+  public void testLoadClassesAsync() throws Exception {
+    ClassLoader loader = buildLoader();
+    List<String> classNames =
+        Arrays.asList(TestInterfaceImpl.class.getName(), MISSING_CLASS_NAME, TestInterfaceImpl.class.getName());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Map<String, CompletableFuture<Class<?>>> futures =
+          ((CytodynamicsLoader) loader).loadClassesAsync(classNames, executor);
+
+      assertEquals(Arrays.asList(TestInterfaceImpl.class.getName(), MISSING_CLASS_NAME),
+          Arrays.asList(futures.keySet().toArray()));
+      assertEquals(loader.loadClass(TestInterfaceImpl.class.getName()),
+          futures.get(TestInterfaceImpl.class.getName()).get());
+      try {
+        futures.get(MISSING_CLASS_NAME).get();
+        fail("Should have failed to load " + MISSING_CLASS_NAME);
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof CytodynamicsClassNotFoundException);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testLoadClassesAsyncGroupsBySource() throws Exception {
+    ClassLoader loader = buildLoader();
+    List<String> classNames = Arrays.asList(TestInterfaceImpl.class.getName(), MISSING_CLASS_NAME,
+        TestInterfaceAOnlyImpl.class.getName());
+    List<Runnable> tasks = new ArrayList<>();
+
+    Map<String, CompletableFuture<Class<?>>> futures = ((CytodynamicsLoader) loader).loadClassesAsync(classNames,
+        tasks::add);
+
+    // one task for the classes of the JAR, and one for the class which is not in the classpath
+    assertEquals(2, tasks.size());
+    tasks.get(0).run();
+    assertTrue(futures.get(TestInterfaceImpl.class.getName()).isDone());
+    assertTrue(futures.get(TestInterfaceAOnlyImpl.class.getName()).isDone());
+    assertFalse(futures.get(MISSING_CLASS_NAME).isDone());
+    tasks.get(1).run();
+    assertTrue(futures.get(MISSING_CLASS_NAME).isCompletedExceptionally());
+  }
+
+  private static ClassLoader buildLoader() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    ClassLoader apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .build();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.BulkBuildResult;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for building many loaders at once.
+ */
+public class TestBulkBuild {
+  private ClassLoader apiClassLoader;
+  private OriginRestriction originRestriction;
+  private ExecutorService executor;
+
+  @Before
+  public void setup() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    this.apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+    this.originRestriction = OriginRestriction.allowByDefault();
+    this.executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    this.executor.shutdown();
+  }
+
+  @Test
+  public void testBuildAll() throws Exception {
+    Map<String, LoaderBuilder> builders = new LinkedHashMap<>();
+    for (int i = 0; i < 10; i++) {
+      // all plugins share the same JARs, in a different order depending on the plugin
+      List<URI> classpath = i % 2 == 0
+          ? Arrays.asList(getJarUri("cytodynamics-test-a"), getJarUri("cytodynamics-test-b"))
+          : Arrays.asList(getJarUri("cytodynamics-test-b"), getJarUri("cytodynamics-test-a"));
+      builders.put("plugin" + i, builder(classpath));
+    }
+    builders.put("broken", LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(this.originRestriction)
+        .withClasspath(Collections.emptyList()));
+
+    BulkBuildResult result = LoaderBuilder.buildAll(builders, this.executor);
+    assertFalse(result.isSuccessful());
+    assertEquals(Collections.singleton("broken"), result.getFailures().keySet());
+    assertTrue(result.getFailures().get("broken") instanceof InvalidBuilderParametersException);
+    assertEquals(10, result.getLoaders().size());
+    assertEquals(result.getLoaders().keySet(), result.getTimings().keySet());
+
+    for (int i = 0; i < 10; i++) {
+      ClassLoader loader = result.getLoaders().get("plugin" + i);
+      Class<?> implClass = loader.loadClass(TestInterfaceImpl.class.getName());
+      assertEquals(i % 2 == 0 ? "A" : "B", implClass.getMethod("getValue").invoke(implClass.newInstance()));
+      assertFalse(result.getTimings().get("plugin" + i).getTotalTime().isNegative());
+      assertTrue(result.getTimings().get("plugin" + i).getTotalTime()
+          .compareTo(result.getTimings().get("plugin" + i).getIndexingTime()) >= 0);
+    }
+  }
+
+  private LoaderBuilder builder(List<URI> classpath) {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(this.originRestriction)
+        .withClasspath(classpath)
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .withClasspathIndexing(true);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.ClassBytesStore;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.ClassFileUtil.*;
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for sharing class files across loaders through a {@link ClassBytesStore}.
+ */
+public class TestClassBytesStore {
+  private static final String SEALED_CLASS_NAME = "com.linkedin.cytodynamics.sealed.SealedClass";
+  private static final String OTHER_CLASS_NAME = "com.linkedin.cytodynamics.sealed.OtherClass";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClassLoader apiClassLoader;
+
+  @Before
+  public void setup() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    this.apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+  }
+
+  @Test
+  public void testClassBytesShared() throws Exception {
+    ClassBytesStore store = ClassBytesStore.withMaxBytes(1024 * 1024);
+    ClassLoader loader = loaderBuilder().withClassBytesStore(store).build();
+    ClassLoader otherLoader = loaderBuilder().withClassBytesStore(store).build();
+
+    Class<?> implClass = loader.loadClass(TestInterfaceImpl.class.getName());
+    Class<?> otherImplClass = otherLoader.loadClass(TestInterfaceImpl.class.getName());
+    assertNotSame(implClass, otherImplClass);
+    assertEquals(1, store.getMisses());
+    assertEquals(1, store.getHits());
+    assertEquals(1, store.getEntries());
+
+    assertEquals("A", otherImplClass.getMethod("getValue").invoke(otherImplClass.newInstance()));
+    assertEquals(getJarUri("cytodynamics-test-a").toURL(),
+        otherImplClass.getProtectionDomain().getCodeSource().getLocation());
+    assertNotNull(otherImplClass.getPackage());
+  }
+
+  @Test
+  public void testMissingClass() throws Exception {
+    ClassBytesStore store = ClassBytesStore.withMaxBytes(1024 * 1024);
+    ClassLoader loader = loaderBuilder().withClassBytesStore(store).build();
+    try {
+      loader.loadClass("com.linkedin.cytodynamics.test.Missing");
+      fail("Expected ClassNotFoundException");
+    } catch (ClassNotFoundException e) {
+      // expected
+    }
+    assertEquals(0, store.getMisses());
+  }
+
+  @Test
+  public void testSealedPackageVerified() throws Exception {
+    File sealedJar = this.temporaryFolder.newFile("sealed.jar");
+    Map<String, byte[]> sealedEntries = new LinkedHashMap<>();
+    sealedEntries.put(JarFile.MANIFEST_NAME,
+        "Manifest-Version: 1.0\nSealed: true\n\n".getBytes(StandardCharsets.UTF_8));
+    sealedEntries.put(classFileName(SEALED_CLASS_NAME), generateClass(SEALED_CLASS_NAME, Object.class.getName()));
+    writeJar(sealedJar, sealedEntries);
+    File otherJar = this.temporaryFolder.newFile("other.jar");
+    writeJar(otherJar, Collections.singletonMap(classFileName(OTHER_CLASS_NAME),
+        generateClass(OTHER_CLASS_NAME, Object.class.getName())));
+    ClassBytesStore store = ClassBytesStore.withMaxBytes(1024 * 1024);
+    ClassLoader loader =
+        loaderBuilder(Arrays.asList(sealedJar.toURI(), otherJar.toURI())).withClassBytesStore(store).build();
+
+    assertTrue(loader.loadClass(SEALED_CLASS_NAME).getPackage().isSealed());
+    try {
+      loader.loadClass(OTHER_CLASS_NAME);
+      fail("Expected SecurityException");
+    } catch (SecurityException e) {
+      // same sealing violation as URLClassLoader reports
+    }
+    assertEquals(2, store.getMisses());
+  }
+
+  private LoaderBuilder loaderBuilder() throws Exception {
+    return loaderBuilder(Collections.singletonList(getJarUri("cytodynamics-test-a")));
+  }
+
+  private LoaderBuilder loaderBuilder(List<URI> classpath) throws Exception {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(classpath)
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build());
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.LoaderMetrics;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.ClassFileUtil.*;
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for prefetching the classes referenced by the classes of a loader.
+ */
+public class TestClassPrefetching {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClassLoader apiClassLoader;
+
+  @Before
+  public void setup() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    this.apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+  }
+
+  @Test
+  public void testReferencedClassesPrefetched() throws Exception {
+    File fixtureJar = this.temporaryFolder.newFile("prefetch-fixtures.jar");
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    for (Class<?> fixture : Arrays.asList(PrefetchedRoot.class, PrefetchedLeaf.class)) {
+      String entryName = classFileName(fixture.getName());
+      entries.put(entryName, Files.readAllBytes(Paths.get(getClass().getClassLoader().getResource(entryName).toURI())));
+    }
+    writeJar(fixtureJar, entries);
+    QueuedExecutor executor = new QueuedExecutor();
+    ClassLoader loader = loaderBuilder()
+        .withClasspath(Collections.singletonList(fixtureJar.toURI()))
+        .withClassPrefetching(executor, 2, 100)
+        .withLoadDecisionTrace(100)
+        .build();
+    loader.loadClass(PrefetchedRoot.class.getName());
+    executor.runAll();
+
+    LoaderMetrics.ClassPrefetchMetrics metrics = ((CytodynamicsLoader) loader).getMetrics().getClassPrefetch();
+    assertEquals(1, metrics.getScheduledClasses());
+    assertEquals(1, metrics.getPrefetchedClasses());
+    assertEquals(0, metrics.getFailedClasses());
+    // prefetching defines the leaf without recording a load decision for it
+    assertFalse(((CytodynamicsLoader) loader).getLoadDecisions().stream()
+        .anyMatch(decision -> decision.getClassName().equals(PrefetchedLeaf.class.getName())));
+    assertEquals(loader, loader.loadClass(PrefetchedLeaf.class.getName()).getClassLoader());
+  }
+
+  @Test
+  public void testLoadedClassesNotPrefetched() throws Exception {
+    QueuedExecutor executor = new QueuedExecutor();
+    ClassLoader loader = loaderBuilder().withClassPrefetching(executor, 2, 100).build();
+    Class<?> implClass = loader.loadClass(TestInterfaceImpl.class.getName());
+    executor.runAll();
+
+    // TestInterface is the only class referenced outside of the JDK, and was loaded when the implementation was defined
+    LoaderMetrics.ClassPrefetchMetrics metrics = ((CytodynamicsLoader) loader).getMetrics().getClassPrefetch();
+    assertEquals(0, metrics.getScheduledClasses());
+    assertEquals(0, metrics.getPrefetchedClasses());
+    assertEquals("A", implClass.getMethod("getValue").invoke(implClass.newInstance()));
+  }
+
+  @Test
+  public void testNotPrefetchedByDefault() throws Exception {
+    ClassLoader loader = loaderBuilder().build();
+    loader.loadClass(TestInterfaceImpl.class.getName());
+    assertEquals(0, ((CytodynamicsLoader) loader).getMetrics().getClassPrefetch().getScheduledClasses());
+  }
+
+  @Test(expected = InvalidBuilderParametersException.class)
+  public void testNegativeDepth() throws Exception {
+    loaderBuilder().withClassPrefetching(new QueuedExecutor(), -1, 100).build();
+  }
+
+  private LoaderBuilder loaderBuilder() throws Exception {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build());
+  }
+
+  /**
+   * Runs tasks when asked to, so that tests control when prefetching happens.
+   */
+  private static class QueuedExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void execute(Runnable command) {
+      this.tasks.add(command);
+    }
+
+    void runAll() {
+      Runnable task;
+      while ((task = this.tasks.poll()) != null) {
+        task.run();
+      }
+    }
+  }
+}
+
+
+/**
+ * Fixture which references {@link PrefetchedLeaf}, loaded from a JAR built by the test.
+ */
+class PrefetchedRoot {
+  Object next() {
+    return new PrefetchedLeaf();
+  }
+}
+
+/**
+ * Fixture which references no other class.
+ */
+class PrefetchedLeaf {
+}
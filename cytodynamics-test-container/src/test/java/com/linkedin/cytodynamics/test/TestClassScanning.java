@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.Api;
+import com.linkedin.cytodynamics.nucleus.ClassScanResult;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import com.linkedin.cytodynamics.nucleus.ScannedClass;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for scanning the child classpath through {@link CytodynamicsLoader#scanClasses(java.util.concurrent.Executor)}.
+ */
+public class TestClassScanning {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClassLoader loader;
+
+  @Before
+  public void setup() throws Exception {
+    this.loader = buildLoader(Arrays.asList(getJarUri("cytodynamics-test-api"), getJarUri("cytodynamics-test-a"),
+        getJarUri("cytodynamics-test-b")));
+  }
+
+  private static ClassLoader buildLoader(List<URI> classpath) throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    ClassLoader apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(classpath)
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .build();
+  }
+
+  @Test
+  public void testScan() {
+    ClassScanResult result = ((CytodynamicsLoader) this.loader).scanClasses(ForkJoinPool.commonPool());
+
+    assertEquals(Arrays.asList(TestInterfaceAOnlyImpl.class.getName(), TestInterfaceImpl.class.getName()),
+        sorted(result.getSubtypeNames(TestInterface.class.getName())));
+    assertEquals(Collections.singletonList(TestInterface.class.getName()),
+        result.getClassNamesAnnotatedWith(Api.class.getName()));
+
+    // the class from test-a comes first on the classpath, so it hides the one from test-b
+    ScannedClass implClass = result.getScannedClass(TestInterfaceImpl.class.getName());
+    assertEquals(Object.class.getName(), implClass.getSuperClassName());
+    assertEquals(Collections.singletonList(TestInterface.class.getName()), implClass.getInterfaceNames());
+    assertTrue(implClass.getReferencedClassNames().contains(TestInterface.class.getName()));
+    assertEquals(1, result.findClassNames(
+        scannedClass -> scannedClass.getClassName().equals(TestInterfaceImpl.class.getName())).size());
+  }
+
+  @Test
+  public void testCacheFileReused() throws Exception {
+    Path cacheFile = this.temporaryFolder.getRoot().toPath().resolve("scan.cache");
+    ClassScanResult result = ((CytodynamicsLoader) this.loader).scanClasses(ForkJoinPool.commonPool(), cacheFile);
+    assertTrue(Files.exists(cacheFile));
+
+    // the JARs have not changed, so the cache file is not written again
+    assertTrue(cacheFile.toFile().setLastModified(0));
+    ClassScanResult cachedResult =
+        ((CytodynamicsLoader) this.loader).scanClasses(ForkJoinPool.commonPool(), cacheFile);
+    assertEquals(0, cacheFile.toFile().lastModified());
+    assertEquals(result.findClassNames(scannedClass -> true), cachedResult.findClassNames(scannedClass -> true));
+    assertEquals(result.getSubtypeNames(TestInterface.class.getName()),
+        cachedResult.getSubtypeNames(TestInterface.class.getName()));
+    String implClassName = TestInterfaceImpl.class.getName();
+    assertEquals(result.getScannedClass(implClassName).getReferencedClassNames(),
+        cachedResult.getScannedClass(implClassName).getReferencedClassNames());
+  }
+
+  @Test
+  public void testUnreadableCacheFile() throws Exception {
+    Path cacheFile = this.temporaryFolder.newFile("scan.cache").toPath();
+    Files.write(cacheFile, new byte[]{1, 2, 3});
+    ClassScanResult result = ((CytodynamicsLoader) this.loader).scanClasses(ForkJoinPool.commonPool(), cacheFile);
+    assertEquals(2, result.getSubtypeNames(TestInterface.class.getName()).size());
+    assertTrue(Files.size(cacheFile) > 3);
+  }
+
+  @Test
+  public void testFailedJarNotCached() throws Exception {
+    Path jar = this.temporaryFolder.getRoot().toPath().resolve("test-a.jar");
+    byte[] jarBytes = Files.readAllBytes(Paths.get(getJarUri("cytodynamics-test-a")));
+    Path cacheFile = this.temporaryFolder.getRoot().toPath().resolve("scan.cache");
+    ClassLoader loader = buildLoader(Arrays.asList(getJarUri("cytodynamics-test-api"), jar.toUri()));
+
+    // the central directory can still be read, but none of the entries
+    Files.write(jar, corrupted(jarBytes));
+    assertTrue(jar.toFile().setLastModified(1000000000000L));
+    ClassScanResult result = ((CytodynamicsLoader) loader).scanClasses(ForkJoinPool.commonPool(), cacheFile);
+    assertNull(result.getScannedClass(TestInterfaceImpl.class.getName()));
+    assertTrue(Files.exists(cacheFile));
+
+    // repaired with the same size and modification time, which must not match the classes of the failed scan
+    Files.write(jar, jarBytes);
+    assertTrue(jar.toFile().setLastModified(1000000000000L));
+    ClassScanResult repairedResult =
+        ((CytodynamicsLoader) loader).scanClasses(ForkJoinPool.commonPool(), cacheFile);
+    assertNotNull(repairedResult.getScannedClass(TestInterfaceImpl.class.getName()));
+  }
+
+  /**
+   * @return the JAR with everything before its central directory overwritten with zeros
+   */
+  private static byte[] corrupted(byte[] jarBytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(jarBytes.clone()).order(ByteOrder.LITTLE_ENDIAN);
+    int endOfCentralDirectory = jarBytes.length - 22;
+    while (buffer.getInt(endOfCentralDirectory) != 0x06054b50) {
+      endOfCentralDirectory--;
+    }
+    int centralDirectoryOffset = buffer.getInt(endOfCentralDirectory + 16);
+    for (int i = 0; i < centralDirectoryOffset; i++) {
+      buffer.put(i, (byte) 0);
+    }
+    return buffer.array();
+  }
+
+  private static List<String> sorted(List<String> names) {
+    Collections.sort(names);
+    return names;
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.BatchLoadResult;
+import com.linkedin.cytodynamics.nucleus.ClasspathSource;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.linkedin.cytodynamics.util.ClassFileUtil.*;
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+public class TestClasspathSource {
+  private static final String GENERATED_CLASS_NAME = "com.linkedin.cytodynamics.generated.GeneratedImpl";
+  private static final String GENERATED_RESOURCE_NAME = "generated.txt";
+
+  private ClassLoader apiClassLoader;
+  private Map<String, byte[]> generatedEntries;
+
+  @Before
+  public void setup() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    this.apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+    this.generatedEntries = new HashMap<>();
+    this.generatedEntries.put(classFileName(GENERATED_CLASS_NAME),
+        generateClass(GENERATED_CLASS_NAME, Object.class.getName(), TestInterface.class.getName()));
+    this.generatedEntries.put(GENERATED_RESOURCE_NAME, "generated".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testFromBytes() throws Exception {
+    ClassLoader loader = buildLoader(IsolationLevel.FULL, Collections.emptyList(),
+        ClasspathSource.fromBytes(this.generatedEntries));
+
+    Class<?> generatedClass = loader.loadClass(GENERATED_CLASS_NAME);
+    assertEquals(loader, generatedClass.getClassLoader());
+    assertEquals(loader.loadClass(GENERATED_CLASS_NAME), generatedClass);
+    // API class comes from the delegate
+    assertEquals(this.apiClassLoader, generatedClass.getInterfaces()[0].getClassLoader());
+    assertNotNull(generatedClass.getPackage());
+    assertNotNull(generatedClass.getProtectionDomain().getCodeSource().getLocation());
+
+    URL resource = loader.getResource(GENERATED_RESOURCE_NAME);
+    assertEquals("cytodynamics", resource.getProtocol());
+    assertEquals("generated", readFirstLine(resource.openStream()));
+    assertEquals("generated", readFirstLine(loader.getResourceAsStream(GENERATED_RESOURCE_NAME)));
+    assertEquals(Collections.singletonList(resource), Collections.list(loader.getResources(GENERATED_RESOURCE_NAME)));
+    assertNull(loader.getResource("missing.txt"));
+  }
+
+  @Test
+  public void testFromDirectByteBuffers() throws Exception {
+    Map<String, ByteBuffer> buffers = new HashMap<>();
+    for (Map.Entry<String, byte[]> entry : this.generatedEntries.entrySet()) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(entry.getValue().length);
+      buffer.put(entry.getValue()).flip();
+      buffers.put(entry.getKey(), buffer);
+    }
+    ClassLoader loader =
+        buildLoader(IsolationLevel.FULL, Collections.emptyList(), ClasspathSource.fromByteBuffers(buffers));
+
+    assertEquals(loader, loader.loadClass(GENERATED_CLASS_NAME).getClassLoader());
+    assertEquals("generated", readFirstLine(loader.getResourceAsStream(GENERATED_RESOURCE_NAME)));
+  }
+
+  @Test
+  public void testLazy() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    ClassLoader loader = buildLoader(IsolationLevel.FULL, Collections.emptyList(), ClasspathSource.lazy(() -> {
+      calls.incrementAndGet();
+      Map<String, ByteBuffer> buffers = new HashMap<>();
+      this.generatedEntries.forEach((name, bytes) -> buffers.put(name, ByteBuffer.wrap(bytes)));
+      return buffers;
+    }));
+    assertEquals(0, calls.get());
+
+    assertEquals(loader, loader.loadClass(GENERATED_CLASS_NAME).getClassLoader());
+    assertNotNull(loader.getResource(GENERATED_RESOURCE_NAME));
+    assertEquals(1, calls.get());
+  }
+
+  /**
+   * Sources follow the isolation rules: the child wins unless the class is delegate-preferred.
+   */
+  @Test
+  public void testIsolation() throws Exception {
+    String implName = TestInterfaceImpl.class.getName();
+    ClasspathSource source = ClasspathSource.fromBytes(Collections.singletonMap(classFileName(implName),
+        generateClass(implName, Object.class.getName(), TestInterface.class.getName())));
+    ClassLoader delegate = new URLClassLoader(
+        new URL[]{getJarUri("cytodynamics-test-api").toURL(), getJarUri("cytodynamics-test-a").toURL()}, null);
+
+    ClassLoader childFirstLoader = LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspathSources(Collections.singletonList(source))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(delegate)
+            .withIsolationLevel(IsolationLevel.NONE)
+            .build())
+        .build();
+    assertEquals(childFirstLoader, childFirstLoader.loadClass(implName).getClassLoader());
+
+    ClassLoader delegatePreferredLoader = LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspathSources(Collections.singletonList(source))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(delegate)
+            .withIsolationLevel(IsolationLevel.NONE)
+            .addDelegatePreferredClassPredicate(new GlobMatcher(implName))
+            .build())
+        .build();
+    assertEquals(delegate, delegatePreferredLoader.loadClass(implName).getClassLoader());
+  }
+
+  /**
+   * The URL classpath is searched before the sources.
+   */
+  @Test
+  public void testUrlClasspathFirst() throws Exception {
+    String implName = TestInterfaceImpl.class.getName();
+    ClasspathSource source = ClasspathSource.fromBytes(Collections.singletonMap(classFileName(implName),
+        generateClass(implName, Object.class.getName(), TestInterface.class.getName())));
+    ClassLoader loader = buildLoader(IsolationLevel.FULL, Collections.singletonList(getJarUri("cytodynamics-test-a")),
+        source);
+
+    Class<?> implClass = loader.loadClass(implName);
+    assertEquals("A", implClass.getMethod("getValue").invoke(implClass.newInstance()));
+    assertTrue(implClass.getProtectionDomain().getCodeSource().getLocation().getPath().endsWith(".jar"));
+  }
+
+  @Test
+  public void testBatchLoad() throws Exception {
+    ClassLoader loader = buildLoader(IsolationLevel.FULL, Collections.singletonList(getJarUri("cytodynamics-test-a")),
+        ClasspathSource.fromBytes(this.generatedEntries));
+    List<String> classNames = Arrays.asList(GENERATED_CLASS_NAME, TestInterfaceAOnlyImpl.class.getName());
+
+    BatchLoadResult result = ((CytodynamicsLoader) loader).loadClasses(classNames);
+
+    assertTrue(result.isSuccessful());
+    assertEquals(loader, result.getLoadedClasses().get(GENERATED_CLASS_NAME).getClassLoader());
+  }
+
+  private ClassLoader buildLoader(IsolationLevel isolationLevel, List<URI> classpath, ClasspathSource source) {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(classpath)
+        .withClasspathSources(Collections.singletonList(source))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(isolationLevel)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .build();
+  }
+
+  private static String readFirstLine(InputStream inputStream) throws Exception {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+      return reader.readLine();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.ClasspathSource;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for reading resources through {@link ClassLoader#getResourceAsStream(String)} and
+ * {@link CytodynamicsLoader#getResourceAsByteBuffer(String)}, which do not go through the URL of the resource.
+ */
+public class TestDirectResourceRead {
+  private static final String DATA_TXT_RESOURCE_NAME = "data.txt";
+  private static final String IMPL_RESOURCE_NAME = TestInterfaceImpl.class.getName().replace('.', '/') + ".class";
+  private static final String GENERATED_RESOURCE_NAME = "generated.txt";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClassLoader apiClassLoader;
+
+  @Before
+  public void setup() throws Exception {
+    this.apiClassLoader = new URLClassLoader(new URL[]{getJarUri("cytodynamics-test-api").toURL()}, null);
+  }
+
+  @Test
+  public void testSameContentAsResourceUrl() throws Exception {
+    for (IsolationLevel isolationLevel : IsolationLevel.values()) {
+      ClassLoader loader = loaderBuilder(isolationLevel).build();
+      for (String name : Arrays.asList(DATA_TXT_RESOURCE_NAME, IMPL_RESOURCE_NAME, GENERATED_RESOURCE_NAME)) {
+        byte[] expected = read(loader.getResource(name).openStream());
+        assertArrayEquals(isolationLevel + " " + name, expected, read(loader.getResourceAsStream(name)));
+        assertArrayEquals(isolationLevel + " " + name, expected,
+            read(((CytodynamicsLoader) loader).getResourceAsByteBuffer(name)));
+      }
+      assertNull(loader.getResourceAsStream("missing.txt"));
+      assertNull(((CytodynamicsLoader) loader).getResourceAsByteBuffer("missing.txt"));
+    }
+  }
+
+  @Test
+  public void testIsolation() throws Exception {
+    // the child wins over the delegate
+    assertEquals("A", readString(loaderBuilder(IsolationLevel.NONE).build(), DATA_TXT_RESOURCE_NAME));
+    assertEquals("A", readString(loaderBuilder(IsolationLevel.FULL).build(), DATA_TXT_RESOURCE_NAME));
+    assertEquals("API", readString(loaderBuilder(IsolationLevel.FULL)
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredResourcePredicate(new GlobMatcher(DATA_TXT_RESOURCE_NAME))
+            .build())
+        .build(), DATA_TXT_RESOURCE_NAME));
+
+    // only the delegate has the API class, which it hides under FULL isolation
+    String apiResourceName = TestInterface.class.getName().replace('.', '/') + ".class";
+    assertNotNull(((CytodynamicsLoader) loaderBuilder(IsolationLevel.NONE).build())
+        .getResourceAsByteBuffer(apiResourceName));
+    assertNull(((CytodynamicsLoader) loaderBuilder(IsolationLevel.FULL).build())
+        .getResourceAsByteBuffer(apiResourceName));
+  }
+
+  @Test
+  public void testDirectoryClasspath() throws Exception {
+    Path directory = this.temporaryFolder.newFolder("classes").toPath();
+    Files.write(directory.resolve(DATA_TXT_RESOURCE_NAME), "directory".getBytes(StandardCharsets.UTF_8));
+    ClassLoader loader =
+        loaderBuilder(IsolationLevel.FULL, Arrays.asList(directory.toUri(), getJarUri("cytodynamics-test-a"))).build();
+    assertEquals("directory", readString(loader, DATA_TXT_RESOURCE_NAME));
+    assertNotNull(loader.getResourceAsStream(IMPL_RESOURCE_NAME));
+  }
+
+  private LoaderBuilder loaderBuilder(IsolationLevel isolationLevel) throws Exception {
+    return loaderBuilder(isolationLevel, Collections.singletonList(getJarUri("cytodynamics-test-a")));
+  }
+
+  private LoaderBuilder loaderBuilder(IsolationLevel isolationLevel, List<URI> classpath) {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(classpath)
+        .withClasspathSources(Collections.singletonList(ClasspathSource.fromBytes(
+            Collections.singletonMap(GENERATED_RESOURCE_NAME, "generated".getBytes(StandardCharsets.UTF_8)))))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(isolationLevel)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build());
+  }
+
+  private static String readString(ClassLoader loader, String name) throws Exception {
+    return new String(read(((CytodynamicsLoader) loader).getResourceAsByteBuffer(name)), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] read(ByteBuffer content) {
+    byte[] bytes = new byte[content.remaining()];
+    content.get(bytes);
+    return bytes;
+  }
+
+  private static byte[] read(InputStream inputStream) throws Exception {
+    try (InputStream in = inputStream) {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        content.write(buffer, 0, count);
+      }
+      return content.toByteArray();
+    }
+  }
+}
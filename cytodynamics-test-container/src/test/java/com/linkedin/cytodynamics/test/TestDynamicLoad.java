@@ -8,9 +8,11 @@
 package com.linkedin.cytodynamics.test;
 
 import com.linkedin.cytodynamics.exception.CytodynamicsClassNotFoundException;
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
 import com.linkedin.cytodynamics.exception.OriginValidationException;
 import com.linkedin.cytodynamics.matcher.BootstrapClassPredicate;
 import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.IsolationEngine;
 import com.linkedin.cytodynamics.nucleus.IsolationLevel;
 import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
 import com.linkedin.cytodynamics.nucleus.OriginRestriction;
@@ -33,6 +35,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import org.junit.Assume;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -776,6 +779,49 @@ public class TestDynamicLoad {
     assertEquals(implementation.getValue(), "A");
   }
 
+  /**
+   * The module layer engine is only available in the Java 11 part of the multi-release JAR.
+   */
+  @Test
+  public void testModuleLayerEngineRequiresJava11() throws Exception {
+    Assume.assumeTrue(System.getProperty("java.specification.version").startsWith("1."));
+    try {
+      LoaderBuilder
+          .anIsolatingLoader()
+          .withIsolationEngine(IsolationEngine.MODULE_LAYER)
+          .withOriginRestriction(OriginRestriction.allowByDefault())
+          .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+          .withParentRelationship(DelegateRelationshipBuilder.builder().build())
+          .build();
+      fail("Should have thrown an exception since module layers are not available");
+    } catch (InvalidBuilderParametersException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testLoadResourcesFromSeveralRelationshipsWithoutDuplicates() throws IOException {
+    // the child, the parent and the fallback all have the same data.txt
+    URL testAJarUrl = getJarUri("cytodynamics-test-a").toURL();
+    ClassLoader delegateClassLoader = new URLClassLoader(new URL[]{testAJarUrl}, null);
+    ClassLoader loader = LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(delegateClassLoader)
+            .withIsolationLevel(IsolationLevel.NONE)
+            .build())
+        .addFallbackDelegate(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(delegateClassLoader)
+            .withIsolationLevel(IsolationLevel.NONE)
+            .build())
+        .build();
+    assertResourcesFound(loader, DATA_TXT_RESOURCE_NAME, Collections.singletonList("A"));
+    assertEquals(Collections.singletonList(loader.getResource(DATA_TXT_RESOURCE_NAME)),
+        Collections.list(loader.getResources(DATA_TXT_RESOURCE_NAME)));
+  }
+
   private static Class<?> findTestInterface(Class<?> implClass) {
     List<Class<?>> foundInterfaces = Stream.of(implClass.getInterfaces())
         .filter(clazz -> clazz.getName().equals(TestInterface.class.getName()))
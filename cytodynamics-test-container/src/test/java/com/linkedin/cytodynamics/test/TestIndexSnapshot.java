@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationship;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.Closeable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for classpath indexing and index snapshots.
+ */
+public class TestIndexSnapshot {
+  private static final String TEST_PACKAGE = TestInterfaceImpl.class.getPackage().getName();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClassLoader apiClassLoader;
+  private Path snapshotFile;
+
+  @Before
+  public void setup() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    this.apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+    this.snapshotFile = this.temporaryFolder.getRoot().toPath().resolve("plugin.snapshot");
+  }
+
+  @Test
+  public void testIndexedClasspath() throws Exception {
+    ClassLoader loader = LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Arrays.asList(getJarUri("cytodynamics-test-a"), getJarUri("cytodynamics-test-b")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .withClasspathIndexing(true)
+        .build();
+
+    // test-a comes first on the classpath
+    Class<?> implClass = loader.loadClass(TestInterfaceImpl.class.getName());
+    assertEquals("A", implClass.getMethod("getValue").invoke(implClass.newInstance()));
+    assertNotNull(loader.loadClass(TestInterfaceAOnlyImpl.class.getName()));
+    assertNotNull(loader.getResource(TestInterfaceImpl.class.getName().replace('.', '/') + ".class"));
+    assertNull(loader.getResource("com/linkedin/cytodynamics/test/Missing.class"));
+    try {
+      loader.loadClass("com.linkedin.cytodynamics.test.Missing");
+      fail("Expected ClassNotFoundException");
+    } catch (ClassNotFoundException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSnapshotReused() throws Exception {
+    ClassLoader loader = snapshotLoaderBuilder().build();
+    assertNotNull(loader.loadClass(TestInterfaceImpl.class.getName()));
+    assertTrue(Files.exists(this.snapshotFile));
+    byte[] snapshot = Files.readAllBytes(this.snapshotFile);
+
+    // the classpath has not changed, so the snapshot is not written again
+    ClassLoader secondLoader = snapshotLoaderBuilder().build();
+    assertNotNull(secondLoader.loadClass(TestInterfaceImpl.class.getName()));
+    assertArrayEquals(snapshot, Files.readAllBytes(this.snapshotFile));
+
+    // a snapshot for another classpath is replaced
+    snapshotLoaderBuilder().withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-b"))).build();
+    assertFalse(Arrays.equals(snapshot, Files.readAllBytes(this.snapshotFile)));
+  }
+
+  @Test
+  public void testLearnedRoutesSaved() throws Exception {
+    URL testApiJarURL = getJarUri("cytodynamics-test-api").toURL();
+    // the parent never provides the implementation classes, fallback B provides TestInterfaceImpl, and fallback A
+    // provides both TestInterfaceImpl and TestInterfaceAOnlyImpl
+    DelegateRelationship parentRelationship = DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(new URLClassLoader(new URL[]{testApiJarURL}, null))
+        .withIsolationLevel(IsolationLevel.FULL)
+        .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+        .build();
+    CountingClassLoader fallbackClassLoaderB =
+        new CountingClassLoader(new URL[]{testApiJarURL, getJarUri("cytodynamics-test-b").toURL()});
+    ClassLoader fallbackClassLoaderA =
+        new URLClassLoader(new URL[]{testApiJarURL, getJarUri("cytodynamics-test-a").toURL()}, null);
+    LoaderBuilder builder = LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.emptyList())
+        .withParentRelationship(parentRelationship)
+        .addFallbackDelegate(noneIsolation(fallbackClassLoaderB))
+        .addFallbackDelegate(noneIsolation(fallbackClassLoaderA))
+        .withPackageRouteLearning(true)
+        .withIndexSnapshot(this.snapshotFile);
+
+    ClassLoader loader = builder.build();
+    assertEquals(fallbackClassLoaderA, loader.loadClass(TestInterfaceAOnlyImpl.class.getName()).getClassLoader());
+    ((Closeable) loader).close();
+
+    // the route to fallback A is restored from the snapshot, so fallback B is not consulted
+    ClassLoader restartedLoader = builder.build();
+    int testPackageLoads = fallbackClassLoaderB.getTestPackageLoads();
+    assertEquals(fallbackClassLoaderA, restartedLoader.loadClass(TestInterfaceImpl.class.getName()).getClassLoader());
+    assertEquals(testPackageLoads, fallbackClassLoaderB.getTestPackageLoads());
+  }
+
+  private LoaderBuilder snapshotLoaderBuilder() throws Exception {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .withIndexSnapshot(this.snapshotFile);
+  }
+
+  private static DelegateRelationship noneIsolation(ClassLoader classLoader) {
+    return DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(classLoader)
+        .withIsolationLevel(IsolationLevel.NONE)
+        .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+        .build();
+  }
+
+  /**
+   * Counts the requests for classes in the test package.
+   */
+  private static class CountingClassLoader extends URLClassLoader {
+    private final AtomicInteger testPackageLoads = new AtomicInteger();
+
+    CountingClassLoader(URL[] urls) {
+      super(urls, null);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (name.startsWith(TEST_PACKAGE + ".")) {
+        this.testPackageLoads.incrementAndGet();
+      }
+      return super.loadClass(name, resolve);
+    }
+
+    int getTestPackageLoads() {
+      return this.testPackageLoads.get();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.CytodynamicsClassNotFoundException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationship;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LinkCheckResult;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for checking that the classes referenced from the child classpath can be loaded.
+ */
+public class TestLinkCheck {
+  private ExecutorService executor;
+
+  @Before
+  public void setup() {
+    this.executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    this.executor.shutdown();
+  }
+
+  @Test
+  public void testAllReferencesResolved() throws Exception {
+    URL[] apiClasspath =
+        new URL[]{getJarUri("cytodynamics-nucleus").toURL(), getJarUri("cytodynamics-test-api").toURL()};
+    ClassLoader loader = loaderBuilder(relationship(new URLClassLoader(apiClasspath, null))).build();
+
+    LinkCheckResult result = ((CytodynamicsLoader) loader).checkLinks(this.executor);
+    assertTrue(result.isSuccessful());
+    // at least the two implementations, the API interface and Object
+    assertTrue(result.getCheckedClassCount() >= 4);
+  }
+
+  @Test
+  public void testMissingDependencyReported() throws Exception {
+    DelegateRelationship parentRelationship =
+        relationship(new URLClassLoader(new URL[]{getJarUri("cytodynamics-nucleus").toURL()}, null));
+    DelegateRelationship fallbackDelegate = relationship(new URLClassLoader(new URL[0], null));
+    ClassLoader loader = loaderBuilder(parentRelationship).addFallbackDelegate(fallbackDelegate).build();
+
+    LinkCheckResult result = ((CytodynamicsLoader) loader).checkLinks(this.executor);
+    assertFalse(result.isSuccessful());
+    LinkCheckResult.UnresolvedReference missingInterface = result.getUnresolvedReferences().stream()
+        .filter(reference -> reference.getClassName().equals(TestInterface.class.getName()))
+        .findFirst()
+        .orElseThrow(AssertionError::new);
+    assertEquals(Arrays.asList(TestInterfaceAOnlyImpl.class.getName(), TestInterfaceImpl.class.getName()),
+        missingInterface.getReferencingClassNames());
+    assertEquals(Arrays.asList(parentRelationship, fallbackDelegate), missingInterface.getConsultedRelationships());
+    assertTrue(missingInterface.getCause() instanceof ClassNotFoundException);
+
+    // the implementations are found, but cannot be linked to their interface
+    LinkCheckResult.UnresolvedReference unlinkedImpl = result.getUnresolvedReferences().stream()
+        .filter(reference -> reference.getClassName().equals(TestInterfaceImpl.class.getName()))
+        .findFirst()
+        .orElseThrow(AssertionError::new);
+    assertEquals(Collections.emptyList(), unlinkedImpl.getReferencingClassNames());
+    assertTrue(unlinkedImpl.getCause() instanceof CytodynamicsClassNotFoundException);
+  }
+
+  private static LoaderBuilder loaderBuilder(DelegateRelationship parentRelationship) throws Exception {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(parentRelationship);
+  }
+
+  private static DelegateRelationship relationship(ClassLoader classLoader) {
+    return DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(classLoader)
+        .withIsolationLevel(IsolationLevel.FULL)
+        .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+        .build();
+  }
+}
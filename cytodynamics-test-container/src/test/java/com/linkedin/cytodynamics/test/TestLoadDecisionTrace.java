@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.CytodynamicsClassNotFoundException;
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoadDecision;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for tracing the decisions of a loader about where classes come from.
+ */
+public class TestLoadDecisionTrace {
+  @Test
+  public void testDecisionsRecorded() throws Exception {
+    ClassLoader loader = loaderBuilder().withLoadDecisionTrace(16).build();
+    loader.loadClass(TestInterfaceImpl.class.getName());
+
+    List<LoadDecision> decisions = ((CytodynamicsLoader) loader).getLoadDecisions();
+    LoadDecision apiDecision = findDecision(decisions, TestInterface.class.getName());
+    assertEquals(LoadDecision.PredicateMatch.API, apiDecision.getPredicateMatch());
+    assertEquals(LoadDecision.Source.DELEGATE, apiDecision.getSource());
+    assertTrue(apiDecision.isFoundInDelegate());
+    assertFalse(apiDecision.isChildSearched());
+
+    LoadDecision childDecision = findDecision(decisions, TestInterfaceImpl.class.getName());
+    assertEquals(LoadDecision.PredicateMatch.NONE, childDecision.getPredicateMatch());
+    assertEquals(LoadDecision.Source.CHILD, childDecision.getSource());
+    assertEquals(0, childDecision.getRelationshipIndex());
+    assertFalse(childDecision.isFoundInDelegate());
+    assertTrue(childDecision.isFoundInChild());
+    // the implementation is being loaded while its interface is resolved, so its decision is recorded last
+    assertTrue(apiDecision.getSequence() < childDecision.getSequence());
+  }
+
+  @Test
+  public void testDecisionsInClassNotFoundMessage() throws Exception {
+    ClassLoader loader = loaderBuilder().withLoadDecisionTrace(16).build();
+    try {
+      loader.loadClass("com.linkedin.cytodynamics.test.Missing");
+      fail("Should have thrown a CytodynamicsClassNotFoundException");
+    } catch (CytodynamicsClassNotFoundException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("com.linkedin.cytodynamics.test.Missing via relationship 0"));
+    }
+  }
+
+  @Test
+  public void testDisabledByDefault() throws Exception {
+    ClassLoader loader = loaderBuilder().build();
+    loader.loadClass(TestInterfaceImpl.class.getName());
+    assertTrue(((CytodynamicsLoader) loader).getLoadDecisions().isEmpty());
+  }
+
+  @Test(expected = InvalidBuilderParametersException.class)
+  public void testNegativeCapacity() throws Exception {
+    loaderBuilder().withLoadDecisionTrace(-1).build();
+  }
+
+  private static LoadDecision findDecision(List<LoadDecision> decisions, String className) {
+    return decisions.stream()
+        .filter(decision -> decision.getClassName().equals(className))
+        .findFirst()
+        .orElseThrow(AssertionError::new);
+  }
+
+  private static LoaderBuilder loaderBuilder() throws Exception {
+    URL[] apiClasspath =
+        new URL[]{getJarUri("cytodynamics-nucleus").toURL(), getJarUri("cytodynamics-test-api").toURL()};
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(new URLClassLoader(apiClasspath, null))
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build());
+  }
+}
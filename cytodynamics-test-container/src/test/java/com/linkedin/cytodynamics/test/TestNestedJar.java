@@ -0,0 +1,194 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import com.linkedin.cytodynamics.exception.OriginValidationException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.ClassFileUtil.*;
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for classpath elements nested inside a bundle JAR.
+ */
+public class TestNestedJar {
+  private static final String GENERATED_CLASS_NAME = "com.linkedin.cytodynamics.generated.GeneratedImpl";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClassLoader apiClassLoader;
+  private File storedBundle;
+  private File compressedBundle;
+
+  @Before
+  public void setup() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    this.apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+
+    Map<String, byte[]> bundleEntries = new LinkedHashMap<>();
+    bundleEntries.put("lib/test-a.jar", Files.readAllBytes(Paths.get(getJarUri("cytodynamics-test-a"))));
+    bundleEntries.put("classes/" + classFileName(GENERATED_CLASS_NAME),
+        generateClass(GENERATED_CLASS_NAME, Object.class.getName(), TestInterface.class.getName()));
+    this.storedBundle = this.temporaryFolder.newFile("stored-bundle.jar");
+    writeJar(this.storedBundle, bundleEntries, false);
+    this.compressedBundle = this.temporaryFolder.newFile("compressed-bundle.jar");
+    writeJar(this.compressedBundle, bundleEntries, true);
+  }
+
+  @Test
+  public void testStoredNestedJar() throws Exception {
+    assertLoadsFromNestedJar(this.storedBundle);
+  }
+
+  @Test
+  public void testCompressedNestedJar() throws Exception {
+    assertLoadsFromNestedJar(this.compressedBundle);
+  }
+
+  @Test
+  public void testNestedDirectory() throws Exception {
+    URI classesUri = nestedUri(this.storedBundle, "classes/");
+    ClassLoader loader = buildLoader(OriginRestriction.allowByDefault(), classesUri);
+
+    Class<?> generatedClass = loader.loadClass(GENERATED_CLASS_NAME);
+    assertEquals(loader, generatedClass.getClassLoader());
+    assertEquals(classesUri.toURL(), generatedClass.getProtectionDomain().getCodeSource().getLocation());
+    assertNotNull(loader.getResource(classFileName(GENERATED_CLASS_NAME)));
+  }
+
+  @Test
+  public void testOriginRestrictionAppliesToOuterJar() throws Exception {
+    URI nestedUri = nestedUri(this.storedBundle, "lib/test-a.jar");
+    ClassLoader loader = buildLoader(
+        OriginRestriction.denyByDefault().allowingDirectory(this.temporaryFolder.getRoot(), false), nestedUri);
+    assertNotNull(loader.loadClass(TestInterfaceImpl.class.getName()));
+
+    try {
+      buildLoader(OriginRestriction.denyByDefault(), nestedUri);
+      fail("Should not have been able to build a loader with a forbidden outer JAR");
+    } catch (OriginValidationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSearchedAfterUrlClasspath() throws Exception {
+    // the nested JAR is declared first, but the JAR of the URL classpath is searched first
+    URI nestedUri = nestedUri(this.storedBundle, "lib/test-a.jar");
+    ClassLoader loader = buildLoader(OriginRestriction.allowByDefault(),
+        Arrays.asList(nestedUri, getJarUri("cytodynamics-test-b")));
+
+    Class<?> implClass = loader.loadClass(TestInterfaceImpl.class.getName());
+    assertEquals("B", implClass.getMethod("getValue").invoke(implClass.newInstance()));
+    assertEquals("B", readFirstLine(loader.getResourceAsStream("data.txt")));
+    List<URL> resources = Collections.list(loader.getResources("data.txt"));
+    assertEquals(2, resources.size());
+    assertTrue(resources.get(0).toExternalForm().contains("cytodynamics-test-b"));
+    assertEquals("cytodynamics", resources.get(1).getProtocol());
+    // only in the nested JAR
+    assertEquals(nestedUri.toURL(), loader.loadClass(TestInterfaceAOnlyImpl.class.getName())
+        .getProtectionDomain().getCodeSource().getLocation());
+  }
+
+  @Test
+  public void testCloseReleasesOuterJar() throws Exception {
+    Path bundle = this.storedBundle.toPath();
+    URI nestedUri = nestedUri(this.storedBundle, "lib/test-a.jar");
+    ClassLoader loader = buildLoader(OriginRestriction.allowByDefault(), nestedUri);
+    assertNotNull(loader.loadClass(TestInterfaceImpl.class.getName()));
+    InputStream inputStream = loader.getResourceAsStream("data.txt");
+
+    ((Closeable) loader).close();
+    try {
+      inputStream.read();
+      fail("Read a stream of a closed loader");
+    } catch (IOException e) {
+      // expected
+    }
+    // replaced in place, which must not be read through a stale mapping
+    Files.write(bundle, new byte[]{1, 2, 3});
+    assertNull(loader.getResourceAsStream("data.txt"));
+    Files.delete(bundle);
+  }
+
+  @Test(expected = InvalidBuilderParametersException.class)
+  public void testMissingNestedJar() throws Exception {
+    buildLoader(OriginRestriction.allowByDefault(), nestedUri(this.storedBundle, "lib/missing.jar"));
+  }
+
+  private void assertLoadsFromNestedJar(File bundle) throws Exception {
+    URI nestedUri = nestedUri(bundle, "lib/test-a.jar");
+    ClassLoader loader = buildLoader(OriginRestriction.allowByDefault(), nestedUri);
+
+    Class<?> implClass = loader.loadClass(TestInterfaceImpl.class.getName());
+    assertEquals(loader, implClass.getClassLoader());
+    assertEquals("A", implClass.getMethod("getValue").invoke(implClass.newInstance()));
+    assertEquals(nestedUri.toURL(), implClass.getProtectionDomain().getCodeSource().getLocation());
+    assertEquals(loader, loader.loadClass(TestInterfaceAOnlyImpl.class.getName()).getClassLoader());
+    assertEquals("A", readFirstLine(loader.getResourceAsStream("data.txt")));
+    assertEquals(1, Collections.list(loader.getResources("data.txt")).size());
+  }
+
+  private ClassLoader buildLoader(OriginRestriction originRestriction, URI classpathElement) {
+    return buildLoader(originRestriction, Collections.singletonList(classpathElement));
+  }
+
+  private ClassLoader buildLoader(OriginRestriction originRestriction, List<URI> classpath) {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(originRestriction)
+        .withClasspath(classpath)
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .build();
+  }
+
+  private static URI nestedUri(File bundle, String entryPath) {
+    return URI.create("jar:" + bundle.toURI() + "!/" + entryPath);
+  }
+
+  private static String readFirstLine(InputStream inputStream) throws Exception {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+      return reader.readLine();
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationship;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for package routes. The parent relationship uses FULL isolation so that it never provides the implementation
+ * classes, fallback B provides {@link TestInterfaceImpl}, and fallback A provides both {@link TestInterfaceImpl} and
+ * {@link TestInterfaceAOnlyImpl}.
+ */
+public class TestPackageRouting {
+  private static final String TEST_PACKAGE = TestInterfaceImpl.class.getPackage().getName();
+
+  private DelegateRelationship parentRelationship;
+  private CountingClassLoader fallbackClassLoaderB;
+  private DelegateRelationship fallbackRelationshipB;
+  private ClassLoader fallbackClassLoaderA;
+  private DelegateRelationship fallbackRelationshipA;
+
+  @Before
+  public void setup() throws Exception {
+    URL testApiJarURL = getJarUri("cytodynamics-test-api").toURL();
+    this.parentRelationship = DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(
+            new URLClassLoader(new URL[]{testApiJarURL, getJarUri("cytodynamics-test-b").toURL()}, null))
+        .withIsolationLevel(IsolationLevel.FULL)
+        .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+        .build();
+    this.fallbackClassLoaderB =
+        new CountingClassLoader(new URL[]{testApiJarURL, getJarUri("cytodynamics-test-b").toURL()});
+    this.fallbackRelationshipB = DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(this.fallbackClassLoaderB)
+        .withIsolationLevel(IsolationLevel.NONE)
+        .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+        .build();
+    this.fallbackClassLoaderA =
+        new URLClassLoader(new URL[]{testApiJarURL, getJarUri("cytodynamics-test-a").toURL()}, null);
+    this.fallbackRelationshipA = DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(this.fallbackClassLoaderA)
+        .withIsolationLevel(IsolationLevel.NONE)
+        .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+        .build();
+  }
+
+  /**
+   * Without routes, the first fallback which provides a class is used.
+   */
+  @Test
+  public void testNoRoutes() throws Exception {
+    ClassLoader loader = builder().build();
+    assertEquals(this.fallbackClassLoaderA, loader.loadClass(TestInterfaceAOnlyImpl.class.getName()).getClassLoader());
+    assertEquals(this.fallbackClassLoaderB, loader.loadClass(TestInterfaceImpl.class.getName()).getClassLoader());
+  }
+
+  /**
+   * A declared route is tried before the relationships which come earlier in the order.
+   */
+  @Test
+  public void testDeclaredRoute() throws Exception {
+    ClassLoader loader = builder()
+        .addPackageRoute(TEST_PACKAGE, this.fallbackRelationshipA)
+        .build();
+    assertEquals(this.fallbackClassLoaderA, loader.loadClass(TestInterfaceImpl.class.getName()).getClassLoader());
+    assertEquals(0, this.fallbackClassLoaderB.getTestPackageLoads());
+  }
+
+  /**
+   * If the routed relationship does not provide a class, the relationships are tried in order.
+   */
+  @Test
+  public void testDeclaredRouteFallsBackToOrder() throws Exception {
+    ClassLoader loader = builder()
+        .addPackageRoute(TEST_PACKAGE, this.fallbackRelationshipB)
+        .build();
+    assertEquals(this.fallbackClassLoaderA, loader.loadClass(TestInterfaceAOnlyImpl.class.getName()).getClassLoader());
+  }
+
+  @Test
+  public void testLearnedRoute() throws Exception {
+    ClassLoader loader = builder()
+        .withPackageRouteLearning(true)
+        .build();
+    assertEquals(this.fallbackClassLoaderA, loader.loadClass(TestInterfaceAOnlyImpl.class.getName()).getClassLoader());
+    int testPackageLoads = this.fallbackClassLoaderB.getTestPackageLoads();
+    // the package is now routed to fallback A, so fallback B is not consulted anymore
+    assertEquals(this.fallbackClassLoaderA, loader.loadClass(TestInterfaceImpl.class.getName()).getClassLoader());
+    assertEquals(testPackageLoads, this.fallbackClassLoaderB.getTestPackageLoads());
+  }
+
+  @Test(expected = InvalidBuilderParametersException.class)
+  public void testRouteToUnknownRelationship() {
+    builder()
+        .addPackageRoute(TEST_PACKAGE, DelegateRelationshipBuilder.builder()
+            .withIsolationLevel(IsolationLevel.NONE)
+            .build())
+        .build();
+  }
+
+  private LoaderBuilder builder() {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        // will load classes from delegates, so don't need any classpath
+        .withClasspath(Collections.emptyList())
+        .withParentRelationship(this.parentRelationship)
+        .addFallbackDelegate(this.fallbackRelationshipB)
+        .addFallbackDelegate(this.fallbackRelationshipA);
+  }
+
+  /**
+   * Counts the requests for classes in the test package.
+   */
+  private static class CountingClassLoader extends URLClassLoader {
+    private final AtomicInteger testPackageLoads = new AtomicInteger();
+
+    CountingClassLoader(URL[] urls) {
+      super(urls, null);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (name.startsWith(TEST_PACKAGE + ".")) {
+        this.testPackageLoads.incrementAndGet();
+      }
+      return super.loadClass(name, resolve);
+    }
+
+    int getTestPackageLoads() {
+      return this.testPackageLoads.get();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import com.linkedin.cytodynamics.nucleus.PluginArchiveWriter;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for loading from plugin archives written by {@link PluginArchiveWriter}.
+ */
+public class TestPluginArchive {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClassLoader apiClassLoader;
+  private Path archiveFile;
+
+  @Before
+  public void setup() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    this.apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+    this.archiveFile = new File(this.temporaryFolder.getRoot(), "plugin.cdar").toPath();
+    PluginArchiveWriter.convert(Collections.singletonList(Paths.get(getJarUri("cytodynamics-test-a"))),
+        this.archiveFile);
+  }
+
+  @Test
+  public void testLoadFromArchive() throws Exception {
+    ClassLoader loader = buildLoader(this.archiveFile.toUri());
+
+    Class<?> implClass = loader.loadClass(TestInterfaceImpl.class.getName());
+    assertEquals(loader, implClass.getClassLoader());
+    assertEquals("A", implClass.getMethod("getValue").invoke(implClass.newInstance()));
+    assertEquals(this.archiveFile.toUri().toURL(), implClass.getProtectionDomain().getCodeSource().getLocation());
+    // API class comes from the delegate
+    assertEquals(this.apiClassLoader, implClass.getInterfaces()[0].getClassLoader());
+    assertEquals(loader, loader.loadClass(TestInterfaceAOnlyImpl.class.getName()).getClassLoader());
+
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(loader.getResourceAsStream("data.txt"), StandardCharsets.UTF_8))) {
+      assertEquals("A", reader.readLine());
+    }
+    assertNull(loader.getResource("missing.txt"));
+  }
+
+  @Test
+  public void testCloseReleasesArchive() throws Exception {
+    ClassLoader loader = buildLoader(this.archiveFile.toUri());
+    assertNotNull(loader.loadClass(TestInterfaceImpl.class.getName()));
+    InputStream inputStream = loader.getResourceAsStream("data.txt");
+
+    ((Closeable) loader).close();
+    try {
+      inputStream.read();
+      fail("Read a stream of a closed loader");
+    } catch (IOException e) {
+      // expected
+    }
+    // replaced in place, which must not be read through a stale mapping
+    Files.write(this.archiveFile, new byte[]{1, 2, 3});
+    assertNull(loader.getResourceAsStream("data.txt"));
+    Files.delete(this.archiveFile);
+  }
+
+  @Test(expected = InvalidBuilderParametersException.class)
+  public void testInvalidArchive() throws Exception {
+    Path invalidArchive = this.temporaryFolder.newFile("invalid.cdar").toPath();
+    Files.write(invalidArchive, new byte[]{1, 2, 3});
+    buildLoader(invalidArchive.toUri());
+  }
+
+  private ClassLoader buildLoader(URI archive) {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(archive))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .build();
+  }
+}
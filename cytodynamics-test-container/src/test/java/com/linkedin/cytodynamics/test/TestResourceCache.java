@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for caching resource lookups.
+ */
+public class TestResourceCache {
+  private static final String DATA_TXT_RESOURCE_NAME = "data.txt";
+  private static final String MISSING_RESOURCE_NAME = "not-a-resource-file.txt";
+
+  private CountingClassLoader delegateClassLoader;
+
+  @Before
+  public void setup() throws Exception {
+    this.delegateClassLoader = new CountingClassLoader(new URL[]{getJarUri("cytodynamics-test-api").toURL()});
+  }
+
+  @Test
+  public void testResourcesCached() throws Exception {
+    ClassLoader loader = loaderBuilder().withResourceCache(16).build();
+    URL resource = loader.getResource(DATA_TXT_RESOURCE_NAME);
+    assertNotNull(resource);
+    assertNull(loader.getResource(MISSING_RESOURCE_NAME));
+    // from test-a, then from test-api through the delegate
+    List<URL> resources = Collections.list(loader.getResources(DATA_TXT_RESOURCE_NAME));
+    assertEquals(2, resources.size());
+    int lookups = this.delegateClassLoader.getLookups();
+
+    // found and missing resources are both served from the cache
+    assertEquals(resource, loader.getResource(DATA_TXT_RESOURCE_NAME));
+    assertNull(loader.getResource(MISSING_RESOURCE_NAME));
+    assertEquals(resources, Collections.list(loader.getResources(DATA_TXT_RESOURCE_NAME)));
+    assertNotNull(loader.getResourceAsStream(DATA_TXT_RESOURCE_NAME));
+    assertEquals(lookups, this.delegateClassLoader.getLookups());
+
+    ((CytodynamicsLoader) loader).invalidateResourceCache();
+    assertEquals(resource, loader.getResource(DATA_TXT_RESOURCE_NAME));
+    assertTrue(this.delegateClassLoader.getLookups() > lookups);
+  }
+
+  @Test
+  public void testCacheSizeBounded() throws Exception {
+    ClassLoader loader = loaderBuilder().withResourceCache(1).build();
+    loader.getResource(DATA_TXT_RESOURCE_NAME);
+    loader.getResource(MISSING_RESOURCE_NAME);
+    int lookups = this.delegateClassLoader.getLookups();
+
+    // only the first name fits in the cache
+    loader.getResource(DATA_TXT_RESOURCE_NAME);
+    assertEquals(lookups, this.delegateClassLoader.getLookups());
+    loader.getResource(MISSING_RESOURCE_NAME);
+    assertTrue(this.delegateClassLoader.getLookups() > lookups);
+  }
+
+  @Test
+  public void testNotCachedByDefault() throws Exception {
+    ClassLoader loader = loaderBuilder().build();
+    loader.getResource(DATA_TXT_RESOURCE_NAME);
+    int lookups = this.delegateClassLoader.getLookups();
+    loader.getResource(DATA_TXT_RESOURCE_NAME);
+    assertTrue(this.delegateClassLoader.getLookups() > lookups);
+  }
+
+  @Test(expected = InvalidBuilderParametersException.class)
+  public void testNegativeCacheSize() throws Exception {
+    loaderBuilder().withResourceCache(-1).build();
+  }
+
+  private LoaderBuilder loaderBuilder() throws Exception {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.delegateClassLoader)
+            .withIsolationLevel(IsolationLevel.NONE)
+            .build());
+  }
+
+  /**
+   * Counts resource lookups.
+   */
+  private static class CountingClassLoader extends URLClassLoader {
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    CountingClassLoader(URL[] urls) {
+      super(urls, null);
+    }
+
+    @Override
+    public URL getResource(String name) {
+      this.lookups.incrementAndGet();
+      return super.getResource(name);
+    }
+
+    @Override
+    public Enumeration<URL> getResources(String name) throws IOException {
+      this.lookups.incrementAndGet();
+      return super.getResources(name);
+    }
+
+    int getLookups() {
+      return this.lookups.get();
+    }
+  }
+}
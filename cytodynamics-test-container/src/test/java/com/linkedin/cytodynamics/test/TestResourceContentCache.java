@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.LoaderMetrics;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for caching resource contents off-heap.
+ */
+public class TestResourceContentCache {
+  private static final String DATA_TXT_RESOURCE_NAME = "data.txt";
+  private static final String IMPL_RESOURCE_NAME = TestInterfaceImpl.class.getName().replace('.', '/') + ".class";
+  private static final String A_ONLY_IMPL_RESOURCE_NAME =
+      TestInterfaceAOnlyImpl.class.getName().replace('.', '/') + ".class";
+
+  private ClassLoader apiClassLoader;
+
+  @Before
+  public void setup() throws Exception {
+    this.apiClassLoader = new URLClassLoader(new URL[]{getJarUri("cytodynamics-test-api").toURL()}, null);
+  }
+
+  @Test
+  public void testContentsCached() throws Exception {
+    ClassLoader loader = loaderBuilder().withResourceContentCache(1024, 64).build();
+    byte[] content = read(loader, DATA_TXT_RESOURCE_NAME);
+    assertArrayEquals(content, read(loader, DATA_TXT_RESOURCE_NAME));
+    assertArrayEquals(content, read(loaderBuilder().build(), DATA_TXT_RESOURCE_NAME));
+
+    LoaderMetrics.ResourceContentCacheMetrics metrics = ((CytodynamicsLoader) loader).getMetrics()
+        .getResourceContentCache();
+    assertEquals(1, metrics.getHits());
+    assertEquals(1, metrics.getMisses());
+    assertEquals(1, metrics.getEntries());
+    assertEquals(content.length, metrics.getUsedBytes());
+    assertEquals(1024, metrics.getMaxBytes());
+
+    ((CytodynamicsLoader) loader).invalidateResourceCache();
+    assertEquals(0, ((CytodynamicsLoader) loader).getMetrics().getResourceContentCache().getEntries());
+  }
+
+  @Test
+  public void testSelectedResourcesEvicted() throws Exception {
+    ClassLoader uncachedLoader = loaderBuilder().build();
+    int implSize = read(uncachedLoader, IMPL_RESOURCE_NAME).length;
+    int aOnlyImplSize = read(uncachedLoader, A_ONLY_IMPL_RESOURCE_NAME).length;
+    // the class files are larger than the size threshold, and only one of them fits in the budget
+    ClassLoader loader = loaderBuilder()
+        .withResourceContentCache(Math.max(implSize, aOnlyImplSize), 1)
+        .addResourceContentCachePredicate(new GlobMatcher("*.class"))
+        .build();
+
+    assertArrayEquals(read(uncachedLoader, IMPL_RESOURCE_NAME), read(loader, IMPL_RESOURCE_NAME));
+    assertArrayEquals(read(uncachedLoader, A_ONLY_IMPL_RESOURCE_NAME), read(loader, A_ONLY_IMPL_RESOURCE_NAME));
+    LoaderMetrics.ResourceContentCacheMetrics metrics = ((CytodynamicsLoader) loader).getMetrics()
+        .getResourceContentCache();
+    assertEquals(1, metrics.getEvictions());
+    assertEquals(1, metrics.getEntries());
+    assertEquals(aOnlyImplSize, metrics.getUsedBytes());
+
+    // a resource which is neither selected nor small enough is not cached
+    assertNotNull(loader.getResourceAsStream("META-INF/MANIFEST.MF"));
+    assertEquals(1, ((CytodynamicsLoader) loader).getMetrics().getResourceContentCache().getEntries());
+  }
+
+  @Test
+  public void testNotCachedByDefault() throws Exception {
+    ClassLoader loader = loaderBuilder().build();
+    read(loader, DATA_TXT_RESOURCE_NAME);
+    read(loader, DATA_TXT_RESOURCE_NAME);
+    LoaderMetrics.ResourceContentCacheMetrics metrics = ((CytodynamicsLoader) loader).getMetrics()
+        .getResourceContentCache();
+    assertEquals(0, metrics.getHits());
+    assertEquals(0, metrics.getMaxBytes());
+  }
+
+  @Test(expected = InvalidBuilderParametersException.class)
+  public void testNegativeBudget() throws Exception {
+    loaderBuilder().withResourceContentCache(-1, 0).build();
+  }
+
+  private LoaderBuilder loaderBuilder() throws Exception {
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(this.apiClassLoader)
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build());
+  }
+
+  /**
+   * @return contents of the resource, or null if it was not found
+   */
+  private static byte[] read(ClassLoader loader, String name) throws Exception {
+    try (InputStream inputStream = loader.getResourceAsStream(name)) {
+      if (inputStream == null) {
+        return null;
+      }
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int count;
+      while ((count = inputStream.read(buffer)) != -1) {
+        content.write(buffer, 0, count);
+      }
+      return content.toByteArray();
+    }
+  }
+}
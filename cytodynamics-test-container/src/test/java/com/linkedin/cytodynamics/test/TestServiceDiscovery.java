@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.CytodynamicsLoader;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationship;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import com.linkedin.cytodynamics.nucleus.ServiceProviders;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for service discovery through {@link CytodynamicsLoader#loadServices(Class)}.
+ */
+public class TestServiceDiscovery {
+  private static final String TEST_INTERFACE_NAME = TestInterface.class.getName();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClassLoader apiClassLoader;
+
+  @Before
+  public void setup() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    this.apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+  }
+
+  @Test
+  public void testProvidersFollowIsolation() throws Exception {
+    // test-a provides TestInterfaceAOnlyImpl, and the fallback's test-b provides TestInterfaceImpl, which the loader
+    // then loads from test-a
+    List<String> values = getValues(buildLoader(IsolationLevel.NONE));
+    assertEquals(Arrays.asList("A-only", "A"), values);
+    assertEquals(values, getValuesWithServiceLoader(buildLoader(IsolationLevel.NONE)));
+
+    // the provider-configuration file of the fallback is hidden
+    assertEquals(Collections.singletonList("A-only"), getValues(buildLoader(IsolationLevel.FULL)));
+  }
+
+  @Test
+  public void testProviderNamesCached() throws Exception {
+    ClassLoader loader = buildLoader(IsolationLevel.NONE);
+    ServiceProviders<?> providers = ((CytodynamicsLoader) loader).loadServices(loadTestInterface(loader));
+    assertSame(providers.getProviderNames(),
+        ((CytodynamicsLoader) loader).loadServices(loadTestInterface(loader)).getProviderNames());
+    ((CytodynamicsLoader) loader).invalidateResourceCache();
+    assertNotSame(providers.getProviderNames(),
+        ((CytodynamicsLoader) loader).loadServices(loadTestInterface(loader)).getProviderNames());
+  }
+
+  @Test
+  public void testProvidersInstantiatedLazily() throws Exception {
+    Path servicesDirectory = this.temporaryFolder.newFolder("classes", "META-INF", "services").toPath();
+    Files.write(servicesDirectory.resolve(TEST_INTERFACE_NAME),
+        "com.linkedin.cytodynamics.test.Missing\n".getBytes(StandardCharsets.UTF_8));
+    File classesDirectory = servicesDirectory.getParent().getParent().toFile();
+    ClassLoader loader = LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Arrays.asList(getJarUri("cytodynamics-test-a"), classesDirectory.toURI()))
+        .withParentRelationship(parentRelationship())
+        .build();
+
+    ServiceProviders<?> providers = ((CytodynamicsLoader) loader).loadServices(loadTestInterface(loader));
+    assertEquals(Arrays.asList("com.linkedin.cytodynamics.test.TestInterfaceAOnlyImpl",
+        "com.linkedin.cytodynamics.test.Missing"), providers.getProviderNames());
+    Iterator<?> iterator = providers.iterator();
+    Object provider = iterator.next();
+    assertSame(provider, providers.iterator().next());
+    assertTrue(iterator.hasNext());
+    try {
+      iterator.next();
+      fail("Expected ServiceConfigurationError");
+    } catch (ServiceConfigurationError e) {
+      // expected
+    }
+  }
+
+  private ClassLoader buildLoader(IsolationLevel fallbackIsolationLevel) throws Exception {
+    ClassLoader fallbackClassLoader = new URLClassLoader(
+        new URL[]{getJarUri("cytodynamics-test-api").toURL(), getJarUri("cytodynamics-test-b").toURL()}, null);
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(parentRelationship())
+        .addFallbackDelegate(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(fallbackClassLoader)
+            .withIsolationLevel(fallbackIsolationLevel)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .build();
+  }
+
+  private DelegateRelationship parentRelationship() {
+    return DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(this.apiClassLoader)
+        .withIsolationLevel(IsolationLevel.FULL)
+        .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+        .build();
+  }
+
+  private static Class<?> loadTestInterface(ClassLoader loader) throws ClassNotFoundException {
+    return loader.loadClass(TEST_INTERFACE_NAME);
+  }
+
+  private static List<String> getValues(ClassLoader loader) throws Exception {
+    List<String> values = new ArrayList<>();
+    for (Object provider : ((CytodynamicsLoader) loader).loadServices(loadTestInterface(loader))) {
+      values.add((String) provider.getClass().getMethod("getValue").invoke(provider));
+    }
+    return values;
+  }
+
+  private static List<String> getValuesWithServiceLoader(ClassLoader loader) throws Exception {
+    List<String> values = new ArrayList<>();
+    for (Object provider : ServiceLoader.load(loadTestInterface(loader), loader)) {
+      values.add((String) provider.getClass().getMethod("getValue").invoke(provider));
+    }
+    return values;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+
+
+public class ClassFileUtil {
+  /**
+   * Generate the bytes of a class file for a public class without any members.
+   *
+   * @param className binary name of the class
+   * @param superClassName binary name of the superclass
+   * @param interfaceNames binary names of the interfaces implemented by the class
+   */
+  public static byte[] generateClass(String className, String superClassName, String... interfaceNames) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      // Java 8 class file
+      out.writeShort(52);
+      // each class takes two constant pool entries: its name, then the class entry referencing the name
+      out.writeShort(1 + 2 * (2 + interfaceNames.length));
+      writeClassConstant(out, className, 1);
+      writeClassConstant(out, superClassName, 3);
+      for (int i = 0; i < interfaceNames.length; i++) {
+        writeClassConstant(out, interfaceNames[i], 5 + 2 * i);
+      }
+      // ACC_PUBLIC | ACC_SUPER
+      out.writeShort(0x0021);
+      out.writeShort(2);
+      out.writeShort(4);
+      out.writeShort(interfaceNames.length);
+      for (int i = 0; i < interfaceNames.length; i++) {
+        out.writeShort(6 + 2 * i);
+      }
+      // no fields, methods or attributes
+      out.writeShort(0);
+      out.writeShort(0);
+      out.writeShort(0);
+      out.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Get the name of the class file entry for a class.
+   */
+  public static String classFileName(String className) {
+    return className.replace('.', '/') + ".class";
+  }
+
+  /**
+   * Write a JAR containing the given entries.
+   */
+  public static void writeJar(File jarFile, Map<String, byte[]> entries) throws IOException {
+    writeJar(jarFile, entries, true);
+  }
+
+  /**
+   * Write a JAR containing the given entries.
+   *
+   * @param compressed true to deflate the entries, false to store them
+   */
+  public static void writeJar(File jarFile, Map<String, byte[]> entries, boolean compressed) throws IOException {
+    try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jarFile))) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        JarEntry jarEntry = new JarEntry(entry.getKey());
+        if (!compressed) {
+          CRC32 crc = new CRC32();
+          crc.update(entry.getValue());
+          jarEntry.setMethod(JarEntry.STORED);
+          jarEntry.setSize(entry.getValue().length);
+          jarEntry.setCompressedSize(entry.getValue().length);
+          jarEntry.setCrc(crc.getValue());
+        }
+        jarOutputStream.putNextEntry(jarEntry);
+        jarOutputStream.write(entry.getValue());
+        jarOutputStream.closeEntry();
+      }
+    }
+  }
+
+  /**
+   * Writes a CONSTANT_Utf8 entry at {@code nameIndex} followed by a CONSTANT_Class entry referencing it.
+   */
+  private static void writeClassConstant(DataOutputStream out, String className, int nameIndex) throws IOException {
+    out.writeByte(1);
+    out.writeUTF(className.replace('.', '/'));
+    out.writeByte(7);
+    out.writeShort(nameIndex);
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for the Java Flight Recorder events of the loaders. Only compiled and run on Java 11 or later.
+ */
+public class TestFlightRecorderEvents {
+  private static final String[] EVENT_NAMES = {
+      "com.linkedin.cytodynamics.ClassLoad", "com.linkedin.cytodynamics.ResourceLookup",
+      "com.linkedin.cytodynamics.LoaderBuild", "com.linkedin.cytodynamics.OriginValidation",
+      "com.linkedin.cytodynamics.TransitionalViolation"
+  };
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testEvents() throws Exception {
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      for (String eventName : EVENT_NAMES) {
+        recording.enable(eventName);
+      }
+      recording.start();
+      ClassLoader loader = buildLoader();
+      loader.loadClass(TestInterfaceImpl.class.getName());
+      // only visible through TRANSITIONAL isolation
+      loader.loadClass(NonApiTestInterface.class.getName());
+      assertNotNull(loader.getResource("api-only.txt"));
+      recording.stop();
+      Path recordingFile = this.temporaryFolder.getRoot().toPath().resolve("recording.jfr");
+      recording.dump(recordingFile);
+      events = RecordingFile.readAllEvents(recordingFile);
+    }
+
+    RecordedEvent childLoad = findEvent(events, "com.linkedin.cytodynamics.ClassLoad", "className",
+        TestInterfaceImpl.class.getName());
+    assertEquals("CHILD", childLoad.getString("source"));
+    assertEquals(0, childLoad.getInt("relationshipIndex"));
+    assertTrue(childLoad.getString("origin").contains("cytodynamics-test-a"));
+    RecordedEvent apiLoad = findEvent(events, "com.linkedin.cytodynamics.ClassLoad", "className",
+        TestInterface.class.getName());
+    assertEquals("DELEGATE", apiLoad.getString("source"));
+    assertEquals("API", apiLoad.getString("predicateMatch"));
+
+    findEvent(events, "com.linkedin.cytodynamics.ResourceLookup", "name", "api-only.txt");
+    findEvent(events, "com.linkedin.cytodynamics.TransitionalViolation", "name", NonApiTestInterface.class.getName());
+    RecordedEvent loaderBuild = findEvent(events, "com.linkedin.cytodynamics.LoaderBuild", "isolationEngine",
+        "CLASS_LOADER");
+    assertEquals(1, loaderBuild.getInt("classpathSize"));
+    assertTrue(findEvent(events, "com.linkedin.cytodynamics.OriginValidation", "url",
+        getJarUri("cytodynamics-test-a").toURL().toExternalForm()).getBoolean("allowed"));
+  }
+
+  @Test
+  public void testDisabledByDefault() throws Exception {
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.start();
+      buildLoader().loadClass(TestInterfaceImpl.class.getName());
+      recording.stop();
+      Path recordingFile = this.temporaryFolder.getRoot().toPath().resolve("recording.jfr");
+      recording.dump(recordingFile);
+      events = RecordingFile.readAllEvents(recordingFile);
+    }
+    assertTrue(events.stream().noneMatch(event -> event.getEventType().getName().startsWith("com.linkedin")));
+  }
+
+  @Test
+  public void testWithoutFlightRecorderModule() throws Exception {
+    // a runtime image without the jdk.jfr module
+    ClassLoader withoutFlightRecorder = new ClassLoader(null) {
+      @Override
+      protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (name.startsWith("jdk.jfr.")) {
+          throw new ClassNotFoundException(name);
+        }
+        return super.loadClass(name, resolve);
+      }
+    };
+    try (URLClassLoader nucleus =
+        new URLClassLoader(new URL[]{getJarUri("cytodynamics-nucleus").toURL()}, withoutFlightRecorder)) {
+      Class<?> loaderEvents = Class.forName("com.linkedin.cytodynamics.nucleus.LoaderEvents", true, nucleus);
+      Method beginClassLoad = loaderEvents.getDeclaredMethod("beginClassLoad");
+      beginClassLoad.setAccessible(true);
+      assertNull(beginClassLoad.invoke(null));
+      Method commitViolation =
+          loaderEvents.getDeclaredMethod("commitTransitionalClassViolation", String.class, ClassLoader.class);
+      commitViolation.setAccessible(true);
+      commitViolation.invoke(null, TestInterface.class.getName(), nucleus);
+    }
+  }
+
+  private static RecordedEvent findEvent(List<RecordedEvent> events, String eventName, String field, String value) {
+    List<RecordedEvent> matchingEvents = events.stream()
+        .filter(event -> event.getEventType().getName().equals(eventName) && value.equals(event.getString(field)))
+        .collect(Collectors.toList());
+    assertFalse("No " + eventName + " event with " + field + "=" + value, matchingEvents.isEmpty());
+    return matchingEvents.get(0);
+  }
+
+  private static ClassLoader buildLoader() throws Exception {
+    URL[] apiClasspath =
+        new URL[]{getJarUri("cytodynamics-nucleus").toURL(), getJarUri("cytodynamics-test-api").toURL()};
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(new URLClassLoader(apiClasspath, null))
+            .withIsolationLevel(IsolationLevel.TRANSITIONAL)
+            .addDelegatePreferredClassPredicate(new GlobMatcher("java.*"))
+            .build())
+        .build();
+  }
+}
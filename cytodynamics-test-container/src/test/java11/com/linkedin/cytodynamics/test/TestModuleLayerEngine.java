@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.exception.InvalidBuilderParametersException;
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationEngine;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.linkedin.cytodynamics.util.ClassFileUtil.*;
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for {@link IsolationEngine#MODULE_LAYER}. Only compiled and run on Java 11 or later.
+ *
+ * The test fixture JARs all use the same package, which the module layer cannot split between the child and the
+ * delegate, so the child classpath is a generated plugin JAR instead.
+ */
+public class TestModuleLayerEngine {
+  private static final String PLUGIN_CLASS_NAME = "com.linkedin.cytodynamics.plugin.PluginImpl";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File pluginJar;
+  private ClassLoader apiClassLoader;
+
+  @Before
+  public void setup() throws Exception {
+    this.pluginJar = new File(this.temporaryFolder.getRoot(), "plugin.jar");
+    writeJar(this.pluginJar, Collections.singletonMap(classFileName(PLUGIN_CLASS_NAME),
+        generateClass(PLUGIN_CLASS_NAME, Object.class.getName(), TestInterface.class.getName())));
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    this.apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+  }
+
+  @Test
+  public void testFullIsolation() throws Exception {
+    ClassLoader loader = buildLoader(IsolationLevel.FULL, false);
+
+    Class<?> pluginClass = loader.loadClass(PLUGIN_CLASS_NAME);
+    assertEquals(loader, pluginClass.getClassLoader());
+    assertTrue(pluginClass.getModule().isNamed());
+    // API class comes from the delegate
+    Class<?> testInterface = pluginClass.getInterfaces()[0];
+    assertEquals(this.apiClassLoader, testInterface.getClassLoader());
+    assertEquals(testInterface, Class.forName(TestInterface.class.getName(), false, loader));
+    // non-API class is hidden
+    assertClassNotFound(loader, NonApiTestInterface.class.getName());
+  }
+
+  @Test
+  public void testFullIsolationWithWhitelist() throws Exception {
+    ClassLoader loader = buildLoader(IsolationLevel.FULL, true);
+    assertEquals(this.apiClassLoader,
+        Class.forName(NonApiTestInterface.class.getName(), false, loader).getClassLoader());
+  }
+
+  @Test
+  public void testNoneIsolation() throws Exception {
+    ClassLoader loader = buildLoader(IsolationLevel.NONE, false);
+    assertEquals(this.apiClassLoader,
+        Class.forName(NonApiTestInterface.class.getName(), false, loader).getClassLoader());
+    assertNotNull(loader.getResource("api-only.txt"));
+  }
+
+  @Test
+  public void testFullIsolationResources() throws Exception {
+    ClassLoader loader = buildLoader(IsolationLevel.FULL, false);
+    assertNull(loader.getResource("api-only.txt"));
+    assertFalse(loader.getResources("api-only.txt").hasMoreElements());
+  }
+
+  @Test
+  public void testUnsupportedClasspaths() throws Exception {
+    File splitJar = new File(this.temporaryFolder.getRoot(), "split.jar");
+    String splitClassName = "com.linkedin.cytodynamics.plugin.SplitImpl";
+    writeJar(splitJar, Collections.singletonMap(classFileName(splitClassName),
+        generateClass(splitClassName, Object.class.getName())));
+    List<List<URI>> classpaths = Arrays.asList(
+        // package split across JARs
+        Arrays.asList(this.pluginJar.toURI(), splitJar.toURI()),
+        Collections.singletonList(this.temporaryFolder.newFolder("classes").toURI()));
+    for (List<URI> classpath : classpaths) {
+      try {
+        buildLoader(classpath, IsolationLevel.FULL, false);
+        fail("Should not have been able to build a module layer for " + classpath);
+      } catch (InvalidBuilderParametersException e) {
+        // expected
+      }
+    }
+  }
+
+  private ClassLoader buildLoader(IsolationLevel isolationLevel, boolean whitelistNonApiInterface) {
+    return buildLoader(Collections.singletonList(this.pluginJar.toURI()), isolationLevel, whitelistNonApiInterface);
+  }
+
+  private ClassLoader buildLoader(List<URI> classpath, IsolationLevel isolationLevel,
+      boolean whitelistNonApiInterface) {
+    DelegateRelationshipBuilder relationshipBuilder = DelegateRelationshipBuilder.builder()
+        .withDelegateClassLoader(this.apiClassLoader)
+        .withIsolationLevel(isolationLevel);
+    if (whitelistNonApiInterface) {
+      relationshipBuilder.addWhitelistedClassPredicate(new GlobMatcher(NonApiTestInterface.class.getName()));
+    }
+    return LoaderBuilder
+        .anIsolatingLoader()
+        .withIsolationEngine(IsolationEngine.MODULE_LAYER)
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(classpath)
+        .withParentRelationship(relationshipBuilder.build())
+        .build();
+  }
+
+  private static void assertClassNotFound(ClassLoader loader, String className) {
+    try {
+      Class.forName(className, false, loader);
+      fail("Should not have been able to load " + className);
+    } catch (ClassNotFoundException e) {
+      // expected
+    }
+  }
+}
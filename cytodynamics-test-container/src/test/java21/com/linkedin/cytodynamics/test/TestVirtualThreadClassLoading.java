@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018-2019 LinkedIn Corporation
+ * All Rights Reserved.
+ *
+ * Licensed under the BSD 2-Clause License (the "License").
+ * See LICENSE in the project root for license information.
+ */
+package com.linkedin.cytodynamics.test;
+
+import com.linkedin.cytodynamics.matcher.GlobMatcher;
+import com.linkedin.cytodynamics.nucleus.DelegateRelationshipBuilder;
+import com.linkedin.cytodynamics.nucleus.IsolationLevel;
+import com.linkedin.cytodynamics.nucleus.LoaderBuilder;
+import com.linkedin.cytodynamics.nucleus.OriginRestriction;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import static com.linkedin.cytodynamics.util.JarUtil.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Stress test for loading classes from virtual threads. Only compiled and run on Java 21 or later.
+ */
+public class TestVirtualThreadClassLoading {
+  private static final int VIRTUAL_THREAD_COUNT = 10_000;
+  private static final long DELEGATE_PARK_NANOS = 100_000;
+  private static final String PINNED_EVENT_NAME = "jdk.VirtualThreadPinned";
+  private static final String ISOLATING_CLASS_LOADER_CLASS_NAME =
+      "com.linkedin.cytodynamics.nucleus.IsolatingClassLoader";
+
+  /**
+   * Given many virtual threads loading the same classes through a delegate which blocks, the isolating loader should
+   * never pin a virtual thread to its carrier while holding its class loading lock.
+   */
+  @Test
+  public void testLoadClassFromVirtualThreadsWithoutPinning() throws Exception {
+    URL cytodynamics = getJarUri("cytodynamics-nucleus").toURL();
+    ClassLoader apiClassLoader =
+        new URLClassLoader(new URL[]{cytodynamics, getJarUri("cytodynamics-test-api").toURL()}, null);
+    ClassLoader loader = LoaderBuilder
+        .anIsolatingLoader()
+        .withOriginRestriction(OriginRestriction.allowByDefault())
+        .withClasspath(Collections.singletonList(getJarUri("cytodynamics-test-a")))
+        .withParentRelationship(DelegateRelationshipBuilder.builder()
+            .withDelegateClassLoader(new ParkingClassLoader(apiClassLoader))
+            .withIsolationLevel(IsolationLevel.FULL)
+            .addWhitelistedClassPredicate(new GlobMatcher(NonApiTestInterface.class.getName()))
+            .build())
+        .build();
+    String[] classNames = {TestInterface.class.getName(), NonApiTestInterface.class.getName()};
+
+    Path recordingFile = Files.createTempFile("cytodynamics-virtual-threads", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(PINNED_EVENT_NAME).withThreshold(Duration.ZERO).withStackTrace();
+      recording.start();
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        List<Future<Class<?>>> futures = new ArrayList<>(VIRTUAL_THREAD_COUNT);
+        for (int i = 0; i < VIRTUAL_THREAD_COUNT; i++) {
+          String className = classNames[i % classNames.length];
+          futures.add(executor.submit(() -> loader.loadClass(className)));
+        }
+        for (int i = 0; i < VIRTUAL_THREAD_COUNT; i++) {
+          assertEquals(classNames[i % classNames.length], futures.get(i).get().getName());
+        }
+      }
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    try {
+      List<RecordedEvent> pinnedEvents = new ArrayList<>();
+      for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+        if (event.getEventType().getName().equals(PINNED_EVENT_NAME) && isInIsolatingClassLoader(event)) {
+          pinnedEvents.add(event);
+        }
+      }
+      assertTrue("Virtual threads were pinned while loading classes: " + pinnedEvents, pinnedEvents.isEmpty());
+    } finally {
+      Files.delete(recordingFile);
+    }
+  }
+
+  private static boolean isInIsolatingClassLoader(RecordedEvent event) {
+    return event.getStackTrace() != null && event.getStackTrace()
+        .getFrames()
+        .stream()
+        .anyMatch(frame -> frame.getMethod().getType().getName().equals(ISOLATING_CLASS_LOADER_CLASS_NAME));
+  }
+
+  /**
+   * Delegate classloader which parks before every lookup, like a delegate fetching classes remotely would.
+   */
+  private static class ParkingClassLoader extends ClassLoader {
+    ParkingClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      LockSupport.parkNanos(DELEGATE_PARK_NANOS);
+      return super.loadClass(name, resolve);
+    }
+  }
+}